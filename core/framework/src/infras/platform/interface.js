@@ -8,7 +8,12 @@ import common from '../common'
 import { invokeScript } from 'src/shared/function'
 
 import ModuleHost from './module/index'
-import { registerModules, execInvokeCallback, requireModule } from './module/interface'
+import {
+  registerModules,
+  execInvokeCallback,
+  execInvokeCallbacks,
+  requireModule
+} from './module/interface'
 import Session from './session'
 import { registerBundleChunks, requireBundleChunk } from './chunk'
 
@@ -145,6 +150,7 @@ export default {
     registerModules,
     registerBundleChunks,
     execInvokeCallback,
+    execInvokeCallbacks,
     registerManifest,
     getManifestField,
     isRpkMinPlatformVersionGEQ,
@@ -60,4 +60,27 @@ function execInvokeCallback(event) {
   return new Error(`execInvokeCallback: 无效invoke回调Id "${id && id.instance}"`)
 }
 
-export { registerModules, execInvokeCallback, requireModule }
+/**
+ * 批量接受来自原生的回调, 同一批次中的回调按顺序执行
+ * @param events 回调结果数组
+ * @returns {Array} 每个回调的执行结果
+ */
+function execInvokeCallbacks(events) {
+  if (typeof events === 'string') {
+    events = JSON.parse(events)
+  }
+  if (!Array.isArray(events)) {
+    return new Error('execInvokeCallbacks: 无效的回调数组')
+  }
+  return events.map(function(event) {
+    try {
+      return execInvokeCallback(event)
+    } catch (err) {
+      // 单个回调出错时不影响同一批次中的其它回调
+      console.error(`### App Framework ### 处理invoke回调出错----`, err)
+      return err
+    }
+  })
+}
+
+export { registerModules, execInvokeCallback, execInvokeCallbacks, requireModule }
@@ -29,6 +29,20 @@ const base = {
     }, waitTime)
   },
 
+  // 多个回调通过一次 execInvokeCallbacks 返回, list 中的元素为 { callbackId, data, code }
+  mockBatch(list) {
+    global.setTimeout(() => {
+      global.execInvokeCallbacks(
+        list.map(item => {
+          return {
+            callback: item.callbackId,
+            data: this.mockResult(item.data, item.code)
+          }
+        })
+      )
+    }, waitTime)
+  },
+
   mockSubscribe(callbackId, data, code) {
     return global.setInterval(() => {
       global.execInvokeCallback({
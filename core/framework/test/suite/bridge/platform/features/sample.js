@@ -32,6 +32,17 @@ export const config = {
       mode: 1,
       normalize: 0
     },
+    {
+      name: 'methodCallbackBatch',
+      type: 0,
+      mode: 1
+    },
+    {
+      name: 'methodCallbackEcho',
+      type: 0,
+      mode: 1,
+      normalize: 0
+    },
     {
       name: 'methodSubscribe1',
       type: 0,
@@ -121,6 +132,8 @@ const moduleOwn = Object.assign(
 
     handlerCustomEvent1: null,
 
+    pendingBatch: [],
+
     methodSync1(options = {}) {
       return this.mockSync(options._data, options._code)
     },
@@ -139,6 +152,22 @@ const moduleOwn = Object.assign(
       this.mockOnce(callbackId, options._data, options._code)
     },
 
+    // 累积 _batch 个回调后通过 execInvokeCallbacks 一次返回, _invalid 时在批次开头插入无效的回调
+    methodCallbackBatch(options = {}, callbackId) {
+      if (options._invalid) {
+        this.pendingBatch.push({ callbackId: -1 })
+      }
+      this.pendingBatch.push({ callbackId, data: options._data, code: options._code })
+      if (this.pendingBatch.length >= (options._batch || 1)) {
+        this.mockBatch(this.pendingBatch.splice(0))
+      }
+    },
+
+    // 与原生的异步调用一样, 参数在调用返回后才被读取, 并原样返回
+    methodCallbackEcho(options = {}, callbackId) {
+      this.mockOnce(callbackId, options)
+    },
+
     methodSubscribe1(options = {}, callbackId) {
       if (!this.handlerSubscribe1) {
         this.handlerSubscribe1 = this.mockSubscribe(callbackId, options._data, options._code)
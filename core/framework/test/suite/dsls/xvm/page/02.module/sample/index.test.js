@@ -153,6 +153,67 @@ describe('框架：02.native接口', () => {
     })
   })
 
+  it('接口的批量回调', async () => {
+    const sample = pageVm.sample
+    const results = []
+    const batch = 4
+
+    // 同一批次中的回调按顺序执行
+    for (let i = 0; i < batch; i++) {
+      sample.methodCallbackBatch({
+        _batch: batch,
+        _data: { index: i },
+        success: ret => results.push(ret.index)
+      })
+    }
+    await waitForOK()
+    expect(results).to.deep.equal([0, 1, 2, 3])
+
+    // 批次中的无效回调不影响其它回调
+    results.splice(0)
+    sample.methodCallbackBatch({
+      _batch: 3,
+      _invalid: true,
+      _data: { index: 0 },
+      success: ret => results.push(ret.index)
+    })
+    sample.methodCallbackBatch({
+      _batch: 3,
+      _data: { index: 1 },
+      success: ret => results.push(ret.index)
+    })
+    await waitForOK()
+    expect(results).to.deep.equal([0, 1])
+
+    // 无效的批次
+    expect(global.execInvokeCallbacks('{}')).to.be.an('error')
+    const rets = global.execInvokeCallbacks(JSON.stringify([{ callback: -1 }]))
+    expect(rets.length).to.equal(1)
+    expect(rets[0]).to.be.an('error')
+  })
+
+  it('异步接口在调用返回后读取全部参数', async () => {
+    const sample = pageVm.sample
+    const params = {
+      text: 'v1',
+      count: 2,
+      flag: false,
+      list: [1, 'a', { k: 'v' }],
+      nested: { inner: { value: 3 } }
+    }
+    let result
+    const modRet = sample.methodCallbackEcho(
+      Object.assign({}, params, {
+        success: ret => {
+          result = ret
+        }
+      })
+    )
+    expect(modRet).to.equal(undefined)
+    await waitForOK()
+    expect(result).to.deep.equal(params)
+  })
+
   it('接口的属性操作', async () => {
     // 读写
     const rw = pageVm.opsTestReadwrite()
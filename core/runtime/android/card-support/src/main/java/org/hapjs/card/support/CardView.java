@@ -587,6 +587,11 @@ public class CardView extends RootView
         mApplyActionWorker.start();
     }
 
+    @Override
+    protected void applyActionsInFrames() {
+        mApplyActionWorker.start();
+    }
+
     private RenderAction pollRenderAction() {
         if (getDocument() == null || getDocument().getComponent().isOpenWithAnimation()) {
             return null;
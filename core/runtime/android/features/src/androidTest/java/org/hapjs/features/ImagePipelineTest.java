@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.net.Uri;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 合并后的结果与依次执行每个操作的结果一致
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImagePipelineTest {
+
+    @Test
+    public void planMatchesSequentialOperations() {
+        ImagePipeline.Plan plan = new ImagePipeline.Plan(4000, 3000);
+        plan.crop(1000, 500, 2000, 1000);
+        plan.rotate(90);
+        plan.scale(0.25f, 0.25f);
+        plan.crop(50, 100, 200, 200);
+
+        assertEquals(200, plan.getWidth());
+        assertEquals(200, plan.getHeight());
+        // 最后一次裁剪只需要原图中 800x800 的区域, 缩小 4 倍可以在解码时采样
+        assertEquals(new Rect(1400, 500, 2200, 1300), plan.getSourceRegion());
+        assertEquals(4, plan.getSampleSize(plan.getSourceRegion()));
+    }
+
+    @Test
+    public void cropRejectsEmptyOrNegativeRegion() {
+        int[][] regions = {{-1, 0, 100, 100}, {0, -1, 100, 100}, {0, 0, 0, 100}, {0, 0, 100, -1}};
+        for (int[] region : regions) {
+            ImagePipeline.Plan plan = new ImagePipeline.Plan(400, 300);
+            try {
+                plan.crop(region[0], region[1], region[2], region[3]);
+                fail("crop should be rejected: " + Arrays.toString(region));
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void executeMatchesCreateBitmap() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Bitmap source = Bitmap.createBitmap(400, 300, Bitmap.Config.ARGB_8888);
+        source.eraseColor(Color.RED);
+        File input = new File(context.getCacheDir(), "pipeline_input.png");
+        try (OutputStream out = new FileOutputStream(input)) {
+            source.compress(Bitmap.CompressFormat.PNG, 100, out);
+        }
+
+        Matrix matrix = new Matrix();
+        matrix.setRotate(30);
+        Bitmap cropped = Bitmap.createBitmap(source, 100, 50, 200, 150);
+        Bitmap expected =
+                Bitmap.createBitmap(cropped, 0, 0, cropped.getWidth(), cropped.getHeight(), matrix,
+                        false);
+
+        ImagePipeline.Plan plan = new ImagePipeline.Plan(400, 300);
+        plan.crop(100, 50, 200, 150);
+        plan.rotate(30);
+        File output = new File(context.getCacheDir(), "pipeline_output.png");
+        ImagePipeline.execute(context.getContentResolver(), Uri.fromFile(input), plan,
+                Bitmap.CompressFormat.PNG, 100, output);
+
+        Bitmap actual = BitmapFactory.decodeFile(output.getPath());
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int centerX = actual.getWidth() / 2;
+        int centerY = actual.getHeight() / 2;
+        assertEquals(expected.getPixel(centerX, centerY), actual.getPixel(centerX, centerY));
+        assertEquals(Color.TRANSPARENT, actual.getPixel(0, 0));
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.hapjs.bridge.ApplicationContext;
+import org.hapjs.features.storage.data.internal.IStorage;
+import org.hapjs.features.storage.data.internal.LocalStorage;
+import org.hapjs.features.storage.data.internal.MMKVStorage;
+import org.hapjs.features.storage.data.internal.WriteBehindStorage;
+import org.hapjs.runtime.HapEngine;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 对比各存储实现的吞吐量, 结果输出到 logcat. WriteBehindStorage 与作为 backend 的存储单独使用时对比
+ */
+@RunWith(AndroidJUnit4.class)
+public class StorageBenchmarkTest {
+    private static final String TAG = "StorageBenchmarkTest";
+    private static final int COUNT = 2000;
+
+    @Test
+    public void benchmark() {
+        ApplicationContext context =
+                HapEngine.getInstance("storagebenchmark").getApplicationContext();
+        File journal = new File(context.getDatabaseDir(), "benchmark.journal");
+        journal.delete();
+
+        long mmkv = run("MMKVStorage", new MMKVStorage(context));
+        WriteBehindStorage storage = new WriteBehindStorage(new MMKVStorage(context), journal);
+        long writeBehindMmkv = run("WriteBehindStorage(MMKVStorage)", storage);
+        storage.flush();
+
+        long local = run("LocalStorage", new LocalStorage(context));
+        storage = new WriteBehindStorage(new LocalStorage(context), journal);
+        long writeBehindLocal = run("WriteBehindStorage(LocalStorage)", storage);
+        storage.flush();
+
+        Log.i(TAG, "set speedup: MMKVStorage=" + (float) writeBehindMmkv / Math.max(mmkv, 1)
+                + ", LocalStorage=" + (float) writeBehindLocal / Math.max(local, 1));
+    }
+
+    @Test
+    public void recoverFromJournal() {
+        ApplicationContext context =
+                HapEngine.getInstance("storagebenchmark").getApplicationContext();
+        File journal = new File(context.getDatabaseDir(), "recover.journal");
+        journal.delete();
+
+        // backend 写入失败时修改只保存在日志中
+        MemoryStorage backend = new MemoryStorage();
+        backend.mFailed = true;
+        WriteBehindStorage storage = new WriteBehindStorage(backend, journal);
+        storage.set("a", "1");
+        storage.set("b", "2");
+        storage.delete("a");
+        storage.flush();
+        assertEquals(0, backend.length());
+
+        backend.mFailed = false;
+        WriteBehindStorage recovered = new WriteBehindStorage(backend, journal);
+        assertEquals(1, recovered.length());
+        assertEquals("b", recovered.key(0));
+        assertEquals("2", backend.get("b"));
+        assertNull(backend.get("a"));
+    }
+
+    @Test
+    public void reloadReadsOtherProcessWrites() {
+        ApplicationContext context =
+                HapEngine.getInstance("storagebenchmark").getApplicationContext();
+        File journal = new File(context.getDatabaseDir(), "reload.journal");
+        journal.delete();
+
+        MemoryStorage backend = new MemoryStorage();
+        WriteBehindStorage storage = new WriteBehindStorage(backend, journal);
+        storage.set("a", "1");
+        // 其它进程直接写入 backend
+        backend.set("b", "2");
+        assertNull(storage.get("b"));
+
+        storage.reload();
+        assertEquals(2, storage.length());
+        assertEquals("1", storage.get("a"));
+        assertEquals("2", storage.get("b"));
+        assertEquals("1", backend.get("a"));
+    }
+
+    /**
+     * @return 每秒 set 的次数
+     */
+    private long run(String name, IStorage storage) {
+        storage.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            storage.set("key" + i, "value" + i);
+        }
+        long setCost = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals("value" + i, storage.get("key" + i));
+        }
+        long getCost = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int length = storage.length();
+        for (int i = 0; i < length; i++) {
+            storage.key(i);
+        }
+        long keyCost = System.nanoTime() - start;
+        assertEquals(COUNT, length);
+
+        long setRate = COUNT * 1000000000L / Math.max(setCost, 1);
+        Log.i(TAG, name
+                + ": set=" + setRate + "/s"
+                + ", get=" + COUNT * 1000000000L / Math.max(getCost, 1) + "/s"
+                + ", key=" + COUNT * 1000000000L / Math.max(keyCost, 1) + "/s");
+        storage.clear();
+        return setRate;
+    }
+
+    private static class MemoryStorage implements IStorage {
+        private final Map<String, String> mMap = new LinkedHashMap<>();
+        // 写入在后台线程执行
+        private volatile boolean mFailed;
+
+        @Override
+        public synchronized String get(String key) {
+            return mMap.get(key);
+        }
+
+        @Override
+        public synchronized boolean set(String key, String value) {
+            if (mFailed) {
+                return false;
+            }
+            mMap.put(key, value);
+            return true;
+        }
+
+        @Override
+        public synchronized Map<String, String> entries() {
+            return new LinkedHashMap<>(mMap);
+        }
+
+        @Override
+        public synchronized String key(int index) {
+            return null;
+        }
+
+        @Override
+        public synchronized int length() {
+            return mMap.size();
+        }
+
+        @Override
+        public synchronized boolean delete(String key) {
+            return mMap.remove(key) != null;
+        }
+
+        @Override
+        public synchronized boolean clear() {
+            mMap.clear();
+            return true;
+        }
+    }
+}
@@ -12,9 +12,6 @@ import android.content.Intent;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.BitmapRegionDecoder;
-import android.graphics.Matrix;
-import android.graphics.Rect;
 import android.net.Uri;
 import android.provider.MediaStore;
 import android.text.TextUtils;
@@ -22,10 +19,8 @@ import android.util.Log;
 import androidx.exifinterface.media.ExifInterface;
 import com.theartofdev.edmodo.cropper.CropImage;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -38,8 +33,9 @@ import org.hapjs.bridge.Request;
 import org.hapjs.bridge.Response;
 import org.hapjs.bridge.annotation.ActionAnnotation;
 import org.hapjs.bridge.annotation.FeatureExtensionAnnotation;
+import org.hapjs.common.executors.Executor;
 import org.hapjs.common.utils.FileHelper;
-import org.hapjs.common.utils.FileUtils;
+import org.hapjs.logging.RuntimeLogManager;
 import org.hapjs.render.jsruntime.serialize.SerializeException;
 import org.hapjs.render.jsruntime.serialize.SerializeObject;
 import org.json.JSONArray;
@@ -132,6 +128,18 @@ public class Image extends FeatureExtension {
         return FEATURE_NAME;
     }
 
+    @Override
+    public Executor getExecutor(Request request) {
+        String action = request.getAction();
+        if (ACTION_COMPRESS_IMAGE.equals(action)
+                || ACTION_COMPRESS.equals(action)
+                || ACTION_APPLY_OPERATIONS.equals(action)) {
+            // 使用独立的线程池, 内存占用由 ImagePipeline 限制
+            return ImagePipeline.getExecutor();
+        }
+        return super.getExecutor(request);
+    }
+
     @Override
     protected Response invokeInner(Request request) throws Exception {
         String action = request.getAction();
@@ -180,14 +188,11 @@ public class Image extends FeatureExtension {
         }
 
         Activity activity = request.getNativeInterface().getActivity();
-        Bitmap bitmap;
         BitmapFactory.Options options = obtainOptions(request, underlyingUri);
         if (options == null) {
             return;
         }
         ExifInterface exifInterface = null;
-        double expectWidth = options.outWidth / ratio;
-        double expectHeight = options.outHeight / ratio;
         try (InputStream in = activity.getContentResolver().openInputStream(underlyingUri)) {
             exifInterface = new ExifInterface(in);
         } catch (IOException e) {
@@ -196,46 +201,21 @@ public class Image extends FeatureExtension {
             request.getCallback().callback(response);
             return;
         }
-        Bitmap dstBitmap;
-        try (InputStream in = activity.getContentResolver().openInputStream(underlyingUri)) {
-            options.inJustDecodeBounds = false;
-            options.inSampleSize =
-                    ratio <= 1 ? 1 :
-                            (int) Math.pow(2, (int) Math.floor(Math.log(ratio) / Math.log(2)));
-            bitmap = BitmapFactory.decodeStream(in, null, options);
-            dstBitmap = scaleAndRotateBitmap(bitmap, exifInterface, expectWidth, expectHeight);
-        } catch (IOException e) {
-            Response response =
-                    getExceptionResponse(request.getAction(), e, Response.CODE_IO_ERROR);
-            request.getCallback().callback(response);
-            return;
-        } catch (OutOfMemoryError e) {
-            Response response = new Response(Response.CODE_OOM_ERROR, e.getMessage());
-            request.getCallback().callback(response);
-            return;
-        }
 
-        OutputStream out = null;
-        File tmpFile;
+        ImagePipeline.Plan plan;
         try {
-            String extension = EXTENSION_MAP.get(format);
-            tmpFile = request.getApplicationContext().createTempFile("compress", extension);
-            out = new FileOutputStream(tmpFile);
-            dstBitmap.compress(compressFormat, (int) Math.round(quality), out);
-        } catch (IOException e) {
-            Response response =
-                    getExceptionResponse(request.getAction(), e, Response.CODE_IO_ERROR);
+            plan = new ImagePipeline.Plan(options.outWidth, options.outHeight);
+            plan.scale((float) (1 / ratio), (float) (1 / ratio));
+            int degree = getOrientationDegree(exifInterface);
+            if (degree != 0) {
+                plan.rotate(degree);
+            }
+        } catch (IllegalArgumentException e) {
+            Response response = new Response(Response.CODE_ILLEGAL_ARGUMENT, e.getMessage());
             request.getCallback().callback(response);
             return;
-        } finally {
-            FileUtils.closeQuietly(out);
-            dstBitmap.recycle();
-            bitmap.recycle();
         }
-
-        String resultUri = request.getApplicationContext().getInternalUri(tmpFile);
-        Response response = new Response(makeResult(resultUri));
-        request.getCallback().callback(response);
+        executePlan(request, underlyingUri, plan, "compress", quality, format, compressFormat);
     }
 
     private void getImageInfo(Request request, Uri underlyingUri) throws JSONException {
@@ -497,154 +477,77 @@ public class Image extends FeatureExtension {
             return;
         }
 
+        BitmapFactory.Options options = obtainOptions(request, underlyingUri);
+        if (options == null) {
+            return;
+        }
+        ImagePipeline.Plan plan;
         try {
-            String resultUri =
-                    handleBitmap(request, underlyingUri, operationList, quality, format,
-                            compressFormat);
-            if (resultUri != null) {
-                Response response = new Response(makeResult(resultUri));
-                request.getCallback().callback(response);
-            } else {
-                Response response = new Response(Response.ERROR);
-                request.getCallback().callback(response);
+            plan = new ImagePipeline.Plan(options.outWidth, options.outHeight);
+            for (Operation operation : operationList) {
+                if (operation instanceof CropOperation) {
+                    CropOperation cropOperation = (CropOperation) operation;
+                    plan.crop(
+                            (int) Math.round(cropOperation.x),
+                            (int) Math.round(cropOperation.y),
+                            (int) Math.round(cropOperation.width),
+                            (int) Math.round(cropOperation.height));
+                } else if (operation instanceof RotateOperation) {
+                    plan.rotate((float) ((RotateOperation) operation).degree);
+                } else if (operation instanceof ScaleOperation) {
+                    ScaleOperation scaleOperation = (ScaleOperation) operation;
+                    plan.scale((float) scaleOperation.scaleX, (float) scaleOperation.scaleY);
+                }
             }
-        } catch (IOException e) {
-            Response response =
-                    getExceptionResponse(request.getAction(), e, Response.CODE_IO_ERROR);
-            request.getCallback().callback(response);
-        } catch (OutOfMemoryError e) {
-            Response response = getErrorResponse(request.getAction(), e, Response.CODE_OOM_ERROR);
+        } catch (IllegalArgumentException e) {
+            Response response = new Response(Response.CODE_ILLEGAL_ARGUMENT, e.getMessage());
             request.getCallback().callback(response);
+            return;
         }
+        executePlan(request, underlyingUri, plan, "applyOperations", quality, format,
+                compressFormat);
     }
 
-    private String handleBitmap(
+    /**
+     * 所有操作合并为一次区域解码和一次绘制, 结果写入临时文件
+     */
+    private void executePlan(
             Request request,
-            Uri uri,
-            List<Operation> operations,
+            Uri underlyingUri,
+            ImagePipeline.Plan plan,
+            String prefix,
             double quality,
             String format,
-            Bitmap.CompressFormat compressFormat)
-            throws IOException {
-        Bitmap bitmap = null;
-        Activity activity = request.getNativeInterface().getActivity();
-
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        try (InputStream in = activity.getContentResolver().openInputStream(uri)) {
-            options.inJustDecodeBounds = true;
-            BitmapFactory.decodeStream(in, null, options);
-        }
-        int orgWidth = options.outWidth;
-        int orgHeight = options.outHeight;
-
-        options.inJustDecodeBounds = false;
-
-        for (Operation operation : operations) {
-            if (operation instanceof CropOperation) {
-                CropOperation cropOperation = (CropOperation) operation;
-                Rect rect =
-                        new Rect(
-                                (int) Math.round(cropOperation.x),
-                                (int) Math.round(cropOperation.y),
-                                (int) Math.round(cropOperation.x + cropOperation.width),
-                                (int) Math.round(cropOperation.y + cropOperation.height));
-                if (bitmap == null) {
-                    if (!checkCropParams(cropOperation, request, orgWidth, orgHeight)) {
-                        return null;
-                    }
-                    BitmapRegionDecoder decoder = null;
-                    try (InputStream in = activity.getContentResolver().openInputStream(uri)) {
-                        decoder = BitmapRegionDecoder.newInstance(in, false);
-                        if (decoder != null) {
-                            bitmap = decoder.decodeRegion(rect, options);
-                        }
-                    } finally {
-                        if (decoder != null) {
-                            decoder.recycle();
-                        }
-                    }
-                } else {
-                    if (!checkCropParams(cropOperation, request, bitmap.getWidth(),
-                            bitmap.getHeight())) {
-                        return null;
-                    }
-                    bitmap =
-                            Bitmap.createBitmap(
-                                    bitmap,
-                                    (int) Math.round(cropOperation.x),
-                                    (int) Math.round(cropOperation.y),
-                                    (int) Math.round(cropOperation.width),
-                                    (int) Math.round(cropOperation.height));
-                }
-            } else if (operation instanceof RotateOperation) {
-                RotateOperation rotateOperation = (RotateOperation) operation;
-                Matrix matrix = new Matrix();
-                matrix.setRotate((float) rotateOperation.degree);
-                if (bitmap == null) {
-                    try (InputStream in = activity.getContentResolver().openInputStream(uri)) {
-                        bitmap = BitmapFactory.decodeStream(in, null, options);
-                    }
-                }
-                if (bitmap != null) {
-                    bitmap =
-                            Bitmap.createBitmap(
-                                    bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix,
-                                    false);
-                }
-            } else if (operation instanceof ScaleOperation) {
-                ScaleOperation scaleOperation = (ScaleOperation) operation;
-                Matrix matrix = new Matrix();
-                matrix.setScale((float) scaleOperation.scaleX, (float) scaleOperation.scaleY);
-                if (bitmap == null) {
-                    try (InputStream in = activity.getContentResolver().openInputStream(uri)) {
-                        bitmap = BitmapFactory.decodeStream(in, null, options);
-                    }
-                }
-                if (bitmap != null) {
-                    bitmap =
-                            Bitmap.createBitmap(
-                                    bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix,
-                                    false);
-                }
-            }
-        }
-
-        if (bitmap != null) {
-            OutputStream out = null;
-            File tmpFile;
-            try {
-                String extension = EXTENSION_MAP.get(format);
-                tmpFile = request.getApplicationContext()
-                        .createTempFile("applyOperations", extension);
-                out = new FileOutputStream(tmpFile);
-                bitmap.compress(compressFormat, (int) Math.round(quality), out);
-                return request.getApplicationContext().getInternalUri(tmpFile);
-            } finally {
-                FileUtils.closeQuietly(out);
-                bitmap.recycle();
-            }
-        } else {
-            return null;
-        }
-    }
-
-    private boolean checkCropParams(
-            CropOperation cropOperation, Request request, int width, int height) {
-        if (Math.round(cropOperation.x) + Math.round(cropOperation.width) > width) {
-            Response response =
-                    new Response(Response.CODE_ILLEGAL_ARGUMENT,
-                            "x + width must be <= bitmap.width()");
-            request.getCallback().callback(response);
-            return false;
-        }
-        if (Math.round(cropOperation.y) + Math.round(cropOperation.height) > height) {
-            Response response =
-                    new Response(Response.CODE_ILLEGAL_ARGUMENT,
-                            "y + height must be <= bitmap.height()");
-            request.getCallback().callback(response);
-            return false;
+            Bitmap.CompressFormat compressFormat) {
+        Response response;
+        try {
+            String extension = EXTENSION_MAP.get(format);
+            File tmpFile = request.getApplicationContext().createTempFile(prefix, extension);
+            ImagePipeline.Timings timings =
+                    ImagePipeline.execute(
+                            request.getNativeInterface().getActivity().getContentResolver(),
+                            underlyingUri,
+                            plan,
+                            compressFormat,
+                            (int) Math.round(quality),
+                            tmpFile);
+            RuntimeLogManager.getDefault()
+                    .logImagePipeline(
+                            request.getApplicationContext().getPackage(),
+                            request.getAction(),
+                            timings.mWait,
+                            timings.mDecode,
+                            timings.mTransform,
+                            timings.mEncode,
+                            timings.mSampleSize);
+            String resultUri = request.getApplicationContext().getInternalUri(tmpFile);
+            response = new Response(makeResult(resultUri));
+        } catch (IOException e) {
+            response = getExceptionResponse(request.getAction(), e, Response.CODE_IO_ERROR);
+        } catch (OutOfMemoryError e) {
+            response = getErrorResponse(request.getAction(), e, Response.CODE_OOM_ERROR);
         }
-        return true;
+        request.getCallback().callback(response);
     }
 
     private BitmapFactory.Options obtainOptions(Request request, Uri underlyingUri) {
@@ -662,33 +565,20 @@ public class Image extends FeatureExtension {
         return options;
     }
 
-    private Bitmap scaleAndRotateBitmap(
-            Bitmap src, ExifInterface exifInterface, double expectWidth, double expectHeight) {
-        Matrix matrix = new Matrix();
-        int width = src.getWidth();
-        int height = src.getHeight();
-        float sx = (float) (expectWidth / width);
-        float sy = (float) (expectHeight / height);
-        matrix.postScale(sx, sy);
+    private int getOrientationDegree(ExifInterface exifInterface) {
         int orientation =
                 exifInterface.getAttributeInt(
                         ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
-
         switch (orientation) {
             case ExifInterface.ORIENTATION_ROTATE_90:
-                matrix.postRotate(90);
-                break;
+                return 90;
             case ExifInterface.ORIENTATION_ROTATE_180:
-                matrix.postRotate(180);
-                break;
+                return 180;
             case ExifInterface.ORIENTATION_ROTATE_270:
-                matrix.postRotate(270);
-                break;
+                return 270;
             default:
-                break;
+                return 0;
         }
-
-        return Bitmap.createBitmap(src, 0, 0, width, height, matrix, true);
     }
 
     private JSONObject makeResult(String uri) {
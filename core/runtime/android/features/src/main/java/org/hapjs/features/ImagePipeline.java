@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features;
+
+import android.content.ComponentCallbacks2;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.hapjs.common.executors.ConcurrentExecutor;
+import org.hapjs.common.executors.Executor;
+import org.hapjs.common.executors.Executors;
+import org.hapjs.common.executors.Future;
+import org.hapjs.common.utils.FileUtils;
+
+/**
+ * 图片处理流水线.
+ *
+ * <p>{@link Plan} 把裁剪, 旋转, 缩放合并为原图上的一个区域和一个变换矩阵, 执行时只解码该区域, 并按缩小的比例设置
+ * inSampleSize, 再通过一次绘制得到结果. 解码和输出用的 bitmap 从池中复用.
+ *
+ * <p>在 {@link #getExecutor()} 的线程中执行, 同时使用的像素内存不超过 {@link #MEMORY_BUDGET}, 超出时等待其他任务完成.
+ * 池中的 bitmap 在内存不足时释放, 一段时间没有任务时也会清空.
+ */
+class ImagePipeline {
+    private static final String TAG = "ImagePipeline";
+
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final long MAX_MEMORY = Runtime.getRuntime().maxMemory();
+    // 所有任务同时占用的像素内存上限, 单个任务超过上限时独占执行
+    static final long MEMORY_BUDGET = Math.min(MAX_MEMORY / 4, 256L * 1024 * 1024);
+    // 池中保留的 bitmap 内存上限
+    private static final long POOL_BYTES = Math.min(MAX_MEMORY / 16, 64L * 1024 * 1024);
+    // 没有任务后清空池的延时
+    private static final long POOL_IDLE_TIMEOUT_MS = 30 * 1000;
+    // 解码和编码占用 cpu 和大量内存, 不与其他任务共用线程池
+    private static final int MAX_THREAD_COUNT =
+            Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+    private static final long KEEP_ALIVE_TIME = 3000L;
+    private static final String THREAD_NAME = "[image]-";
+
+    private static final Object BUDGET_LOCK = new Object();
+    private static long sBudgetUsed;
+    private static Future sIdleClear;
+    private static final BitmapPool POOL = new BitmapPool(POOL_BYTES);
+
+    private ImagePipeline() {
+    }
+
+    static Executor getExecutor() {
+        return ExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * 执行 plan, 结果编码后写入 outFile
+     *
+     * @return 各阶段耗时
+     */
+    static Timings execute(
+            ContentResolver resolver,
+            Uri uri,
+            Plan plan,
+            Bitmap.CompressFormat format,
+            int quality,
+            File outFile)
+            throws IOException {
+        Timings timings = new Timings();
+        long start = SystemClock.elapsedRealtime();
+
+        Rect region = plan.getSourceRegion();
+        int sampleSize = plan.getSampleSize(region);
+        int decodedWidth = scaledDimension(region.width(), sampleSize);
+        int decodedHeight = scaledDimension(region.height(), sampleSize);
+        long bytes =
+                ((long) decodedWidth * decodedHeight + (long) plan.mWidth * plan.mHeight)
+                        * BYTES_PER_PIXEL;
+        acquireBudget(bytes);
+        Decoded decoded = null;
+        Bitmap output = null;
+        try {
+            long decodeStart = SystemClock.elapsedRealtime();
+            timings.mWait = decodeStart - start;
+            decoded = decode(resolver, uri, plan, region, sampleSize, decodedWidth, decodedHeight);
+            long transformStart = SystemClock.elapsedRealtime();
+            timings.mDecode = transformStart - decodeStart;
+
+            Matrix matrix = new Matrix(plan.mMatrix);
+            matrix.preTranslate(decoded.mOffsetX, decoded.mOffsetY);
+            matrix.preScale(decoded.mScaleX, decoded.mScaleY);
+            Bitmap result;
+            if (matrix.isIdentity()
+                    && decoded.mBitmap.getWidth() == plan.mWidth
+                    && decoded.mBitmap.getHeight() == plan.mHeight
+                    && decoded.mSrc.width() == plan.mWidth
+                    && decoded.mSrc.height() == plan.mHeight) {
+                // 只有裁剪, 解码结果就是输出
+                result = decoded.mBitmap;
+            } else {
+                output = POOL.obtain(plan.mWidth, plan.mHeight);
+                output.eraseColor(Color.TRANSPARENT);
+                Canvas canvas = new Canvas(output);
+                canvas.concat(matrix);
+                Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+                paint.setAntiAlias(!matrix.rectStaysRect());
+                canvas.drawBitmap(decoded.mBitmap, decoded.mSrc, new RectF(decoded.mSrc), paint);
+                result = output;
+            }
+            long encodeStart = SystemClock.elapsedRealtime();
+            timings.mTransform = encodeStart - transformStart;
+
+            OutputStream out = null;
+            try {
+                out = new FileOutputStream(outFile);
+                if (!result.compress(format, quality, out)) {
+                    throw new IOException("failed to encode " + uri);
+                }
+            } finally {
+                FileUtils.closeQuietly(out);
+            }
+            timings.mEncode = SystemClock.elapsedRealtime() - encodeStart;
+            timings.mSampleSize = sampleSize;
+        } finally {
+            if (decoded != null) {
+                POOL.release(decoded.mBitmap);
+            }
+            if (output != null) {
+                POOL.release(output);
+            }
+            releaseBudget(bytes);
+        }
+        Log.d(TAG, "execute " + uri
+                + ", region=" + region.toShortString()
+                + ", sampleSize=" + sampleSize
+                + ", output=" + plan.mWidth + "x" + plan.mHeight
+                + ", " + timings);
+        return timings;
+    }
+
+    private static Decoded decode(
+            ContentResolver resolver,
+            Uri uri,
+            Plan plan,
+            Rect region,
+            int sampleSize,
+            int decodedWidth,
+            int decodedHeight)
+            throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+
+        BitmapRegionDecoder decoder = null;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) {
+                throw new IOException("failed to open " + uri);
+            }
+            decoder = BitmapRegionDecoder.newInstance(in, false);
+        } catch (IOException e) {
+            // gif, bmp 等格式不支持区域解码
+            Log.d(TAG, "region decode not supported for " + uri + ", " + e.getMessage());
+        }
+        if (decoder != null) {
+            try {
+                Bitmap pooled = POOL.obtain(decodedWidth, decodedHeight);
+                options.inBitmap = pooled;
+                Bitmap bitmap;
+                try {
+                    bitmap = decoder.decodeRegion(region, options);
+                } catch (IllegalArgumentException e) {
+                    // 部分设备不支持复用, 重新分配
+                    Log.w(TAG, "failed to reuse bitmap", e);
+                    options.inBitmap = null;
+                    bitmap = decoder.decodeRegion(region, options);
+                }
+                if (bitmap != pooled) {
+                    POOL.release(pooled);
+                }
+                if (bitmap == null) {
+                    throw new IOException("failed to decode " + uri);
+                }
+                Rect src =
+                        new Rect(
+                                0,
+                                0,
+                                Math.min(decodedWidth, bitmap.getWidth()),
+                                Math.min(decodedHeight, bitmap.getHeight()));
+                return new Decoded(
+                        bitmap,
+                        src,
+                        region.left,
+                        region.top,
+                        (float) region.width() / decodedWidth,
+                        (float) region.height() / decodedHeight);
+            } finally {
+                decoder.recycle();
+            }
+        }
+
+        Bitmap bitmap;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("failed to decode " + uri);
+        }
+        float scaleX = (float) plan.mSourceWidth / bitmap.getWidth();
+        float scaleY = (float) plan.mSourceHeight / bitmap.getHeight();
+        RectF src =
+                new RectF(
+                        region.left / scaleX,
+                        region.top / scaleY,
+                        region.right / scaleX,
+                        region.bottom / scaleY);
+        Rect srcRect = new Rect();
+        src.roundOut(srcRect);
+        if (!srcRect.intersect(0, 0, bitmap.getWidth(), bitmap.getHeight())) {
+            srcRect.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        }
+        return new Decoded(bitmap, srcRect, 0, 0, scaleX, scaleY);
+    }
+
+    private static int scaledDimension(int dimension, int sampleSize) {
+        return Math.max(1, dimension / sampleSize);
+    }
+
+    private static void acquireBudget(long bytes) throws InterruptedIOException {
+        synchronized (BUDGET_LOCK) {
+            if (sIdleClear != null) {
+                sIdleClear.cancel(false);
+                sIdleClear = null;
+            }
+            while (sBudgetUsed > 0 && sBudgetUsed + bytes > MEMORY_BUDGET) {
+                try {
+                    BUDGET_LOCK.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for memory");
+                }
+            }
+            sBudgetUsed += bytes;
+        }
+    }
+
+    private static void releaseBudget(long bytes) {
+        synchronized (BUDGET_LOCK) {
+            sBudgetUsed -= bytes;
+            BUDGET_LOCK.notifyAll();
+            if (sBudgetUsed == 0) {
+                sIdleClear =
+                        Executors.scheduled()
+                                .executeWithDelay(
+                                        new Runnable() {
+                                            @Override
+                                            public void run() {
+                                                onIdle();
+                                            }
+                                        },
+                                        POOL_IDLE_TIMEOUT_MS);
+            }
+        }
+    }
+
+    private static void onIdle() {
+        synchronized (BUDGET_LOCK) {
+            if (sBudgetUsed == 0) {
+                POOL.clear();
+            }
+        }
+    }
+
+    /**
+     * 按顺序记录的操作, 坐标与依次执行每个操作后得到的 bitmap 一致
+     */
+    static class Plan {
+        private final int mSourceWidth;
+        private final int mSourceHeight;
+        // 原图坐标到输出坐标
+        private final Matrix mMatrix = new Matrix();
+        private int mWidth;
+        private int mHeight;
+
+        Plan(int sourceWidth, int sourceHeight) {
+            if (sourceWidth <= 0 || sourceHeight <= 0) {
+                throw new IllegalArgumentException(
+                        "illegal image size: " + sourceWidth + "x" + sourceHeight);
+            }
+            mSourceWidth = sourceWidth;
+            mSourceHeight = sourceHeight;
+            mWidth = sourceWidth;
+            mHeight = sourceHeight;
+        }
+
+        /**
+         * @throws IllegalArgumentException 裁剪区域为空或超出当前大小
+         */
+        void crop(int x, int y, int width, int height) {
+            if (x < 0 || y < 0) {
+                throw new IllegalArgumentException("x and y must be >= 0");
+            }
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("width and height must be > 0");
+            }
+            if (x + width > mWidth) {
+                throw new IllegalArgumentException("x + width must be <= bitmap.width()");
+            }
+            if (y + height > mHeight) {
+                throw new IllegalArgumentException("y + height must be <= bitmap.height()");
+            }
+            mMatrix.postTranslate(-x, -y);
+            mWidth = width;
+            mHeight = height;
+        }
+
+        void rotate(float degree) {
+            Matrix matrix = new Matrix();
+            matrix.setRotate(degree);
+            transform(matrix);
+        }
+
+        void scale(float scaleX, float scaleY) {
+            Matrix matrix = new Matrix();
+            matrix.setScale(scaleX, scaleY);
+            transform(matrix);
+        }
+
+        int getWidth() {
+            return mWidth;
+        }
+
+        int getHeight() {
+            return mHeight;
+        }
+
+        // 与 Bitmap.createBitmap(src, 0, 0, w, h, matrix, filter) 的结果大小和位置一致
+        private void transform(Matrix matrix) {
+            RectF bounds = new RectF(0, 0, mWidth, mHeight);
+            matrix.mapRect(bounds);
+            int width = Math.round(bounds.width());
+            int height = Math.round(bounds.height());
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException(
+                        "image size " + width + "x" + height + " must greater than 0");
+            }
+            mMatrix.postConcat(matrix);
+            mMatrix.postTranslate(-bounds.left, -bounds.top);
+            mWidth = width;
+            mHeight = height;
+        }
+
+        /**
+         * 输出中可见的原图区域
+         */
+        Rect getSourceRegion() {
+            Matrix inverse = new Matrix();
+            if (!mMatrix.invert(inverse)) {
+                throw new IllegalArgumentException("transform is not invertible");
+            }
+            RectF bounds = new RectF(0, 0, mWidth, mHeight);
+            inverse.mapRect(bounds);
+            Rect region = new Rect();
+            bounds.roundOut(region);
+            if (!region.intersect(0, 0, mSourceWidth, mSourceHeight)) {
+                throw new IllegalArgumentException("nothing to draw in " + region.toShortString());
+            }
+            return region;
+        }
+
+        /**
+         * 输出比原图缩小一半以上时, 解码时直接采样
+         */
+        int getSampleSize(Rect region) {
+            float[] values = new float[9];
+            mMatrix.getValues(values);
+            // 原图上一个像素在输出中的长度, 取两个方向中较大的
+            float scaleX = (float) Math.hypot(values[Matrix.MSCALE_X], values[Matrix.MSKEW_Y]);
+            float scaleY = (float) Math.hypot(values[Matrix.MSKEW_X], values[Matrix.MSCALE_Y]);
+            float scale = Math.max(scaleX, scaleY);
+            int sampleSize = 1;
+            while (sampleSize * 2 * scale <= 1
+                    && region.width() >= sampleSize * 2
+                    && region.height() >= sampleSize * 2) {
+                sampleSize *= 2;
+            }
+            return sampleSize;
+        }
+    }
+
+    static class Timings {
+        long mWait;
+        long mDecode;
+        long mTransform;
+        long mEncode;
+        int mSampleSize;
+
+        @Override
+        public String toString() {
+            return "wait=" + mWait
+                    + "ms, decode=" + mDecode
+                    + "ms, transform=" + mTransform
+                    + "ms, encode=" + mEncode + "ms";
+        }
+    }
+
+    private static class ExecutorHolder {
+        private static final Executor INSTANCE =
+                new ConcurrentExecutor(
+                        0,
+                        MAX_THREAD_COUNT,
+                        KEEP_ALIVE_TIME,
+                        r -> {
+                            Thread t = new Thread(r);
+                            t.setName(THREAD_NAME + t.getId());
+                            return t;
+                        });
+    }
+
+    private static class Decoded {
+        private final Bitmap mBitmap;
+        // mBitmap 中的有效区域
+        private final Rect mSrc;
+        // mBitmap 的原点和一个像素对应的原图位置和大小
+        private final float mOffsetX;
+        private final float mOffsetY;
+        private final float mScaleX;
+        private final float mScaleY;
+
+        Decoded(Bitmap bitmap, Rect src, float offsetX, float offsetY, float scaleX,
+                float scaleY) {
+            mBitmap = bitmap;
+            mSrc = src;
+            mOffsetX = offsetX;
+            mOffsetY = offsetY;
+            mScaleX = scaleX;
+            mScaleY = scaleY;
+        }
+    }
+
+    /**
+     * 可变 ARGB_8888 bitmap 池, 取出时通过 reconfigure 调整为需要的大小
+     */
+    private static class BitmapPool implements ComponentCallbacks2 {
+        private final long mMaxBytes;
+        private final List<Bitmap> mBitmaps = new ArrayList<>();
+        private long mBytes;
+
+        BitmapPool(long maxBytes) {
+            mMaxBytes = maxBytes;
+            Context context = org.hapjs.runtime.Runtime.getInstance().getContext();
+            if (context != null) {
+                context.registerComponentCallbacks(this);
+            }
+        }
+
+        Bitmap obtain(int width, int height) {
+            long required = (long) width * height * BYTES_PER_PIXEL;
+            synchronized (this) {
+                // 选能放下的最小的一个
+                int best = -1;
+                for (int i = 0; i < mBitmaps.size(); i++) {
+                    int size = mBitmaps.get(i).getAllocationByteCount();
+                    if (size >= required
+                            && (best < 0 || size < mBitmaps.get(best).getAllocationByteCount())) {
+                        best = i;
+                    }
+                }
+                if (best >= 0) {
+                    Bitmap bitmap = mBitmaps.remove(best);
+                    mBytes -= bitmap.getAllocationByteCount();
+                    bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                    return bitmap;
+                }
+            }
+            return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+
+        void release(Bitmap bitmap) {
+            if (bitmap.isRecycled()) {
+                return;
+            }
+            int size = bitmap.getAllocationByteCount();
+            if (!bitmap.isMutable()
+                    || bitmap.getConfig() != Bitmap.Config.ARGB_8888
+                    || size > mMaxBytes) {
+                bitmap.recycle();
+                return;
+            }
+            synchronized (this) {
+                // 超出上限时先丢弃最早放入的
+                trimToSize(mMaxBytes - size);
+                mBitmaps.add(bitmap);
+                mBytes += size;
+            }
+        }
+
+        synchronized void clear() {
+            trimToSize(0);
+        }
+
+        private synchronized void trimToSize(long maxBytes) {
+            while (mBytes > maxBytes && !mBitmaps.isEmpty()) {
+                Bitmap evicted = mBitmaps.remove(0);
+                mBytes -= evicted.getAllocationByteCount();
+                evicted.recycle();
+            }
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                    || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+                clear();
+            } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+                trimToSize(mMaxBytes / 2);
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            clear();
+        }
+    }
+}
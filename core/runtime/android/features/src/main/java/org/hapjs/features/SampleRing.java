@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 预分配的传感器采样环形缓冲区, 每个采样占 stride 个元素. 满时覆盖最旧的采样并计数.
+ */
+class SampleRing {
+    private final int mStride;
+    private final int mCapacity;
+    private final float[] mRing;
+
+    private int mHead;
+    private int mSize;
+    private int mDropped;
+
+    SampleRing(int stride, int capacity) {
+        mStride = stride;
+        mCapacity = capacity;
+        mRing = new float[stride * capacity];
+    }
+
+    /**
+     * @return 缓冲区已满, 丢弃了最旧的采样时返回 false
+     */
+    boolean offer(float[] values) {
+        int index;
+        boolean dropped = mSize == mCapacity;
+        if (dropped) {
+            index = mHead;
+            mHead = (mHead + 1) % mCapacity;
+            mDropped++;
+        } else {
+            index = (mHead + mSize) % mCapacity;
+            mSize++;
+        }
+        int offset = index * mStride;
+        int count = Math.min(values.length, mStride);
+        System.arraycopy(values, 0, mRing, offset, count);
+        // 采样的元素不足 stride 时补 0, 不保留被覆盖的旧值
+        for (int i = count; i < mStride; i++) {
+            mRing[offset + i] = 0;
+        }
+        return !dropped;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    int stride() {
+        return mStride;
+    }
+
+    /**
+     * 上次 {@link #drainTo(FloatBuffer)} 之后丢弃的采样数
+     */
+    int dropped() {
+        return mDropped;
+    }
+
+    /**
+     * 按从旧到新的顺序写入 out, 然后清空. out 至少需要 size() * stride() 个元素的空间
+     */
+    void drainTo(FloatBuffer out) {
+        int first = Math.min(mSize, mCapacity - mHead);
+        out.put(mRing, mHead * mStride, first * mStride);
+        if (first < mSize) {
+            out.put(mRing, 0, (mSize - first) * mStride);
+        }
+        mHead = 0;
+        mSize = 0;
+        mDropped = 0;
+    }
+}
@@ -83,6 +83,7 @@ public class Sensor extends CallbackHybridFeature {
     protected static final String PARAM_INTERVAL_GAME = "game";
     protected static final String PARAM_INTERVAL_UI = "ui";
     protected static final String PARAM_INTERVAL_NORMAL = "normal";
+    protected static final String PARAM_STREAM = "stream";
     protected static final String PARAM_X = "x";
     protected static final String PARAM_Y = "y";
     protected static final String PARAM_Z = "z";
@@ -281,6 +282,20 @@ public class Sensor extends CallbackHybridFeature {
         return Response.SUCCESS;
     }
 
+    /**
+     * 订阅参数 stream 为 true 时, 采样合并后批量回调, 见 {@link SensorEventStream}
+     */
+    private SensorEventStream createEventStream(Request request, int stride) {
+        try {
+            if (request.getJSONParams().optBoolean(PARAM_STREAM)) {
+                return new SensorEventStream(request.getCallback(), stride);
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "createEventStream", e);
+        }
+        return null;
+    }
+
     private int getMinAccuracy(int first, int sec) {
         boolean firstValid = checkValid(first);
         boolean secValid = checkValid(sec);
@@ -306,6 +321,7 @@ public class Sensor extends CallbackHybridFeature {
 
     private class AccelerometerCallbackContext extends CallbackContext {
         SensorEventListener accelerometerListener;
+        private SensorEventStream mEventStream;
 
         public AccelerometerCallbackContext(Request request, boolean reserved) {
             super(Sensor.this, ACTION_SUBSCRIBE_ACCELEROMETER, request, reserved);
@@ -318,12 +334,17 @@ public class Sensor extends CallbackHybridFeature {
             SensorManager sm = (SensorManager) activity.getSystemService(Context.SENSOR_SERVICE);
             android.hardware.Sensor accelerometer =
                     sm.getDefaultSensor(android.hardware.Sensor.TYPE_ACCELEROMETER);
+            mEventStream = createEventStream(mRequest, 3);
             accelerometerListener =
                     new SensorEventListener() {
                         @Override
                         public void onSensorChanged(SensorEvent event) {
                             if (!isPause) {
-                                callback(0, event);
+                                if (mEventStream != null) {
+                                    mEventStream.offer(event.values);
+                                } else {
+                                    callback(0, event);
+                                }
                             }
                         }
 
@@ -354,6 +375,9 @@ public class Sensor extends CallbackHybridFeature {
             Activity activity = mRequest.getNativeInterface().getActivity();
             SensorManager sm = (SensorManager) activity.getSystemService(Context.SENSOR_SERVICE);
             sm.unregisterListener(accelerometerListener);
+            if (mEventStream != null) {
+                mEventStream.close();
+            }
         }
 
         @Override
@@ -497,6 +521,7 @@ public class Sensor extends CallbackHybridFeature {
 
     private class ProximityCallbackContext extends CallbackContext {
         SensorEventListener proximityListener;
+        private SensorEventStream mEventStream;
 
         public ProximityCallbackContext(Request request, boolean reserved) {
             super(Sensor.this, ACTION_SUBSCRIBE_PROXIMITY, request, reserved);
@@ -509,11 +534,16 @@ public class Sensor extends CallbackHybridFeature {
             SensorManager sm = (SensorManager) activity.getSystemService(Context.SENSOR_SERVICE);
             android.hardware.Sensor accelerometer = sm.getDefaultSensor(android.hardware.Sensor.TYPE_PROXIMITY);
             if (accelerometer != null) {
+                mEventStream = createEventStream(mRequest, 1);
                 proximityListener = new SensorEventListener() {
                     @Override
                     public void onSensorChanged(SensorEvent event) {
                         if (!isPause) {
-                            callback(0, event);
+                            if (mEventStream != null) {
+                                mEventStream.offer(event.values);
+                            } else {
+                                callback(0, event);
+                            }
                         }
                     }
 
@@ -535,6 +565,9 @@ public class Sensor extends CallbackHybridFeature {
             Activity activity = mRequest.getNativeInterface().getActivity();
             SensorManager sm = (SensorManager) activity.getSystemService(Context.SENSOR_SERVICE);
             sm.unregisterListener(proximityListener);
+            if (mEventStream != null) {
+                mEventStream.close();
+            }
         }
 
         @Override
@@ -553,6 +586,7 @@ public class Sensor extends CallbackHybridFeature {
 
     private class LightCallbackContext extends CallbackContext {
         SensorEventListener lightListener;
+        private SensorEventStream mEventStream;
 
         public LightCallbackContext(Request request, boolean reserved) {
             super(Sensor.this, ACTION_SUBSCRIBE_LIGHT, request, reserved);
@@ -565,12 +599,17 @@ public class Sensor extends CallbackHybridFeature {
             SensorManager sm = (SensorManager) activity.getSystemService(Context.SENSOR_SERVICE);
             android.hardware.Sensor accelerometer =
                     sm.getDefaultSensor(android.hardware.Sensor.TYPE_LIGHT);
+            mEventStream = createEventStream(mRequest, 1);
             lightListener =
                     new SensorEventListener() {
                         @Override
                         public void onSensorChanged(SensorEvent event) {
                             if (!isPause) {
-                                callback(0, event);
+                                if (mEventStream != null) {
+                                    mEventStream.offer(event.values);
+                                } else {
+                                    callback(0, event);
+                                }
                             }
                         }
 
@@ -588,6 +627,9 @@ public class Sensor extends CallbackHybridFeature {
             Activity activity = mRequest.getNativeInterface().getActivity();
             SensorManager sm = (SensorManager) activity.getSystemService(Context.SENSOR_SERVICE);
             sm.unregisterListener(lightListener);
+            if (mEventStream != null) {
+                mEventStream.close();
+            }
         }
 
         @Override
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import com.eclipsesource.v8.utils.typedarrays.Float32Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import org.hapjs.bridge.Callback;
+import org.hapjs.bridge.Response;
+import org.hapjs.render.jsruntime.serialize.JavaSerializeObject;
+
+/**
+ * 传感器数据流.
+ *
+ * <p>采样写入预分配的环形缓冲区 {@link SampleRing}, 两次回调之间的采样合并为一个 Float32Array 传给 js, 每个采样占 stride 个元素.
+ * 上一批数据在 js 线程中执行完之前不发送下一批, 发送间隔随 js 的处理耗时调整. 缓冲区满时丢弃最旧的采样并计数,
+ * 本批丢弃数, 累计丢弃数和上一批的送达耗时随每批数据返回.
+ *
+ * <p>除了 {@link #getStatistics()}, 所有方法都在主线程中调用.
+ */
+class SensorEventStream {
+    private static final String TAG = "SensorEventStream";
+
+    static final String RESULT_VALUES = "values";
+    static final String RESULT_STRIDE = "stride";
+    static final String RESULT_COUNT = "count";
+    static final String RESULT_DROPPED = "dropped";
+    static final String RESULT_TOTAL_DROPPED = "totalDropped";
+    static final String RESULT_LATENCY = "latency";
+
+    private static final int DEFAULT_CAPACITY = 64;
+    // 最快每帧发送一次
+    static final long MIN_INTERVAL_MS = 16;
+    static final long MAX_INTERVAL_MS = 1000;
+    // 超过该时间没有收到 js 执行完的通知时, 视为已送达
+    private static final long DELIVERY_TIMEOUT_MS = 2000;
+
+    private final Callback mCallback;
+    private final SampleRing mRing;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private boolean mDeliverPosted;
+    private boolean mInFlight;
+    private long mSentAt;
+    private long mIntervalMs = MIN_INTERVAL_MS;
+    private volatile boolean mClosed;
+
+    // 统计
+    private volatile long mTotalSamples;
+    private volatile long mTotalDropped;
+    private volatile long mBatchCount;
+    private volatile long mTotalLatencyMs;
+    private volatile long mMaxLatencyMs;
+    private volatile long mLastLatencyMs;
+    private volatile long mTimeoutCount;
+
+    private final Runnable mDeliverTask =
+            new Runnable() {
+                @Override
+                public void run() {
+                    mDeliverPosted = false;
+                    deliver();
+                }
+            };
+
+    private final Runnable mTimeoutTask =
+            new Runnable() {
+                @Override
+                public void run() {
+                    onDelivered(mBatchCount, true);
+                }
+            };
+
+    SensorEventStream(Callback callback, int stride) {
+        this(callback, stride, DEFAULT_CAPACITY);
+    }
+
+    SensorEventStream(Callback callback, int stride, int capacity) {
+        mCallback = callback;
+        mRing = new SampleRing(stride, capacity);
+    }
+
+    void offer(float[] values) {
+        if (mClosed) {
+            return;
+        }
+        if (!mRing.offer(values)) {
+            mTotalDropped++;
+        }
+        mTotalSamples++;
+        scheduleDeliver();
+    }
+
+    void close() {
+        mClosed = true;
+        mHandler.removeCallbacks(mDeliverTask);
+        mHandler.removeCallbacks(mTimeoutTask);
+        Log.d(TAG, "close, " + getStatistics());
+    }
+
+    private void scheduleDeliver() {
+        if (mInFlight || mDeliverPosted || mRing.size() == 0) {
+            return;
+        }
+        long delay = mSentAt + mIntervalMs - SystemClock.uptimeMillis();
+        mDeliverPosted = true;
+        mHandler.postDelayed(mDeliverTask, Math.max(0, delay));
+    }
+
+    private void deliver() {
+        if (mClosed || mInFlight || mRing.size() == 0) {
+            return;
+        }
+        int count = mRing.size();
+        int stride = mRing.stride();
+        JavaSerializeObject result = new JavaSerializeObject();
+        result.put(RESULT_STRIDE, stride);
+        result.put(RESULT_COUNT, count);
+        result.put(RESULT_DROPPED, mRing.dropped());
+        result.put(RESULT_TOTAL_DROPPED, mTotalDropped);
+        result.put(RESULT_LATENCY, mLastLatencyMs);
+        // 每批数据一次分配, 交给 js 后不再修改
+        ByteBuffer buffer =
+                ByteBuffer.allocateDirect(count * stride * 4).order(ByteOrder.nativeOrder());
+        FloatBuffer floats = buffer.asFloatBuffer();
+        mRing.drainTo(floats);
+        result.put(RESULT_VALUES, new Float32Array(buffer));
+        Response response = new Response(result);
+        final long batch = ++mBatchCount;
+        response.setOnDeliveredListener(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        // 在 js 线程中调用
+                        mHandler.post(() -> onDelivered(batch, false));
+                    }
+                });
+
+        mInFlight = true;
+        mSentAt = SystemClock.uptimeMillis();
+        mHandler.postDelayed(mTimeoutTask, DELIVERY_TIMEOUT_MS);
+        mCallback.callback(response);
+    }
+
+    private void onDelivered(long batch, boolean timeout) {
+        // 超时后才送达的旧批次不影响当前批次
+        if (mClosed || !mInFlight || batch != mBatchCount) {
+            return;
+        }
+        mHandler.removeCallbacks(mTimeoutTask);
+        mInFlight = false;
+        long latency = SystemClock.uptimeMillis() - mSentAt;
+        mTotalLatencyMs += latency;
+        mMaxLatencyMs = Math.max(mMaxLatencyMs, latency);
+        mLastLatencyMs = latency;
+        if (timeout) {
+            mTimeoutCount++;
+        }
+        mIntervalMs = nextInterval(mIntervalMs, latency);
+        scheduleDeliver();
+    }
+
+    /**
+     * js 处理得慢时拉长发送间隔, 让更多采样合并到一批, 处理得快时逐步缩短
+     */
+    static long nextInterval(long intervalMs, long latencyMs) {
+        long interval = (intervalMs + latencyMs) / 2;
+        return Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, interval));
+    }
+
+    /**
+     * 采样数, 丢弃数, 批次数和送达耗时
+     */
+    String getStatistics() {
+        long batches = mBatchCount;
+        return "samples=" + mTotalSamples
+                + ", dropped=" + mTotalDropped
+                + ", batches=" + batches
+                + ", avgLatency=" + (batches == 0 ? 0 : mTotalLatencyMs / batches)
+                + "ms, maxLatency=" + mMaxLatencyMs
+                + "ms, timeouts=" + mTimeoutCount
+                + ", interval=" + mIntervalMs + "ms";
+    }
+}
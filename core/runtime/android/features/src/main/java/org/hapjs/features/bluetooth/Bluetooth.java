@@ -17,7 +17,6 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.location.LocationManager;
 import android.os.Build;
-import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
@@ -35,7 +34,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import java.util.Vector;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Semaphore;
 import org.hapjs.bridge.CallbackContext;
@@ -53,6 +51,7 @@ import org.hapjs.features.bluetooth.callback.BleNotificationCallback;
 import org.hapjs.features.bluetooth.callback.BleOperationCallback;
 import org.hapjs.features.bluetooth.data.BleConst;
 import org.hapjs.features.bluetooth.data.ScanOperateResult;
+import org.hapjs.features.bluetooth.scan.BleScanAggregator;
 import org.hapjs.features.bluetooth.utils.BleAdParser;
 import org.hapjs.features.bluetooth.utils.PropertyUtils;
 import org.hapjs.render.jsruntime.serialize.JavaSerializeArray;
@@ -199,10 +198,21 @@ public class Bluetooth extends CallbackHybridFeature {
     private volatile boolean mInit = false;
     private Semaphore mSemaphore = new Semaphore(1);
     private volatile long mDiscoveryInterval = 0;
-    private volatile boolean mAllowDuplicate = false;
     private Set<LeDevice> mScannedDevice = new ConcurrentSkipListSet<>();
-    private Vector<LeDevice> mPendingDevice = new Vector<>();
-    private Set<LeDevice> mBatchDevice = new ConcurrentSkipListSet<>();
+    private final BleScanAggregator<LeDevice> mScanAggregator =
+            new BleScanAggregator<>(
+                    new BleScanAggregator.Parser<LeDevice>() {
+                        @Override
+                        public LeDevice parse(String deviceId, String name, int rssi,
+                                              byte[] scanRecord) {
+                            return makeScanResult(name, deviceId, rssi, scanRecord);
+                        }
+
+                        @Override
+                        public void updateRssi(LeDevice device, int rssi) {
+                            device.mRssi = rssi;
+                        }
+                    });
 
     private volatile HandlerThread mHandlerThread;
     private volatile Handler mHandler;
@@ -444,11 +454,9 @@ public class Bluetooth extends CallbackHybridFeature {
 
     private void clear() {
         mDiscoveryInterval = 0;
-        mAllowDuplicate = false;
         mLastReportTime = 0;
         mScannedDevice.clear();
-        mPendingDevice.clear();
-        mBatchDevice.clear();
+        mScanAggregator.reset(false);
     }
 
     private void getAdapterState(Request request) throws JSONException {
@@ -468,6 +476,10 @@ public class Bluetooth extends CallbackHybridFeature {
             return;
         }
         JSONObject params = request.getJSONParams();
+        if (!BleManager.getInstance().isScanning()) {
+            // 开始扫描前清除设备表, 扫描回调可能在 startLeScan 返回前到达
+            mScanAggregator.reset(params.optBoolean(PARAM_DUPLICATE, false));
+        }
         ScanOperateResult result =
                 BleManager.getInstance()
                         .startLeScan(
@@ -475,23 +487,20 @@ public class Bluetooth extends CallbackHybridFeature {
                                     @Override
                                     public void onLeScan(BluetoothDevice device, int rssi,
                                                          byte[] scanRecord) {
-                                        Message msg =
-                                                mHandler.obtainMessage(WorkHandler.ON_SCANNED);
-                                        Bundle data = new Bundle();
-                                        data.putString(RESULT_NAME, device.getName());
-                                        data.putString(RESULT_DEVICE_ID, device.getAddress());
-                                        data.putInt(RESULT_RSSI, rssi);
-                                        data.putByteArray(RESULT_SCAN_RECORD, scanRecord);
-                                        msg.setData(data);
-                                        msg.sendToTarget();
+                                        // 只记录到设备表, 已有待处理的消息时不再发送, 按 interval 合并返回
+                                        if (mScanAggregator.onScanResult(device.getAddress(),
+                                                device.getName(), rssi, scanRecord)
+                                                && !mHandler.hasMessages(WorkHandler.ON_SCANNED)
+                                                && !mHandler.hasMessages(
+                                                        WorkHandler.ON_INTERVAL_REACH)) {
+                                            mHandler.sendEmptyMessage(WorkHandler.ON_SCANNED);
+                                        }
                                     }
                                 },
                                 parseUUID(request));
         if (result.getCode() == BleConst.CODE_SUCCESS) {
-            mBatchDevice.clear();
             mLastReportTime = System.currentTimeMillis();
             mDiscoveryInterval = params.optLong(PARAM_INTERVAL, 0);
-            mAllowDuplicate = params.optBoolean(PARAM_DUPLICATE, false);
             onOperateSuccess(request);
         } else {
             onOperateFail(request, result.getCode(), result.getMsg());
@@ -526,6 +535,7 @@ public class Bluetooth extends CallbackHybridFeature {
     private void stopDevicesDiscovery(Request request) {
         mHandler.removeMessages(WorkHandler.ON_INTERVAL_REACH);
         BleManager.getInstance().stopLeScan();
+        Log.d(TAG, "stop discovery, " + mScanAggregator.getStatistics());
         request.getCallback().callback(Response.SUCCESS);
     }
 
@@ -1016,18 +1026,7 @@ public class Bluetooth extends CallbackHybridFeature {
         public void handleMessage(Message msg) {
             switch (msg.what) {
                 case ON_SCANNED:
-                    Bundle data = msg.getData();
-                    String name = data.getString(RESULT_NAME);
-                    String deviceId = data.getString(RESULT_DEVICE_ID);
-                    int rssi = data.getInt(RESULT_RSSI);
-                    byte[] scanRecord = data.getByteArray(RESULT_SCAN_RECORD);
-                    LeDevice leDevice = makeScanResult(name, deviceId, rssi, scanRecord);
                     long currentTime = System.currentTimeMillis();
-                    if (mAllowDuplicate || !mBatchDevice.contains(leDevice)) {
-                        mPendingDevice.add(leDevice);
-                    }
-                    mBatchDevice.add(leDevice);
-                    mScannedDevice.add(leDevice);
                     removeMessages(ON_INTERVAL_REACH);
                     if (currentTime - mLastReportTime >= mDiscoveryInterval) {
                         reportScanResult();
@@ -1046,12 +1045,13 @@ public class Bluetooth extends CallbackHybridFeature {
         }
 
         private void reportScanResult() {
-            if (mPendingDevice.size() > 0) {
+            List<LeDevice> devices = mScanAggregator.flush();
+            if (devices.size() > 0) {
                 mLastReportTime = System.currentTimeMillis();
+                mScannedDevice.addAll(devices);
                 runCallbackContext(
                         EVENT_ON_DEVICE_FOUND, CODE_ON_LESCAN,
-                        makeLeDevicesResponse(mPendingDevice));
-                mPendingDevice.clear();
+                        makeLeDevicesResponse(devices));
             }
         }
     }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features.bluetooth.scan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 合并扫描结果.
+ *
+ * <p>按设备地址保存最新的信号强度和广播数据, 两次 {@link #flush()} 之间同一设备的多次上报只返回一次. 广播数据或名称变化时才重新解析,
+ * 否则复用上次解析的结果.
+ *
+ * @param <T> 解析后的设备
+ */
+public class BleScanAggregator<T> {
+
+    private final Parser<T> mParser;
+    private final Map<String, DeviceRecord<T>> mDevices = new HashMap<>();
+    // 上次 flush 后有变化的设备, 按第一次变化的顺序
+    private final List<DeviceRecord<T>> mDirtyDevices = new ArrayList<>();
+    private boolean mAllowDuplicates;
+
+    private long mRawCount;
+    private long mDeliveredCount;
+    private long mParseCount;
+    private long mFlushCount;
+
+    public BleScanAggregator(Parser<T> parser) {
+        mParser = parser;
+    }
+
+    /**
+     * 清除设备表, 开始新的扫描
+     *
+     * @param allowDuplicates 为 false 时只返回新发现的设备, 为 true 时上次 flush 后再次上报的设备都会返回, 即使内容没有变化
+     */
+    public synchronized void reset(boolean allowDuplicates) {
+        mAllowDuplicates = allowDuplicates;
+        mDevices.clear();
+        mDirtyDevices.clear();
+    }
+
+    /**
+     * 可以在任意线程调用
+     *
+     * @return 是否有需要返回的变化
+     */
+    public synchronized boolean onScanResult(
+            String deviceId, String name, int rssi, byte[] scanRecord) {
+        mRawCount++;
+        DeviceRecord<T> record = mDevices.get(deviceId);
+        if (record == null) {
+            record = new DeviceRecord<>(deviceId, name, rssi, scanRecord);
+            mDevices.put(deviceId, record);
+            markDirty(record);
+            return true;
+        }
+        if (!Arrays.equals(record.mScanRecord, scanRecord) || !equals(record.mName, name)) {
+            record.mScanRecord = scanRecord;
+            record.mName = name;
+            record.mAdvertChanged = true;
+        }
+        record.mRssi = rssi;
+        if (mAllowDuplicates) {
+            markDirty(record);
+        }
+        return record.mDirty;
+    }
+
+    /**
+     * @return 上次调用后新发现的设备, 允许重复时还包括再次上报的设备
+     */
+    public synchronized List<T> flush() {
+        if (mDirtyDevices.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<T> result = new ArrayList<>(mDirtyDevices.size());
+        for (DeviceRecord<T> record : mDirtyDevices) {
+            record.mDirty = false;
+            result.add(resolve(record));
+        }
+        mDirtyDevices.clear();
+        mDeliveredCount += result.size();
+        mFlushCount++;
+        return result;
+    }
+
+    /**
+     * 原始上报数, 返回的设备数, 解析次数和批次数
+     */
+    public synchronized String getStatistics() {
+        return "raw=" + mRawCount
+                + ", delivered=" + mDeliveredCount
+                + ", parsed=" + mParseCount
+                + ", batches=" + mFlushCount
+                + ", devices=" + mDevices.size();
+    }
+
+    private void markDirty(DeviceRecord<T> record) {
+        if (!record.mDirty) {
+            record.mDirty = true;
+            mDirtyDevices.add(record);
+        }
+    }
+
+    private T resolve(DeviceRecord<T> record) {
+        if (record.mDevice == null || record.mAdvertChanged) {
+            record.mDevice =
+                    mParser.parse(record.mDeviceId, record.mName, record.mRssi, record.mScanRecord);
+            record.mAdvertChanged = false;
+            mParseCount++;
+        } else {
+            mParser.updateRssi(record.mDevice, record.mRssi);
+        }
+        return record.mDevice;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public interface Parser<T> {
+        /**
+         * 在 {@link #flush()} 的线程中调用, 只在第一次返回设备或广播数据变化时调用
+         */
+        T parse(String deviceId, String name, int rssi, byte[] scanRecord);
+
+        void updateRssi(T device, int rssi);
+    }
+
+    private static class DeviceRecord<T> {
+        private final String mDeviceId;
+        private String mName;
+        private int mRssi;
+        private byte[] mScanRecord;
+        private boolean mAdvertChanged;
+        private boolean mDirty;
+        private T mDevice;
+
+        DeviceRecord(String deviceId, String name, int rssi, byte[] scanRecord) {
+            mDeviceId = deviceId;
+            mName = name;
+            mRssi = rssi;
+            mScanRecord = scanRecord;
+        }
+    }
+}
@@ -7,6 +7,7 @@ package org.hapjs.features.storage.data;
 
 import android.text.TextUtils;
 import org.hapjs.bridge.FeatureExtension;
+import org.hapjs.bridge.LifecycleListener;
 import org.hapjs.bridge.Request;
 import org.hapjs.bridge.Response;
 import org.hapjs.bridge.annotation.ActionAnnotation;
@@ -54,6 +55,8 @@ public class LocalStorageFeature extends FeatureExtension {
     private static final String PARAMS_DEFAULT = "default";
     private static final String PARAMS_INDEX = "index";
 
+    private volatile LifecycleListener mLifecycleListener;
+
     @Override
     public ScheduledExecutor getExecutor(Request request) {
         return ExecutorHolder.INSTANCE;
@@ -62,6 +65,7 @@ public class LocalStorageFeature extends FeatureExtension {
     @Override
     protected Response invokeInner(Request request) throws Exception {
         String action = request.getAction();
+        registerLifecycleListener(request);
         if (ACTION_SET.equals(action)) {
             invokeSet(request);
         } else if (ACTION_GET.equals(action)) {
@@ -188,6 +192,50 @@ public class LocalStorageFeature extends FeatureExtension {
         return FEATURE_NAME;
     }
 
+    /**
+     * 修改会延迟写入磁盘, 页面退到后台时立即写入. 回到前台时重新加载, 读取在后台期间其它进程 (如卡片) 的修改
+     */
+    private void registerLifecycleListener(Request request) {
+        if (mLifecycleListener != null) {
+            return;
+        }
+        final String pkg = request.getApplicationContext().getPackage();
+        final Runnable flushTask =
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        StorageFactory.getInstance().flush(pkg);
+                    }
+                };
+        final Runnable reloadTask =
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        StorageFactory.getInstance().reload(pkg);
+                    }
+                };
+        mLifecycleListener =
+                new LifecycleListener() {
+                    @Override
+                    public void onResume() {
+                        ExecutorHolder.INSTANCE.execute(reloadTask);
+                    }
+
+                    @Override
+                    public void onPause() {
+                        ExecutorHolder.INSTANCE.execute(flushTask);
+                    }
+
+                    @Override
+                    public void onDestroy() {
+                        ExecutorHolder.INSTANCE.execute(flushTask);
+                        request.getNativeInterface().removeLifecycleListener(this);
+                        mLifecycleListener = null;
+                    }
+                };
+        request.getNativeInterface().addLifecycleListener(mLifecycleListener);
+    }
+
     private IStorage getStorage(Request request) {
         return StorageFactory.getInstance().create(request.getApplicationContext());
     }
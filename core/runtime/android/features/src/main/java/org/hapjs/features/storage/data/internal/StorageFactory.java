@@ -5,15 +5,18 @@
 
 package org.hapjs.features.storage.data.internal;
 
+import java.io.File;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import org.hapjs.bridge.ApplicationContext;
 import org.hapjs.cache.Cache;
 import org.hapjs.cache.CacheStorage;
+import org.hapjs.common.utils.ProcessUtils;
 import org.hapjs.runtime.HapEngine;
 import org.hapjs.runtime.Runtime;
 
 public class StorageFactory {
+    private static final String JOURNAL_NAME = "localstorage.journal";
 
     private ConcurrentHashMap<String, IStorage> mStorageMap = new ConcurrentHashMap<>();
 
@@ -42,23 +45,64 @@ public class StorageFactory {
     public IStorage create(ApplicationContext context) {
         IStorage storage = mStorageMap.get(context.getPackage());
         if (storage == null) {
-            if (HapEngine.getInstance(context.getPackage()).isCardMode()) {
-                storage = new RemoteStorage(context);
-            } else {
-                storage = new LocalStorage(context);
+            // 内存中的数据每个包只能有一份
+            synchronized (mStorageMap) {
+                storage = mStorageMap.get(context.getPackage());
+                if (storage == null) {
+                    if (HapEngine.getInstance(context.getPackage()).isCardMode()) {
+                        storage = new RemoteStorage(context);
+                    } else if (!ProcessUtils.isAppProcess(context.getContext())) {
+                        // StorageProvider 等其它进程直接读写 backend, 日志和内存索引只在应用进程中存在一份
+                        storage = new LocalStorage(context);
+                    } else {
+                        storage =
+                                new WriteBehindStorage(
+                                        new LocalStorage(context),
+                                        new File(context.getDatabaseDir(), JOURNAL_NAME));
+                    }
+                    mStorageMap.put(context.getPackage(), storage);
+                }
             }
-            mStorageMap.put(context.getPackage(), storage);
         }
         return storage;
     }
 
+    /**
+     * 先写入延迟的修改, 再从磁盘重新加载, 读取其它进程的修改
+     */
+    public void reload(String packageName) {
+        IStorage storage = mStorageMap.get(packageName);
+        if (storage instanceof WriteBehindStorage) {
+            ((WriteBehindStorage) storage).reload();
+        }
+    }
+
+    /**
+     * 把延迟的修改写入磁盘
+     */
+    public void flush(String packageName) {
+        IStorage storage = mStorageMap.get(packageName);
+        if (storage instanceof WriteBehindStorage) {
+            ((WriteBehindStorage) storage).flush();
+        }
+    }
+
     public void clear() {
+        for (IStorage storage : mStorageMap.values()) {
+            if (storage instanceof WriteBehindStorage) {
+                ((WriteBehindStorage) storage).discard();
+            }
+        }
         SQLiteStorage.reset();
         MMKVStorage.reset();
         mStorageMap.clear();
     }
 
     public void clear(String packageName) {
+        IStorage storage = mStorageMap.get(packageName);
+        if (storage instanceof WriteBehindStorage) {
+            ((WriteBehindStorage) storage).discard();
+        }
         SQLiteStorage.reset(packageName);
         MMKVStorage.reset(packageName);
         mStorageMap.remove(packageName);
@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features.storage.data.internal;
+
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.hapjs.common.executors.DelayedExecutor;
+import org.hapjs.common.executors.Executors;
+import org.hapjs.common.utils.FileUtils;
+
+/**
+ * 内存索引 + 延迟写入的存储.
+ *
+ * <p>读操作只访问内存: 键保存在数组中, 删除时用最后一个键填补空位, key(index) 和 length() 为 O(1). 修改先追加到日志文件,
+ * 再合并到待写入列表, 每隔 {@link #FLUSH_DELAY_MS} 毫秒或调用 {@link #flush()} 时一次写入 backend. 写入前把日志重命名为
+ * .flushing, 写入完成后删除, 进程在任何时刻退出, 下次创建时都能从日志恢复未写入的修改.
+ *
+ * <p>日志只在应用进程中使用. 每条记录只调用 write, 进程崩溃时不丢失; 每批修改写入 backend 前 fsync 一次日志,
+ * 应用进入后台时也会写入, 系统崩溃或断电时最多丢失最近一批修改. 其它进程 (如卡片通过 StorageProvider) 直接修改 backend,
+ * 这些修改在调用 {@link #reload()} 后才反映到内存索引中.
+ */
+public class WriteBehindStorage implements IStorage {
+    private static final String TAG = "WriteBehindStorage";
+
+    private static final long FLUSH_DELAY_MS = 10;
+
+    private static final byte OP_SET = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_CLEAR = 3;
+
+    private final IStorage mBackend;
+    private final File mJournalFile;
+    private final File mFlushingFile;
+    private final DelayedExecutor mExecutor;
+    private final Object mFlushLock = new Object();
+
+    private final List<String> mKeys = new ArrayList<>();
+    private final Map<String, Integer> mPositions = new HashMap<>();
+    private final Map<String, String> mValues = new HashMap<>();
+
+    // 未写入 backend 的修改, value 为 null 表示删除
+    private Map<String, String> mPending = new LinkedHashMap<>();
+    private boolean mClearPending;
+    private boolean mFlushScheduled;
+    private FileOutputStream mJournal;
+
+    private final Runnable mFlushTask =
+            new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            };
+
+    public WriteBehindStorage(IStorage backend, File journalFile) {
+        this(backend, journalFile, Executors.scheduled());
+    }
+
+    WriteBehindStorage(IStorage backend, File journalFile, DelayedExecutor executor) {
+        mBackend = backend;
+        mJournalFile = journalFile;
+        mFlushingFile = new File(journalFile.getPath() + ".flushing");
+        mExecutor = executor;
+        load();
+    }
+
+    private void load() {
+        loadBackend();
+        // 上次没有写完的修改, 先恢复正在写入的部分, 再恢复之后的部分
+        boolean recovered = replay(mFlushingFile);
+        recovered |= replay(mJournalFile);
+        if (recovered) {
+            Log.i(TAG, "recovered " + mPending.size() + " pending changes from journal");
+            flush();
+        }
+    }
+
+    private void loadBackend() {
+        Map<String, String> entries = mBackend.entries();
+        if (entries != null) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                putInMemory(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private boolean replay(File file) {
+        if (!file.exists()) {
+            return false;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            while (true) {
+                byte op = in.readByte();
+                if (op == OP_CLEAR) {
+                    clearInMemory();
+                } else if (op == OP_SET) {
+                    String key = readString(in);
+                    String value = readString(in);
+                    putInMemory(key, value);
+                    mPending.put(key, value);
+                } else if (op == OP_DELETE) {
+                    String key = readString(in);
+                    removeInMemory(key);
+                    mPending.put(key, null);
+                } else {
+                    Log.w(TAG, "unknown journal op: " + op);
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // 日志结尾, 或最后一条记录没有写完
+        } catch (IOException e) {
+            Log.e(TAG, "failed to replay journal " + file, e);
+        } finally {
+            FileUtils.closeQuietly(in);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized String get(String key) {
+        return mValues.get(key);
+    }
+
+    @Override
+    public synchronized boolean set(String key, String value) {
+        if (value == null) {
+            delete(key);
+            return true;
+        }
+        if (value.equals(mValues.get(key))) {
+            return true;
+        }
+        if (!appendJournal(OP_SET, key, value)) {
+            return false;
+        }
+        putInMemory(key, value);
+        mPending.put(key, value);
+        scheduleFlush();
+        return true;
+    }
+
+    @Override
+    public synchronized Map<String, String> entries() {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String key : mKeys) {
+            result.put(key, mValues.get(key));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized String key(int index) {
+        if (index >= 0 && index < mKeys.size()) {
+            return mKeys.get(index);
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized int length() {
+        return mKeys.size();
+    }
+
+    @Override
+    public synchronized boolean delete(String key) {
+        if (!mValues.containsKey(key)) {
+            return false;
+        }
+        if (!appendJournal(OP_DELETE, key, null)) {
+            return false;
+        }
+        removeInMemory(key);
+        mPending.put(key, null);
+        scheduleFlush();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean clear() {
+        if (!appendJournal(OP_CLEAR, null, null)) {
+            return false;
+        }
+        clearInMemory();
+        scheduleFlush();
+        return true;
+    }
+
+    /**
+     * 把待写入的修改一次写入 backend, 可以在任意线程调用
+     */
+    public void flush() {
+        synchronized (mFlushLock) {
+            Map<String, String> pending;
+            boolean clearPending;
+            FileOutputStream journal;
+            synchronized (this) {
+                mFlushScheduled = false;
+                if (mPending.isEmpty() && !mClearPending) {
+                    return;
+                }
+                pending = mPending;
+                clearPending = mClearPending;
+                mPending = new LinkedHashMap<>();
+                mClearPending = false;
+                // 之后的修改写入新的日志, 旧的日志在锁外 fsync, 不阻塞读写
+                journal = mJournal;
+                mJournal = null;
+                if (!mFlushingFile.exists() && !mJournalFile.renameTo(mFlushingFile)) {
+                    Log.w(TAG, "failed to rename journal " + mJournalFile);
+                }
+            }
+            syncAndClose(journal);
+            boolean success = true;
+            if (clearPending) {
+                success = mBackend.clear();
+            }
+            for (Map.Entry<String, String> entry : pending.entrySet()) {
+                String value = entry.getValue();
+                if (value == null) {
+                    mBackend.delete(entry.getKey());
+                } else {
+                    success &= mBackend.set(entry.getKey(), value);
+                }
+            }
+            if (success) {
+                mFlushingFile.delete();
+            } else {
+                // 放回待写入列表, 下次写入时重试, 期间的修改覆盖旧的
+                Log.w(TAG, "failed to write " + pending.size() + " changes, keep journal");
+                synchronized (this) {
+                    if (!mClearPending) {
+                        pending.putAll(mPending);
+                        mPending = pending;
+                        mClearPending = clearPending;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入待写入的修改后从 backend 重新加载, 读取其它进程的修改. 写入失败或期间有新的修改时保留当前索引
+     */
+    public void reload() {
+        synchronized (mFlushLock) {
+            flush();
+            synchronized (this) {
+                if (!mPending.isEmpty() || mClearPending || mFlushingFile.exists()) {
+                    return;
+                }
+                mKeys.clear();
+                mPositions.clear();
+                mValues.clear();
+                loadBackend();
+            }
+        }
+    }
+
+    /**
+     * 丢弃内存中的数据和未写入的修改, 用于应用数据被清除时
+     */
+    public void discard() {
+        synchronized (mFlushLock) {
+            synchronized (this) {
+                closeJournal();
+                mPending.clear();
+                mClearPending = false;
+                mKeys.clear();
+                mPositions.clear();
+                mValues.clear();
+                mJournalFile.delete();
+                mFlushingFile.delete();
+            }
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mExecutor.executeWithDelay(mFlushTask, FLUSH_DELAY_MS);
+        }
+    }
+
+    private void putInMemory(String key, String value) {
+        if (mValues.put(key, value) == null) {
+            mPositions.put(key, mKeys.size());
+            mKeys.add(key);
+        }
+    }
+
+    private void removeInMemory(String key) {
+        mValues.remove(key);
+        Integer position = mPositions.remove(key);
+        if (position == null) {
+            return;
+        }
+        int last = mKeys.size() - 1;
+        String lastKey = mKeys.remove(last);
+        if (position != last) {
+            mKeys.set(position, lastKey);
+            mPositions.put(lastKey, position);
+        }
+    }
+
+    private void clearInMemory() {
+        mKeys.clear();
+        mPositions.clear();
+        mValues.clear();
+        mPending.clear();
+        mClearPending = true;
+    }
+
+    private boolean appendJournal(byte op, String key, String value) {
+        try {
+            if (mJournal == null) {
+                mJournal = new FileOutputStream(mJournalFile, true);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(op);
+            if (key != null) {
+                writeString(out, key);
+            }
+            if (value != null) {
+                writeString(out, value);
+            }
+            // 一条记录一次写入, 进程退出时最多丢失最后一条不完整的记录. fsync 在 flush 时按批进行
+            mJournal.write(bytes.toByteArray());
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "failed to append journal", e);
+            closeJournal();
+            return false;
+        }
+    }
+
+    private static void syncAndClose(FileOutputStream journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "failed to sync journal", e);
+        } finally {
+            FileUtils.closeQuietly(journal);
+        }
+    }
+
+    private void closeJournal() {
+        FileUtils.closeQuietly(mJournal);
+        mJournal = null;
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("illegal string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features.websocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import okio.ByteString;
+
+/**
+ * 合并 js 处理上一批消息期间收到的小的二进制帧.
+ *
+ * <p>每一批有递增的序号, 只有最后交给 js 的一批确认 ({@link #release(int)}) 后才发送下一批, 较早的批次的确认和超时被忽略.
+ * 回调在持有锁时调用, 保证帧的顺序.
+ */
+class BinaryFrameBatcher {
+    // 不超过该大小的二进制帧可以合并回调
+    static final int MAX_BATCH_FRAME_SIZE = 4 * 1024;
+    // js 一直没有处理完上一批时, 合并的数据超过该大小也立即回调
+    static final int MAX_BATCH_SIZE = 64 * 1024;
+
+    private final Callback mCallback;
+    private final List<ByteString> mPendingFrames = new ArrayList<>();
+    private int mPendingSize;
+    private int mSequence;
+    private boolean mInFlight;
+
+    BinaryFrameBatcher(Callback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * 可以在任意线程调用
+     */
+    synchronized void offer(ByteString frame) {
+        if (frame.size() > MAX_BATCH_FRAME_SIZE) {
+            // 保持消息顺序
+            flush();
+            mCallback.onFrame(frame);
+            return;
+        }
+        mPendingFrames.add(frame);
+        mPendingSize += frame.size();
+        if (!mInFlight || mPendingSize >= MAX_BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * 不等待上一批处理完, 立即回调合并中的帧
+     */
+    synchronized void flush() {
+        int count = mPendingFrames.size();
+        if (count == 0) {
+            return;
+        }
+        Batch batch = new Batch(++mSequence, new ArrayList<>(mPendingFrames), mPendingSize);
+        mPendingFrames.clear();
+        mPendingSize = 0;
+        mInFlight = true;
+        mCallback.onBatch(batch);
+    }
+
+    /**
+     * js 处理完一批或等待超时后调用
+     *
+     * @return sequence 不是最后交给 js 的一批时返回 false
+     */
+    synchronized boolean release(int sequence) {
+        if (!mInFlight || sequence != mSequence) {
+            return false;
+        }
+        mInFlight = false;
+        flush();
+        return true;
+    }
+
+    synchronized void clear() {
+        mPendingFrames.clear();
+        mPendingSize = 0;
+        mInFlight = false;
+    }
+
+    interface Callback {
+        /**
+         * 超过 {@link #MAX_BATCH_FRAME_SIZE} 的帧单独回调
+         */
+        void onFrame(ByteString frame);
+
+        void onBatch(Batch batch);
+    }
+
+    static class Batch {
+        private final int mSequence;
+        private final List<ByteString> mFrames;
+        private final int mSize;
+
+        Batch(int sequence, List<ByteString> frames, int size) {
+            mSequence = sequence;
+            mFrames = frames;
+            mSize = size;
+        }
+
+        int getSequence() {
+            return mSequence;
+        }
+
+        List<ByteString> getFrames() {
+            return mFrames;
+        }
+
+        /**
+         * 各帧的总长度
+         */
+        int getSize() {
+            return mSize;
+        }
+    }
+}
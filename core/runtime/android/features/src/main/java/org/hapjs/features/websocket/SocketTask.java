@@ -7,15 +7,21 @@ package org.hapjs.features.websocket;
 
 import android.util.Log;
 import com.eclipsesource.v8.utils.typedarrays.ArrayBuffer;
-import java.util.HashMap;
+import com.eclipsesource.v8.utils.typedarrays.Int32Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import okhttp3.Headers;
 import okhttp3.WebSocketListener;
 import okio.ByteString;
 import org.hapjs.bridge.InstanceManager;
 import org.hapjs.bridge.Request;
 import org.hapjs.bridge.Response;
+import org.hapjs.common.executors.Executors;
+import org.hapjs.common.executors.Future;
 import org.hapjs.common.net.HttpConfig;
 import org.hapjs.common.net.NetworkReportManager;
 import org.hapjs.render.jsruntime.serialize.JavaSerializeObject;
@@ -35,12 +41,31 @@ public class SocketTask implements InstanceManager.IInstance {
     public static final int CODE_RELEASE = 1001;
     public static final int CODE_ABNORMAL = 1006;
     private static final String TAG = "SocketTask";
+    // js 线程长时间没有处理完上一批时不再等待, 避免收到的帧一直积压
+    private static final long BATCH_DELIVERY_TIMEOUT_MS = 2000;
     private okhttp3.WebSocket.Factory mWebSocketFactory;
     private okhttp3.Request mOkhttpRequest;
     private okhttp3.WebSocket mWebSocket;
-    private Map<String, Request> mRequestMap = new HashMap<>();
+    // okhttp 线程和 js 线程都会访问
+    private Map<String, Request> mRequestMap = new ConcurrentHashMap<>();
+
+    // 为 null 时二进制帧逐个回调
+    private final BinaryFrameBatcher mBatcher;
+    // 只在 mBatcher 的锁中访问
+    private Future mBatchTimeout;
 
     public SocketTask(String url, JSONObject jsonHeader, JSONArray protocols) {
+        this(url, jsonHeader, protocols, false);
+    }
+
+    /**
+     * @param batchBinary 为 true 时, js 处理上一批消息期间收到的小的二进制帧合并为一次回调, 回调中的 data 为各帧数据依次拼接,
+     *                    frameLengths 为各帧的长度. 超过 {@link BinaryFrameBatcher#MAX_BATCH_FRAME_SIZE} 的帧单独回调,
+     *                    没有 frameLengths
+     */
+    public SocketTask(String url, JSONObject jsonHeader, JSONArray protocols,
+                      boolean batchBinary) {
+        mBatcher = batchBinary ? new BinaryFrameBatcher(new BatchCallback()) : null;
         String debugEnabled = System.getProperty(RuntimeActivity.PROP_DEBUG, "false");
         mWebSocketFactory =
                 Boolean.parseBoolean(debugEnabled)
@@ -164,6 +189,8 @@ public class SocketTask implements InstanceManager.IInstance {
     private void onSocketMessage(String data) {
         Request request = mRequestMap.get(WebSocket.EVENT_MESSAGE);
         if (request != null) {
+            // 文本消息不能先于已收到的二进制帧回调
+            flushPending(request);
             JSONObject jsonObject = new JSONObject();
             try {
                 jsonObject.put(WebSocket.RESULT_DATA, data);
@@ -176,15 +203,109 @@ public class SocketTask implements InstanceManager.IInstance {
 
     private void onSocketMessage(ByteString byteString) {
         Request request = mRequestMap.get(WebSocket.EVENT_MESSAGE);
-        if (request != null) {
-            byte[] bytes = byteString != null ? byteString.toByteArray() : new byte[0];
+        if (request == null) {
+            return;
+        }
+        if (byteString == null) {
+            byteString = ByteString.EMPTY;
+        }
+        if (mBatcher == null) {
+            request.getCallback().callback(new Response(createBinaryMessage(byteString)));
+            return;
+        }
+        mBatcher.offer(byteString);
+    }
+
+    /**
+     * 帧数据直接复制到交给 js 的 direct buffer, 不经过中间的 byte[]
+     */
+    private static SerializeObject createBinaryMessage(ByteString byteString) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(byteString.size());
+        buffer.put(byteString.asByteBuffer());
+        buffer.flip();
+        SerializeObject serializeObject = new JavaSerializeObject();
+        serializeObject.put(WebSocket.RESULT_DATA, new ArrayBuffer(buffer));
+        return serializeObject;
+    }
+
+    /**
+     * 文本, close 和 error 回调之前先把合并中的帧回调给 js, 不等待上一批处理完
+     */
+    private void flushPending(Request request) {
+        if (mBatcher == null || request == null) {
+            return;
+        }
+        mBatcher.flush();
+    }
+
+    // 在 mBatcher 的锁中调用
+    private void cancelBatchTimeout() {
+        if (mBatchTimeout != null) {
+            mBatchTimeout.cancel(false);
+            mBatchTimeout = null;
+        }
+    }
+
+    private class BatchCallback implements BinaryFrameBatcher.Callback {
+        @Override
+        public void onFrame(ByteString frame) {
+            Request request = mRequestMap.get(WebSocket.EVENT_MESSAGE);
+            if (request != null) {
+                request.getCallback().callback(new Response(createBinaryMessage(frame)));
+            }
+        }
+
+        @Override
+        public void onBatch(BinaryFrameBatcher.Batch batch) {
+            final int sequence = batch.getSequence();
+            cancelBatchTimeout();
+            mBatchTimeout =
+                    Executors.scheduled()
+                            .executeWithDelay(
+                                    new Runnable() {
+                                        @Override
+                                        public void run() {
+                                            if (mBatcher.release(sequence)) {
+                                                Log.w(TAG, "batch " + sequence + " not delivered in "
+                                                        + BATCH_DELIVERY_TIMEOUT_MS + "ms");
+                                            }
+                                        }
+                                    },
+                                    BATCH_DELIVERY_TIMEOUT_MS);
+
+            Request request = mRequestMap.get(WebSocket.EVENT_MESSAGE);
+            if (request == null) {
+                return;
+            }
+            List<ByteString> frames = batch.getFrames();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(batch.getSize());
+            ByteBuffer lengths =
+                    ByteBuffer.allocateDirect(frames.size() * 4).order(ByteOrder.nativeOrder());
+            for (ByteString frame : frames) {
+                buffer.put(frame.asByteBuffer());
+                lengths.putInt(frame.size());
+            }
+            buffer.flip();
+            lengths.flip();
+
             SerializeObject serializeObject = new JavaSerializeObject();
-            serializeObject.put(WebSocket.RESULT_DATA, new ArrayBuffer(bytes));
-            request.getCallback().callback(new Response(serializeObject));
+            serializeObject.put(WebSocket.RESULT_DATA, new ArrayBuffer(buffer));
+            serializeObject.put(WebSocket.RESULT_FRAME_LENGTHS, new Int32Array(lengths));
+            Response response = new Response(serializeObject);
+            // 在 js 线程中调用, 只有最后一批处理完才发送 js 处理期间收到的帧
+            response.setOnDeliveredListener(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            mBatcher.release(sequence);
+                        }
+                    });
+            request.getCallback().callback(response);
         }
     }
 
     private void onSocketClose(int code, String reason, boolean wasClean) {
+        flushPending(mRequestMap.get(WebSocket.EVENT_MESSAGE));
         Request request = mRequestMap.get(WebSocket.EVENT_CLOSE);
         if (request != null) {
             JSONObject jsonObject = new JSONObject();
@@ -198,9 +319,16 @@ public class SocketTask implements InstanceManager.IInstance {
             }
         }
         mRequestMap.clear();
+        if (mBatcher != null) {
+            synchronized (mBatcher) {
+                mBatcher.clear();
+                cancelBatchTimeout();
+            }
+        }
     }
 
     private void onSocketError(String data) {
+        flushPending(mRequestMap.get(WebSocket.EVENT_MESSAGE));
         Request request = mRequestMap.get(WebSocket.EVENT_ERROR);
         if (request != null) {
             JSONObject jsonObject = new JSONObject();
@@ -69,6 +69,7 @@ public class WebSocket extends FeatureExtension {
     protected static final String PARAMS_KEY_CODE = "code";
     protected static final String PARAMS_KEY_REASON = "reason";
     protected static final String RESULT_DATA = "data";
+    protected static final String RESULT_FRAME_LENGTHS = "frameLengths";
     protected static final String RESULT_CODE = "code";
     protected static final String RESULT_WAS_CLEAN = "wasClean";
     protected static final String RESULT_REASON = "reason";
@@ -98,6 +99,10 @@ public class WebSocket extends FeatureExtension {
         return Response.SUCCESS;
     }
 
+    /**
+     * data 为 ArrayBuffer 或 TypedArray 时, 数据仍会从 js 的内存复制一次到 {@link ByteString}. okhttp 在自己的线程中排队发送,
+     * 发送时 js 的 buffer 可能已被回收或修改, 不能直接引用
+     */
     private void send(Request request) throws Exception {
         int instanceId = request.getInstanceId();
 
@@ -144,8 +149,10 @@ public class WebSocket extends FeatureExtension {
         ByteString data = null;
         if (null != buffer) {
             try {
-                buffer.position(0);
-                data = ByteString.of(buffer);
+                // 直接从 js 的内存复制到 ByteString, 不修改 js 持有的 buffer 的 position
+                ByteBuffer view = buffer.duplicate();
+                view.position(0);
+                data = ByteString.of(view);
             } catch (IllegalArgumentException e) {
                 Log.e(TAG, "Fail to read ArrayBuffer: ", e);
             } catch (Exception e) {
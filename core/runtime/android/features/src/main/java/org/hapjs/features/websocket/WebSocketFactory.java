@@ -30,6 +30,7 @@ public class WebSocketFactory extends FeatureExtension {
     private static final String PARAMS_KEY_URL = "url";
     private static final String PARAMS_KEY_HEADER = "header";
     private static final String PARAMS_KEY_PROTOCOLS = "protocols";
+    private static final String PARAMS_KEY_BATCH_BINARY = "batchBinary";
 
     @Override
     public String getName() {
@@ -50,7 +51,8 @@ public class WebSocketFactory extends FeatureExtension {
         String url = jsonParams.getString(PARAMS_KEY_URL);
         JSONObject jsonHeader = jsonParams.optJSONObject(PARAMS_KEY_HEADER);
         JSONArray protocols = jsonParams.optJSONArray(PARAMS_KEY_PROTOCOLS);
-        SocketTask socketTask = new SocketTask(url, jsonHeader, protocols);
+        boolean batchBinary = jsonParams.optBoolean(PARAMS_KEY_BATCH_BINARY);
+        SocketTask socketTask = new SocketTask(url, jsonHeader, protocols, batchBinary);
         socketTask.connectSocket();
         HybridManager hybridManager = request.getView().getHybridManager();
         return new Response(
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.FloatBuffer;
+import org.junit.Test;
+
+public class SensorEventStreamTest {
+
+    private static float[] drain(SampleRing ring) {
+        FloatBuffer out = FloatBuffer.allocate(ring.size() * ring.stride());
+        ring.drainTo(out);
+        return out.array();
+    }
+
+    @Test
+    public void ringKeepsOrder() {
+        SampleRing ring = new SampleRing(2, 4);
+        assertTrue(ring.offer(new float[] {1, 10}));
+        assertTrue(ring.offer(new float[] {2, 20}));
+        assertEquals(2, ring.size());
+        assertArrayEquals(new float[] {1, 10, 2, 20}, drain(ring), 0f);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void ringWrapsAfterDrain() {
+        SampleRing ring = new SampleRing(1, 3);
+        ring.offer(new float[] {1});
+        ring.offer(new float[] {2});
+        drain(ring);
+        // 写满后的位置跨过数组末尾
+        ring.offer(new float[] {3});
+        ring.offer(new float[] {4});
+        ring.offer(new float[] {5});
+        assertEquals(0, ring.dropped());
+        assertArrayEquals(new float[] {3, 4, 5}, drain(ring), 0f);
+    }
+
+    @Test
+    public void ringDropsOldest() {
+        SampleRing ring = new SampleRing(1, 3);
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(ring.offer(new float[] {i}));
+        }
+        assertFalse(ring.offer(new float[] {4}));
+        assertFalse(ring.offer(new float[] {5}));
+        assertEquals(3, ring.size());
+        assertEquals(2, ring.dropped());
+        assertArrayEquals(new float[] {3, 4, 5}, drain(ring), 0f);
+        // 丢弃数按批次计算
+        assertEquals(0, ring.dropped());
+    }
+
+    @Test
+    public void ringPadsShortSamples() {
+        SampleRing ring = new SampleRing(3, 1);
+        ring.offer(new float[] {1, 2, 3});
+        drain(ring);
+        ring.offer(new float[] {4});
+        assertArrayEquals(new float[] {4, 0, 0}, drain(ring), 0f);
+    }
+
+    @Test
+    public void intervalFollowsLatency() {
+        long interval = SensorEventStream.MIN_INTERVAL_MS;
+        // js 处理变慢时间隔逐步拉长, 不超过上限
+        for (int i = 0; i < 20; i++) {
+            long next = SensorEventStream.nextInterval(interval, 5000);
+            assertTrue(next >= interval);
+            interval = next;
+        }
+        assertEquals(SensorEventStream.MAX_INTERVAL_MS, interval);
+
+        assertEquals(150, SensorEventStream.nextInterval(200, 100));
+
+        // 恢复后逐步缩短到下限
+        for (int i = 0; i < 20; i++) {
+            interval = SensorEventStream.nextInterval(interval, 0);
+        }
+        assertEquals(SensorEventStream.MIN_INTERVAL_MS, interval);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features.bluetooth.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 使用构造的扫描记录验证合并逻辑, 不需要蓝牙
+ */
+public class BleScanAggregatorTest {
+    private static final byte[] RECORD_A = {2, 0x01, 0x06};
+    private static final byte[] RECORD_B = {3, 0x09, 'h', 'i'};
+
+    private int mParseCount;
+    private BleScanAggregator<Device> mAggregator;
+
+    @Before
+    public void setUp() {
+        mAggregator =
+                new BleScanAggregator<>(
+                        new BleScanAggregator.Parser<Device>() {
+                            @Override
+                            public Device parse(String deviceId, String name, int rssi,
+                                                byte[] scanRecord) {
+                                mParseCount++;
+                                return new Device(deviceId, rssi, scanRecord);
+                            }
+
+                            @Override
+                            public void updateRssi(Device device, int rssi) {
+                                device.mRssi = rssi;
+                            }
+                        });
+    }
+
+    @Test
+    public void reportNewDevicesOnly() {
+        mAggregator.reset(false);
+        for (int i = 0; i < 100; i++) {
+            mAggregator.onScanResult("AA", "a", -50 - i % 5, RECORD_A);
+        }
+        assertTrue(mAggregator.onScanResult("BB", "b", -60, RECORD_A));
+
+        List<Device> devices = mAggregator.flush();
+        assertEquals(2, devices.size());
+        assertEquals("AA", devices.get(0).mDeviceId);
+        assertEquals(-54, devices.get(0).mRssi);
+        assertEquals(2, mParseCount);
+
+        // 已返回的设备再次上报不再返回
+        assertFalse(mAggregator.onScanResult("AA", "a", -40, RECORD_B));
+        assertTrue(mAggregator.flush().isEmpty());
+    }
+
+    @Test
+    public void allowDuplicatesAndParseLazily() {
+        mAggregator.reset(true);
+        mAggregator.onScanResult("AA", "a", -50, RECORD_A);
+        Device first = mAggregator.flush().get(0);
+
+        // 只有信号强度变化, 复用解析结果
+        for (int i = 0; i < 10; i++) {
+            mAggregator.onScanResult("AA", "a", -60 - i, RECORD_A.clone());
+        }
+        List<Device> devices = mAggregator.flush();
+        assertEquals(1, devices.size());
+        assertSame(first, devices.get(0));
+        assertEquals(-69, first.mRssi);
+        assertEquals(1, mParseCount);
+
+        // 广播数据变化时重新解析
+        mAggregator.onScanResult("AA", "a", -69, RECORD_B);
+        devices = mAggregator.flush();
+        assertEquals(1, devices.size());
+        assertEquals(RECORD_B, devices.get(0).mScanRecord);
+        assertEquals(2, mParseCount);
+
+        // 允许重复时, 完全相同的上报也返回, 不重新解析
+        assertTrue(mAggregator.onScanResult("AA", "a", -69, RECORD_B));
+        assertTrue(mAggregator.onScanResult("AA", "a", -69, RECORD_B));
+        devices = mAggregator.flush();
+        assertEquals(1, devices.size());
+        assertEquals(2, mParseCount);
+        assertTrue(mAggregator.flush().isEmpty());
+        assertTrue(mAggregator.getStatistics().startsWith("raw=14, delivered=4"));
+    }
+
+    private static class Device {
+        private final String mDeviceId;
+        private final byte[] mScanRecord;
+        private int mRssi;
+
+        Device(String deviceId, int rssi, byte[] scanRecord) {
+            mDeviceId = deviceId;
+            mRssi = rssi;
+            mScanRecord = scanRecord;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.features.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import okio.ByteString;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 按 js 的确认顺序验证合并逻辑, 不需要 websocket 连接
+ */
+public class BinaryFrameBatcherTest {
+    // 按回调顺序记录, 单独回调的帧记为只有一帧的批次, 序号为 0
+    private final List<BinaryFrameBatcher.Batch> mDelivered = new ArrayList<>();
+    private BinaryFrameBatcher mBatcher;
+
+    @Before
+    public void setUp() {
+        mBatcher =
+                new BinaryFrameBatcher(
+                        new BinaryFrameBatcher.Callback() {
+                            @Override
+                            public void onFrame(ByteString frame) {
+                                List<ByteString> frames = new ArrayList<>();
+                                frames.add(frame);
+                                mDelivered.add(new BinaryFrameBatcher.Batch(0, frames,
+                                        frame.size()));
+                            }
+
+                            @Override
+                            public void onBatch(BinaryFrameBatcher.Batch batch) {
+                                mDelivered.add(batch);
+                            }
+                        });
+    }
+
+    private static ByteString frame(int index, int size) {
+        byte[] data = new byte[size];
+        data[0] = (byte) index;
+        return ByteString.of(data);
+    }
+
+    private List<Integer> deliveredIndexes() {
+        List<Integer> indexes = new ArrayList<>();
+        for (BinaryFrameBatcher.Batch batch : mDelivered) {
+            for (ByteString frame : batch.getFrames()) {
+                indexes.add((int) frame.getByte(0));
+            }
+        }
+        return indexes;
+    }
+
+    @Test
+    public void keepOrderWhileInFlight() {
+        mBatcher.offer(frame(0, 16));
+        assertEquals(1, mDelivered.size());
+
+        // js 处理第一批期间收到的帧合并, 大帧之前先回调合并中的帧
+        mBatcher.offer(frame(1, 16));
+        mBatcher.offer(frame(2, 16));
+        mBatcher.offer(frame(3, BinaryFrameBatcher.MAX_BATCH_FRAME_SIZE + 1));
+        mBatcher.offer(frame(4, 16));
+        assertEquals(3, mDelivered.size());
+        assertEquals(2, mDelivered.get(1).getFrames().size());
+        assertEquals(32, mDelivered.get(1).getSize());
+
+        assertTrue(mBatcher.release(mDelivered.get(1).getSequence()));
+        assertEquals(4, mDelivered.size());
+        assertEquals(5, deliveredIndexes().size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, (int) deliveredIndexes().get(i));
+        }
+    }
+
+    @Test
+    public void flushEarlyWhenBatchIsFull() {
+        mBatcher.offer(frame(0, 16));
+        int frameSize = BinaryFrameBatcher.MAX_BATCH_FRAME_SIZE;
+        int count = BinaryFrameBatcher.MAX_BATCH_SIZE / frameSize;
+        for (int i = 1; i < count; i++) {
+            mBatcher.offer(frame(i, frameSize));
+        }
+        assertEquals(1, mDelivered.size());
+
+        // 达到 64KB 时不等待第一批的确认
+        mBatcher.offer(frame(count, frameSize));
+        assertEquals(2, mDelivered.size());
+        assertEquals(BinaryFrameBatcher.MAX_BATCH_SIZE, mDelivered.get(1).getSize());
+
+        // 第一批的确认不能放行第二批处理期间收到的帧
+        mBatcher.offer(frame(count + 1, 16));
+        assertFalse(mBatcher.release(mDelivered.get(0).getSequence()));
+        assertEquals(2, mDelivered.size());
+
+        assertTrue(mBatcher.release(mDelivered.get(1).getSequence()));
+        assertEquals(3, mDelivered.size());
+        assertEquals(count + 2, deliveredIndexes().size());
+    }
+
+    @Test
+    public void releaseOnTimeout() {
+        mBatcher.offer(frame(0, 16));
+        int first = mDelivered.get(0).getSequence();
+        mBatcher.offer(frame(1, 16));
+        mBatcher.offer(frame(2, 16));
+        assertEquals(1, mDelivered.size());
+
+        // js 没有确认, 超时后发送积压的帧
+        assertTrue(mBatcher.release(first));
+        assertEquals(2, mDelivered.size());
+        assertEquals(2, mDelivered.get(1).getFrames().size());
+
+        // 超时后才到达的确认被忽略
+        mBatcher.offer(frame(3, 16));
+        assertFalse(mBatcher.release(first));
+        assertEquals(2, mDelivered.size());
+        assertTrue(mBatcher.release(mDelivered.get(1).getSequence()));
+        assertFalse(mBatcher.release(mDelivered.get(1).getSequence()));
+        assertEquals(3, mDelivered.size());
+    }
+}
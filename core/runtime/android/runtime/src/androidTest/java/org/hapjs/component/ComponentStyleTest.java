@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.component;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.view.View;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.hapjs.component.constants.Attributes;
+import org.hapjs.component.view.state.State;
+import org.hapjs.render.css.value.CSSValues;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 简写和展开的样式互相覆盖, 值未变化的样式也需要再次应用
+ */
+@RunWith(AndroidJUnit4.class)
+public class ComponentStyleTest {
+
+    private static Map<String, CSSValues> styles(String... keyValues) {
+        Map<String, CSSValues> styles = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            final String value = keyValues[i + 1];
+            styles.put(keyValues[i], state -> State.NORMAL.equals(state) ? value : null);
+        }
+        return styles;
+    }
+
+    private static RecordComponent createComponent(String... keyValues) {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        RecordComponent component = new RecordComponent(context);
+        component.createView();
+        component.bindStyles(styles(keyValues));
+        component.mApplied.clear();
+        return component;
+    }
+
+    @Test
+    public void longhandAfterShorthand() {
+        RecordComponent component =
+                createComponent(Attributes.Style.MARGIN, "10px",
+                        Attributes.Style.MARGIN_LEFT, "5px");
+        component.bindStyles(styles(Attributes.Style.MARGIN, "20px"));
+        // margin 覆盖了 marginLeft, 恢复时需要再次应用相同的值
+        component.bindStyles(styles(Attributes.Style.MARGIN_LEFT, "5px"));
+        assertEquals(
+                Arrays.asList(Attributes.Style.MARGIN + ":20px",
+                        Attributes.Style.MARGIN_LEFT + ":5px"),
+                component.mApplied);
+    }
+
+    @Test
+    public void shorthandAfterLonghand() {
+        RecordComponent component =
+                createComponent(Attributes.Style.BORDER_LEFT_WIDTH, "2px",
+                        Attributes.Style.BORDER_WIDTH, "1px");
+        component.bindStyles(styles(Attributes.Style.BORDER_LEFT_WIDTH, "4px"));
+        component.bindStyles(styles(Attributes.Style.BORDER_WIDTH, "1px"));
+        assertEquals(
+                Arrays.asList(Attributes.Style.BORDER_LEFT_WIDTH + ":4px",
+                        Attributes.Style.BORDER_WIDTH + ":1px"),
+                component.mApplied);
+    }
+
+    @Test
+    public void backgroundAndFlex() {
+        RecordComponent component =
+                createComponent(Attributes.Style.BACKGROUND_COLOR, "#ff0000",
+                        Attributes.Style.FLEX_GROW, "1");
+        component.bindStyles(styles(Attributes.Style.BACKGROUND, "#00ff00",
+                Attributes.Style.FLEX, "2"));
+        component.bindStyles(styles(Attributes.Style.BACKGROUND_COLOR, "#ff0000",
+                Attributes.Style.FLEX_GROW, "1"));
+        assertEquals(
+                Arrays.asList(Attributes.Style.BACKGROUND + ":#00ff00",
+                        Attributes.Style.FLEX + ":2",
+                        Attributes.Style.BACKGROUND_COLOR + ":#ff0000",
+                        Attributes.Style.FLEX_GROW + ":1"),
+                component.mApplied);
+    }
+
+    private static class RecordComponent extends Component<View> {
+        final List<String> mApplied = new ArrayList<>();
+
+        RecordComponent(Context context) {
+            super(null, context, null, 1, null, null);
+        }
+
+        @Override
+        protected View createViewImpl() {
+            return new View(mContext);
+        }
+
+        @Override
+        protected boolean setAttribute(String key, Object attribute) {
+            mApplied.add(key + ":" + attribute);
+            return true;
+        }
+    }
+}
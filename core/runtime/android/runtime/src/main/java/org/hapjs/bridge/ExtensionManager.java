@@ -27,19 +27,14 @@ import org.hapjs.render.jsruntime.JsThread;
 import org.hapjs.render.jsruntime.JsUtils;
 import org.hapjs.render.jsruntime.module.ModuleBridge;
 import org.hapjs.render.jsruntime.serialize.JavaSerializeObject;
-import org.hapjs.render.jsruntime.serialize.Serializable;
-import org.hapjs.render.jsruntime.serialize.SerializeObject;
 import org.hapjs.runtime.HapConfig;
 import org.hapjs.runtime.HapEngine;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 public class ExtensionManager {
     public static final String TAG = "ExtensionManager";
 
     private static final Response RESPONSE_ASYNC = new Response(Response.CODE_ASYNC, "");
     private static final Response RESPONSE_CALLBACK = new Response(Response.CODE_CALLBACK, "");
-    private static final Executor SINGLE_THREAD_EXECUTOR = Executors.createSingleThreadExecutor();
 
     /**
      * callback would be set as -1 when unset event
@@ -52,6 +47,7 @@ public class ExtensionManager {
     private HybridManager mHybridManager;
     private LifecycleListenerImpl mLifecycleListener;
     private JsThread mJsThread;
+    private JsCallbackDispatcher mCallbackDispatcher;
     private WidgetBridge mWidgetBridge;
     private V8Object mRegisteredInterface;
 
@@ -59,6 +55,7 @@ public class ExtensionManager {
 
     public ExtensionManager(JsThread jsThread, Context context) {
         mJsThread = jsThread;
+        mCallbackDispatcher = new JsCallbackDispatcher(jsThread);
         mContext = context;
         mFeatureBridge = new FeatureBridge(mContext, getClass().getClassLoader());
         mModuleBridge = new ModuleBridge(getClass().getClassLoader());
@@ -215,6 +212,10 @@ public class ExtensionManager {
             return response;
         } else {
             setCallbackToRequest(jsCallback, realCallback, request, mode);
+            // 异步调用在其它线程读取参数, 提交前转换全部内容
+            if (rawParams instanceof JavaSerializeObject) {
+                ((JavaSerializeObject) rawParams).detach();
+            }
             Executor executor = f.getExecutor(request);
             executor = executor == null ? Executors.io() : executor;
             new AsyncInvocation(f, request, executor).execute();
@@ -262,7 +263,7 @@ public class ExtensionManager {
                     realCallback.callback(response);
                 }
             } else {
-                SINGLE_THREAD_EXECUTOR.execute(new JsInvocation(response, jsCallback));
+                mCallbackDispatcher.dispatch(response, jsCallback);
             }
         }
     }
@@ -367,47 +368,6 @@ public class ExtensionManager {
         return mFeatureInvokeListener;
     }
 
-    private class JsInvocation implements Runnable {
-        private Response mResponse;
-        private String mJsCallback;
-
-        public JsInvocation(Response response, String jsCallback) {
-            mResponse = response;
-            mJsCallback = jsCallback;
-        }
-
-        @Override
-        public void run() {
-            try {
-                Object params;
-                try {
-                    if (mResponse.getSerializeType() == Serializable.TYPE_JSON) {
-                        JSONObject result = new JSONObject();
-                        result.put("callback", mJsCallback);
-                        result.put("data", mResponse.toJSON());
-                        params = result.toString();
-                    } else {
-                        SerializeObject javaBridgeMap =
-                                new JavaSerializeObject()
-                                        .put("callback", mJsCallback)
-                                        .put("data", mResponse.toSerializeObject());
-                        params = javaBridgeMap.toMap();
-                    }
-                } catch (OutOfMemoryError e) {
-                    Log.e(TAG, "invoke js callback get oom!", e);
-                    Response response = new Response(Response.CODE_OOM_ERROR, "has oom error");
-                    JSONObject result = new JSONObject();
-                    result.put("callback", mJsCallback);
-                    result.put("data", response.toJSON());
-                    params = result.toString();
-                }
-                mJsThread.postExecuteFunction("execInvokeCallback", params);
-            } catch (JSONException e) {
-                Log.e(TAG, "Fail to invoke js callback", e);
-            }
-        }
-    }
-
     private class LifecycleListenerImpl extends LifecycleListener {
         @Override
         public void onPageChange() {
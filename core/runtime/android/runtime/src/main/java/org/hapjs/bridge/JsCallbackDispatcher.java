@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.bridge;
+
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hapjs.common.executors.Executors;
+import org.hapjs.render.jsruntime.JsThread;
+import org.hapjs.render.jsruntime.serialize.JavaSerializeObject;
+import org.hapjs.render.jsruntime.serialize.Serializable;
+import org.hapjs.render.jsruntime.serialize.SerializeObject;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 把 feature 的异步回调传给 js.
+ *
+ * <p>每个应用一个实例, 回调在 io 线程中按应用串行序列化. 序列化完成但还未在 js 线程中执行的回调会合并,
+ * 通过一次 execInvokeCallbacks 调用传给 js, 高频回调(如传感器, 蓝牙扫描)不会占满 js 线程的消息队列.
+ */
+class JsCallbackDispatcher {
+    private static final String TAG = "JsCallbackDispatcher";
+
+    private static final String FUNCTION_INVOKE_CALLBACK = "execInvokeCallback";
+    private static final String FUNCTION_INVOKE_CALLBACKS = "execInvokeCallbacks";
+
+    private final JsThread mJsThread;
+    private final ConcurrentLinkedQueue<PendingCallback> mPendingCallbacks =
+            new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mSerializing = new AtomicBoolean();
+    private final Runnable mSerializeTask = this::serializePendingCallbacks;
+    private final Runnable mFlushTask = this::flush;
+
+    private final Object mBatchLock = new Object();
+    private List<Object> mBatch = new ArrayList<>();
+    private List<Runnable> mDeliveredListeners = new ArrayList<>();
+    private boolean mFlushPosted;
+
+    JsCallbackDispatcher(JsThread jsThread) {
+        mJsThread = jsThread;
+    }
+
+    void dispatch(Response response, String jsCallback) {
+        mPendingCallbacks.offer(new PendingCallback(response, jsCallback));
+        scheduleSerialize();
+    }
+
+    private void scheduleSerialize() {
+        if (mSerializing.compareAndSet(false, true)) {
+            Executors.io().execute(mSerializeTask);
+        }
+    }
+
+    private void serializePendingCallbacks() {
+        try {
+            PendingCallback callback;
+            while ((callback = mPendingCallbacks.poll()) != null) {
+                Object params = serialize(callback.mResponse, callback.mJsCallback);
+                if (params != null) {
+                    addToBatch(params, callback.mResponse.getOnDeliveredListener());
+                }
+            }
+        } finally {
+            // 异常时也要释放标记, 否则之后的回调不再序列化
+            mSerializing.set(false);
+        }
+        // 释放标记前可能有新的回调加入
+        if (!mPendingCallbacks.isEmpty()) {
+            scheduleSerialize();
+        }
+    }
+
+    private Object serialize(Response response, String jsCallback) {
+        try {
+            try {
+                if (response.getSerializeType() == Serializable.TYPE_JSON) {
+                    JSONObject result = new JSONObject();
+                    result.put("callback", jsCallback);
+                    result.put("data", response.toJSON());
+                    return result.toString();
+                } else {
+                    SerializeObject javaBridgeMap =
+                            new JavaSerializeObject()
+                                    .put("callback", jsCallback)
+                                    .put("data", response.toSerializeObject());
+                    return javaBridgeMap.toMap();
+                }
+            } catch (OutOfMemoryError e) {
+                Log.e(TAG, "invoke js callback get oom!", e);
+                Response oomResponse = new Response(Response.CODE_OOM_ERROR, "has oom error");
+                JSONObject result = new JSONObject();
+                result.put("callback", jsCallback);
+                result.put("data", oomResponse.toJSON());
+                return result.toString();
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Fail to invoke js callback", e);
+            return null;
+        } catch (RuntimeException e) {
+            // 例如 JSONSerializeObject 不支持 TypedArray, 只丢弃这一个回调
+            Log.e(TAG, "Fail to serialize js callback", e);
+            return null;
+        }
+    }
+
+    private void addToBatch(Object params, Runnable deliveredListener) {
+        synchronized (mBatchLock) {
+            mBatch.add(params);
+            if (deliveredListener != null) {
+                mDeliveredListeners.add(deliveredListener);
+            }
+            if (mFlushPosted) {
+                return;
+            }
+            mFlushPosted = true;
+        }
+        mJsThread.postInJsThread(mFlushTask);
+    }
+
+    /**
+     * 在 js 线程中执行, 一次传入所有已序列化的回调
+     */
+    private void flush() {
+        List<Object> batch;
+        List<Runnable> deliveredListeners;
+        synchronized (mBatchLock) {
+            batch = mBatch;
+            mBatch = new ArrayList<>();
+            mFlushPosted = false;
+            deliveredListeners = mDeliveredListeners;
+            if (!deliveredListeners.isEmpty()) {
+                mDeliveredListeners = new ArrayList<>();
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            mJsThread.executeFunction(FUNCTION_INVOKE_CALLBACK, batch.get(0));
+        } else {
+            mJsThread.executeFunction(FUNCTION_INVOKE_CALLBACKS, batch);
+        }
+        for (Runnable listener : deliveredListeners) {
+            listener.run();
+        }
+    }
+
+    private static class PendingCallback {
+        final Response mResponse;
+        final String mJsCallback;
+
+        PendingCallback(Response response, String jsCallback) {
+            mResponse = response;
+            mJsCallback = jsCallback;
+        }
+    }
+}
@@ -8,6 +8,7 @@ package org.hapjs.bridge;
 import android.webkit.JavascriptInterface;
 import com.eclipsesource.v8.V8Object;
 import org.hapjs.render.jsruntime.serialize.JavaSerializeObject;
+import org.hapjs.render.jsruntime.serialize.V8LazySerializeObject;
 
 /**
  * The interface exposed to JavaScript.
@@ -41,7 +42,16 @@ public class JsInterface {
                         String.format("%s with action %s, rawParams can't be undefined", feature,
                                 action));
             }
-            rawParams = new JavaSerializeObject(V8ObjectHelper.toMap((V8Object) rawParams));
+            V8LazySerializeObject params = new V8LazySerializeObject((V8Object) rawParams);
+            Response response = null;
+            try {
+                response = mManager.invoke(
+                        feature, action, new JavaSerializeObject(params), callback, instanceId);
+            } finally {
+                // 异步调用已在提交前转换全部内容, 返回后不再访问 V8 对象
+                params.detach(false);
+            }
+            return response;
         }
 
         Response response = mManager.invoke(feature, action, rawParams, callback, instanceId);
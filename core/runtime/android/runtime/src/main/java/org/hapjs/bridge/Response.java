@@ -137,6 +137,7 @@ public class Response implements java.io.Serializable {
     private final Object mContent;
     private JSONObject mJSONResult;
     private transient SerializeObject mSerializeObjectResult;
+    private transient Runnable mOnDeliveredListener;
 
     /**
      * Construct a new instance with code {@link #CODE_SUCCESS} and specified content.
@@ -182,6 +183,17 @@ public class Response implements java.io.Serializable {
         return mContent;
     }
 
+    /**
+     * 回调在 js 线程中执行后调用 listener, 用于按 js 的处理速度控制回调频率. 回调没有传给 js 时不会调用
+     */
+    public void setOnDeliveredListener(Runnable listener) {
+        mOnDeliveredListener = listener;
+    }
+
+    public Runnable getOnDeliveredListener() {
+        return mOnDeliveredListener;
+    }
+
     public int getSerializeType() {
         if (mContent instanceof SerializeObject) {
             return ((SerializeObject) mContent).getType();
@@ -9,7 +9,9 @@ import com.eclipsesource.v8.Releasable;
 import com.eclipsesource.v8.V8;
 import com.eclipsesource.v8.V8Array;
 import com.eclipsesource.v8.V8ArrayBuffer;
+import com.eclipsesource.v8.V8Function;
 import com.eclipsesource.v8.V8Object;
+import com.eclipsesource.v8.V8ResultUndefined;
 import com.eclipsesource.v8.V8TypedArray;
 import com.eclipsesource.v8.V8Value;
 import com.eclipsesource.v8.utils.V8Map;
@@ -46,6 +48,48 @@ public class V8ObjectHelper {
         }
     }
 
+    /**
+     * 转换单个从 V8 取出的值, 调用方负责释放原始值
+     */
+    public static Object toValue(Object object) {
+        if (!(object instanceof V8Object)) {
+            return object;
+        }
+        V8Map cache = new V8Map();
+        try {
+            Object value = getValue(object, getType(object), cache);
+            return value == IGNORE ? null : value;
+        } finally {
+            cache.release();
+        }
+    }
+
+    // 根据 get 返回的 java 对象得到类型, 不再为每个 key 调用一次 getType
+    private static int getType(Object object) {
+        if (object == null) {
+            return V8Value.NULL;
+        } else if (object instanceof Integer) {
+            return V8Value.INTEGER;
+        } else if (object instanceof Double) {
+            return V8Value.DOUBLE;
+        } else if (object instanceof Boolean) {
+            return V8Value.BOOLEAN;
+        } else if (object instanceof String) {
+            return V8Value.STRING;
+        } else if (object instanceof V8TypedArray) {
+            return V8Value.V8_TYPED_ARRAY;
+        } else if (object instanceof V8Array) {
+            return V8Value.V8_ARRAY;
+        } else if (object instanceof V8ArrayBuffer) {
+            return V8Value.V8_ARRAY_BUFFER;
+        } else if (object instanceof V8Function) {
+            return V8Value.V8_FUNCTION;
+        } else if (object instanceof V8Object) {
+            return ((V8Object) object).isUndefined() ? V8Value.UNDEFINED : V8Value.V8_OBJECT;
+        }
+        return V8Value.UNKNOWN;
+    }
+
     private static Map<String, ? super Object> toMap(V8Object v8Object, V8Map<Object> cache) {
         if (v8Object == null) {
             return Collections.emptyMap();
@@ -62,8 +106,7 @@ public class V8ObjectHelper {
 
                 try {
                     object = v8Object.get(key);
-                    int type = v8Object.getType(key);
-                    Object value = getValue(object, type, cache);
+                    Object value = getValue(object, getType(object), cache);
                     if (value != IGNORE) {
                         result.put(key, value);
                     }
@@ -153,13 +196,16 @@ public class V8ObjectHelper {
             List<? super Object> result = new ArrayList();
             cache.put(array, result);
 
-            for (int i = 0; i < array.length(); ++i) {
+            int length = array.length();
+            if (length > 0 && addPrimitives(array, length, result)) {
+                return result;
+            }
+            for (int i = 0; i < length; ++i) {
                 Object object = null;
 
                 try {
                     object = array.get(i);
-                    int type = array.getType(i);
-                    Object value = getValue(object, type, cache);
+                    Object value = getValue(object, getType(object), cache);
                     if (value != IGNORE) {
                         result.add(value);
                     }
@@ -174,6 +220,38 @@ public class V8ObjectHelper {
         }
     }
 
+    // 元素类型相同的基本类型数组一次取出全部元素
+    private static boolean addPrimitives(V8Array array, int length, List<? super Object> result) {
+        int type;
+        try {
+            type = array.getType(0, length);
+        } catch (V8ResultUndefined e) {
+            return false;
+        }
+        switch (type) {
+            case V8Value.INTEGER:
+                for (int value : array.getIntegers(0, length)) {
+                    result.add(value);
+                }
+                return true;
+            case V8Value.DOUBLE:
+                for (double value : array.getDoubles(0, length)) {
+                    result.add(value);
+                }
+                return true;
+            case V8Value.BOOLEAN:
+                for (boolean value : array.getBooleans(0, length)) {
+                    result.add(value);
+                }
+                return true;
+            case V8Value.STRING:
+                Collections.addAll(result, array.getStrings(0, length));
+                return true;
+            default:
+                return false;
+        }
+    }
+
     public static V8Array toV8Array(V8 v8, List<? extends Object> list) {
         Map<Object, V8Value> cache = new Hashtable<>();
         try {
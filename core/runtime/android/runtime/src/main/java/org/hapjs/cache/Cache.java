@@ -61,6 +61,20 @@ public class Cache {
         return context.getDir("signature", Context.MODE_PRIVATE);
     }
 
+    /**
+     * package
+     */
+    static File getStyleCacheRootDir(Context context) {
+        return context.getDir("style", Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @return 预编译样式表的缓存目录, 与解压后的资源一起随应用删除
+     */
+    public static File getStyleCacheDir(Context context, String pkg) {
+        return new File(getStyleCacheRootDir(context), pkg);
+    }
+
     public static File getArchiveFile(Context context, String pkg) {
         return getArchiveFile(context, pkg, null);
     }
@@ -318,7 +332,13 @@ public class Cache {
 
     private void doRemove() {
         Log.d(TAG, "doRemove");
-        File[] files = new File[] {getArchiveFile(), getResourceDir(), getSignatureFile()};
+        File[] files =
+                new File[] {
+                        getArchiveFile(),
+                        getResourceDir(),
+                        getSignatureFile(),
+                        getStyleCacheDir(mContext, mPackageName)
+                };
         for (File f : files) {
             FileUtils.rmRF(f);
         }
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.cache;
+
+import android.text.TextUtils;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.hapjs.common.executors.Executors;
+import org.hapjs.common.executors.Future;
+import org.hapjs.common.utils.FileUtils;
+
+/**
+ * 通过 {@link ZipFile} 随机访问解压本地 rpk 文件. 与 {@link ZipExtractor} 先把整个文件读入内存再写入不同,
+ * 每个文件由工作线程通过复用的 byte[] 边读边写入临时文件, 工作线程数有上限, 内存占用只与线程数相关.
+ *
+ * <p>InflaterInputStream 输出到 byte[], FileOutputStream 也从 byte[] 写入, 使用 direct buffer 反而多一次复制.
+ */
+class FileZipExtractor extends ZipExtractor {
+    private static final String TAG = "FileZipExtractor";
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_WORKER_COUNT = 4;
+    private static final int MAX_POOLED_BUFFER_COUNT = MAX_WORKER_COUNT;
+
+    private static final ConcurrentLinkedQueue<byte[]> sBufferPool =
+            new ConcurrentLinkedQueue<>();
+
+    private final File mArchiveFile;
+    private volatile ZipFile mZipFile;
+    private volatile boolean mCanceled;
+    // 任一工作线程失败后置位, 其余工作线程不再处理新文件
+    private volatile boolean mFailed;
+    private final ConcurrentLinkedQueue<File> mSavedFiles = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong mBufferBytesInUse = new AtomicLong();
+    private final AtomicLong mPeakBufferBytes = new AtomicLong();
+    // 正在解压的文件的大小之和, 即一次读入整个文件时需要的内存
+    private final AtomicLong mEntryBytesInUse = new AtomicLong();
+    private final AtomicLong mPeakEntryBytes = new AtomicLong();
+    private final AtomicLong mExtractedBytes = new AtomicLong();
+
+    FileZipExtractor(File archiveFile) {
+        super(null, true);
+        mArchiveFile = archiveFile;
+    }
+
+    private static int getWorkerCount(int entryCount) {
+        int cpuCount = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(entryCount, Math.min(cpuCount, MAX_WORKER_COUNT)));
+    }
+
+    @Override
+    public void extract(File outDir) throws IOException, CacheException {
+        long unzipStart = System.currentTimeMillis();
+        ZipFile zipFile = new ZipFile(mArchiveFile);
+        mZipFile = zipFile;
+        try {
+            List<ZipEntry> entries = new ArrayList<>();
+            Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+            while (enumeration.hasMoreElements()) {
+                ZipEntry ze = enumeration.nextElement();
+                String name = ze.getName();
+
+                // fix ZipperDown issue
+                if (!TextUtils.isEmpty(name) && name.contains("../")) {
+                    continue;
+                }
+
+                if (ze.isDirectory()) {
+                    File dir = new File(outDir, name);
+                    if (!dir.exists()) {
+                        dir.mkdirs();
+                    }
+                } else {
+                    entries.add(ze);
+                }
+            }
+
+            AtomicInteger nextIndex = new AtomicInteger();
+            int workerCount = getWorkerCount(entries.size());
+            CountDownLatch finishLatch = new CountDownLatch(workerCount);
+            List<ExtractTask> tasks = new ArrayList<>(workerCount);
+            List<Future<Boolean>> futures = new ArrayList<>(workerCount);
+            for (int i = 0; i < workerCount; i++) {
+                ExtractTask task =
+                        new ExtractTask(zipFile, entries, nextIndex, outDir, finishLatch);
+                tasks.add(task);
+                futures.add(Executors.io().submit(task));
+            }
+            // blocking wait all task finish
+            try {
+                for (Future<Boolean> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                abort(tasks, futures, finishLatch);
+                throw e;
+            }
+            if (mCanceled) {
+                abort(tasks, futures, finishLatch);
+                throw new IOException("extract canceled");
+            }
+
+            long cost = Math.max(1, System.currentTimeMillis() - unzipStart);
+            long bytes = mExtractedBytes.get();
+            Log.d(TAG, "extract finish cost time: " + cost
+                    + ", files: " + entries.size()
+                    + ", workers: " + workerCount
+                    + ", bytes: " + bytes
+                    + ", bytes/s: " + bytes * 1000 / cost
+                    + ", peak buffer bytes: " + mPeakBufferBytes.get()
+                    + ", peak entry bytes: " + mPeakEntryBytes.get());
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(TAG, "extract: ", e);
+            throw new IOException("Fail to save file", e);
+        } finally {
+            mZipFile = null;
+            FileUtils.closeQuietly(zipFile);
+        }
+    }
+
+    /**
+     * 停止其余工作线程并等待其退出, 然后删除本次已写入的文件, 避免留下不完整的目录
+     */
+    private void abort(List<ExtractTask> tasks, List<Future<Boolean>> futures,
+                       CountDownLatch finishLatch) {
+        mFailed = true;
+        for (int i = 0; i < tasks.size(); i++) {
+            // 尚未开始执行的任务不会再运行, 由这里代为计数
+            if (tasks.get(i).markStarted()) {
+                finishLatch.countDown();
+            }
+            futures.get(i).cancel(false);
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finishLatch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        File file;
+        while ((file = mSavedFiles.poll()) != null) {
+            FileUtils.rmRF(file);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void cancel() throws CacheException {
+        mCanceled = true;
+        FileUtils.closeQuietly(mZipFile);
+    }
+
+    /**
+     * 解压期间工作线程同时持有的缓冲区字节数的峰值
+     */
+    long getPeakBufferBytes() {
+        return mPeakBufferBytes.get();
+    }
+
+    /**
+     * 同时在解压的文件大小之和的峰值
+     */
+    long getPeakEntryBytes() {
+        return mPeakEntryBytes.get();
+    }
+
+    private static void updatePeak(AtomicLong peak, long value) {
+        long current;
+        while (value > (current = peak.get()) && !peak.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    private byte[] obtainBuffer() {
+        byte[] buffer = sBufferPool.poll();
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        }
+        updatePeak(mPeakBufferBytes, mBufferBytesInUse.addAndGet(buffer.length));
+        return buffer;
+    }
+
+    private void recycleBuffer(byte[] buffer) {
+        mBufferBytesInUse.addAndGet(-buffer.length);
+        if (sBufferPool.size() < MAX_POOLED_BUFFER_COUNT) {
+            sBufferPool.offer(buffer);
+        }
+    }
+
+    private class ExtractTask implements Callable<Boolean> {
+        private final ZipFile mFile;
+        private final List<ZipEntry> mEntries;
+        private final AtomicInteger mNextIndex;
+        private final File mOutDir;
+        private final CountDownLatch mFinishLatch;
+        private final AtomicBoolean mStarted = new AtomicBoolean();
+
+        ExtractTask(ZipFile file, List<ZipEntry> entries, AtomicInteger nextIndex, File outDir,
+                    CountDownLatch finishLatch) {
+            mFile = file;
+            mEntries = entries;
+            mNextIndex = nextIndex;
+            mOutDir = outDir;
+            mFinishLatch = finishLatch;
+        }
+
+        boolean markStarted() {
+            return mStarted.compareAndSet(false, true);
+        }
+
+        @Override
+        public Boolean call() throws Exception {
+            if (!markStarted()) {
+                return false;
+            }
+            byte[] buffer = obtainBuffer();
+            try {
+                int index;
+                while (!mCanceled && !mFailed
+                        && (index = mNextIndex.getAndIncrement()) < mEntries.size()) {
+                    ZipEntry ze = mEntries.get(index);
+                    File file = new File(mOutDir, ze.getName());
+                    File dir = file.getParentFile();
+                    if (!dir.exists()) {
+                        dir.mkdirs();
+                    }
+                    saveEntry(ze, file, buffer);
+                    mSavedFiles.offer(file);
+                    notifyFileSaved(file);
+                    Log.d(TAG, "extract success: filename=" + ze.getName());
+                }
+            } catch (Exception e) {
+                mFailed = true;
+                throw e;
+            } finally {
+                recycleBuffer(buffer);
+                mFinishLatch.countDown();
+            }
+            return true;
+        }
+
+        private void saveEntry(ZipEntry ze, File file, byte[] buffer) throws IOException {
+            File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+            InputStream in = null;
+            FileOutputStream out = null;
+            long size = 0;
+            long entrySize = Math.max(0, ze.getSize());
+            updatePeak(mPeakEntryBytes, mEntryBytesInUse.addAndGet(entrySize));
+            try {
+                in = mFile.getInputStream(ze);
+                out = new FileOutputStream(tmpFile);
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    if (mFailed) {
+                        throw new IOException("extract aborted: " + ze.getName());
+                    }
+                    out.write(buffer, 0, count);
+                    size += count;
+                }
+            } catch (IOException e) {
+                FileUtils.closeQuietly(out);
+                out = null;
+                FileUtils.rmRF(tmpFile);
+                throw e;
+            } finally {
+                mEntryBytesInUse.addAndGet(-entrySize);
+                FileUtils.closeQuietly(in, out);
+            }
+            mExtractedBytes.addAndGet(size);
+            moveTmpFile(tmpFile, file);
+        }
+    }
+}
@@ -7,10 +7,8 @@ package org.hapjs.cache;
 
 import android.text.TextUtils;
 import android.util.Log;
-import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,8 +39,33 @@ public class ZipExtractor {
     }
 
     public static ZipExtractor create(File file) throws FileNotFoundException {
-        FileInputStream fis = new FileInputStream(file);
-        return new ZipExtractor(new ZipInputStream(new BufferedInputStream(fis)));
+        if (!file.exists()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        return new FileZipExtractor(file);
+    }
+
+    /**
+     * 把临时文件重命名为目标文件
+     */
+    static void moveTmpFile(File tmpFile, File file) throws IOException {
+        if (file.exists()) {
+            file.delete();
+        }
+        if (!tmpFile.renameTo(file)) {
+            if (file.exists()) {
+                // skip shared file, such as manifest.json
+                FileUtils.rmRF(tmpFile);
+            } else {
+                throw new IOException("Fail to rename file:" + tmpFile.toString() + " to " + file);
+            }
+        }
+    }
+
+    void notifyFileSaved(File file) {
+        if (mOnFileSavedListener != null) {
+            mOnFileSavedListener.onFileSaved(file);
+        }
     }
 
     protected SaveFileTask generateSaveFileTask(byte[] content, File file) {
@@ -157,9 +180,7 @@ public class ZipExtractor {
 
         private void saveFile(File file) throws IOException {
             saveFileInner(file);
-            if (mOnFileSavedListener != null) {
-                mOnFileSavedListener.onFileSaved(file);
-            }
+            notifyFileSaved(file);
         }
 
         private void saveFileInner(File file) throws IOException {
@@ -167,18 +188,7 @@ public class ZipExtractor {
             if (!FileUtils.saveToFile(mContent, tmpFile)) {
                 throw new IOException("Fail to save tmpFile");
             }
-            if (file.exists()) {
-                file.delete();
-            }
-            if (!tmpFile.renameTo(file)) {
-                if (file.exists()) {
-                    // skip shared file, such as manifest.json
-                    FileUtils.rmRF(tmpFile);
-                } else {
-                    throw new IOException(
-                            "Fail to rename file:" + tmpFile.toString() + " to " + file);
-                }
-            }
+            moveTmpFile(tmpFile, file);
         }
     }
 
@@ -57,6 +57,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.hapjs.common.executors.Executors;
 
 /**
  * APK Signature Scheme v2 verifier.
@@ -65,8 +69,12 @@ import java.util.Set;
  */
 public class SignatureVerifier {
 
-    private static final int SMALL_CHUNK_SIZE_BYTES = 1024 * 1024;
+    static final int SMALL_CHUNK_SIZE_BYTES = 1024 * 1024;
     private static final int CHUNK_SIZE_BYTES = Integer.MAX_VALUE;
+    // Chunk digests are computed by at most this many threads, including the calling thread.
+    private static final int PARALLELISM =
+            Math.min(4, Runtime.getRuntime().availableProcessors());
+    static final int PARALLEL_MIN_CHUNK_COUNT = 4;
     private static final int SIGNATURE_RSA_PSS_WITH_SHA256 = 0x0101;
     private static final int SIGNATURE_RSA_PSS_WITH_SHA512 = 0x0102;
     private static final int SIGNATURE_RSA_PKCS1_V1_5_WITH_SHA256 = 0x0103;
@@ -74,8 +82,8 @@ public class SignatureVerifier {
     private static final int SIGNATURE_ECDSA_WITH_SHA256 = 0x0201;
     private static final int SIGNATURE_ECDSA_WITH_SHA512 = 0x0202;
     private static final int SIGNATURE_DSA_WITH_SHA256 = 0x0301;
-    private static final int CONTENT_DIGEST_CHUNKED_SHA256 = 1;
-    private static final int CONTENT_DIGEST_CHUNKED_SHA512 = 2;
+    static final int CONTENT_DIGEST_CHUNKED_SHA256 = 1;
+    static final int CONTENT_DIGEST_CHUNKED_SHA512 = 2;
     private static final long SIG_BLOCK_MAGIC_HI = 0x3234206b636f6c42L;
     // the apk sign magic for debug
     // private static final long SIG_BLOCK_MAGIC_LO = 0x20676953204b5041L;
@@ -441,6 +449,12 @@ public class SignatureVerifier {
     private static byte[][] computeContentDigests(
             int[] digestAlgorithms, DataSource[] contents, boolean smallChunk)
             throws DigestException {
+        return computeContentDigests(digestAlgorithms, contents, smallChunk, PARALLELISM > 1);
+    }
+
+    private static byte[][] computeContentDigests(
+            int[] digestAlgorithms, DataSource[] contents, boolean smallChunk, boolean parallel)
+            throws DigestException {
         // For each digest algorithm the result is computed as follows:
         // 1. Each segment of contents is split into consecutive chunks of 1 MB in size.
         //    The final chunk will be shorter iff the length of segment is not a multiple of 1 MB.
@@ -474,80 +488,154 @@ public class SignatureVerifier {
             digestsOfChunks[i] = concatenationOfChunkCountAndChunkDigests;
         }
 
-        byte[] chunkContentPrefix = new byte[5];
-        chunkContentPrefix[0] = (byte) 0xa5;
-        int chunkIndex = 0;
-        MessageDigest[] mds = new MessageDigest[digestAlgorithms.length];
+        // Chunk digests are independent of each other and are written to disjoint regions of
+        // digestsOfChunks, so they can be computed in parallel without changing the result.
+        if (parallel && totalChunkCount >= PARALLEL_MIN_CHUNK_COUNT) {
+            computeChunkDigestsInParallel(
+                    digestAlgorithms, contents, chunkSizeBytes, totalChunkCount, digestsOfChunks);
+        } else {
+            computeChunkDigests(digestAlgorithms, contents, chunkSizeBytes, digestsOfChunks);
+        }
+
+        byte[][] result = new byte[digestAlgorithms.length][];
         for (int i = 0; i < digestAlgorithms.length; i++) {
-            String jcaAlgorithmName =
-                    getContentDigestAlgorithmJcaDigestAlgorithm(digestAlgorithms[i]);
+            int digestAlgorithm = digestAlgorithms[i];
+            byte[] input = digestsOfChunks[i];
+            String jcaAlgorithmName = getContentDigestAlgorithmJcaDigestAlgorithm(digestAlgorithm);
+            MessageDigest md;
             try {
-                mds[i] = MessageDigest.getInstance(jcaAlgorithmName);
+                md = MessageDigest.getInstance(jcaAlgorithmName);
             } catch (NoSuchAlgorithmException e) {
                 throw new RuntimeException(jcaAlgorithmName + " digest not supported", e);
             }
+            byte[] output = md.digest(input);
+            result[i] = output;
         }
-        // TODO: Compute digests of chunks in parallel when beneficial. This requires some research
-        // into how to parallelize (if at all) based on the capabilities of the hardware on which
-        // this code is running and based on the size of input.
+        return result;
+    }
+
+    /**
+     * Computes the digests of the contents of the file, split into 1 MB chunks. Used to compare
+     * the sequential and the parallel paths.
+     */
+    static byte[][] computeFileDigests(
+            int[] digestAlgorithms, RandomAccessFile file, boolean parallel)
+            throws DigestException, IOException {
+        DataSource content = new MemoryMappedFileDataSource(file, 0, file.length());
+        return computeContentDigests(
+                digestAlgorithms, new DataSource[] {content}, true, parallel);
+    }
+
+    private static void computeChunkDigests(
+            int[] digestAlgorithms, DataSource[] contents, int chunkSizeBytes,
+            byte[][] digestsOfChunks)
+            throws DigestException {
+        byte[] chunkContentPrefix = new byte[5];
+        chunkContentPrefix[0] = (byte) 0xa5;
+        int chunkIndex = 0;
+        MessageDigest[] mds = createMessageDigests(digestAlgorithms);
         int dataSourceIndex = 0;
         for (DataSource input : contents) {
             long inputOffset = 0;
             long inputRemaining = input.size();
             while (inputRemaining > 0) {
                 int chunkSize = (int) Math.min(inputRemaining, chunkSizeBytes);
-                setUnsignedInt32LittleEndian(chunkSize, chunkContentPrefix, 1);
-                for (int i = 0; i < mds.length; i++) {
-                    mds[i].update(chunkContentPrefix);
-                }
                 try {
-                    input.feedIntoMessageDigests(mds, inputOffset, chunkSize);
+                    computeChunkDigest(
+                            digestAlgorithms, mds, chunkContentPrefix, input, inputOffset,
+                            chunkSize, chunkIndex, digestsOfChunks);
                 } catch (IOException e) {
                     throw new DigestException(
                             "Failed to digest chunk #" + chunkIndex + " of section #"
                                     + dataSourceIndex, e);
                 }
-                for (int i = 0; i < digestAlgorithms.length; i++) {
-                    int digestAlgorithm = digestAlgorithms[i];
-                    byte[] concatenationOfChunkCountAndChunkDigests = digestsOfChunks[i];
-                    int expectedDigestSizeBytes =
-                            getContentDigestAlgorithmOutputSizeBytes(digestAlgorithm);
-                    MessageDigest md = mds[i];
-                    int actualDigestSizeBytes =
-                            md.digest(
-                                    concatenationOfChunkCountAndChunkDigests,
-                                    5 + chunkIndex * expectedDigestSizeBytes,
-                                    expectedDigestSizeBytes);
-                    if (actualDigestSizeBytes != expectedDigestSizeBytes) {
-                        throw new RuntimeException(
-                                "Unexpected output size of "
-                                        + md.getAlgorithm()
-                                        + " digest: "
-                                        + actualDigestSizeBytes);
-                    }
-                }
                 inputOffset += chunkSize;
                 inputRemaining -= chunkSize;
                 chunkIndex++;
             }
             dataSourceIndex++;
         }
+    }
 
-        byte[][] result = new byte[digestAlgorithms.length][];
+    private static void computeChunkDigestsInParallel(
+            int[] digestAlgorithms, DataSource[] contents, int chunkSizeBytes,
+            int totalChunkCount, byte[][] digestsOfChunks)
+            throws DigestException {
+        ParallelDigestTask task =
+                new ParallelDigestTask(digestAlgorithms, totalChunkCount, digestsOfChunks);
+        int chunkIndex = 0;
+        for (DataSource input : contents) {
+            long inputOffset = 0;
+            long inputRemaining = input.size();
+            while (inputRemaining > 0) {
+                int chunkSize = (int) Math.min(inputRemaining, chunkSizeBytes);
+                task.mChunkSources[chunkIndex] = input;
+                task.mChunkOffsets[chunkIndex] = inputOffset;
+                task.mChunkSizes[chunkIndex] = chunkSize;
+                inputOffset += chunkSize;
+                inputRemaining -= chunkSize;
+                chunkIndex++;
+            }
+        }
+
+        // The calling thread takes part as well, so the result never depends on pool threads
+        // being available.
+        int workerCount = Math.min(PARALLELISM, totalChunkCount) - 1;
+        for (int i = 0; i < workerCount; i++) {
+            Executors.computation().execute(task);
+        }
+        task.run();
+        task.await();
+    }
+
+    private static MessageDigest[] createMessageDigests(int[] digestAlgorithms) {
+        MessageDigest[] mds = new MessageDigest[digestAlgorithms.length];
         for (int i = 0; i < digestAlgorithms.length; i++) {
-            int digestAlgorithm = digestAlgorithms[i];
-            byte[] input = digestsOfChunks[i];
-            String jcaAlgorithmName = getContentDigestAlgorithmJcaDigestAlgorithm(digestAlgorithm);
-            MessageDigest md;
+            String jcaAlgorithmName =
+                    getContentDigestAlgorithmJcaDigestAlgorithm(digestAlgorithms[i]);
             try {
-                md = MessageDigest.getInstance(jcaAlgorithmName);
+                mds[i] = MessageDigest.getInstance(jcaAlgorithmName);
             } catch (NoSuchAlgorithmException e) {
                 throw new RuntimeException(jcaAlgorithmName + " digest not supported", e);
             }
-            byte[] output = md.digest(input);
-            result[i] = output;
         }
-        return result;
+        return mds;
+    }
+
+    private static void computeChunkDigest(
+            int[] digestAlgorithms,
+            MessageDigest[] mds,
+            byte[] chunkContentPrefix,
+            DataSource input,
+            long inputOffset,
+            int chunkSize,
+            int chunkIndex,
+            byte[][] digestsOfChunks)
+            throws IOException, DigestException {
+        setUnsignedInt32LittleEndian(chunkSize, chunkContentPrefix, 1);
+        for (int i = 0; i < mds.length; i++) {
+            mds[i].update(chunkContentPrefix);
+        }
+        input.feedIntoMessageDigests(mds, inputOffset, chunkSize);
+        for (int i = 0; i < digestAlgorithms.length; i++) {
+            int digestAlgorithm = digestAlgorithms[i];
+            byte[] concatenationOfChunkCountAndChunkDigests = digestsOfChunks[i];
+            int expectedDigestSizeBytes =
+                    getContentDigestAlgorithmOutputSizeBytes(digestAlgorithm);
+            MessageDigest md = mds[i];
+            int actualDigestSizeBytes =
+                    md.digest(
+                            concatenationOfChunkCountAndChunkDigests,
+                            5 + chunkIndex * expectedDigestSizeBytes,
+                            expectedDigestSizeBytes);
+            if (actualDigestSizeBytes != expectedDigestSizeBytes) {
+                throw new RuntimeException(
+                        "Unexpected output size of "
+                                + md.getAlgorithm()
+                                + " digest: "
+                                + actualDigestSizeBytes);
+            }
+        }
     }
 
     /**
@@ -1194,6 +1282,75 @@ public class SignatureVerifier {
         }
     }
 
+    /**
+     * Computes chunk digests on several threads. Each thread claims the next chunk until all of
+     * them are claimed, using its own {@link MessageDigest} instances and writing to the chunk's
+     * own region of the output.
+     */
+    private static final class ParallelDigestTask implements Runnable {
+        final DataSource[] mChunkSources;
+        final long[] mChunkOffsets;
+        final int[] mChunkSizes;
+        private final int[] mDigestAlgorithms;
+        private final byte[][] mDigestsOfChunks;
+        private final AtomicInteger mNextChunk = new AtomicInteger();
+        private final CountDownLatch mRemainingChunks;
+        private final AtomicReference<Exception> mError = new AtomicReference<>();
+
+        ParallelDigestTask(int[] digestAlgorithms, int chunkCount, byte[][] digestsOfChunks) {
+            mChunkSources = new DataSource[chunkCount];
+            mChunkOffsets = new long[chunkCount];
+            mChunkSizes = new int[chunkCount];
+            mDigestAlgorithms = digestAlgorithms;
+            mDigestsOfChunks = digestsOfChunks;
+            mRemainingChunks = new CountDownLatch(chunkCount);
+        }
+
+        @Override
+        public void run() {
+            MessageDigest[] mds = null;
+            byte[] chunkContentPrefix = new byte[5];
+            chunkContentPrefix[0] = (byte) 0xa5;
+            int chunkIndex;
+            while ((chunkIndex = mNextChunk.getAndIncrement()) < mChunkSizes.length) {
+                try {
+                    // Once a chunk has failed the remaining chunks are only counted down.
+                    if (mError.get() == null) {
+                        if (mds == null) {
+                            mds = createMessageDigests(mDigestAlgorithms);
+                        }
+                        computeChunkDigest(
+                                mDigestAlgorithms, mds, chunkContentPrefix,
+                                mChunkSources[chunkIndex], mChunkOffsets[chunkIndex],
+                                mChunkSizes[chunkIndex], chunkIndex, mDigestsOfChunks);
+                    }
+                } catch (IOException | DigestException e) {
+                    mError.compareAndSet(
+                            null, new DigestException("Failed to digest chunk #" + chunkIndex, e));
+                } catch (RuntimeException e) {
+                    mError.compareAndSet(null, e);
+                } finally {
+                    mRemainingChunks.countDown();
+                }
+            }
+        }
+
+        void await() throws DigestException {
+            try {
+                mRemainingChunks.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DigestException("Interrupted while computing chunk digests", e);
+            }
+            Exception error = mError.get();
+            if (error instanceof DigestException) {
+                throw (DigestException) error;
+            } else if (error != null) {
+                throw (RuntimeException) error;
+            }
+        }
+    }
+
     /**
      * {@link DataSource} which provides data from a {@link ByteBuffer}.
      */
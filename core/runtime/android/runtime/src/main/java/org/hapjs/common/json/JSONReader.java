@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.common.json;
+
+import org.json.JSONException;
+
+/**
+ * 基于字符串的流式 JSON 读取器, 按顺序读取结构和值, 不构建完整的 {@link JSONObject}/{@link JSONArray}.
+ *
+ * <p>可以通过 {@link #position()}, {@link #seek(int)} 记录并回到某个值的起始位置, 跳过的值用 {@link #skipValue()}
+ * 扫描, 不产生对象. 单个值的解析与 {@link JSONTokener} 一致. 数组元素与对象成员之间的逗号在读取下一个值时自动跳过.
+ */
+public class JSONReader {
+    private final String in;
+    private int pos;
+
+    public JSONReader(String in) {
+        // consume an optional byte order mark (BOM) if it exists
+        if (in != null && in.startsWith("\ufeff")) {
+            in = in.substring(1);
+        }
+        this.in = in;
+    }
+
+    public int position() {
+        return pos;
+    }
+
+    public void seek(int position) {
+        pos = position;
+    }
+
+    public void beginObject() throws JSONException {
+        expect('{');
+    }
+
+    public void endObject() throws JSONException {
+        expect('}');
+    }
+
+    public void beginArray() throws JSONException {
+        expect('[');
+    }
+
+    public void endArray() throws JSONException {
+        expect(']');
+    }
+
+    /**
+     * 当前对象或数组是否还有成员
+     */
+    public boolean hasNext() {
+        int c = peekClean();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    public String nextName() throws JSONException {
+        int c = peekClean();
+        if (c != '"' && c != '\'') {
+            throw syntaxError("Expected name");
+        }
+        JSONTokener tokener = new JSONTokener(in, pos + 1);
+        String name = tokener.nextString((char) c);
+        pos = tokener.position();
+        int separator = peekClean();
+        if (separator != ':' && separator != '=') {
+            throw syntaxError("Expected ':' after " + name);
+        }
+        pos++;
+        if (pos < in.length() && in.charAt(pos) == '>') {
+            pos++;
+        }
+        return name;
+    }
+
+    public Object nextValue() throws JSONException {
+        if (peekClean() == -1) {
+            throw syntaxError("End of input");
+        }
+        JSONTokener tokener = new JSONTokener(in, pos);
+        Object value = tokener.nextValue();
+        pos = tokener.position();
+        return value;
+    }
+
+    public String nextString() throws JSONException {
+        Object value = nextValue();
+        String result = JSON.toString(value);
+        if (result == null) {
+            throw JSON.typeMismatch(value, "String");
+        }
+        return result;
+    }
+
+    public int nextInt() throws JSONException {
+        Object value = nextValue();
+        Integer result = JSON.toInteger(value);
+        if (result == null) {
+            throw JSON.typeMismatch(value, "int");
+        }
+        return result;
+    }
+
+    public boolean nextBoolean() throws JSONException {
+        Object value = nextValue();
+        Boolean result = JSON.toBoolean(value);
+        if (result == null) {
+            throw JSON.typeMismatch(value, "boolean");
+        }
+        return result;
+    }
+
+    public JSONObject nextJSONObject() throws JSONException {
+        Object value = nextValue();
+        if (value instanceof JSONObject) {
+            return (JSONObject) value;
+        }
+        throw JSON.typeMismatch(value, "JSONObject");
+    }
+
+    public JSONArray nextJSONArray() throws JSONException {
+        Object value = nextValue();
+        if (value instanceof JSONArray) {
+            return (JSONArray) value;
+        }
+        throw JSON.typeMismatch(value, "JSONArray");
+    }
+
+    /**
+     * 跳过下一个值, 只扫描字符, 不创建对象
+     */
+    public void skipValue() throws JSONException {
+        int c = peekClean();
+        if (c == -1) {
+            throw syntaxError("End of input");
+        }
+        if (c == '"' || c == '\'') {
+            pos = skipString(pos);
+            return;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            while (pos < in.length()) {
+                char ch = in.charAt(pos);
+                if (ch == '"' || ch == '\'') {
+                    pos = skipString(pos);
+                    continue;
+                }
+                pos++;
+                if (ch == '{' || ch == '[') {
+                    depth++;
+                } else if (ch == '}' || ch == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return;
+                    }
+                }
+            }
+            throw syntaxError("Unterminated " + (c == '{' ? "object" : "array"));
+        }
+        // literal
+        while (pos < in.length()) {
+            char ch = in.charAt(pos);
+            if (ch == ',' || ch == ';' || ch == '}' || ch == ']' || ch == ':'
+                    || isWhitespace(ch)) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * 跳过从 start 开始的字符串, 返回字符串结束后的位置
+     */
+    private int skipString(int start) throws JSONException {
+        char quote = in.charAt(start);
+        int i = start + 1;
+        while (i < in.length()) {
+            char ch = in.charAt(i++);
+            if (ch == '\\') {
+                i++;
+            } else if (ch == quote) {
+                return i;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private void expect(char expected) throws JSONException {
+        if (peekClean() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    /**
+     * 跳过空白和成员间的逗号, 返回下一个字符但不消费, 到达末尾时返回 -1
+     */
+    private int peekClean() {
+        while (pos < in.length()) {
+            char c = in.charAt(pos);
+            if (isWhitespace(c) || c == ',' || c == ';') {
+                pos++;
+                continue;
+            }
+            return c;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + pos);
+    }
+}
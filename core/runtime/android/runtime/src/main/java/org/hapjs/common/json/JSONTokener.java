@@ -87,6 +87,22 @@ public class JSONTokener {
         this.in = in;
     }
 
+    /**
+     * Creates a tokener that starts reading {@code in} at {@code pos}. Used by {@link JSONReader}
+     * to decode single values in place.
+     */
+    JSONTokener(String in, int pos) {
+        this.in = in;
+        this.pos = pos;
+    }
+
+    /**
+     * Returns the index of the next character to be read.
+     */
+    int position() {
+        return pos;
+    }
+
     /**
      * Returns the integer [0..15] value for the given hex character, or -1 for non-hex input.
      *
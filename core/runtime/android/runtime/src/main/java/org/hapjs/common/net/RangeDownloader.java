@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.common.net;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 支持断点续传的文件下载.
+ *
+ * <p>下载内容先写入 dest 同目录的 .part 文件, 完成后重命名为 dest. 服务端返回的 ETag 或 Last-Modified 和文件总长度保存在
+ * {@link CheckpointStore} 中, 连接中断后通过 Range 和 If-Range 请求剩余部分, 服务端内容变化或不支持 Range 时从头下载.
+ * 服务端没有返回强校验的 ETag 或 Last-Modified 时无法确认内容未变化, 不续传.
+ */
+public class RangeDownloader {
+    private static final int DEFAULT_MAX_RETRY_COUNT = 3;
+    private static final long RETRY_INTERVAL_MS = 1000;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final int HTTP_SERVER_ERROR = 500;
+
+    private final OkHttpClient mClient;
+    private int mMaxRetryCount = DEFAULT_MAX_RETRY_COUNT;
+    private long mRetryIntervalMs = RETRY_INTERVAL_MS;
+
+    public RangeDownloader(OkHttpClient client) {
+        mClient = client;
+    }
+
+    public void setMaxRetryCount(int maxRetryCount) {
+        mMaxRetryCount = maxRetryCount;
+    }
+
+    public void setRetryInterval(long retryIntervalMs) {
+        mRetryIntervalMs = retryIntervalMs;
+    }
+
+    public static File getPartFile(File dest) {
+        return new File(dest.getPath() + ".part");
+    }
+
+    /**
+     * 下载 url 到 dest, 连接中断时从已下载的位置重试
+     *
+     * @throws IOException 重试次数用完, 被中断或服务端返回错误
+     */
+    public void download(String url, File dest, CheckpointStore store) throws IOException {
+        IOException lastError = null;
+        for (int i = 0; i <= mMaxRetryCount; i++) {
+            if (i > 0) {
+                try {
+                    Thread.sleep(mRetryIntervalMs * i);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("download interrupted", e);
+                }
+            }
+            try {
+                if (downloadOnce(url, dest, store)) {
+                    return;
+                }
+            } catch (HttpStatusException e) {
+                // 只有服务端错误才重试
+                if (e.getCode() < HTTP_SERVER_ERROR) {
+                    throw e;
+                }
+                lastError = e;
+            } catch (IOException e) {
+                lastError = e;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+        throw lastError != null ? lastError : new IOException("download incomplete: " + url);
+    }
+
+    private boolean downloadOnce(String url, File dest, CheckpointStore store) throws IOException {
+        File partFile = getPartFile(dest);
+        Checkpoint checkpoint = store.load();
+        long offset = 0;
+        if (checkpoint != null
+                && url.equals(checkpoint.getUrl())
+                && checkpoint.getValidator() != null
+                && partFile.exists()) {
+            offset = partFile.length();
+            if (checkpoint.getTotalLength() > 0 && offset > checkpoint.getTotalLength()) {
+                offset = 0;
+            }
+        }
+        if (offset == 0) {
+            checkpoint = null;
+            partFile.delete();
+            store.clear();
+        }
+
+        Request.Builder builder = new Request.Builder().url(url);
+        if (offset > 0) {
+            builder.header("Range", "bytes=" + offset + "-");
+            builder.header("If-Range", checkpoint.getValidator());
+        }
+
+        try (Response response = mClient.newCall(builder.build()).execute()) {
+            int code = response.code();
+            ResponseBody body = response.body();
+            long totalLength;
+            if (code == HTTP_PARTIAL_CONTENT && offset > 0) {
+                long start = parseContentRangeStart(response.header("Content-Range"));
+                if (start != offset) {
+                    throw new IOException("unexpected Content-Range: "
+                            + response.header("Content-Range"));
+                }
+                totalLength = parseContentRangeTotal(response.header("Content-Range"));
+            } else if (code == HTTP_OK || code == HTTP_PARTIAL_CONTENT) {
+                // 服务端不支持 Range 或内容已变化, 从头下载
+                offset = 0;
+                totalLength = body == null ? -1 : body.contentLength();
+            } else if (code == HTTP_RANGE_NOT_SATISFIABLE && checkpoint != null
+                    && offset == checkpoint.getTotalLength()) {
+                return complete(partFile, dest, store);
+            } else if (code == HTTP_RANGE_NOT_SATISFIABLE) {
+                partFile.delete();
+                store.clear();
+                throw new IOException("range not satisfiable, restart download");
+            } else {
+                throw new HttpStatusException(code);
+            }
+            if (body == null) {
+                throw new IOException("empty response body");
+            }
+            if (totalLength <= 0 && code == HTTP_PARTIAL_CONTENT) {
+                totalLength = offset + body.contentLength();
+            }
+
+            store.save(new Checkpoint(url, getValidator(response), totalLength));
+
+            try (InputStream in = body.byteStream();
+                    OutputStream out = new FileOutputStream(partFile, offset > 0)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int len;
+                while ((len = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, len);
+                }
+            }
+            if (totalLength > 0 && partFile.length() != totalLength) {
+                return false;
+            }
+            return complete(partFile, dest, store);
+        }
+    }
+
+    /**
+     * If-Range 只接受强校验的 ETag, 弱 ETag 时使用 Last-Modified, 都没有时返回 null
+     */
+    private static String getValidator(Response response) {
+        String etag = response.header("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return response.header("Last-Modified");
+    }
+
+    private boolean complete(File partFile, File dest, CheckpointStore store) throws IOException {
+        dest.delete();
+        if (!partFile.renameTo(dest)) {
+            throw new IOException("failed to rename " + partFile + " to " + dest);
+        }
+        store.clear();
+        return true;
+    }
+
+    // Content-Range: bytes start-end/total
+    static long parseContentRangeStart(String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int dash = contentRange.indexOf('-');
+        if (dash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static long parseContentRangeTotal(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.indexOf('/');
+        if (slash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            // 总长度未知时为 *
+            return -1;
+        }
+    }
+
+    /**
+     * 断点信息的持久化, 由调用方决定保存的位置
+     */
+    public interface CheckpointStore {
+        Checkpoint load();
+
+        void save(Checkpoint checkpoint);
+
+        void clear();
+    }
+
+    public static class Checkpoint {
+        private final String mUrl;
+        private final String mValidator;
+        private final long mTotalLength;
+
+        public Checkpoint(String url, String validator, long totalLength) {
+            mUrl = url;
+            mValidator = validator;
+            mTotalLength = totalLength;
+        }
+
+        public String getUrl() {
+            return mUrl;
+        }
+
+        /**
+         * ETag 或 Last-Modified, 用于 If-Range, 为 null 时不续传
+         */
+        public String getValidator() {
+            return mValidator;
+        }
+
+        public long getTotalLength() {
+            return mTotalLength;
+        }
+    }
+
+    public static class HttpStatusException extends IOException {
+        private final int mCode;
+
+        public HttpStatusException(int code) {
+            super("unexpected http status: " + code);
+            mCode = code;
+        }
+
+        public int getCode() {
+            return mCode;
+        }
+    }
+}
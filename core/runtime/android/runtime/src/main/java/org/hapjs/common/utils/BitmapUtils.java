@@ -38,6 +38,7 @@ import com.facebook.imagepipeline.image.CloseableStaticBitmap;
 import com.facebook.imagepipeline.request.ImageRequest;
 import com.facebook.imagepipeline.request.ImageRequestBuilder;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -262,6 +263,18 @@ public class BitmapUtils {
         return decoder;
     }
 
+    public static BitmapRegionDecoder safeCreateBitmapRegionDecoder(FileDescriptor fd) {
+        BitmapRegionDecoder decoder = null;
+        try {
+            decoder = BitmapRegionDecoder.newInstance(fd, false);
+        } catch (OutOfMemoryError e) {
+            Log.e(TAG, "safeCreateBitmapRegionDecoder() failed OOM %s", e);
+        } catch (Exception e) {
+            Log.e(TAG, "safeCreateBitmapRegionDecoder() failed %s", e);
+        }
+        return decoder;
+    }
+
     public static boolean isValidate(Bitmap bitmap) {
         return bitmap != null && !bitmap.isRecycled();
     }
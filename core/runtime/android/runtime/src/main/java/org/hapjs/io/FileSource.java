@@ -10,7 +10,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
-public class FileSource implements Source {
+public class FileSource implements LocalSource {
     private File mFile;
 
     public FileSource(File file) {
@@ -21,4 +21,9 @@ public class FileSource implements Source {
     public InputStream open() throws IOException {
         return new FileInputStream(mFile);
     }
+
+    @Override
+    public File getLocalFile() {
+        return mFile;
+    }
 }
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.io;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 可以直接读取本地文件的数据源, 读取时跳过 {@link Source#open()} 的流
+ */
+public interface LocalSource extends Source {
+    /**
+     * @return 本地文件, 不是本地文件时返回 null, 由调用方使用 {@link #open()} 读取
+     */
+    File getLocalFile() throws IOException;
+}
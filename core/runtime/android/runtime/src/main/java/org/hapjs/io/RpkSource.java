@@ -5,17 +5,21 @@
 
 package org.hapjs.io;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import org.hapjs.cache.Cache;
 import org.hapjs.runtime.HapEngine;
 
-public class RpkSource implements Source {
+public class RpkSource implements LocalSource {
     private Context mContext;
     private String mPkg;
     private String mPath;
+    private Uri mUri;
 
     public RpkSource(Context context, String pkg, String path) {
         mContext = context;
@@ -23,16 +27,37 @@ public class RpkSource implements Source {
         mPath = path;
     }
 
+    private Uri getUri() throws IOException {
+        if (mUri == null) {
+            mUri = HapEngine.getInstance(mPkg).getResourceManager().getResource(mPath);
+            if (mUri == null) {
+                throw new IOException("resource not found: pkg=" + mPkg + ", path=" + mPath);
+            }
+        }
+        return mUri;
+    }
+
     @Override
     public InputStream open() throws IOException {
-        Uri uri = HapEngine.getInstance(mPkg).getResourceManager().getResource(mPath);
-        if (uri == null) {
-            throw new IOException("resource not found: pkg=" + mPkg + ", path=" + mPath);
-        }
+        Uri uri = getUri();
         try {
             return mContext.getContentResolver().openInputStream(uri);
         } catch (FileNotFoundException e) {
             throw new IOException("resource not found: pkg=" + mPkg + ", path=" + mPath, e);
         }
     }
+
+    /**
+     * 资源已解压到本地资源目录时返回对应的文件, 其它资源通过 {@link #open()} 读取
+     */
+    @Override
+    public File getLocalFile() throws IOException {
+        Uri uri = getUri();
+        if (!ContentResolver.SCHEME_FILE.equals(uri.getScheme()) || uri.getPath() == null) {
+            return null;
+        }
+        File file = new File(uri.getPath());
+        String resourceDir = Cache.getResourceDir(mContext, mPkg).getPath() + File.separator;
+        return file.getPath().startsWith(resourceDir) ? file : null;
+    }
 }
@@ -6,13 +6,29 @@
 package org.hapjs.io;
 
 import android.util.Log;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.hapjs.common.utils.FileUtils;
 
 public class TextReader implements Reader<String> {
     private static final String TAG = "TextReader";
 
+    // 不超过该大小的文件读入线程内复用的缓冲区, 更大的文件使用 mmap
+    private static final int MAX_BUFFER_SIZE = 512 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 32 * 1024;
+
+    private static final ThreadLocal<byte[]> sBuffer = new ThreadLocal<>();
+    private static final Map<String, Counter> sCounters = new ConcurrentHashMap<>();
+
     private static TextReader sInstance;
 
     protected TextReader() {
@@ -27,14 +43,92 @@ public class TextReader implements Reader<String> {
 
     @Override
     public String read(Source source) {
+        long start = System.nanoTime();
+        String type = source.getClass().getSimpleName();
         try {
+            if (source instanceof LocalSource) {
+                File file = ((LocalSource) source).getLocalFile();
+                if (file != null) {
+                    type += "-file";
+                    return readFile(file);
+                }
+            }
             InputStream is = source.open();
             if (is != null) {
                 return FileUtils.readStreamAsString(is, true);
             }
         } catch (IOException e) {
             Log.e(TAG, "Fail to read source", e);
+        } finally {
+            getCounter(type).add(System.nanoTime() - start);
         }
         return null;
     }
+
+    private static String readFile(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file);
+                FileChannel channel = in.getChannel()) {
+            long size = channel.size();
+            if (size > MAX_BUFFER_SIZE) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return StandardCharsets.UTF_8.decode(buffer).toString();
+            }
+            byte[] bytes = obtainBuffer((int) size);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, (int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            return new String(bytes, 0, buffer.position(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] obtainBuffer(int size) {
+        byte[] buffer = sBuffer.get();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[Math.max(size, INITIAL_BUFFER_SIZE)];
+            sBuffer.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static Counter getCounter(String type) {
+        Counter counter = sCounters.get(type);
+        if (counter == null) {
+            counter = new Counter();
+            Counter old = sCounters.putIfAbsent(type, counter);
+            if (old != null) {
+                counter = old;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * 按数据源类型统计的读取次数和耗时, 直接读取本地文件的类型带 -file 后缀
+     */
+    public static String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Counter> entry : sCounters.entrySet()) {
+            Counter counter = entry.getValue();
+            long count = counter.mCount.get();
+            sb.append(entry.getKey())
+                    .append(": count=").append(count)
+                    .append(", avg=")
+                    .append(count == 0 ? 0 : counter.mTotalNs.get() / count / 1000)
+                    .append("us; ");
+        }
+        return sb.toString();
+    }
+
+    private static class Counter {
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mTotalNs = new AtomicLong();
+
+        void add(long costNs) {
+            mCount.incrementAndGet();
+            mTotalNs.addAndGet(costNs);
+        }
+    }
 }
@@ -30,6 +30,7 @@ public class RuntimeLogManager {
     public static final String KEY_PAY_FEATURE = "pay";
     public static final String KEY_PAGE_CHANGED = "pageChanged";
     public static final String KEY_VIDEO_FEATURE = "video";
+    public static final String KEY_IMAGE_PIPELINE = "imagePipeline";
     public static final String KEY_JS_ENV_INIT = "jsEnvInit";
     public static final String KEY_INFRAS_JS_LOAD = "infrasJsLoad";
     public static final String KEY_APP_JS_LOAD = "appJsLoad";
@@ -119,6 +120,11 @@ public class RuntimeLogManager {
     private static final String PARAM_TASK_COST = "taskCost";
     private static final String PARAM_MENU_BAR_SHARE_PLATFORM = "menuBarSharePlatform";
     private static final String PARAM_FILE_PATH = "file_path";
+    private static final String PARAM_IMAGE_WAIT = "waitCost";
+    private static final String PARAM_IMAGE_DECODE = "decodeCost";
+    private static final String PARAM_IMAGE_TRANSFORM = "transformCost";
+    private static final String PARAM_IMAGE_ENCODE = "encodeCost";
+    private static final String PARAM_IMAGE_SAMPLE_SIZE = "sampleSize";
 
     private static final String STATE_APP_LOAD = "appLoad";
     private static final String STATE_PAGE_VIEW = "pageView";
@@ -1019,6 +1025,33 @@ public class RuntimeLogManager {
         mProvider.logCountEvent(pkg, CATEGORY_APP, KEY_MENU_BAR_SHARE_CANCEL, params);
     }
 
+    /**
+     * 图片处理各阶段的耗时, 总耗时作为 value
+     */
+    public void logImagePipeline(
+            String pkg,
+            String action,
+            long waitCost,
+            long decodeCost,
+            long transformCost,
+            long encodeCost,
+            int sampleSize) {
+        if (mProvider == null) {
+            return;
+        }
+
+        Map<String, String> params = new HashMap<>();
+        params.put(PARAM_ACTION, action);
+        params.put(PARAM_IMAGE_WAIT, String.valueOf(waitCost));
+        params.put(PARAM_IMAGE_DECODE, String.valueOf(decodeCost));
+        params.put(PARAM_IMAGE_TRANSFORM, String.valueOf(transformCost));
+        params.put(PARAM_IMAGE_ENCODE, String.valueOf(encodeCost));
+        params.put(PARAM_IMAGE_SAMPLE_SIZE, String.valueOf(sampleSize));
+        long cost = waitCost + decodeCost + transformCost + encodeCost;
+        mProvider.logCalculateEvent(
+                pkg, CATEGORY_FEATURE_INVOKE, KEY_IMAGE_PIPELINE, cost, params);
+    }
+
     private static class Holder {
         static final RuntimeLogManager INSTANCE = new RuntimeLogManager();
     }
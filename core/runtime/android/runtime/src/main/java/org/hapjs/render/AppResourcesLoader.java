@@ -6,11 +6,15 @@
 package org.hapjs.render;
 
 import android.content.Context;
+import android.text.TextUtils;
 import android.util.Log;
+import android.util.LruCache;
 
 import org.hapjs.bridge.ApplicationContext;
 import org.hapjs.bridge.HybridRequest;
+import org.hapjs.common.executors.Executor;
 import org.hapjs.common.executors.Executors;
+import org.hapjs.common.executors.Future;
 import org.hapjs.common.utils.UriUtils;
 import org.hapjs.io.AssetSource;
 import org.hapjs.io.JavascriptReader;
@@ -18,14 +22,25 @@ import org.hapjs.io.RpkSource;
 import org.hapjs.io.Source;
 import org.hapjs.io.TextReader;
 import org.hapjs.model.AppInfo;
+import org.hapjs.model.PageInfo;
 import org.hapjs.model.RoutableInfo;
+import org.hapjs.model.RouterInfo;
 import org.hapjs.model.SubpackageInfo;
+import org.hapjs.render.css.CSSStyleSheet;
+import org.hapjs.render.css.CSSStyleSheetCache;
 import org.hapjs.runtime.HapEngine;
 import org.hapjs.runtime.Runtime;
+import org.json.JSONException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AppResourcesLoader {
     private static final String TAG = "ResourcesPreloader";
@@ -35,8 +50,29 @@ public class AppResourcesLoader {
     public static final String APP_CHUNKS_JSON = "app-chunks.json";
     public static final String PAGE_CHUNKS_JSON = "page-chunks.json";
 
+    // 预取页面资源缓存的大小, 单位为字符数
+    private static final int PAGE_RESOURCE_CACHE_SIZE = 2 * 1024 * 1024;
+    private static final int MAX_PREFETCH_PAGE_COUNT = 3;
+
     private static Map<String, AppResources> sAppResources = new HashMap<>();
 
+    // 预取的页面资源, key 为 pkg + "/" + 资源路径
+    private static final LruCache<String, String> sPageResources =
+            new LruCache<String, String>(PAGE_RESOURCE_CACHE_SIZE) {
+                @Override
+                protected int sizeOf(String key, String value) {
+                    return Math.max(1, value.length());
+                }
+            };
+    // 预解析的页面样式表, 样式表会记录所属节点, 只能被一个页面使用, 取出后即移除
+    private static final LruCache<String, List<CSSStyleSheet>> sPrefetchedStyleSheets =
+            new LruCache<>(MAX_PREFETCH_PAGE_COUNT * 2);
+    private static final Map<String, Future<String>> sPrefetchTasks = new HashMap<>();
+    // 每个应用的预取代数, 清除预取资源时加一, 之前发起的预取结果不再写入缓存. 由 sPrefetchTasks 保护
+    private static final Map<String, Integer> sPrefetchGenerations = new HashMap<>();
+    private static final AtomicInteger sPrefetchHitCount = new AtomicInteger();
+    private static final AtomicInteger sPrefetchMissCount = new AtomicInteger();
+
     public static void preload(Context context, HybridRequest request) {
         Context appContext = context.getApplicationContext();
         Executors.io().execute(() -> doPreload(appContext, request));
@@ -149,7 +185,7 @@ public class AppResourcesLoader {
         if (appResources != null && appResources.chunksMap.containsKey(path)) {
             chunks = appResources.chunksMap.get(path);
         } else {
-            chunks = loadJsChunks(pkg, path);
+            chunks = getPageResource(pkg, path, () -> loadJsChunks(pkg, path));
         }
         return chunks;
     }
@@ -165,13 +201,18 @@ public class AppResourcesLoader {
         if (appResources != null && appResources.pageJsMap.containsKey(page.getPath())) {
             pageJs = appResources.pageJsMap.get(page.getPath());
         } else {
-            pageJs = loadPageJs(context, pkg, page);
+            RoutableInfo routableInfo = page.getRoutableInfo();
+            pageJs = getPageResource(pkg, routableInfo.getUri(),
+                    () -> loadPageJs(context, pkg, routableInfo));
         }
         return pageJs;
     }
 
     private static String loadPageJs(Context context, String pkg, Page page) {
-        RoutableInfo routableInfo = page.getRoutableInfo();
+        return loadPageJs(context, pkg, page.getRoutableInfo());
+    }
+
+    private static String loadPageJs(Context context, String pkg, RoutableInfo routableInfo) {
         String jsuri = routableInfo.getUri();
         Source jssource;
         if (UriUtils.isAssetUri(jsuri)) {
@@ -188,19 +229,226 @@ public class AppResourcesLoader {
         if (appResources != null && appResources.pageCssMap.containsKey(page.getPath())) {
             pageCss = appResources.pageCssMap.get(page.getPath());
         } else {
-            pageCss = loadPageCss(context, pkg, page);
+            RoutableInfo routableInfo = page.getRoutableInfo();
+            pageCss = getPageResource(pkg, getPageCssUri(routableInfo),
+                    () -> loadPageCss(context, pkg, routableInfo));
         }
         return pageCss;
     }
 
     private static String loadPageCss(Context context, String pkg, Page page) {
-        RoutableInfo routableInfo = page.getRoutableInfo();
-        final String jsuri = routableInfo.getUri();
-        final String cssuri = jsuri.replace(".js", ".css.json");
-        final Source csssource = new RpkSource(context, pkg, cssuri);
+        return loadPageCss(context, pkg, page.getRoutableInfo());
+    }
+
+    private static String loadPageCss(Context context, String pkg, RoutableInfo routableInfo) {
+        final Source csssource = new RpkSource(context, pkg, getPageCssUri(routableInfo));
         return TextReader.get().read(csssource);
     }
 
+    private static String getPageCssUri(RoutableInfo routableInfo) {
+        return routableInfo.getUri().replace(".js", ".css.json");
+    }
+
+    /**
+     * 优先从预取缓存中获取资源, 预取中时等待预取完成, 否则直接加载
+     */
+    static String getPageResource(String pkg, String path, Callable<String> loader) {
+        String key = getPageResourceKey(pkg, path);
+        String content = sPageResources.get(key);
+        if (content == null) {
+            Future<String> task;
+            synchronized (sPrefetchTasks) {
+                task = sPrefetchTasks.get(key);
+            }
+            if (task != null) {
+                try {
+                    content = task.get();
+                } catch (InterruptedException | ExecutionException | CancellationException e) {
+                    Log.w(TAG, "wait prefetch failed: " + path, e);
+                }
+            }
+        }
+        if (content != null) {
+            sPrefetchHitCount.incrementAndGet();
+            return content;
+        }
+
+        sPrefetchMissCount.incrementAndGet();
+        try {
+            return loader.call();
+        } catch (Exception e) {
+            Log.e(TAG, "load resource failed: " + path, e);
+            return null;
+        }
+    }
+
+    private static String getPageResourceKey(String pkg, String path) {
+        return pkg + "/" + path;
+    }
+
+    /**
+     * 预取当前页面之后可能打开的页面: 同一分包中的其它页面, 以及其它分包的入口页面. 页面的 chunks, js, css
+     * 并行读取, 并提前解析样式表.
+     */
+    public static void prefetchNextPages(Context context, AppInfo appInfo, Page currPage) {
+        if (appInfo == null || currPage == null) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        String pkg = appInfo.getPackage();
+        int generation = getPrefetchGeneration(pkg);
+        List<SubpackageInfo> subpackageInfos = appInfo.getSubpackageInfos();
+        String currChunksPath = getChunksPath(subpackageInfos, currPage.getPath());
+        for (PageInfo pageInfo : getLikelyNextPages(appInfo, currPage)) {
+            String chunksPath = getChunksPath(subpackageInfos, pageInfo.getPath());
+            if (!TextUtils.equals(chunksPath, currChunksPath)) {
+                // 同一分包的 chunks 已随当前页面注册
+                prefetch(pkg, generation, chunksPath, () -> loadJsChunks(pkg, chunksPath));
+            }
+            prefetch(pkg, generation, pageInfo.getUri(),
+                    () -> loadPageJs(appContext, pkg, pageInfo));
+            prefetch(pkg, generation, getPageCssUri(pageInfo), () -> {
+                String css = loadPageCss(appContext, pkg, pageInfo);
+                prefetchStyleSheets(appContext, pkg, generation, pageInfo, css);
+                return css;
+            });
+        }
+        Log.d(TAG, "prefetch after " + currPage.getPath()
+                + ", hit: " + sPrefetchHitCount.get()
+                + ", miss: " + sPrefetchMissCount.get()
+                + ", cache size: " + sPageResources.size());
+    }
+
+    private static List<PageInfo> getLikelyNextPages(AppInfo appInfo, Page currPage) {
+        List<PageInfo> result = new ArrayList<>();
+        RouterInfo routerInfo = appInfo.getRouterInfo();
+        if (routerInfo == null || routerInfo.getPageInfos() == null) {
+            return result;
+        }
+        List<SubpackageInfo> subpackageInfos = appInfo.getSubpackageInfos();
+        String currChunksPath = getChunksPath(subpackageInfos, currPage.getPath());
+        List<PageInfo> entries = new ArrayList<>();
+        for (PageInfo pageInfo : routerInfo.getPageInfos().values()) {
+            if (TextUtils.equals(pageInfo.getPath(), currPage.getPath())) {
+                continue;
+            }
+            if (TextUtils.equals(getChunksPath(subpackageInfos, pageInfo.getPath()),
+                    currChunksPath)) {
+                result.add(pageInfo);
+            } else if (isSubpackageEntry(subpackageInfos, pageInfo)) {
+                entries.add(pageInfo);
+            }
+        }
+        result.addAll(entries);
+        return result.size() > MAX_PREFETCH_PAGE_COUNT
+                ? result.subList(0, MAX_PREFETCH_PAGE_COUNT) : result;
+    }
+
+    private static boolean isSubpackageEntry(
+            List<SubpackageInfo> subpackageInfos, PageInfo pageInfo) {
+        for (SubpackageInfo subpackageInfo : subpackageInfos) {
+            List<SubpackageInfo.PageBean> pages = subpackageInfo.getPages();
+            if (pages == null) {
+                continue;
+            }
+            for (SubpackageInfo.PageBean pageBean : pages) {
+                if (pageBean.isEntry() && TextUtils.equals(pageBean.getName(), pageInfo.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String getChunksPath(List<SubpackageInfo> subpackageInfos, String pagePath) {
+        if (subpackageInfos != null) {
+            for (SubpackageInfo subpackageInfo : subpackageInfos) {
+                if (subpackageInfo.containPath(pagePath)) {
+                    return subpackageInfo.getResource() + "/" + PAGE_CHUNKS_JSON;
+                }
+            }
+        }
+        return PAGE_CHUNKS_JSON;
+    }
+
+    static int getPrefetchGeneration(String pkg) {
+        synchronized (sPrefetchTasks) {
+            Integer generation = sPrefetchGenerations.get(pkg);
+            return generation == null ? 0 : generation;
+        }
+    }
+
+    static void prefetch(String pkg, int generation, String path, Callable<String> loader) {
+        prefetch(pkg, generation, path, loader, Executors.io());
+    }
+
+    /**
+     * @param generation 发起预取时的代数, 与当前代数不同时说明资源已被清除, 预取结果直接丢弃
+     */
+    static void prefetch(
+            String pkg, int generation, String path, Callable<String> loader, Executor executor) {
+        String key = getPageResourceKey(pkg, path);
+        synchronized (sPrefetchTasks) {
+            if (generation != getPrefetchGeneration(pkg)
+                    || sPageResources.get(key) != null
+                    || sPrefetchTasks.containsKey(key)) {
+                return;
+            }
+            sPrefetchTasks.put(key, executor.submit(() -> {
+                String content = null;
+                try {
+                    content = loader.call();
+                } finally {
+                    synchronized (sPrefetchTasks) {
+                        // 代数变化时任务已被移除, 同一个 key 可能已有新的预取任务
+                        if (generation == getPrefetchGeneration(pkg)) {
+                            if (content != null) {
+                                sPageResources.put(key, content);
+                            }
+                            sPrefetchTasks.remove(key);
+                        }
+                    }
+                }
+                return content;
+            }));
+        }
+    }
+
+    private static void prefetchStyleSheets(
+            Context context, String pkg, int generation, RoutableInfo routableInfo, String css) {
+        if (TextUtils.isEmpty(css)) {
+            return;
+        }
+        try {
+            List<CSSStyleSheet> styleSheets =
+                    CSSStyleSheetCache.parseStyleSheets(context, pkg, routableInfo.getUri(), css);
+            synchronized (sPrefetchTasks) {
+                if (generation == getPrefetchGeneration(pkg)) {
+                    sPrefetchedStyleSheets.put(
+                            getPageResourceKey(pkg, routableInfo.getUri()), styleSheets);
+                }
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "prefetch style sheets failed: " + routableInfo.getUri(), e);
+        }
+    }
+
+    /**
+     * 取出预解析的页面样式表, 没有时返回 null
+     */
+    public static List<CSSStyleSheet> takePrefetchedStyleSheets(String pkg, Page page) {
+        return sPrefetchedStyleSheets.remove(
+                getPageResourceKey(pkg, page.getRoutableInfo().getUri()));
+    }
+
+    public static int getPrefetchHitCount() {
+        return sPrefetchHitCount.get();
+    }
+
+    public static int getPrefetchMissCount() {
+        return sPrefetchMissCount.get();
+    }
+
     public static boolean hasAppResourcesPreloaded(String pkg) {
         AppResources appResources = sAppResources.get(pkg);
         return appResources != null
@@ -211,6 +459,30 @@ public class AppResourcesLoader {
 
     public static void clearPreloadedResources(String pkg) {
         sAppResources.remove(pkg);
+        String prefix = getPageResourceKey(pkg, "");
+        synchronized (sPrefetchTasks) {
+            // 进行中的预取读到的可能是旧资源, 取消并使其结果失效
+            sPrefetchGenerations.put(pkg, getPrefetchGeneration(pkg) + 1);
+            Iterator<Map.Entry<String, Future<String>>> iterator =
+                    sPrefetchTasks.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Future<String>> entry = iterator.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    entry.getValue().cancel(false);
+                    iterator.remove();
+                }
+            }
+            for (String key : sPageResources.snapshot().keySet()) {
+                if (key.startsWith(prefix)) {
+                    sPageResources.remove(key);
+                }
+            }
+            for (String key : sPrefetchedStyleSheets.snapshot().keySet()) {
+                if (key.startsWith(prefix)) {
+                    sPrefetchedStyleSheets.remove(key);
+                }
+            }
+        }
     }
 
     private static class AppResources {
@@ -5,18 +5,45 @@
 
 package org.hapjs.render;
 
-import android.os.Handler;
+import android.content.Context;
 import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.View;
-import java.util.concurrent.TimeUnit;
+import android.view.WindowManager;
 
-public abstract class MainThreadFrameWorker implements Runnable {
-    private static int mFrameRate = 60;
-    private static long mFrameIntervalNs = (long) (1000000000 / mFrameRate);
-    private boolean isRunning = false;
+/**
+ * 在主线程中按帧分批执行任务, 避免长时间阻塞主线程.
+ *
+ * <p>由 {@link Choreographer} 驱动, 帧间隔取自屏幕的实际刷新率. 每帧可用的时间为帧间隔减去输入处理和绘制的耗时:
+ * 输入处理耗时为本帧回调相对 vsync 的延迟, 绘制耗时根据是否掉帧自适应调整.
+ */
+public abstract class MainThreadFrameWorker implements Choreographer.FrameCallback {
+    private static final String TAG = "MainThreadFrameWorker";
+
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long MIN_BUDGET_NS = 1000000L;
+    // 超过 1.5 个帧间隔认为掉帧
+    private static final float MISSED_FRAME_FACTOR = 1.5f;
+    private static final float DRAW_ESTIMATE_GROW = 1.25f;
+    private static final float DRAW_ESTIMATE_DECAY = 0.95f;
+    private static final float MAX_DRAW_ESTIMATE_RATIO = 0.8f;
 
-    private Handler mHandler = new Handler(Looper.getMainLooper());
     private View mView;
+    private boolean isRunning = false;
+
+    private long mFrameIntervalNs = (long) (NANOS_PER_SECOND / DEFAULT_REFRESH_RATE);
+    // 预估的每帧绘制耗时
+    private long mDrawEstimateNs = mFrameIntervalNs / 3;
+    private long mLastFrameTimeNs;
+
+    // 本次运行的统计
+    private int mFrameCount;
+    private int mMissedFrameCount;
+    private int mTaskCount;
+    private int mMaxTasksPerFrame;
 
     protected MainThreadFrameWorker(View view) {
         mView = view;
@@ -37,43 +64,118 @@ public abstract class MainThreadFrameWorker implements Runnable {
         }
 
         isRunning = true;
-        run();
+        updateFrameInterval();
+        mLastFrameTimeNs = 0;
+        mFrameCount = 0;
+        mMissedFrameCount = 0;
+        mTaskCount = 0;
+        mMaxTasksPerFrame = 0;
+        Choreographer.getInstance().postFrameCallback(this);
     }
 
-    @Override
-    public void run() {
-        long lastFrameVSyncNs =
-                mView.getDrawingTime() == 0
-                        ? System.nanoTime()
-                        : TimeUnit.MILLISECONDS.toNanos(mView.getDrawingTime());
+    public boolean isRunning() {
+        return isRunning;
+    }
 
-        long nextFrameNs = lastFrameVSyncNs + mFrameIntervalNs;
+    private void updateFrameInterval() {
+        float refreshRate = getRefreshRate();
+        long intervalNs = (long) (NANOS_PER_SECOND / refreshRate);
+        if (intervalNs != mFrameIntervalNs) {
+            mDrawEstimateNs = mDrawEstimateNs * intervalNs / mFrameIntervalNs;
+            mFrameIntervalNs = intervalNs;
+        }
+    }
+
+    private float getRefreshRate() {
+        Display display = mView.getDisplay();
+        if (display == null) {
+            WindowManager wm =
+                    (WindowManager) mView.getContext().getSystemService(Context.WINDOW_SERVICE);
+            display = wm == null ? null : wm.getDefaultDisplay();
+        }
+        float refreshRate = display == null ? 0 : display.getRefreshRate();
+        return refreshRate >= 1f ? refreshRate : DEFAULT_REFRESH_RATE;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        long startNs = System.nanoTime();
+        updateDrawEstimate(frameTimeNanos);
+
+        // 输入处理等在本回调之前的耗时
+        long inputNs = Math.max(0, startNs - frameTimeNanos);
+        long budgetNs = Math.max(MIN_BUDGET_NS, mFrameIntervalNs - inputNs - mDrawEstimateNs);
+        long deadlineNs = startNs + budgetNs;
+
+        int tasks = 0;
+        boolean isContinue;
+        do {
+            isContinue = doMiniTask();
+            if (isContinue) {
+                tasks++;
+            }
+        } while (isContinue && System.nanoTime() < deadlineNs);
+
+        mFrameCount++;
+        mTaskCount += tasks;
+        mMaxTasksPerFrame = Math.max(mMaxTasksPerFrame, tasks);
+        onFrameFinished(tasks, budgetNs);
 
-        boolean isContinue = doTasksWithDeadLine(nextFrameNs);
         if (isContinue) {
-            mHandler.post(this);
+            Choreographer.getInstance().postFrameCallback(this);
         } else {
             isRunning = false;
+            Log.d(TAG, "finish, frames: " + mFrameCount
+                    + ", tasks: " + mTaskCount
+                    + ", max tasks per frame: " + mMaxTasksPerFrame
+                    + ", missed frames: " + mMissedFrameCount
+                    + ", frame interval: " + mFrameIntervalNs + "ns");
         }
     }
 
     /**
-     * 在当前帧内循环执行任务
-     *
-     * @return 是否需要在下一帧继续执行
+     * 连续两帧的间隔超过帧间隔说明上一帧掉帧, 增大绘制耗时的预估, 否则逐渐减小
      */
-    private boolean doTasksWithDeadLine(long deadlineNs) {
-        boolean isContinue = doMiniTask();
-        if (!isContinue) {
-            return false;
+    private void updateDrawEstimate(long frameTimeNanos) {
+        if (mLastFrameTimeNs > 0) {
+            long delta = frameTimeNanos - mLastFrameTimeNs;
+            if (delta > mFrameIntervalNs * MISSED_FRAME_FACTOR) {
+                mMissedFrameCount += (int) (delta / mFrameIntervalNs) - 1;
+                mDrawEstimateNs =
+                        Math.min(
+                                (long) (mDrawEstimateNs * DRAW_ESTIMATE_GROW),
+                                (long) (mFrameIntervalNs * MAX_DRAW_ESTIMATE_RATIO));
+            } else {
+                mDrawEstimateNs = Math.max(MIN_BUDGET_NS,
+                        (long) (mDrawEstimateNs * DRAW_ESTIMATE_DECAY));
+            }
         }
+        mLastFrameTimeNs = frameTimeNanos;
+    }
 
-        // 如果没到截至时间, 继续执行
-        if (System.nanoTime() < deadlineNs) {
-            doTasksWithDeadLine(deadlineNs);
-        }
+    /**
+     * 每帧执行完成后回调
+     *
+     * @param taskCount 本帧执行的任务数
+     * @param budgetNs  本帧可用的时间
+     */
+    protected void onFrameFinished(int taskCount, long budgetNs) {
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public int getMissedFrameCount() {
+        return mMissedFrameCount;
+    }
+
+    public int getTaskCount() {
+        return mTaskCount;
+    }
 
-        return true;
+    public int getMaxTasksPerFrame() {
+        return mMaxTasksPerFrame;
     }
 
     /**
@@ -130,6 +130,8 @@ public class RootView extends FrameLayout
     public static final int MSG_APP_LOAD_END = 1000;
     private static final String TAG = "RootView";
     private static final int PAGE_CACHE_NUM_MAX = 5;
+    // 单个 package 中的 action 数不小于该值时分帧执行
+    private static final int FRAME_APPLY_ACTION_THRESHOLD = 200;
     private static final int SUCCESS = 0;
     private static final int GET_APP_INFO_NULL = -1;
     private static final int SHOW_INCOMPATIBLE_APP_DIALOG = -2;
@@ -149,6 +151,31 @@ public class RootView extends FrameLayout
     public CallingComponent mCallingComponent = new CallingComponent();
     List<ActivityStateListener> mActivityStateListeners = new ArrayList<>();
     private boolean mExceptionCaught;
+    private MainThreadFrameWorker mApplyActionWorker =
+            new MainThreadFrameWorker(this) {
+                @Override
+                public boolean doMiniTask() {
+                    if (mIsDestroyed || mExceptionCaught || mDocument == null) {
+                        return false;
+                    }
+                    Page currentPage = mPageManager.getCurrPage();
+                    RenderAction action =
+                            currentPage == null ? null : currentPage.pollRenderAction();
+                    if (action == null) {
+                        return false;
+                    }
+                    applyAction(action);
+                    return true;
+                }
+
+                @Override
+                protected void onFrameFinished(int taskCount, long budgetNs) {
+                    if (Log.isLoggable(TAG, Log.DEBUG)) {
+                        Log.d(TAG, "apply " + taskCount + " actions in frame, budget: " + budgetNs
+                                + "ns, missed frames: " + getMissedFrameCount());
+                    }
+                }
+            };
     private AndroidViewClient mAndroidViewClient;
     private RuntimeLifecycleCallbackImpl mRuntimeLifecycleCallback;
     private RootViewDialogManager mDialogManager;
@@ -1088,7 +1115,20 @@ public class RootView extends FrameLayout
             page.pushRenderAction(action);
         }
 
-        applyActions();
+        // 首次渲染等大批量的 action 分帧执行, 避免长时间阻塞 UI 线程; 分帧执行中的后续 action 按顺序排在后面
+        if (mApplyActionWorker.isRunning()
+                || renderActionPackage.renderActionList.size() >= FRAME_APPLY_ACTION_THRESHOLD) {
+            applyActionsInFrames();
+        } else {
+            applyActions();
+        }
+    }
+
+    /**
+     * 按帧分批执行当前页面的 action
+     */
+    protected void applyActionsInFrames() {
+        mApplyActionWorker.start();
     }
 
     public void applyActions() {
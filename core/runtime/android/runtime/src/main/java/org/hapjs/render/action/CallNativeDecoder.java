@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.action;
+
+import android.util.ArrayMap;
+import android.util.Log;
+import java.util.Collection;
+import java.util.Map;
+import org.hapjs.common.json.JSONArray;
+import org.hapjs.common.json.JSONObject;
+import org.hapjs.common.json.JSONReader;
+import org.hapjs.render.ComponentAction;
+import org.hapjs.render.DebugUtils;
+import org.hapjs.render.RenderAction;
+import org.hapjs.render.VDomChangeAction;
+import org.json.JSONException;
+
+/**
+ * 流式解析 callNative 的参数, 直接生成 {@link VDomChangeAction}, {@link ComponentAction}.
+ *
+ * <p>节点的创建, 删除, 移动, 属性, 样式和事件更新等高频方法直接从字符串中读取, 不构建中间的 {@link JSONArray},
+ * 属性和样式的 key 做 intern. 其它方法的参数仍解析为 {@link JSONArray}, 交给 {@link RenderActionParser} 处理.
+ * 解析结果与 {@link RenderActionParser#objToChangeActions} 一致.
+ */
+class CallNativeDecoder {
+    private static final String TAG = "CallNativeDecoder";
+
+    interface ActionHandler {
+        void onAction(RenderAction action) throws JSONException;
+    }
+
+    private CallNativeDecoder() {
+    }
+
+    static void decode(
+            int pageId,
+            String argsString,
+            RenderActionDocument document,
+            String pkg,
+            ActionHandler handler)
+            throws JSONException {
+        RenderActionParser.setPackage(pkg);
+        JSONReader reader = new JSONReader(argsString);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            RenderAction action = decodeCall(pageId, reader, document, pkg);
+            if (action != null) {
+                handler.onAction(action);
+            }
+        }
+        reader.endArray();
+    }
+
+    /**
+     * 解析 { module, method, args } 或 { component, ref, method, args }, args 在其它字段之后解析
+     */
+    private static RenderAction decodeCall(
+            int pageId, JSONReader reader, RenderActionDocument document, String pkg)
+            throws JSONException {
+        String module = null;
+        String component = null;
+        String ref = null;
+        String method = null;
+        int argsPosition = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "module":
+                    module = reader.nextString();
+                    break;
+                case "component":
+                    component = reader.nextString();
+                    break;
+                case "ref":
+                    ref = reader.nextString();
+                    break;
+                case "method":
+                    method = reader.nextString();
+                    break;
+                case "args":
+                    argsPosition = reader.position();
+                    reader.skipValue();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (argsPosition < 0) {
+            throw new JSONException("No value for args");
+        }
+        if (module == null && component == null) {
+            return null;
+        }
+        if (method == null) {
+            throw new JSONException("No value for method");
+        }
+
+        int end = reader.position();
+        reader.seek(argsPosition);
+        RenderAction action;
+        if (module != null) {
+            action = decodeDomCall(pageId, module, method, reader, document, pkg);
+        } else {
+            if (ref == null) {
+                throw new JSONException("No value for ref");
+            }
+            action = decodeComponentCall(component, ref, method, reader);
+        }
+        reader.seek(end);
+        return action;
+    }
+
+    private static VDomChangeAction decodeDomCall(
+            int pageId,
+            String module,
+            String method,
+            JSONReader reader,
+            RenderActionDocument document,
+            String pkg)
+            throws JSONException {
+        if (!"dom".equals(module)) {
+            Log.e(TAG, "Unsupported callNative module:" + module);
+            reader.skipValue();
+            return null;
+        }
+
+        VDomChangeAction action = new VDomChangeAction();
+        action.pageId = pageId;
+        int argsPosition = reader.position();
+        reader.beginArray();
+        switch (method) {
+            case "createBody": {
+                if (DebugUtils.DBG) {
+                    DebugUtils.startRecord("JsToNative_generateDom");
+                }
+                action.action = VDomChangeAction.ACTION_CREATE_BODY;
+                decodeElement(reader, document, action);
+                break;
+            }
+            case "addElement": {
+                action.action = VDomChangeAction.ACTION_ADD;
+                action.parentVId = reader.nextInt();
+                int elementPosition = reader.position();
+                reader.skipValue();
+                action.index = reader.nextInt();
+                int end = reader.position();
+                reader.seek(elementPosition);
+                decodeElement(reader, document, action);
+                reader.seek(end);
+                break;
+            }
+            case "removeElement": {
+                RenderActionParser.removeElement(document, action, reader.nextInt());
+                break;
+            }
+            case "moveElement": {
+                RenderActionParser.moveElement(
+                        action, reader.nextInt(), reader.nextInt(), reader.nextInt());
+                break;
+            }
+            case "updateStyle": {
+                action.action = VDomChangeAction.ACTION_UPDATE_STYLE;
+                action.vId = reader.nextInt();
+                JSONObject style = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("style".equals(reader.nextName())) {
+                        style = decodeStyle(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                RenderActionParser.updateInlineStyle(document, action, style);
+                break;
+            }
+            case "updateStyles": {
+                action.action = VDomChangeAction.ACTION_UPDATE_STYLE;
+                action.vId = reader.nextInt();
+                JSONObject style = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if ("attr".equals(name)) {
+                        decodeAttrs(reader, action.attributes);
+                    } else if ("style".equals(name)) {
+                        style = decodeStyle(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                RenderActionParser.updateStyles(document, action, style);
+                break;
+            }
+            case "updateAttrs": {
+                action.action = VDomChangeAction.ACTION_UPDATE_ATTRS;
+                action.vId = reader.nextInt();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("attr".equals(reader.nextName())) {
+                        decodeAttrs(reader, action.attributes);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                break;
+            }
+            case "addEvent": {
+                action.action = VDomChangeAction.ACTION_ADD_EVENT;
+                action.vId = reader.nextInt();
+                action.events.add(reader.nextString());
+                break;
+            }
+            case "removeEvent": {
+                action.action = VDomChangeAction.ACTION_REMOVE_EVENT;
+                action.vId = reader.nextInt();
+                action.events.add(reader.nextString());
+                break;
+            }
+            default: {
+                // 低频方法, 参数解析为 JSONArray 后处理
+                reader.seek(argsPosition);
+                JSONArray args = reader.nextJSONArray();
+                return RenderActionParser.objToChangeActions(pageId, method, args, document, pkg);
+            }
+        }
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+        return action;
+    }
+
+    private static ComponentAction decodeComponentCall(
+            String component, String ref, String method, JSONReader reader)
+            throws JSONException {
+        ComponentAction action = new ComponentAction();
+        action.component = component;
+        action.ref = Integer.parseInt(ref);
+        action.method = method;
+
+        reader.beginArray();
+        if (reader.hasNext()) {
+            Map<String, Object> argMap = new ArrayMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                argMap.put(key, RenderActionParser.transformValue(reader.nextValue()));
+            }
+            reader.endObject();
+            if (!argMap.isEmpty()) {
+                action.args = argMap;
+            }
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+        return action;
+    }
+
+    /**
+     * 解析节点信息, 创建节点后再解析子节点
+     */
+    private static void decodeElement(
+            JSONReader reader, RenderActionDocument document, VDomChangeAction action)
+            throws JSONException {
+        JSONObject prop = null;
+        JSONObject styleObject = null;
+        JSONObject inlineStyle = null;
+        int styleObjectPosition = -1;
+        int childrenPosition = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "ref":
+                    action.vId = Integer.parseInt(reader.nextString());
+                    break;
+                case "type":
+                    action.tagName = reader.nextString().intern();
+                    break;
+                case "attr":
+                    decodeAttrs(reader, action.attributes);
+                    break;
+                case "event":
+                    decodeStrings(reader, action.events);
+                    break;
+                case "hooks":
+                    decodeStrings(reader, action.hooks);
+                    break;
+                case "prop":
+                    prop = reader.nextJSONObject();
+                    break;
+                case "styleObject":
+                    styleObjectPosition = reader.position();
+                    reader.skipValue();
+                    break;
+                case "inlineStyle":
+                    inlineStyle = decodeStyle(reader);
+                    break;
+                case "children":
+                    childrenPosition = reader.position();
+                    reader.skipValue();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        // 样式表已缓存时不解析 styleObject
+        if (styleObjectPosition >= 0 && !isStyleSheetCached(document, prop)) {
+            int end = reader.position();
+            reader.seek(styleObjectPosition);
+            styleObject = reader.nextJSONObject();
+            reader.seek(end);
+        }
+
+        RenderActionParser.createRenderActionNode(
+                document, action, prop, styleObject, inlineStyle);
+
+        if (childrenPosition >= 0) {
+            int end = reader.position();
+            reader.seek(childrenPosition);
+            decodeChildren(reader, document, action);
+            reader.seek(end);
+        }
+    }
+
+    private static boolean isStyleSheetCached(RenderActionDocument document, JSONObject prop)
+            throws JSONException {
+        if (prop == null || !prop.has("_styleObjectId")) {
+            return false;
+        }
+        return document.findStyleSheetById(prop.getInt("_styleObjectId")) != null;
+    }
+
+    private static void decodeChildren(
+            JSONReader reader, RenderActionDocument document, VDomChangeAction action)
+            throws JSONException {
+        reader.beginArray();
+        int index = 0;
+        while (reader.hasNext()) {
+            VDomChangeAction child = new VDomChangeAction();
+            child.pageId = action.pageId;
+            child.action = VDomChangeAction.ACTION_ADD;
+            child.parentVId = action.vId;
+            child.index = index++;
+            decodeElement(reader, document, child);
+            action.children.add(child);
+        }
+        reader.endArray();
+    }
+
+    private static void decodeAttrs(JSONReader reader, Map<String, Object> attributes)
+            throws JSONException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName().intern();
+            attributes.put(key, RenderActionParser.transformValue(reader.nextValue()));
+        }
+        reader.endObject();
+    }
+
+    private static JSONObject decodeStyle(JSONReader reader) throws JSONException {
+        JSONObject style = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName().intern();
+            style.put(key, reader.nextValue());
+        }
+        reader.endObject();
+        return style;
+    }
+
+    private static void decodeStrings(JSONReader reader, Collection<String> result)
+            throws JSONException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            result.add(reader.nextString());
+        }
+        reader.endArray();
+    }
+}
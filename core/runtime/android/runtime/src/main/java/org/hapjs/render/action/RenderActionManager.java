@@ -9,11 +9,13 @@ import android.util.Log;
 import android.util.SparseArray;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.hapjs.common.executors.Executors;
-import org.hapjs.common.json.JSONArray;
-import org.hapjs.common.json.JSONObject;
 import org.hapjs.logging.RuntimeLogManager;
 import org.hapjs.render.ComponentAction;
 import org.hapjs.render.Page;
@@ -38,13 +40,15 @@ import org.json.JSONException;
 public class RenderActionManager {
     private static final String TAG = "RenderActionManager";
 
+    private static final long SLOW_BATCH_LATENCY_NS = 100 * 1000000L;
+
     private RenderActionThread mRenderActionThread;
     private JsBridge.JsBridgeCallback mCallback;
     private String mPackage;
 
     private SparseArray<RenderActionDocument> mPages = new SparseArray<>();
 
-    private RenderWorker mLastWorker;
+    private Map<Integer, RenderPipeline> mPipelines = new ConcurrentHashMap<>();
 
     public RenderActionManager() {
         mRenderActionThread = new RenderActionThread();
@@ -68,27 +72,32 @@ public class RenderActionManager {
             mPages.put(pageId, document);
         }
 
-        RenderWorker worker = new RenderWorker(pageId, argsString, document, mLastWorker);
-        mLastWorker = worker;
-        Executors.io().execute(worker); // start render actions
+        RenderPipeline pipeline = mPipelines.get(pageId);
+        if (pipeline == null) {
+            pipeline = new RenderPipeline(pageId, document);
+            mPipelines.put(pageId, pipeline);
+        }
+        pipeline.enqueue(argsString);
     }
 
-    public void sendRenderActions(RenderActionPackage renderActionPackage) {
-        mCallback.onSendRenderActions(renderActionPackage);
+    /**
+     * 页面还未处理的 callNative 数
+     */
+    public int getQueueDepth(int pageId) {
+        RenderPipeline pipeline = mPipelines.get(pageId);
+        return pipeline == null ? 0 : pipeline.getQueueDepth();
     }
 
-    private VDomChangeAction getDomChangeAction(
-            int pageId, String module, String method, JSONArray args, RenderActionDocument document)
-            throws JSONException {
-        switch (module) {
-            case "dom":
-                return RenderActionParser
-                        .objToChangeActions(pageId, method, args, document, mPackage);
-            default:
-                Log.e(TAG, "Unsupported callNative module:" + module);
-                break;
-        }
-        return null;
+    /**
+     * 页面 callNative 从提交到发送完成的最大耗时
+     */
+    public long getMaxBatchLatencyNs(int pageId) {
+        RenderPipeline pipeline = mPipelines.get(pageId);
+        return pipeline == null ? 0 : pipeline.getMaxLatencyNs();
+    }
+
+    public void sendRenderActions(RenderActionPackage renderActionPackage) {
+        mCallback.onSendRenderActions(renderActionPackage);
     }
 
     // For inspector
@@ -184,9 +193,8 @@ public class RenderActionManager {
 
     private void getCSSRuleMatchedNodes(
             RenderActionNode node, List<CSSRuleList> cssRuleLists, Set<RenderActionNode> nodes) {
-        // match current node.
+        // match current node. 受影响的后代节点自身也会匹配到变化的规则, 因此不需要级联更新子节点
         if (CSSCalculator.match(cssRuleLists, node)) {
-            node.setRestyling(true);
             nodes.add(node);
         }
 
@@ -206,7 +214,7 @@ public class RenderActionManager {
             action.action = VDomChangeAction.ACTION_UPDATE_STYLE;
             action.vId = node.getVId();
 
-            RenderActionParser.updateStyles(node, action);
+            RenderActionParser.updateSelfStyles(node, action);
 
             renderActionPackage.renderActionList.add(action);
         }
@@ -220,6 +228,10 @@ public class RenderActionManager {
                     @Override
                     public void run() {
                         mPages.remove(pageId);
+                        RenderPipeline pipeline = mPipelines.remove(pageId);
+                        if (pipeline != null) {
+                            pipeline.logMetrics();
+                        }
                     }
                 });
     }
@@ -251,108 +263,146 @@ public class RenderActionManager {
         mCallback.onRenderSkeleton(packageName, parseResult);
     }
 
-    public class RenderWorker implements Runnable {
+    private static class Batch {
+        final String mArgsString;
+        final long mEnqueueTimeNs;
 
-        private RenderWorker mPreWorker;
-        private int mPageId;
-        private String mArgsString;
-        private RenderActionDocument mDocument;
-        private CountDownLatch mLatch;
+        Batch(String argsString) {
+            mArgsString = argsString;
+            mEnqueueTimeNs = System.nanoTime();
+        }
+    }
 
-        public RenderWorker(
-                int pageId, String argsString, RenderActionDocument document,
-                RenderWorker preWorker) {
+    /**
+     * 单个页面的渲染流水线. callNative 的参数进入无锁队列, 由一个任务按顺序解析, 计算样式并打包发送,
+     * 同一时刻最多只有一个任务处理该页面, 不需要阻塞等待之前的任务.
+     */
+    private class RenderPipeline implements Runnable {
+        private final int mPageId;
+        private final RenderActionDocument mDocument;
+        private final ConcurrentLinkedQueue<Batch> mQueue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger mQueueDepth = new AtomicInteger();
+        private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+        private final AtomicBoolean mScheduled = new AtomicBoolean();
+        // 合并同一 package 中同一节点的多次样式更新
+        private final StyleActionCoalescer mStyleActionCoalescer = new StyleActionCoalescer();
+        // 正在组装的 package
+        private RenderActionPackage mRenderActionPackage;
+
+        // 以下统计只在处理任务中修改
+        private volatile long mBatchCount;
+        private volatile long mTotalLatencyNs;
+        private volatile long mMaxLatencyNs;
+
+        RenderPipeline(int pageId, RenderActionDocument document) {
             mPageId = pageId;
-            mArgsString = argsString;
             mDocument = document;
-            mPreWorker = preWorker;
+        }
+
+        void enqueue(String argsString) {
+            mQueue.offer(new Batch(argsString));
+            int depth = mQueueDepth.incrementAndGet();
+            int maxDepth;
+            while (depth > (maxDepth = mMaxQueueDepth.get())
+                    && !mMaxQueueDepth.compareAndSet(maxDepth, depth)) {
+                // retry
+            }
+            schedule();
+        }
 
-            mLatch = new CountDownLatch(1);
+        private void schedule() {
+            if (mScheduled.compareAndSet(false, true)) {
+                Executors.io().execute(this);
+            }
         }
 
         @Override
         public void run() {
+            try {
+                Batch batch;
+                while ((batch = mQueue.poll()) != null) {
+                    mQueueDepth.decrementAndGet();
+                    process(batch);
+                }
+            } finally {
+                mScheduled.set(false);
+                // 释放标记前可能有新的 batch 加入
+                if (!mQueue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void process(Batch batch) {
             try {
                 RuntimeLogManager.getDefault().logRenderTaskStart(mPackage, "renderActions");
-                renderActions();
+                renderActions(batch.mArgsString);
                 RuntimeLogManager.getDefault().logRenderTaskEnd(mPackage, "renderActions");
-            } catch (JSONException e) {
-                Log.e(TAG, "render worker error", e);
-                e.printStackTrace();
+            } catch (JSONException | RuntimeException e) {
+                // 单个 batch 出错时丢弃该 batch, 不影响后续 batch
+                Log.e(TAG, "render pipeline error", e);
+                mRenderActionPackage = null;
+            }
+
+            long latencyNs = System.nanoTime() - batch.mEnqueueTimeNs;
+            mBatchCount++;
+            mTotalLatencyNs += latencyNs;
+            if (latencyNs > mMaxLatencyNs) {
+                mMaxLatencyNs = latencyNs;
+            }
+            if (latencyNs > SLOW_BATCH_LATENCY_NS) {
+                Log.d(TAG, "slow batch, pageId: " + mPageId
+                        + ", latency: " + latencyNs / 1000000 + "ms"
+                        + ", queue depth: " + mQueueDepth.get());
             }
         }
 
-        private void renderActions() throws JSONException {
-
-            int pageId = mPageId;
-            RenderActionDocument document = mDocument;
-
-            RenderActionPackage renderActionPackage = new RenderActionPackage(mPageId);
-            JSONArray args = new JSONArray(mArgsString);
-            final int N = args.length();
-            for (int i = 0; i < N; i++) {
-                RenderAction action = null;
-                JSONObject param = args.getJSONObject(i);
-                JSONArray argsArray = param.getJSONArray("args");
-                if (param.has("module")) {
-                    action =
-                            getDomChangeAction(
-                                    pageId,
-                                    param.getString("module"),
-                                    param.getString("method"),
-                                    argsArray,
-                                    document);
-                } else if (param.has("component")) {
-                    action =
-                            RenderActionParser.objToComponentAction(
-                                    param.getString("component"),
-                                    param.getString("ref"),
-                                    param.getString("method"),
-                                    argsArray);
-                }
+        int getQueueDepth() {
+            return mQueueDepth.get();
+        }
 
-                if (action != null) {
-                    if (action instanceof ComponentAction) {
-                        sendActions(
-                                renderActionPackage,
-                                false); // ComponentAction(eg: 'focus') should be called after View created, so send
-                        // it now
-                        renderActionPackage = new RenderActionPackage(pageId);
-                    }
-                    renderActionPackage.renderActionList.add(action);
-                }
-            }
+        long getMaxLatencyNs() {
+            return mMaxLatencyNs;
+        }
 
-            sendActions(renderActionPackage, true);
+        void logMetrics() {
+            long count = mBatchCount;
+            Log.d(TAG, "pipeline metrics, pageId: " + mPageId
+                    + ", batches: " + count
+                    + ", avg latency: " + (count == 0 ? 0 : mTotalLatencyNs / count / 1000) + "us"
+                    + ", max latency: " + mMaxLatencyNs / 1000 + "us"
+                    + ", max queue depth: " + mMaxQueueDepth.get());
         }
 
-        private void sendActions(RenderActionPackage renderActionPackage, boolean isCountDown) {
-            if (renderActionPackage.renderActionList.size() <= 0) {
-                if (isCountDown) {
-                    mLatch.countDown();
-                    mDocument = null;
-                }
+        private void renderActions(String argsString) throws JSONException {
+            mStyleActionCoalescer.clear();
+            mRenderActionPackage = new RenderActionPackage(mPageId);
+            CallNativeDecoder.decode(mPageId, argsString, mDocument, mPackage, this::onAction);
+            sendActions(mRenderActionPackage);
+            mRenderActionPackage = null;
+        }
+
+        private void onAction(RenderAction action) {
+            if (action instanceof ComponentAction) {
+                // ComponentAction(eg: 'focus') should be called after View created, so send it now
+                sendActions(mRenderActionPackage);
+                mRenderActionPackage = new RenderActionPackage(mPageId);
+                mStyleActionCoalescer.clear();
+            } else if (mStyleActionCoalescer.coalesce(action)) {
                 return;
             }
-            // 等待之前的 package 发送完毕再发送
-            if (mPreWorker != null) {
-                try {
-                    mPreWorker.mLatch.await();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                } finally {
-                    mPreWorker = null;
-                }
+            mRenderActionPackage.renderActionList.add(action);
+        }
+
+        private void sendActions(RenderActionPackage renderActionPackage) {
+            if (renderActionPackage.renderActionList.size() <= 0) {
+                return;
             }
 
             // 之前有的 node 没有父节点, 如果存在后代选择器, 需要重新计算
             checkDirty(renderActionPackage);
 
             sendRenderActions(renderActionPackage);
-            if (isCountDown) {
-                mLatch.countDown();
-                mDocument = null;
-            }
         }
 
         private void checkDirty(RenderActionPackage actionPackage) {
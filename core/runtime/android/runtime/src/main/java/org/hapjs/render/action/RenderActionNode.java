@@ -9,6 +9,7 @@ import android.text.TextUtils;
 import java.util.List;
 import java.util.Map;
 import org.hapjs.render.css.CSSStyleSheet;
+import org.hapjs.render.css.MatchedCSSRuleList;
 import org.hapjs.render.css.MatchedCSSStyleSheet;
 import org.hapjs.render.css.Node;
 
@@ -18,6 +19,7 @@ public class RenderActionNode extends Node {
     private boolean mUseParentStyle = false;
     private int mStyleObjectId = 0; // default same with JS framework
     private int mVId;
+    private MatchedCSSRuleList mMatchedStyles;
 
     RenderActionNode(RenderActionDocument document, String tagName, int id) {
         super(tagName);
@@ -37,6 +39,14 @@ public class RenderActionNode extends Node {
         mStyleObjectId = styleObjectId;
     }
 
+    synchronized MatchedCSSRuleList getMatchedStyles() {
+        return mMatchedStyles;
+    }
+
+    synchronized void setMatchedStyles(MatchedCSSRuleList matchedStyles) {
+        mMatchedStyles = matchedStyles;
+    }
+
     synchronized void setUseParentStyle(boolean useParentStyle) {
         mUseParentStyle = useParentStyle;
     }
@@ -20,12 +20,17 @@ import org.hapjs.render.css.CSSParser;
 import org.hapjs.render.css.CSSStyleDeclaration;
 import org.hapjs.render.css.CSSStyleSheet;
 import org.hapjs.render.css.MatchedCSSRuleList;
+import org.hapjs.render.css.StyleInvalidation;
 import org.json.JSONException;
 
 class RenderActionParser {
 
     private static String sPackage;
 
+    static void setPackage(String pkg) {
+        sPackage = pkg;
+    }
+
     static VDomChangeAction objToChangeActions(
             int pageId, String method, JSONArray args, RenderActionDocument document, String pkg)
             throws JSONException {
@@ -221,13 +226,22 @@ class RenderActionParser {
             throws JSONException {
         action.action = VDomChangeAction.ACTION_UPDATE_STYLE;
         action.vId = id;
+        // TODO key: inlineStyle or style?
+        updateInlineStyle(
+                document, action, eleInfo.has("style") ? eleInfo.getJSONObject("style") : null);
+    }
 
+    /**
+     * @param style 内联样式, 没有时为 null
+     */
+    static void updateInlineStyle(
+            RenderActionDocument document, VDomChangeAction action, JSONObject style)
+            throws JSONException {
         // find node
         RenderActionNode node = document.findOrCreateNode(action.vId);
 
-        if (eleInfo.has("style")) { // TODO key: inlineStyle or style?
-            CSSStyleDeclaration diffProps =
-                    CSSParser.parseInlineStyle(node, eleInfo.getJSONObject("style"));
+        if (style != null) {
+            CSSStyleDeclaration diffProps = CSSParser.parseInlineStyle(node, style);
             node.updateInlineStyles(diffProps);
 
             // calculate css inline style, only update diff
@@ -242,21 +256,42 @@ class RenderActionParser {
         action.action = VDomChangeAction.ACTION_UPDATE_STYLE;
         action.vId = id;
         parseAttr(eleInfo, action);
+        updateStyles(
+                document, action, eleInfo.has("style") ? eleInfo.getJSONObject("style") : null);
+    }
 
+    /**
+     * action 的 attributes 已解析
+     *
+     * @param style 调试器设置的样式, 没有时为 null
+     */
+    static void updateStyles(
+            RenderActionDocument document, VDomChangeAction action, JSONObject style)
+            throws JSONException {
         // find node
         RenderActionNode node = document.findOrCreateNode(action.vId);
 
+        int invalidation = StyleInvalidation.ALL;
         if (!action.attributes.isEmpty()) {
+            String oldId = node.getCSSId();
+            String[] oldClasses = node.getCSSClass();
             node.updateCSSAttrs(action.attributes);
+            if (style == null
+                    && !node.isDirty()
+                    && node.getFinalStyle().getLength() > 0) {
+                // 只有选择器中用到的 id, class 发生变化时才需要重新计算
+                invalidation = StyleInvalidation.compute(node, oldId, oldClasses);
+            }
         }
 
-        if (eleInfo.has("style")) { // TODO remove this (only from inspector)
-            CSSStyleDeclaration diffProps =
-                    CSSParser.parseInlineStyle(node, eleInfo.getJSONObject("style"));
+        if (style != null) { // TODO remove this (only from inspector)
+            CSSStyleDeclaration diffProps = CSSParser.parseInlineStyle(node, style);
             node.updateInlineStyles(diffProps);
         }
 
-        updateStyles(node, action);
+        RuntimeLogManager.getDefault().logRenderTaskStart(sPackage, "CSSCalculator");
+        updateStyles(node, action, invalidation);
+        RuntimeLogManager.getDefault().logRenderTaskEnd(sPackage, "CSSCalculator");
     }
 
     public static void updateStyles(RenderActionNode node, VDomChangeAction action) {
@@ -265,10 +300,40 @@ class RenderActionParser {
         RuntimeLogManager.getDefault().logRenderTaskEnd(sPackage, "CSSCalculator");
     }
 
+    /**
+     * 只重新计算节点自身的样式, 不处理子节点
+     */
+    static void updateSelfStyles(RenderActionNode node, VDomChangeAction action) {
+        RuntimeLogManager.getDefault().logRenderTaskStart(sPackage, "CSSCalculator");
+        updateStyles(node, action, false);
+        RuntimeLogManager.getDefault().logRenderTaskEnd(sPackage, "CSSCalculator");
+    }
+
+    /**
+     * @param invalidation {@link StyleInvalidation} 计算出的需要重新计算样式的范围
+     */
+    private static void updateStyles(
+            RenderActionNode node, VDomChangeAction action, int invalidation) {
+        if ((invalidation & StyleInvalidation.SELF) != 0) {
+            updateStyles(node, action, false);
+        } else {
+            // 样式未变化, 不需要重新计算, 沿用上次的结果
+            action.vId = node.getVId();
+            action.matchedCSSRuleList = node.getMatchedStyles();
+            action.inlineCSSRule = node.getInlineStyle();
+            action.setNode(node);
+        }
+
+        if ((invalidation & StyleInvalidation.DESCENDANTS) != 0 && node.shouldRestyling()) {
+            updateChildStyles(node, action);
+        }
+    }
+
     private static void updateStyles(
             RenderActionNode node, VDomChangeAction action, boolean updateChild) {
         action.vId = node.getVId();
         MatchedCSSRuleList matchedStyles = node.calMatchedStyles();
+        node.setMatchedStyles(matchedStyles);
         action.matchedCSSRuleList = matchedStyles;
         action.inlineCSSRule = node.getInlineStyle();
         action.setNode(node);
@@ -276,13 +341,17 @@ class RenderActionParser {
         action.styles.putAll(node.calFinalStyle(matchedStyles).convertStyleProps());
 
         if (updateChild) {
-            // SynchronizedList 在增强for循环中是非线程安全的，需要同步
-            synchronized (node.getChildren()){
-                for (RenderActionNode child : node.getChildren()) {
-                    VDomChangeAction childAction = new VDomChangeAction();
-                    updateStyles(child, childAction, true);
-                    action.children.add(childAction);
-                }
+            updateChildStyles(node, action);
+        }
+    }
+
+    private static void updateChildStyles(RenderActionNode node, VDomChangeAction action) {
+        // SynchronizedList 在增强for循环中是非线程安全的，需要同步
+        synchronized (node.getChildren()) {
+            for (RenderActionNode child : node.getChildren()) {
+                VDomChangeAction childAction = new VDomChangeAction();
+                updateStyles(child, childAction, true);
+                action.children.add(childAction);
             }
         }
     }
@@ -311,7 +380,7 @@ class RenderActionParser {
         }
     }
 
-    private static void moveElement(VDomChangeAction action, int id, int parentId, int index)
+    static void moveElement(VDomChangeAction action, int id, int parentId, int index)
             throws JSONException {
         action.action = VDomChangeAction.ACTION_MOVE;
         action.vId = id;
@@ -319,7 +388,7 @@ class RenderActionParser {
         action.index = index;
     }
 
-    private static void removeElement(
+    static void removeElement(
             RenderActionDocument document, VDomChangeAction action, int id) {
         action.action = VDomChangeAction.ACTION_REMOVE;
         action.vId = id;
@@ -349,13 +418,30 @@ class RenderActionParser {
     private static void createRenderActionNode(
             RenderActionDocument document, VDomChangeAction action, JSONObject eleInfo)
             throws JSONException {
+        createRenderActionNode(
+                document,
+                action,
+                eleInfo.has("prop") ? eleInfo.getJSONObject("prop") : null,
+                eleInfo.has("styleObject") ? eleInfo.getJSONObject("styleObject") : null,
+                eleInfo.has("inlineStyle") ? eleInfo.getJSONObject("inlineStyle") : null);
+    }
+
+    /**
+     * action 的 ref, type, attr 已解析, 参数没有时为 null
+     */
+    static void createRenderActionNode(
+            RenderActionDocument document,
+            VDomChangeAction action,
+            JSONObject prop,
+            JSONObject styleObject,
+            JSONObject inlineStyle)
+            throws JSONException {
         RenderActionNode node = document.findOrCreateNode(action.vId, action.tagName);
 
         updateParent(document, node, action);
         node.updateCSSAttrs(action.attributes);
 
-        if (eleInfo.has("prop")) {
-            JSONObject prop = eleInfo.getJSONObject("prop");
+        if (prop != null) {
             int styleObjectId = prop.getInt("_styleObjectId");
             node.setStyleObjectId(styleObjectId);
 
@@ -366,17 +452,16 @@ class RenderActionParser {
         }
 
         CSSStyleSheet cacheStyle = document.findStyleSheetById(node.getStyleObjectId());
-        if (cacheStyle == null && eleInfo.has("styleObject")) {
-            CSSStyleSheet ss = CSSParser.parseCSSStyleSheet(eleInfo.getJSONObject("styleObject"));
+        if (cacheStyle == null && styleObject != null) {
+            CSSStyleSheet ss = CSSParser.parseCSSStyleSheet(styleObject);
             ss.addOwner(node);
             document.registerStyleSheet(node.getStyleObjectId(), ss);
         } else if (cacheStyle != null) {
             cacheStyle.addOwner(node);
         }
 
-        if (eleInfo.has("inlineStyle")) {
-            CSSStyleDeclaration props =
-                    CSSParser.parseInlineStyle(node, eleInfo.getJSONObject("inlineStyle"));
+        if (inlineStyle != null) {
+            CSSStyleDeclaration props = CSSParser.parseInlineStyle(node, inlineStyle);
             node.updateInlineStyles(props); // should update after setting of parent and styleSheet
         }
 
@@ -529,7 +614,10 @@ class RenderActionParser {
 
     private static Object getTransformedJSONObject(JSONObject jsObj, String key)
             throws JSONException {
-        Object obj = jsObj.get(key);
+        return transformValue(jsObj.get(key));
+    }
+
+    static Object transformValue(Object obj) throws JSONException {
         // org.hapjs.common.json.JSONArray to org.json.JSONArray, component is using org.json.JSONArray
         if (obj instanceof JSONObject) {
             obj = new org.json.JSONObject(obj.toString());
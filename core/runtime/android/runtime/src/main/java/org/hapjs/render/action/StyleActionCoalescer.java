@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.action;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.hapjs.render.RenderAction;
+import org.hapjs.render.VDomChangeAction;
+
+/**
+ * 同一 package 中对同一节点的多次样式更新合并为一个 ACTION_UPDATE_STYLE. 节点树变化, 同一节点的其他更新以及其他类型的
+ * action 都会结束合并, 保证与依次应用的结果一致.
+ */
+class StyleActionCoalescer {
+    // 当前 package 中每个节点最近的 ACTION_UPDATE_STYLE
+    private final Map<Integer, VDomChangeAction> mPendingStyleActions = new HashMap<>();
+
+    /**
+     * @return action 是否已合并到之前的 action 中
+     */
+    boolean coalesce(RenderAction action) {
+        if (!(action instanceof VDomChangeAction)) {
+            // ComponentAction 等需要在之前的 action 执行后才能执行
+            mPendingStyleActions.clear();
+            return false;
+        }
+        VDomChangeAction vdomAction = (VDomChangeAction) action;
+        switch (vdomAction.action) {
+            case VDomChangeAction.ACTION_UPDATE_STYLE:
+                break;
+            case VDomChangeAction.ACTION_ADD:
+            case VDomChangeAction.ACTION_REMOVE:
+            case VDomChangeAction.ACTION_MOVE:
+            case VDomChangeAction.ACTION_CREATE_BODY:
+                // 节点树发生变化, 之后的样式更新不能提前
+                mPendingStyleActions.clear();
+                return false;
+            default:
+                // 同一节点的其他更新需要保持顺序
+                mPendingStyleActions.remove(vdomAction.vId);
+                return false;
+        }
+
+        if (!vdomAction.children.isEmpty()) {
+            mPendingStyleActions.remove(vdomAction.vId);
+            return false;
+        }
+        VDomChangeAction pending = mPendingStyleActions.get(vdomAction.vId);
+        if (pending == null) {
+            mPendingStyleActions.put(vdomAction.vId, vdomAction);
+            return false;
+        }
+        // 先移除再添加, 保证后更新的样式排在后面, 与依次应用的结果一致
+        pending.styles.keySet().removeAll(vdomAction.styles.keySet());
+        pending.styles.putAll(vdomAction.styles);
+        pending.attributes.putAll(vdomAction.attributes);
+        pending.matchedCSSRuleList = vdomAction.matchedCSSRuleList;
+        pending.inlineCSSRule = vdomAction.inlineCSSRule;
+        pending.setNode(vdomAction.getNode());
+        return true;
+    }
+
+    void clear() {
+        mPendingStyleActions.clear();
+    }
+}
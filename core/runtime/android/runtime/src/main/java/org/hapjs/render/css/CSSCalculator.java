@@ -8,10 +8,8 @@ package org.hapjs.render.css;
 import android.text.TextUtils;
 import android.util.Log;
 import androidx.annotation.NonNull;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import org.hapjs.render.css.media.MediaPropertyInfoImpl;
 import org.hapjs.render.css.property.CSSPropertyBuilder;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -42,17 +40,7 @@ public class CSSCalculator {
         CSSStyleDeclaration finalStyle = node.getFinalStyle();
 
         // change to empty value to override old value
-        Iterator<String> cssPropertyIterator = finalStyle.iterator();
-        while (cssPropertyIterator.hasNext()) {
-            String entryKey = cssPropertyIterator.next();
-            CSSProperty old = finalStyle.getProperty(entryKey);
-            CSSProperty undefined =
-                    new CSSPropertyBuilder(
-                            old) // too many undefined value will be create TODO optimize: just set null
-                            .setValue(CSSProperty.UNDEFINED)
-                            .build();
-            finalStyle.setProperty(undefined);
-        }
+        finalStyle.resetToUndefined();
 
         if (matchedStyles != null) {
             for (int i = 0; i < matchedStyles.length(); i++) {
@@ -236,46 +224,10 @@ public class CSSCalculator {
             if (cssRuleList == null) {
                 continue;
             }
-            for (int j = 0; j < cssRuleList.length(); j++) {
-                CSSRule rule = cssRuleList.item(j);
-                // deal media rule  to  matchedStyleRuleList
-                if (rule.getType() == CSSRule.MEDIA_RULE) {
-                    CSSMediaRule cssMediaRule = (CSSMediaRule) rule;
-                    // 更新媒体查询中的媒体属性
-                    cssMediaRule.getMediaList()
-                            .updateMediaPropertyInfo(new MediaPropertyInfoImpl());
-                    // 判断是否符合媒体查询
-                    if (cssMediaRule.getCssRuleList() != null
-                            && cssMediaRule.getCssRuleList().getCssRules() != null
-                            && cssMediaRule.getMediaList().getResult()) {
-                        for (CSSRule cssMediarule : cssMediaRule.getCssRuleList().getCssRules()) {
-                            CSSStyleRule cssMediaStyleRule = (CSSStyleRule) cssMediarule;
-                            if (!match(cssMediaStyleRule, node)) {
-                                continue;
-                            }
-                            if (matchedStyleRuleList == null) {
-                                matchedStyleRuleList = new ArrayList<>();
-                            }
-                            matchedStyleRuleList.add(cssMediaStyleRule);
-                        }
-                    }
-                }
-
-                if (rule.getType() != CSSRule.STYLE_RULE) {
-                    continue;
-                }
-
-                CSSStyleRule cssRule = (CSSStyleRule) rule;
-                if (!match(cssRule, node)) {
-                    continue;
-                }
-
-                if (matchedStyleRuleList == null) {
-                    matchedStyleRuleList = new ArrayList<>();
-                }
-
-                matchedStyleRuleList.add(cssRule);
-            }
+            // 只检查最右侧 id, class, tag 命中的候选规则, 包括满足媒体查询的规则
+            matchedStyleRuleList =
+                    cssRuleList.getRuleIndex()
+                            .collectMatchedRules(node, true, matchedStyleRuleList);
         }
 
         return new MatchedCSSRuleList(matchedStyleRuleList, node);
@@ -283,14 +235,8 @@ public class CSSCalculator {
 
     public static boolean match(List<CSSRuleList> cssRuleLists, Node node) {
         for (CSSRuleList cssRuleList : cssRuleLists) {
-            for (int i = 0; i < cssRuleList.length(); i++) {
-
-                if (cssRuleList.item(i).getType() == CSSRule.STYLE_RULE) {
-                    CSSStyleRule cssRule = (CSSStyleRule) cssRuleList.item(i);
-                    if (match(cssRule, node)) {
-                        return true;
-                    }
-                }
+            if (cssRuleList.getRuleIndex().matchAny(node)) {
+                return true;
             }
         }
         return false;
@@ -303,7 +249,7 @@ public class CSSCalculator {
      * @param node
      * @return　是否相同
      */
-    private static boolean match(CSSStyleRule cssStyleRule, Node node) {
+    static boolean match(CSSStyleRule cssStyleRule, Node node) {
         Selector[] selectors = cssStyleRule.getSelectors();
         for (Selector selector : selectors) {
             if (selector.match(cssStyleRule, node, node)) {
@@ -23,6 +23,10 @@ class CSSFontFaceRule extends CSSRule {
         mDeclaration = declaration;
     }
 
+    JSONObject getDeclaration() {
+        return mDeclaration;
+    }
+
     @Override
     public int getType() {
         return CSSRule.FONT_FACE_RULE;
@@ -21,6 +21,10 @@ class CSSKeyframesRule extends CSSRule {
         mDeclaration = declaration;
     }
 
+    JSONObject getDeclaration() {
+        return mDeclaration;
+    }
+
     @Override
     public int getType() {
         return CSSRule.KEYFRAME_RULE;
@@ -16,10 +16,12 @@ public class CSSMediaRule extends CSSRule {
 
     private CSSRuleList mCssRuleList;
     private MediaList mMediaList;
+    private String mCondition;
 
-    CSSMediaRule(CSSRuleList cssRuleList, MediaList mediaList) {
+    CSSMediaRule(CSSRuleList cssRuleList, MediaList mediaList, String condition) {
         mCssRuleList = cssRuleList;
         mMediaList = mediaList;
+        mCondition = condition;
     }
 
     public CSSRuleList getCssRuleList() {
@@ -30,6 +32,10 @@ public class CSSMediaRule extends CSSRule {
         return mMediaList;
     }
 
+    String getCondition() {
+        return mCondition;
+    }
+
     @Override
     public int getType() {
         return CSSRule.MEDIA_RULE;
@@ -42,11 +42,19 @@ public class CSSParser {
         sStyleSheetCount++;
 
         CSSStyleSheet ss = new CSSStyleSheet();
+        ss.setOrderBase(sStyleSheetCount);
         CSSRuleList cssRuleList = parseCssRuleList(ss, plain, false, 0);
         ss.setCSSRules(cssRuleList);
         return ss;
     }
 
+    /**
+     * 为从预编译缓存中加载的样式表分配规则顺序的基准值, 与 {@link #parseCSSStyleSheet} 共用计数
+     */
+    static long nextOrderBase() {
+        return ++sStyleSheetCount;
+    }
+
     /**
      * @param node        节点
      * @param inlineStyle 内联样式, 如 '{ "width" : "10px" }'
@@ -215,7 +223,7 @@ public class CSSParser {
         return parentSelector;
     }
 
-    private static SelectorFactory.SimpleSelector parseSimpleSelector(String plain) {
+    static SelectorFactory.SimpleSelector parseSimpleSelector(String plain) {
         String[] split = plain.split(":");
         if (split.length > 1) {
             if (split[0].startsWith("#")) {
@@ -257,7 +265,7 @@ public class CSSParser {
             // 在 整体json串 里面去掉 condition　封装成 CSSRule ; condition 另存为 medialist
             decl.remove(KEY_MEDIA_DESC);
             CSSRuleList cssRuleList = parseCssRuleList(ss, decl, true, order);
-            return new CSSMediaRule(cssRuleList, mediaList);
+            return new CSSMediaRule(cssRuleList, mediaList, (String) condition);
         }
         return null;
     }
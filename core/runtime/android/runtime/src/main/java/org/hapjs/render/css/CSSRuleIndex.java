@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.css;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.hapjs.render.css.media.MediaPropertyInfoImpl;
+
+/**
+ * 按最右侧简单选择器(id, class, tag)对 CSSRuleList 中的样式规则建立索引. 匹配节点时只需检查 id, class, tag
+ * 对应的候选规则, 而不是遍历所有规则. 候选规则按其在样式表中出现的顺序返回, 与逐条遍历的结果一致.
+ */
+class CSSRuleIndex {
+
+    private static final Comparator<Entry> POSITION_COMPARATOR =
+            new Comparator<Entry>() {
+                @Override
+                public int compare(Entry o1, Entry o2) {
+                    return Integer.compare(o1.position, o2.position);
+                }
+            };
+
+    private final Map<String, Entry[]> mIdRules;
+    private final Map<String, Entry[]> mClassRules;
+    private final Map<String, Entry[]> mTagRules;
+    private final CSSMediaRule[] mMediaRules;
+    // 出现在选择器中的 id, class 特征
+    private final Set<String> mSubjectFeatures = new HashSet<>();
+    private final Set<String> mAncestorFeatures = new HashSet<>();
+
+    CSSRuleIndex(CSSRuleList cssRuleList) {
+        Map<String, List<Entry>> idRules = new HashMap<>();
+        Map<String, List<Entry>> classRules = new HashMap<>();
+        Map<String, List<Entry>> tagRules = new HashMap<>();
+        List<CSSMediaRule> mediaRules = new ArrayList<>();
+
+        int position = 0;
+        for (int i = 0; i < cssRuleList.length(); i++) {
+            CSSRule rule = cssRuleList.item(i);
+            if (rule.getType() == CSSRule.MEDIA_RULE) {
+                CSSMediaRule cssMediaRule = (CSSMediaRule) rule;
+                int mediaIndex = mediaRules.size();
+                mediaRules.add(cssMediaRule);
+                if (cssMediaRule.getCssRuleList() == null
+                        || cssMediaRule.getCssRuleList().getCssRules() == null) {
+                    continue;
+                }
+                for (CSSRule cssMediaRuleItem : cssMediaRule.getCssRuleList().getCssRules()) {
+                    Entry entry =
+                            new Entry(position++, (CSSStyleRule) cssMediaRuleItem, mediaIndex);
+                    addEntry(entry, idRules, classRules, tagRules);
+                }
+            } else if (rule.getType() == CSSRule.STYLE_RULE) {
+                Entry entry = new Entry(position++, (CSSStyleRule) rule, Entry.NO_MEDIA);
+                addEntry(entry, idRules, classRules, tagRules);
+            }
+        }
+
+        mIdRules = toArrayMap(idRules);
+        mClassRules = toArrayMap(classRules);
+        mTagRules = toArrayMap(tagRules);
+        mMediaRules = mediaRules.toArray(new CSSMediaRule[0]);
+    }
+
+    private void addEntry(
+            Entry entry,
+            Map<String, List<Entry>> idRules,
+            Map<String, List<Entry>> classRules,
+            Map<String, List<Entry>> tagRules) {
+        Selector[] selectors = entry.rule.getSelectors();
+        if (selectors == null) {
+            return;
+        }
+        for (Selector selector : selectors) {
+            SelectorFactory.collectFeatures(selector, mSubjectFeatures, mAncestorFeatures);
+            SelectorFactory.SimpleSelector key = SelectorFactory.getKeySelector(selector);
+            if (key instanceof SelectorFactory.IdSelector) {
+                putEntry(idRules, ((SelectorFactory.IdSelector) key).getId(), entry);
+            } else if (key instanceof SelectorFactory.ClassSelector) {
+                putEntry(classRules, ((SelectorFactory.ClassSelector) key).getCls(), entry);
+            } else if (key instanceof SelectorFactory.ElementSelector) {
+                putEntry(tagRules, ((SelectorFactory.ElementSelector) key).getTag(), entry);
+            }
+        }
+    }
+
+    private static void putEntry(Map<String, List<Entry>> map, String key, Entry entry) {
+        List<Entry> entries = map.get(key);
+        if (entries == null) {
+            entries = new ArrayList<>();
+            map.put(key, entries);
+        }
+        // 同一条规则的多个选择器(如 "div, .a div")可能落到同一个桶中
+        if (entries.isEmpty() || entries.get(entries.size() - 1) != entry) {
+            entries.add(entry);
+        }
+    }
+
+    private static Map<String, Entry[]> toArrayMap(Map<String, List<Entry>> map) {
+        if (map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Entry[]> result = new HashMap<>(map.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Entry>> item : map.entrySet()) {
+            result.put(item.getKey(), item.getValue().toArray(new Entry[0]));
+        }
+        return result;
+    }
+
+    /**
+     * @param feature {@link StyleInvalidation#idFeature} 或 {@link StyleInvalidation#classFeature}
+     * @return 该特征变化后需要重新计算样式的范围
+     */
+    int getInvalidation(String feature) {
+        int result = StyleInvalidation.NONE;
+        if (mSubjectFeatures.contains(feature)) {
+            result |= StyleInvalidation.SELF;
+        }
+        if (mAncestorFeatures.contains(feature)) {
+            result |= StyleInvalidation.DESCENDANTS;
+        }
+        return result;
+    }
+
+    /**
+     * 查找可能匹配节点的候选规则, 并逐条调用 Selector.match 做最终判断.
+     *
+     * @param node         节点
+     * @param includeMedia 是否包含媒体查询中的规则, 包含时会先更新媒体查询的属性信息
+     * @param result       匹配的规则按样式表中的顺序追加到 result 中, 为 null 时自动创建
+     * @return result
+     */
+    List<CSSStyleRule> collectMatchedRules(
+            Node node, boolean includeMedia, List<CSSStyleRule> result) {
+        boolean[] mediaResults = null;
+        if (includeMedia && mMediaRules.length > 0) {
+            mediaResults = new boolean[mMediaRules.length];
+            for (int i = 0; i < mMediaRules.length; i++) {
+                CSSMediaRule cssMediaRule = mMediaRules[i];
+                // 更新媒体查询中的媒体属性
+                cssMediaRule.getMediaList().updateMediaPropertyInfo(new MediaPropertyInfoImpl());
+                mediaResults[i] = cssMediaRule.getMediaList().getResult();
+            }
+        }
+
+        List<Entry> candidates = collectCandidates(node);
+        if (candidates == null) {
+            return result;
+        }
+
+        Entry last = null;
+        for (Entry entry : candidates) {
+            if (entry == last) {
+                continue;
+            }
+            last = entry;
+            if (entry.mediaIndex != Entry.NO_MEDIA
+                    && (mediaResults == null || !mediaResults[entry.mediaIndex])) {
+                continue;
+            }
+            if (!CSSCalculator.match(entry.rule, node)) {
+                continue;
+            }
+            if (result == null) {
+                result = new ArrayList<>();
+            }
+            result.add(entry.rule);
+        }
+        return result;
+    }
+
+    /**
+     * @return 是否存在非媒体查询的规则匹配该节点
+     */
+    boolean matchAny(Node node) {
+        List<Entry> candidates = collectCandidates(node);
+        if (candidates == null) {
+            return false;
+        }
+        for (Entry entry : candidates) {
+            if (entry.mediaIndex == Entry.NO_MEDIA && CSSCalculator.match(entry.rule, node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Entry> collectCandidates(Node node) {
+        List<Entry> candidates = null;
+        int bucketCount = 0;
+
+        String id = node.getCSSId();
+        if (id != null) {
+            Entry[] entries = mIdRules.get(id);
+            if (entries != null) {
+                candidates = addAll(candidates, entries);
+                bucketCount++;
+            }
+        }
+
+        String[] classes = node.getCSSClass();
+        if (classes != null) {
+            for (String cls : classes) {
+                Entry[] entries = mClassRules.get(cls);
+                if (entries != null) {
+                    candidates = addAll(candidates, entries);
+                    bucketCount++;
+                }
+            }
+        }
+
+        String tag = node.getTagName();
+        if (tag != null) {
+            Entry[] entries = mTagRules.get(tag);
+            if (entries != null) {
+                candidates = addAll(candidates, entries);
+                bucketCount++;
+            }
+        }
+
+        // 单个桶内已有序, 多个桶合并后按样式表中的顺序重新排序
+        if (bucketCount > 1) {
+            Collections.sort(candidates, POSITION_COMPARATOR);
+        }
+        return candidates;
+    }
+
+    private static List<Entry> addAll(List<Entry> candidates, Entry[] entries) {
+        if (candidates == null) {
+            candidates = new ArrayList<>(entries.length);
+        }
+        Collections.addAll(candidates, entries);
+        return candidates;
+    }
+
+    private static class Entry {
+        static final int NO_MEDIA = -1;
+
+        final int position;
+        final CSSStyleRule rule;
+        final int mediaIndex;
+
+        Entry(int position, CSSStyleRule rule, int mediaIndex) {
+            this.position = position;
+            this.rule = rule;
+            this.mediaIndex = mediaIndex;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.util.List;
 
 public class CSSRuleList {
     private CSSRule[] cssRules;
+    private volatile CSSRuleIndex mRuleIndex;
 
     CSSRuleList(List<CSSRule> cssRuleList) {
         cssRules = cssRuleList.toArray(new CSSRule[0]);
@@ -18,6 +19,20 @@ public class CSSRuleList {
         return cssRules;
     }
 
+    CSSRuleIndex getRuleIndex() {
+        CSSRuleIndex ruleIndex = mRuleIndex;
+        if (ruleIndex == null) {
+            synchronized (this) {
+                ruleIndex = mRuleIndex;
+                if (ruleIndex == null) {
+                    ruleIndex = new CSSRuleIndex(this);
+                    mRuleIndex = ruleIndex;
+                }
+            }
+        }
+        return ruleIndex;
+    }
+
     CSSRule item(int index) {
         return cssRules[index];
     }
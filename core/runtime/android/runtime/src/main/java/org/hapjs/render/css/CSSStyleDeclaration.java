@@ -6,6 +6,7 @@
 package org.hapjs.render.css;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import org.hapjs.render.css.property.CSSPropertyBuilder;
@@ -16,9 +17,24 @@ import org.hapjs.render.css.value.CSSValues;
  * #myId : { --------------------------- | "width" : 100px, | | "width:active" : 150px, | | "height"
  * : 200px | -> CSSStyleDeclaration --------------------------- }
  */
-public class CSSStyleDeclaration extends OrderedConcurrentHashMap<String, CSSProperty> {
+public class CSSStyleDeclaration extends OrderedPropertyMap<String, CSSProperty> {
     // key 为样式名称加状态, 如 "width:active"
 
+    private static final ValueMapper<CSSProperty> TO_UNDEFINED =
+            new ValueMapper<CSSProperty>() {
+                @Override
+                public CSSProperty map(CSSProperty value) {
+                    return CSSPropertyBuilder.toUndefined(value);
+                }
+            };
+
+    public CSSStyleDeclaration() {
+    }
+
+    CSSStyleDeclaration(int expectedSize) {
+        super(expectedSize);
+    }
+
     private static String middleLineToHump(String para) {
         StringBuilder result = new StringBuilder();
         String[] a = para.split("-");
@@ -39,15 +55,24 @@ public class CSSStyleDeclaration extends OrderedConcurrentHashMap<String, CSSPro
 
     // For inspector
     public int getLength() {
-        return mEntryKeyQueue.size();
+        return size();
     }
 
     public ListIterator<String> getReversedListIterator() {
-        return new ArrayList<>(mEntryKeyQueue).listIterator(mEntryKeyQueue.size());
+        List<String> keys = getKeyList();
+        return keys.listIterator(keys.size());
     }
 
     public ListIterator<String> getSortedListIterator() {
-        return new ArrayList<>(mEntryKeyQueue).listIterator();
+        return getKeyList().listIterator();
+    }
+
+    private List<String> getKeyList() {
+        List<String> keys = new ArrayList<>(size());
+        for (String key : this) {
+            keys.add(key);
+        }
+        return keys;
     }
 
     // For inspector
@@ -85,9 +110,14 @@ public class CSSStyleDeclaration extends OrderedConcurrentHashMap<String, CSSPro
         if (cssStyleDeclaration == null) {
             return;
         }
-        for (String key : cssStyleDeclaration.mEntryKeyQueue) {
-            add(key, cssStyleDeclaration.mEntriesMap.get(key));
-        }
+        cssStyleDeclaration.copyTo(this);
+    }
+
+    /**
+     * 保留所有样式名称, 将值置为 {@link CSSProperty#UNDEFINED}, 用于覆盖之前设置的样式
+     */
+    void resetToUndefined() {
+        replaceAllValues(TO_UNDEFINED);
     }
 
     public Map<String, CSSValues> convertStyleProps() {
@@ -29,6 +29,12 @@ public class CSSStyleRule extends CSSRule {
         mDeclaration = declaration;
     }
 
+    CSSStyleRule(String selectorText, Selector[] selectors, CSSStyleDeclaration declaration) {
+        mSelectorText = selectorText;
+        mSelectors = selectors;
+        mDeclaration = declaration;
+    }
+
     // For inspector "name"
     public String getSelectorText() {
         return mSelectorText;
@@ -21,6 +21,8 @@ public class CSSStyleSheet {
     private List<CSSMediaRule> mCssMediaRules;
     private Set<Node> mOwners = Collections.synchronizedSet(new HashSet<>());
     private int mStyleObjectId;
+    // 解析时规则顺序的基准值, 规则的 order 为基准值加上规则在样式表中的相对顺序
+    private long mOrderBase;
 
     public void setCssMediaRules(List<CSSMediaRule> cssMediaRule) {
         mCssMediaRules = cssMediaRule;
@@ -95,6 +97,14 @@ public class CSSStyleSheet {
         return cssMediaRules;
     }
 
+    long getOrderBase() {
+        return mOrderBase;
+    }
+
+    void setOrderBase(long orderBase) {
+        mOrderBase = orderBase;
+    }
+
     public int getStyleObjectId() {
         return mStyleObjectId;
     }
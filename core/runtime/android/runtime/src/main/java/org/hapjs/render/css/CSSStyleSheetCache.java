@@ -0,0 +1,551 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.css;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.hapjs.cache.Cache;
+import org.hapjs.common.json.JSONArray;
+import org.hapjs.common.json.JSONObject;
+import org.hapjs.common.utils.FileUtils;
+import org.hapjs.render.css.media.CSSMediaParser;
+import org.hapjs.render.css.property.CSSPropertyBuilder;
+import org.json.JSONException;
+
+/**
+ * 页面样式表的预编译缓存.
+ *
+ * <p>第一次解析页面的 css.json 时, 将解析结果写入 {@link Cache#getStyleCacheDir} 下的二进制文件. 之后打开页面时通过
+ * mmap 读取该文件直接构建 CSSStyleSheet, 不再经过 JSON 解析和选择器的正则拆分. 文件中保存:
+ *
+ * <ul>
+ *   <li>字符串表: 样式名称, 选择器名称等在加载时 intern, 同名样式共用一个 String
+ *   <li>已拆分的选择器结构
+ *   <li>规则在样式表中的相对顺序, 加载时加上新的基准值即可得到 order
+ * </ul>
+ *
+ * <p>文件头记录了源 css 的 SHA-256 摘要, 与当前内容不一致时重新解析并覆盖缓存.
+ */
+public class CSSStyleSheetCache {
+    private static final String TAG = "CSSStyleSheetCache";
+
+    private static final int MAGIC = 0x48535331; // "HSS1"
+    private static final int VERSION = 2;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String CACHE_SUFFIX = ".bin";
+    private static final String KEY_LIST = "list";
+    // 超过该长度的字符串(如 keyframes 的 JSON)不做 intern
+    private static final int MAX_INTERN_LENGTH = 64;
+
+    private static final byte RULE_STYLE = 1;
+    private static final byte RULE_KEYFRAMES = 2;
+    private static final byte RULE_FONT_FACE = 3;
+    private static final byte RULE_MEDIA = 4;
+
+    private static final byte SELECTOR_ID = 1;
+    private static final byte SELECTOR_CLASS = 2;
+    private static final byte SELECTOR_ELEMENT = 3;
+    private static final byte SELECTOR_STATE = 4;
+    private static final byte SELECTOR_DESCENDANT = 5;
+    private static final byte SELECTOR_CHILD = 6;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_INT = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_BOOLEAN = 5;
+    private static final byte VALUE_JSON_OBJECT = 6;
+    private static final byte VALUE_JSON_ARRAY = 7;
+
+    private CSSStyleSheetCache() {
+    }
+
+    /**
+     * 解析页面样式, 优先使用预编译缓存
+     *
+     * @param path css.json 在 rpk 中的路径, 用于确定缓存文件
+     * @param css  css.json 的内容, 格式为 { "list": [ styleSheet, ... ] }
+     */
+    public static List<CSSStyleSheet> parseStyleSheets(
+            Context context, String pkg, String path, String css) throws JSONException {
+        return parseStyleSheets(getCacheFile(context, pkg, path), css);
+    }
+
+    static List<CSSStyleSheet> parseStyleSheets(File cacheFile, String css)
+            throws JSONException {
+        byte[] digest = cacheFile == null ? null : digest(css);
+        if (digest != null && cacheFile.exists()) {
+            List<CSSStyleSheet> styleSheets = read(cacheFile, digest);
+            if (styleSheets != null) {
+                return styleSheets;
+            }
+        }
+
+        List<CSSStyleSheet> styleSheets = new ArrayList<>();
+        JSONObject styles = new JSONObject(css);
+        JSONArray styleList = styles.getJSONArray(KEY_LIST);
+        int n = styleList.length();
+        for (int i = 0; i < n; i++) {
+            styleSheets.add(CSSParser.parseCSSStyleSheet(styleList.getJSONObject(i)));
+        }
+
+        if (digest != null) {
+            write(cacheFile, digest, styleSheets);
+        }
+        return styleSheets;
+    }
+
+    /**
+     * @return css 的摘要, 不支持摘要算法时返回 null, 不使用缓存
+     */
+    static byte[] digest(String css) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM)
+                    .digest(css.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            Log.w(TAG, "style cache disabled", e);
+            return null;
+        }
+    }
+
+    private static File getCacheFile(Context context, String pkg, String path) {
+        if (context == null || TextUtils.isEmpty(pkg) || TextUtils.isEmpty(path)) {
+            return null;
+        }
+        String name = path.startsWith("/") ? path.substring(1) : path;
+        name = name.replace('/', '_');
+        return new File(Cache.getStyleCacheDir(context, pkg), name + CACHE_SUFFIX);
+    }
+
+    // ---------------------------------- write ----------------------------------
+
+    private static void write(File cacheFile, byte[] digest, List<CSSStyleSheet> styleSheets) {
+        Writer writer = new Writer();
+        byte[] body;
+        try {
+            writer.writeStyleSheets(styleSheets);
+            body = writer.toByteArray();
+        } catch (IOException | UnsupportedValueException e) {
+            Log.w(TAG, "skip style cache for " + cacheFile.getName() + ": " + e.getMessage());
+            return;
+        }
+
+        File dir = cacheFile.getParentFile();
+        if (dir == null || !FileUtils.mkdirs(dir)) {
+            return;
+        }
+        File tmpFile = null;
+        try {
+            tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(body.length + 1024);
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(digest.length);
+            out.write(digest);
+            writer.writeStringTable(out);
+            out.write(body);
+            out.flush();
+            if (FileUtils.saveToFile(bos.toByteArray(), tmpFile) && tmpFile.renameTo(cacheFile)) {
+                return;
+            }
+            Log.w(TAG, "failed to save style cache: " + cacheFile);
+        } catch (IOException e) {
+            Log.w(TAG, "failed to save style cache: " + cacheFile, e);
+        }
+        if (tmpFile != null) {
+            tmpFile.delete();
+        }
+    }
+
+    private static class UnsupportedValueException extends Exception {
+        UnsupportedValueException(Object value) {
+            super("unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    private static class Writer {
+        private final Map<String, Integer> mStrings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream mBody = new ByteArrayOutputStream(16 * 1024);
+        private final DataOutputStream mOut = new DataOutputStream(mBody);
+
+        byte[] toByteArray() throws IOException {
+            mOut.flush();
+            return mBody.toByteArray();
+        }
+
+        void writeStringTable(DataOutputStream out) throws IOException {
+            out.writeInt(mStrings.size());
+            for (String s : mStrings.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                mOut.writeInt(-1);
+                return;
+            }
+            Integer index = mStrings.get(s);
+            if (index == null) {
+                index = mStrings.size();
+                mStrings.put(s, index);
+            }
+            mOut.writeInt(index);
+        }
+
+        void writeStyleSheets(List<CSSStyleSheet> styleSheets)
+                throws IOException, UnsupportedValueException {
+            mOut.writeInt(styleSheets.size());
+            for (CSSStyleSheet ss : styleSheets) {
+                mOut.writeInt(ss.getStyleObjectId());
+                writeRuleList(ss.getCSSRuleList(), ss.getOrderBase());
+            }
+        }
+
+        private void writeRuleList(CSSRuleList ruleList, long orderBase)
+                throws IOException, UnsupportedValueException {
+            CSSRule[] rules = ruleList == null ? new CSSRule[0] : ruleList.getCssRules();
+            mOut.writeInt(rules.length);
+            for (CSSRule rule : rules) {
+                switch (rule.getType()) {
+                    case CSSRule.STYLE_RULE:
+                        writeStyleRule((CSSStyleRule) rule, orderBase);
+                        break;
+                    case CSSRule.KEYFRAME_RULE:
+                        mOut.writeByte(RULE_KEYFRAMES);
+                        writeString(((CSSKeyframesRule) rule).getDeclaration().toString());
+                        break;
+                    case CSSRule.FONT_FACE_RULE:
+                        mOut.writeByte(RULE_FONT_FACE);
+                        writeString(((CSSFontFaceRule) rule).getDeclaration().toString());
+                        break;
+                    case CSSRule.MEDIA_RULE:
+                        CSSMediaRule mediaRule = (CSSMediaRule) rule;
+                        mOut.writeByte(RULE_MEDIA);
+                        writeString(mediaRule.getCondition());
+                        writeRuleList(mediaRule.getCssRuleList(), orderBase);
+                        break;
+                    default:
+                        throw new UnsupportedValueException(rule);
+                }
+            }
+        }
+
+        private void writeStyleRule(CSSStyleRule rule, long orderBase)
+                throws IOException, UnsupportedValueException {
+            mOut.writeByte(RULE_STYLE);
+            writeString(rule.getSelectorText());
+            mOut.writeLong(rule.getOrder() - orderBase);
+            Selector[] selectors = rule.getSelectors();
+            mOut.writeInt(selectors.length);
+            for (Selector selector : selectors) {
+                writeSelector(selector);
+            }
+
+            CSSStyleDeclaration declaration = rule.getDeclaration();
+            mOut.writeInt(declaration.getLength());
+            for (String key : declaration) {
+                CSSProperty property = declaration.getProperty(key);
+                writeString(property.getNameWithState());
+                writeValue(property.getValue());
+            }
+        }
+
+        private void writeSelector(Selector selector)
+                throws IOException, UnsupportedValueException {
+            if (selector instanceof SelectorFactory.ChildSelector) {
+                SelectorFactory.ChildSelector childSelector =
+                        (SelectorFactory.ChildSelector) selector;
+                mOut.writeByte(SELECTOR_CHILD);
+                writeSelector(childSelector.mAncestorSelector);
+                writeSelector(childSelector.mSimpleSelector);
+            } else if (selector instanceof SelectorFactory.DescendantSelector) {
+                SelectorFactory.DescendantSelector descendantSelector =
+                        (SelectorFactory.DescendantSelector) selector;
+                mOut.writeByte(SELECTOR_DESCENDANT);
+                writeSelector(descendantSelector.mAncestorSelector);
+                writeSelector(descendantSelector.mSimpleSelector);
+            } else if (selector instanceof SelectorFactory.StateSelector) {
+                SelectorFactory.StateSelector stateSelector =
+                        (SelectorFactory.StateSelector) selector;
+                mOut.writeByte(SELECTOR_STATE);
+                writeString(stateSelector.mState);
+                writeSelector(stateSelector.mSimpleSelector);
+            } else if (selector instanceof SelectorFactory.IdSelector) {
+                mOut.writeByte(SELECTOR_ID);
+                writeString(((SelectorFactory.IdSelector) selector).getId());
+            } else if (selector instanceof SelectorFactory.ClassSelector) {
+                mOut.writeByte(SELECTOR_CLASS);
+                writeString(((SelectorFactory.ClassSelector) selector).getCls());
+            } else if (selector instanceof SelectorFactory.ElementSelector) {
+                mOut.writeByte(SELECTOR_ELEMENT);
+                writeString(((SelectorFactory.ElementSelector) selector).getTag());
+            } else {
+                throw new UnsupportedValueException(selector);
+            }
+        }
+
+        private void writeValue(Object value) throws IOException, UnsupportedValueException {
+            if (value == null || value == JSONObject.NULL) {
+                mOut.writeByte(VALUE_NULL);
+            } else if (value instanceof String) {
+                mOut.writeByte(VALUE_STRING);
+                writeString((String) value);
+            } else if (value instanceof Integer) {
+                mOut.writeByte(VALUE_INT);
+                mOut.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                mOut.writeByte(VALUE_LONG);
+                mOut.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                mOut.writeByte(VALUE_DOUBLE);
+                mOut.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                mOut.writeByte(VALUE_BOOLEAN);
+                mOut.writeBoolean((Boolean) value);
+            } else if (value instanceof org.json.JSONObject) {
+                mOut.writeByte(VALUE_JSON_OBJECT);
+                writeString(value.toString());
+            } else if (value instanceof org.json.JSONArray) {
+                mOut.writeByte(VALUE_JSON_ARRAY);
+                writeString(value.toString());
+            } else {
+                throw new UnsupportedValueException(value);
+            }
+        }
+    }
+
+    // ---------------------------------- read ----------------------------------
+
+    static List<CSSStyleSheet> read(File cacheFile, byte[] digest) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(cacheFile, "r");
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC
+                    || buffer.getInt() != VERSION
+                    || buffer.getInt() != digest.length) {
+                return null;
+            }
+            byte[] cachedDigest = new byte[digest.length];
+            buffer.get(cachedDigest);
+            if (!MessageDigest.isEqual(digest, cachedDigest)) {
+                return null;
+            }
+            return new Reader(buffer).readStyleSheets();
+        } catch (IOException
+                | JSONException
+                | BufferUnderflowException
+                | IndexOutOfBoundsException
+                | ClassCastException
+                | IllegalArgumentException e) {
+            Log.w(TAG, "invalid style cache: " + cacheFile, e);
+            cacheFile.delete();
+            return null;
+        } finally {
+            FileUtils.closeQuietly(raf);
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer mBuffer;
+        private String[] mStrings;
+        private byte[] mBytes = new byte[256];
+
+        Reader(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        private void readStringTable() {
+            int count = mBuffer.getInt();
+            mStrings = new String[count];
+            for (int i = 0; i < count; i++) {
+                int length = mBuffer.getInt();
+                if (mBytes.length < length) {
+                    mBytes = new byte[Math.max(length, mBytes.length * 2)];
+                }
+                mBuffer.get(mBytes, 0, length);
+                String s = new String(mBytes, 0, length, StandardCharsets.UTF_8);
+                // 样式名称, 选择器名称等大量重复, intern 后共用同一个对象
+                mStrings[i] = length <= MAX_INTERN_LENGTH ? s.intern() : s;
+            }
+        }
+
+        private String readString() {
+            int index = mBuffer.getInt();
+            return index < 0 ? null : mStrings[index];
+        }
+
+        List<CSSStyleSheet> readStyleSheets() throws JSONException {
+            readStringTable();
+            int count = mBuffer.getInt();
+            List<CSSStyleSheet> styleSheets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                CSSStyleSheet ss = new CSSStyleSheet();
+                long orderBase = CSSParser.nextOrderBase();
+                ss.setOrderBase(orderBase);
+                ss.setStyleObjectId(mBuffer.getInt());
+                ss.setCSSRules(readRuleList(ss, orderBase));
+                styleSheets.add(ss);
+            }
+            return styleSheets;
+        }
+
+        private CSSRuleList readRuleList(CSSStyleSheet ss, long orderBase) throws JSONException {
+            int count = mBuffer.getInt();
+            List<CSSRule> rules = new ArrayList<>(count);
+            List<CSSMediaRule> mediaRules = null;
+            for (int i = 0; i < count; i++) {
+                byte type = mBuffer.get();
+                switch (type) {
+                    case RULE_STYLE:
+                        rules.add(readStyleRule(orderBase));
+                        break;
+                    case RULE_KEYFRAMES:
+                        CSSKeyframesRule keyframesRule =
+                                new CSSKeyframesRule(new org.json.JSONObject(readString()));
+                        ss.setCSSKeyframesRule(keyframesRule);
+                        rules.add(keyframesRule);
+                        break;
+                    case RULE_FONT_FACE:
+                        CSSFontFaceRule fontFaceRule =
+                                new CSSFontFaceRule(new org.json.JSONObject(readString()));
+                        ss.setCSSFontFaceRule(fontFaceRule);
+                        rules.add(fontFaceRule);
+                        break;
+                    case RULE_MEDIA:
+                        String condition = readString();
+                        CSSRuleList cssRuleList = readRuleList(ss, orderBase);
+                        CSSMediaRule mediaRule =
+                                new CSSMediaRule(
+                                        cssRuleList,
+                                        CSSMediaParser.parseMediaList(condition),
+                                        condition);
+                        if (mediaRules == null) {
+                            mediaRules = new ArrayList<>();
+                        }
+                        mediaRules.add(mediaRule);
+                        rules.add(mediaRule);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown rule type: " + type);
+                }
+            }
+            if (mediaRules != null) {
+                ss.setCssMediaRules(mediaRules);
+            }
+            return new CSSRuleList(rules);
+        }
+
+        private CSSStyleRule readStyleRule(long orderBase) {
+            String selectorText = readString();
+            long order = orderBase + mBuffer.getLong();
+            int selectorCount = mBuffer.getInt();
+            Selector[] selectors = new Selector[selectorCount];
+            for (int i = 0; i < selectorCount; i++) {
+                selectors[i] = readSelector();
+            }
+
+            int propertyCount = mBuffer.getInt();
+            CSSStyleDeclaration declaration = new CSSStyleDeclaration(propertyCount);
+            for (int i = 0; i < propertyCount; i++) {
+                String nameWithState = readString();
+                Object value = readValue();
+                declaration.setProperty(
+                        new CSSPropertyBuilder().setNameWithState(nameWithState).setValue(value)
+                                .build());
+            }
+
+            CSSStyleRule rule = new CSSStyleRule(selectorText, selectors, declaration);
+            rule.setOrder(order);
+            return rule;
+        }
+
+        private Selector readSelector() {
+            byte type = mBuffer.get();
+            switch (type) {
+                case SELECTOR_ID:
+                    return SelectorFactory.createIdSelector(readString());
+                case SELECTOR_CLASS:
+                    return SelectorFactory.createClassSelector(readString());
+                case SELECTOR_ELEMENT:
+                    return SelectorFactory.createElementSelector(readString());
+                case SELECTOR_STATE: {
+                    String state = readString();
+                    return SelectorFactory.createStateSelector(readSimpleSelector(), state);
+                }
+                case SELECTOR_DESCENDANT: {
+                    Selector ancestor = readSelector();
+                    return SelectorFactory.createDescendantSelector(ancestor, readSimpleSelector());
+                }
+                case SELECTOR_CHILD: {
+                    Selector parent = readSelector();
+                    return SelectorFactory.createChildSelector(parent, readSimpleSelector());
+                }
+                default:
+                    throw new IllegalArgumentException("unknown selector type: " + type);
+            }
+        }
+
+        private SelectorFactory.SimpleSelector readSimpleSelector() {
+            return (SelectorFactory.SimpleSelector) readSelector();
+        }
+
+        private Object readValue() {
+            byte type = mBuffer.get();
+            switch (type) {
+                case VALUE_NULL:
+                    return JSONObject.NULL;
+                case VALUE_STRING:
+                    return readString();
+                case VALUE_INT:
+                    return mBuffer.getInt();
+                case VALUE_LONG:
+                    return mBuffer.getLong();
+                case VALUE_DOUBLE:
+                    return mBuffer.getDouble();
+                case VALUE_BOOLEAN:
+                    return mBuffer.get() != 0;
+                case VALUE_JSON_OBJECT:
+                    try {
+                        return new org.json.JSONObject(readString());
+                    } catch (org.json.JSONException e) {
+                        throw new IllegalArgumentException(e);
+                    }
+                case VALUE_JSON_ARRAY:
+                    try {
+                        return new org.json.JSONArray(readString());
+                    } catch (org.json.JSONException e) {
+                        throw new IllegalArgumentException(e);
+                    }
+                default:
+                    throw new IllegalArgumentException("unknown value type: " + type);
+            }
+        }
+    }
+}
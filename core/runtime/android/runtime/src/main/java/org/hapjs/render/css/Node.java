@@ -110,7 +110,7 @@ public abstract class Node {
         mParent = parent;
     }
 
-    synchronized String getCSSId() {
+    public synchronized String getCSSId() {
         return mCSSId;
     }
 
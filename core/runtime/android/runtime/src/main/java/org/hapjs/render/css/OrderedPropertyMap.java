@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.css;
+
+import androidx.annotation.NonNull;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 按插入顺序保存键值对的线程安全 map.
+ *
+ * <p>键值保存在按插入顺序排列的数组中, 通过开放寻址的 int 哈希表定位, 插入和替换都是 O(1). 删除只把对应位置置空,
+ * 扩容时再压缩. 样式会被 RenderWorker, render action 线程 (媒体查询, inspector) 同时读写, 所有操作都在对象锁内执行,
+ * 没有竞争时开销很小. 迭代器遍历创建时的键快照, 迭代过程中的修改不会抛出异常.
+ */
+public class OrderedPropertyMap<K, V> implements Iterable<K> {
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    // 按插入顺序保存的键值, 删除后置为 null
+    private Object[] mKeys;
+    private Object[] mValues;
+    // 开放寻址哈希表, 值为 slot + 1, EMPTY 表示空, DELETED 表示已删除
+    private int[] mTable;
+    // 已使用的 slot 数量, 包含已删除的
+    private int mEnd;
+    private int mSize;
+
+    public OrderedPropertyMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OrderedPropertyMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize) {
+            capacity <<= 1;
+        }
+        mKeys = new Object[capacity];
+        mValues = new Object[capacity];
+        mTable = new int[capacity << 1];
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(Object key) {
+        int[] table = mTable;
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while (true) {
+            int entry = table[i];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != DELETED) {
+                Object k = mKeys[entry - 1];
+                if (k == key || key.equals(k)) {
+                    return entry - 1;
+                }
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public synchronized void add(@NonNull K key, V value) {
+        int slot = indexOf(key);
+        if (slot >= 0) {
+            mValues[slot] = value;
+            return;
+        }
+        if (mEnd == mKeys.length) {
+            resize();
+        }
+        slot = mEnd++;
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        insertIntoTable(mTable, key, slot);
+        mSize++;
+    }
+
+    private static void insertIntoTable(int[] table, Object key, int slot) {
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while (table[i] != EMPTY && table[i] != DELETED) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot + 1;
+    }
+
+    /**
+     * 去掉已删除的 slot, 必要时扩容. 总是分配新数组, 正在进行的迭代继续使用旧数组.
+     */
+    private void resize() {
+        int capacity = mKeys.length;
+        if (mSize >= capacity >> 1) {
+            capacity <<= 1;
+        }
+        Object[] keys = new Object[capacity];
+        Object[] values = new Object[capacity];
+        int[] table = new int[capacity << 1];
+        int n = 0;
+        for (int i = 0; i < mEnd; i++) {
+            Object key = mKeys[i];
+            if (key == null) {
+                continue;
+            }
+            keys[n] = key;
+            values[n] = mValues[i];
+            insertIntoTable(table, key, n);
+            n++;
+        }
+        mKeys = keys;
+        mValues = values;
+        mTable = table;
+        mEnd = n;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized V get(@NonNull K key) {
+        int slot = indexOf(key);
+        return slot >= 0 ? (V) mValues[slot] : null;
+    }
+
+    public synchronized boolean containsKey(@NonNull K key) {
+        return indexOf(key) >= 0;
+    }
+
+    public synchronized boolean remove(@NonNull K key) {
+        int[] table = mTable;
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while (true) {
+            int entry = table[i];
+            if (entry == EMPTY) {
+                return false;
+            }
+            if (entry != DELETED) {
+                int slot = entry - 1;
+                Object k = mKeys[slot];
+                if (k == key || key.equals(k)) {
+                    table[i] = DELETED;
+                    mKeys[slot] = null;
+                    mValues[slot] = null;
+                    mSize--;
+                    return true;
+                }
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public synchronized void clear() {
+        mKeys = new Object[mKeys.length];
+        mValues = new Object[mValues.length];
+        mTable = new int[mTable.length];
+        mEnd = 0;
+        mSize = 0;
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * 把每个值替换为 {@link ValueMapper} 的返回值, 保持键和顺序不变, 不分配额外的数组.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void replaceAllValues(ValueMapper<V> mapper) {
+        Object[] keys = mKeys;
+        Object[] values = mValues;
+        for (int i = 0; i < mEnd; i++) {
+            if (keys[i] != null) {
+                values[i] = mapper.map((V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * 按插入顺序把所有键值添加到 target 中
+     */
+    @SuppressWarnings("unchecked")
+    public void copyTo(OrderedPropertyMap<K, V> target) {
+        Object[] keys;
+        Object[] values;
+        int end;
+        // 先复制再写入 target, 避免同时持有两个对象的锁
+        synchronized (this) {
+            end = mEnd;
+            keys = Arrays.copyOf(mKeys, end);
+            values = Arrays.copyOf(mValues, end);
+        }
+        for (int i = 0; i < end; i++) {
+            if (keys[i] != null) {
+                target.add((K) keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public synchronized Iterator<K> iterator() {
+        return new KeyIterator(Arrays.copyOf(mKeys, mEnd));
+    }
+
+    public interface ValueMapper<V> {
+        V map(V value);
+    }
+
+    private class KeyIterator implements Iterator<K> {
+        private final Object[] mIterKeys;
+        private int mNext;
+        private int mLast = -1;
+
+        KeyIterator(Object[] keys) {
+            mIterKeys = keys;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (mNext < mIterKeys.length && mIterKeys[mNext] == null) {
+                mNext++;
+            }
+            return mNext < mIterKeys.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            mLast = mNext;
+            return (K) mIterKeys[mNext++];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void remove() {
+            if (mLast < 0) {
+                throw new IllegalStateException();
+            }
+            Object key = mIterKeys[mLast];
+            mLast = -1;
+            OrderedPropertyMap.this.remove((K) key);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.hapjs.component.Component;
 import org.hapjs.component.view.state.State;
 import org.hapjs.render.DebugUtils;
@@ -47,6 +48,46 @@ class SelectorFactory {
         return new SelectorFactory.DescendantSelector(ancestorSelector, simpleSelector);
     }
 
+    /**
+     * @return 选择器最右侧的 id, class 或 tag 选择器, 节点必须匹配它才可能匹配整个选择器
+     */
+    static SimpleSelector getKeySelector(Selector selector) {
+        if (selector instanceof DescendantSelector) {
+            selector = ((DescendantSelector) selector).mSimpleSelector;
+        }
+        if (selector instanceof StateSelector) {
+            selector = ((StateSelector) selector).mSimpleSelector;
+        }
+        if (selector instanceof SimpleSelector) {
+            return (SimpleSelector) selector;
+        }
+        return null;
+    }
+
+    /**
+     * 收集选择器中的 id, class 特征, 用于判断 id, class 变化后哪些节点需要重新计算样式
+     *
+     * @param selector          选择器
+     * @param subjectFeatures   最右侧简单选择器的特征, 变化时影响节点自身
+     * @param ancestorFeatures  祖先部分的特征, 变化时影响后代节点
+     */
+    static void collectFeatures(
+            Selector selector, Set<String> subjectFeatures, Set<String> ancestorFeatures) {
+        addFeature(getKeySelector(selector), subjectFeatures);
+        while (selector instanceof DescendantSelector) {
+            selector = ((DescendantSelector) selector).mAncestorSelector;
+            addFeature(getKeySelector(selector), ancestorFeatures);
+        }
+    }
+
+    private static void addFeature(SimpleSelector selector, Set<String> features) {
+        if (selector instanceof IdSelector) {
+            features.add(StyleInvalidation.idFeature(((IdSelector) selector).getId()));
+        } else if (selector instanceof ClassSelector) {
+            features.add(StyleInvalidation.classFeature(((ClassSelector) selector).getCls()));
+        }
+    }
+
     private static boolean handleMatch(
             CSSStyleRule cssStyleRule,
             Node lastChild,
@@ -206,6 +247,10 @@ class SelectorFactory {
             mId = id;
         }
 
+        String getId() {
+            return mId;
+        }
+
         @Override
         public int getSelectorType() {
             return Selector.SAC_CONDITIONAL_SELECTOR;
@@ -237,6 +282,10 @@ class SelectorFactory {
             mCls = cls;
         }
 
+        String getCls() {
+            return mCls;
+        }
+
         @Override
         public int getSelectorType() {
             return Selector.SAC_CONDITIONAL_SELECTOR;
@@ -280,6 +329,10 @@ class SelectorFactory {
             mTag = tag;
         }
 
+        String getTag() {
+            return mTag;
+        }
+
         @Override
         public int getSelectorType() {
             return Selector.SAC_ELEMENT_NODE_SELECTOR;
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.css;
+
+/**
+ * 根据节点 id, class 的变化, 结合节点匹配的样式表中出现的选择器, 计算需要重新计算样式的范围.
+ *
+ * <pre>
+ *  样式表: { ".a": {...}, ".b .c": {...} }
+ *  节点 class 由 "a" 变为 "a d": 没有选择器使用 .d, 无需重新计算
+ *  节点 class 由 "x" 变为 "c":   .c 是最右侧选择器, 只需重新计算节点自身
+ *  节点 class 由 "x" 变为 "b":   .b 是祖先选择器, 需要重新计算后代节点
+ * </pre>
+ */
+public class StyleInvalidation {
+    public static final int NONE = 0;
+    public static final int SELF = 1;
+    public static final int DESCENDANTS = 1 << 1;
+    public static final int ALL = SELF | DESCENDANTS;
+
+    private static final String ID_PREFIX = "#";
+    private static final String CLASS_PREFIX = ".";
+
+    static String idFeature(String id) {
+        return ID_PREFIX + id;
+    }
+
+    static String classFeature(String cls) {
+        return CLASS_PREFIX + cls;
+    }
+
+    /**
+     * @param node       id, class 已更新的节点
+     * @param oldId      更新前的 id
+     * @param oldClasses 更新前的 class
+     * @return {@link #NONE}, {@link #SELF}, {@link #DESCENDANTS} 的组合
+     */
+    public static int compute(Node node, String oldId, String[] oldClasses) {
+        MatchedCSSStyleSheet ss = node.getMatchedStyleSheet();
+        if (ss == null || ss.getNodeCSSStyleSheet() == null) {
+            // 样式表还未确定, 无法判断
+            return ALL;
+        }
+
+        int result = NONE;
+        String newId = node.getCSSId();
+        if (!equals(oldId, newId)) {
+            if (!isEmpty(oldId)) {
+                result |= getInvalidation(ss, idFeature(oldId));
+            }
+            if (!isEmpty(newId)) {
+                result |= getInvalidation(ss, idFeature(newId));
+            }
+        }
+
+        String[] newClasses = node.getCSSClass();
+        result |= getClassInvalidation(ss, oldClasses, newClasses);
+        result |= getClassInvalidation(ss, newClasses, oldClasses);
+        return result;
+    }
+
+    /**
+     * @return classes 中不在 others 里的 class 引起的重新计算范围
+     */
+    private static int getClassInvalidation(
+            MatchedCSSStyleSheet ss, String[] classes, String[] others) {
+        if (classes == null) {
+            return NONE;
+        }
+        int result = NONE;
+        for (String cls : classes) {
+            if (isEmpty(cls) || contains(others, cls)) {
+                continue;
+            }
+            result |= getInvalidation(ss, classFeature(cls));
+            if (result == ALL) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static int getInvalidation(MatchedCSSStyleSheet ss, String feature) {
+        int result = NONE;
+        for (int i = 0; i < ss.size(); i++) {
+            CSSStyleSheet styleSheet = ss.get(i);
+            if (styleSheet == null) {
+                continue;
+            }
+            CSSRuleList cssRuleList = styleSheet.getCSSRuleList();
+            if (cssRuleList == null) {
+                continue;
+            }
+            result |= cssRuleList.getRuleIndex().getInvalidation(feature);
+        }
+        return result;
+    }
+
+    private static boolean contains(String[] array, String s) {
+        if (array == null) {
+            return false;
+        }
+        for (String item : array) {
+            if (s.equals(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isEmpty();
+    }
+}
@@ -28,6 +28,19 @@ public class CSSPropertyBuilder {
     public CSSPropertyBuilder() {
     }
 
+    /**
+     * 返回 value 为 {@link CSSProperty#UNDEFINED} 的同名属性, 与 {@code new
+     * CSSPropertyBuilder(property).setValue(CSSProperty.UNDEFINED).build()} 等价, 但不创建 builder.
+     */
+    public static CSSProperty toUndefined(CSSProperty property) {
+        if (property == null
+                || property instanceof UndefinedCSSProperty
+                || (!property.getDisabled() && CSSProperty.UNDEFINED.equals(property.getValue()))) {
+            return property;
+        }
+        return new UndefinedCSSProperty(property);
+    }
+
     /**
      * 驼峰命名转为中划线命名
      */
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.css.property;
+
+import org.hapjs.render.css.CSSProperty;
+
+/**
+ * 重新计算样式前, 用于覆盖旧值的属性. 名称, 状态, 禁用标记与原属性一致, value 为 UNDEFINED
+ */
+class UndefinedCSSProperty implements CSSProperty {
+
+    private final CSSProperty mCSSProperty;
+
+    UndefinedCSSProperty(CSSProperty cssProperty) {
+        mCSSProperty = cssProperty;
+    }
+
+    @Override
+    public String getNameWithState() {
+        return mCSSProperty.getNameWithState();
+    }
+
+    @Override
+    public String getNameWithoutState() {
+        return mCSSProperty.getNameWithoutState();
+    }
+
+    @Override
+    public Object getValue() {
+        return CSSProperty.UNDEFINED;
+    }
+
+    @Override
+    public String getState() {
+        return mCSSProperty.getState();
+    }
+
+    @Override
+    public String getInspectorName() {
+        return mCSSProperty.getInspectorName();
+    }
+
+    @Override
+    public String getValueText() {
+        return CSSProperty.UNDEFINED;
+    }
+
+    @Override
+    public boolean getDisabled() {
+        return mCSSProperty.getDisabled();
+    }
+
+    @Override
+    public String toString() {
+        return getNameWithState() + ":" + getValueText();
+    }
+}
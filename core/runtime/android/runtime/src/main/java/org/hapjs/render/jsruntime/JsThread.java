@@ -36,6 +36,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import org.hapjs.bridge.EnvironmentManager;
 import org.hapjs.bridge.ExtensionManager;
 import org.hapjs.bridge.HybridRequest;
@@ -45,6 +46,7 @@ import org.hapjs.chunk.JsChunksManager;
 import org.hapjs.common.compat.BuildPlatform;
 import org.hapjs.common.executors.AbsTask;
 import org.hapjs.common.executors.Executors;
+import org.hapjs.common.executors.Future;
 import org.hapjs.common.utils.FrescoUtils;
 import org.hapjs.common.utils.LogUtils;
 import org.hapjs.common.utils.RouterUtils;
@@ -72,8 +74,8 @@ import org.hapjs.render.RootView;
 import org.hapjs.render.VDomChangeAction;
 import org.hapjs.render.action.RenderActionDocument;
 import org.hapjs.render.action.RenderActionManager;
-import org.hapjs.render.css.CSSParser;
 import org.hapjs.render.css.CSSStyleSheet;
+import org.hapjs.render.css.CSSStyleSheetCache;
 import org.hapjs.render.jsruntime.serialize.JavaSerializeObject;
 import org.hapjs.render.skeleton.DefaultSkeletonProviderImpl;
 import org.hapjs.render.skeleton.SkeletonConfigParser;
@@ -740,10 +742,23 @@ public class JsThread extends HandlerThread {
                         new AbsTask<String[]>() {
                             @Override
                             protected String[] doInBackground() {
+                                String pkg = mAppInfo.getPackage();
+                                // chunks, js, css 并行读取
+                                Future<String> pageJsTask = Executors.io().submit(
+                                        () -> AppResourcesLoader.getPageJs(mContext, pkg, page));
+                                Future<String> pageCssTask = Executors.io().submit(
+                                        () -> AppResourcesLoader.getPageCss(mContext, pkg, page));
                                 mJsChunksManager.registerPageChunks(page);
-                                String pageJs = AppResourcesLoader.getPageJs(mContext, mAppInfo.getPackage(), page);
-                                String pageCss = AppResourcesLoader.getPageCss(mContext, mAppInfo.getPackage(), page);
-                                parseStyleSheets(pageCss, page);
+                                String pageJs = getResult(pageJsTask);
+                                String pageCss = getResult(pageCssTask);
+                                List<CSSStyleSheet> styleSheets =
+                                        AppResourcesLoader.takePrefetchedStyleSheets(pkg, page);
+                                if (styleSheets != null) {
+                                    registerStyleSheets(styleSheets, page);
+                                } else {
+                                    parseStyleSheets(pageCss, page);
+                                }
+                                AppResourcesLoader.prefetchNextPages(mContext, mAppInfo, page);
                                 return new String[]{pageJs, pageCss};
                             }
 
@@ -781,24 +796,14 @@ public class JsThread extends HandlerThread {
                                         .logAsyncThreadTaskStart(mAppInfo.getPackage(),
                                                 "parseStyleSheets");
                                 try {
-                                    org.hapjs.common.json.JSONObject styles =
-                                            new org.hapjs.common.json.JSONObject(css);
-                                    org.hapjs.common.json.JSONArray styleList =
-                                            styles.getJSONArray("list");
-                                    int n = styleList.length();
-                                    for (int i = 0; i < n; i++) {
-                                        org.hapjs.common.json.JSONObject styleSheetPlain =
-                                                styleList.getJSONObject(i);
-                                        CSSStyleSheet styleSheet =
-                                                CSSParser.parseCSSStyleSheet(styleSheetPlain);
-
-                                        // 注册样式表
-                                        RenderActionDocument document =
-                                                mRenderActionManager
-                                                        .getOrCreateDocument(page.getPageId());
-                                        document.registerStyleSheet(styleSheet.getStyleObjectId(),
-                                                styleSheet);
-                                    }
+                                    // 优先使用预编译的样式表缓存, 没有时解析 JSON 并生成缓存
+                                    List<CSSStyleSheet> styleSheets =
+                                            CSSStyleSheetCache.parseStyleSheets(
+                                                    mContext,
+                                                    mAppInfo.getPackage(),
+                                                    page.getRoutableInfo().getUri(),
+                                                    css);
+                                    registerStyleSheets(styleSheets, page);
                                 } catch (JSONException e) {
                                     Log.e(TAG, "parse css failed: " + e.getMessage());
                                 }
@@ -810,6 +815,24 @@ public class JsThread extends HandlerThread {
                         });
     }
 
+    private void registerStyleSheets(List<CSSStyleSheet> styleSheets, Page page) {
+        RenderActionDocument document =
+                mRenderActionManager.getOrCreateDocument(page.getPageId());
+        for (CSSStyleSheet styleSheet : styleSheets) {
+            // 注册样式表
+            document.registerStyleSheet(styleSheet.getStyleObjectId(), styleSheet);
+        }
+    }
+
+    private static String getResult(Future<String> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(TAG, "load page resource failed", e);
+            return null;
+        }
+    }
+
     private void postCreatePage(Page page, String js, String uri, String css) {
         Object[] params = new Object[] {page, js, uri, css};
         Message.obtain(mHandler, H.MSG_CREATE_PAGE, params).sendToTarget();
@@ -1059,6 +1082,24 @@ public class JsThread extends HandlerThread {
         mHandler.post(runnable);
     }
 
+    /**
+     * 在 js 线程中执行全局函数, 只能在 js 线程中调用
+     */
+    public void executeFunction(String name, Object... params) {
+        V8 v8 = mJsContext.getV8();
+        V8Array args =
+                params == null
+                        ? new V8Array(v8)
+                        : V8ObjectHelper.toV8Array(v8, Arrays.asList(params));
+        try {
+            v8.executeVoidFunction(name, args);
+        } catch (V8RuntimeException ex) {
+            processV8Exception(ex);
+        } finally {
+            JsUtils.release(args);
+        }
+    }
+
     private void fireEvent(
             int pageId, List<JsEventCallbackData> datas,
             RenderEventCallback.EventPostListener listener) {
@@ -1498,19 +1539,8 @@ public class JsThread extends HandlerThread {
                     if (DebugUtils.DBG) {
                         DebugUtils.startRecord("JsThreadExecuteFunction");
                     }
-                    V8 v8 = mJsContext.getV8();
                     Pair<String, Object[]> pair = (Pair<String, Object[]>) msg.obj;
-                    V8Array params =
-                            pair.second == null
-                                    ? new V8Array(v8)
-                                    : V8ObjectHelper.toV8Array(v8, Arrays.asList(pair.second));
-                    try {
-                        mJsContext.getV8().executeVoidFunction(pair.first, params);
-                    } catch (V8RuntimeException ex) {
-                        processV8Exception(ex);
-                    } finally {
-                        JsUtils.release(params);
-                    }
+                    executeFunction(pair.first, pair.second);
                     if (DebugUtils.DBG) {
                         DebugUtils.endRecord("JsThreadExecuteFunction");
                     }
@@ -34,11 +34,24 @@ public class JavaSerializeObject implements SerializeObject {
         this(new JSONSerializeObject(jsonObject));
     }
 
+    public JavaSerializeObject(V8LazySerializeObject object) {
+        this((SerializeObject) object);
+    }
+
     private JavaSerializeObject(SerializeObject object) {
         mObject = object;
         mOverlayMap = new HashMap<>();
     }
 
+    /**
+     * 参数需要在调用线程之外读取时调用, 一次性转换 V8 对象的全部内容
+     */
+    public void detach() {
+        if (mObject instanceof V8LazySerializeObject) {
+            ((V8LazySerializeObject) mObject).detach(true);
+        }
+    }
+
     @Override
     public final Object get(String key) throws SerializeException {
         Object value = mOverlayMap.get(key);
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.jsruntime.serialize;
+
+import android.util.Log;
+import com.eclipsesource.v8.Releasable;
+import com.eclipsesource.v8.V8Function;
+import com.eclipsesource.v8.V8Object;
+import com.eclipsesource.v8.utils.typedarrays.ArrayBuffer;
+import com.eclipsesource.v8.utils.typedarrays.TypedArray;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.hapjs.bridge.V8ObjectHelper;
+import org.json.JSONObject;
+
+/**
+ * 基于 V8 对象的参数, 只在 js 线程读取用到的 key.
+ *
+ * <p>调用返回前需要调用 {@link #detach(boolean)}, 此后不再访问 V8 对象. 异步调用在 detach 时转换全部内容, 供其它线程读取.
+ * 需要 keySet, toMap 或修改内容时同样一次性转换, 之后的操作都交给 {@link V8SerializeObject}.
+ */
+public class V8LazySerializeObject extends AbstractSerializeObject {
+    private static final String TAG = "V8LazySerializeObject";
+
+    // undefined, function 或不存在的 key
+    private static final Object ABSENT = new Object();
+
+    private final Thread mOwnerThread;
+    private final Map<String, Object> mValues = new HashMap<>();
+    private V8Object mObject;
+    private V8SerializeObject mDelegate;
+
+    public V8LazySerializeObject(V8Object object) {
+        mObject = object;
+        mOwnerThread = Thread.currentThread();
+    }
+
+    /**
+     * 不再访问 V8 对象, 由调用方释放
+     *
+     * @param materialize 是否转换全部内容, 参数会在调用返回后使用时为 true
+     */
+    public void detach(boolean materialize) {
+        if (materialize) {
+            materialize();
+        }
+        mObject = null;
+    }
+
+    private boolean isAttached() {
+        return mObject != null
+                && !mObject.isReleased()
+                && Thread.currentThread() == mOwnerThread;
+    }
+
+    private Object resolve(String key) {
+        if (mDelegate != null) {
+            return mDelegate.toMap().get(key);
+        }
+        if (mValues.containsKey(key)) {
+            Object value = mValues.get(key);
+            return value == ABSENT ? null : value;
+        }
+        if (!isAttached()) {
+            Log.w(TAG, "read key after detached: " + key);
+            return null;
+        }
+        Object object = null;
+        Object value;
+        try {
+            object = mObject.get(key);
+            if (object instanceof V8Function
+                    || (object instanceof V8Object && ((V8Object) object).isUndefined())) {
+                value = ABSENT;
+            } else {
+                value = V8ObjectHelper.toValue(object);
+            }
+        } finally {
+            if (object instanceof Releasable) {
+                ((Releasable) object).release();
+            }
+        }
+        mValues.put(key, value);
+        return value == ABSENT ? null : value;
+    }
+
+    private V8SerializeObject materialize() {
+        if (mDelegate == null) {
+            Map<String, Object> map;
+            if (isAttached()) {
+                map = (Map) V8ObjectHelper.toMap(mObject);
+            } else {
+                Log.w(TAG, "materialize after detached");
+                map = new HashMap<>();
+            }
+            // 保留已经读取过的值, 调用方可能持有其引用
+            for (Map.Entry<String, Object> entry : mValues.entrySet()) {
+                if (entry.getValue() == ABSENT) {
+                    map.remove(entry.getKey());
+                } else {
+                    map.put(entry.getKey(), entry.getValue());
+                }
+            }
+            mValues.clear();
+            mDelegate = new V8SerializeObject(map);
+        }
+        return mDelegate;
+    }
+
+    @Override
+    public Object opt(String key) {
+        Object value = resolve(key);
+        if (value instanceof Map) {
+            value = new V8SerializeObject((Map<String, Object>) value);
+        } else if (value instanceof List) {
+            value = new V8SerializeArray((List<Object>) value);
+        }
+        return value;
+    }
+
+    @Override
+    public int optInt(String key, int defaultValue) {
+        return SerializeHelper.toInteger(resolve(key), defaultValue);
+    }
+
+    @Override
+    public long optLong(String key, long defaultValue) {
+        return SerializeHelper.toLong(resolve(key), defaultValue);
+    }
+
+    @Override
+    public double optDouble(String key, double defaultValue) {
+        return SerializeHelper.toDouble(resolve(key), defaultValue);
+    }
+
+    @Override
+    public boolean optBoolean(String key, boolean defaultValue) {
+        return SerializeHelper.toBoolean(resolve(key), defaultValue);
+    }
+
+    @Override
+    public String optString(String key, String defaultValue) {
+        return SerializeHelper.toString(opt(key), defaultValue);
+    }
+
+    @Override
+    public ArrayBuffer optArrayBuffer(String key) {
+        Object value = resolve(key);
+        return value instanceof ArrayBuffer ? (ArrayBuffer) value : null;
+    }
+
+    @Override
+    public TypedArray optTypedArray(String key) {
+        Object value = resolve(key);
+        return value instanceof TypedArray ? (TypedArray) value : null;
+    }
+
+    @Override
+    public SerializeObject optSerializeObject(String key) {
+        Object value = resolve(key);
+        return value instanceof Map ? new V8SerializeObject((Map<String, Object>) value) : null;
+    }
+
+    @Override
+    public SerializeArray optSerializeArray(String key) {
+        Object value = resolve(key);
+        return value instanceof List ? new V8SerializeArray((List<Object>) value) : null;
+    }
+
+    @Override
+    public HandlerObject optHandlerObject(String key) {
+        Object value = resolve(key);
+        return value instanceof HandlerObject ? (HandlerObject) value : null;
+    }
+
+    @Override
+    public SerializeObject put(String key, int value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public SerializeObject put(String key, double value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public SerializeObject put(String key, long value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public SerializeObject put(String key, boolean value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public SerializeObject put(String key, String value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public SerializeObject put(String key, ArrayBuffer value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public SerializeObject put(String key, TypedArray value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public SerializeObject put(String key, SerializeObject value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public SerializeObject put(String key, SerializeArray value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public SerializeObject put(String key, HandlerObject value) {
+        materialize().put(key, value);
+        return this;
+    }
+
+    @Override
+    public Object remove(String key) {
+        return materialize().remove(key);
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        return materialize().toMap();
+    }
+
+    @Override
+    public JSONObject toJSONObject() {
+        return materialize().toJSONObject();
+    }
+
+    @Override
+    public boolean has(String key) {
+        if (mDelegate != null) {
+            return mDelegate.has(key);
+        }
+        resolve(key);
+        return mValues.containsKey(key) && mValues.get(key) != ABSENT;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return materialize().keySet();
+    }
+
+    @Override
+    public int length() {
+        return materialize().length();
+    }
+
+    @Override
+    protected void ensureExists(String key) throws SerializeException {
+        if (resolve(key) == null) {
+            throw new SerializeException("null value");
+        }
+    }
+
+    @Override
+    public int getType() {
+        return TYPE_V8;
+    }
+
+    @Override
+    public String toString() {
+        return toJSONObject().toString();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package android.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Mock for test
+public class LruCache<K, V> {
+    private final LinkedHashMap<K, V> mMap = new LinkedHashMap<>(0, 0.75f, true);
+
+    public LruCache(int maxSize) {
+    }
+
+    public synchronized V get(K key) {
+        return mMap.get(key);
+    }
+
+    public synchronized V put(K key, V value) {
+        return mMap.put(key, value);
+    }
+
+    public synchronized V remove(K key) {
+        return mMap.remove(key);
+    }
+
+    public synchronized int size() {
+        return mMap.size();
+    }
+
+    public synchronized Map<K, V> snapshot() {
+        return new LinkedHashMap<>(mMap);
+    }
+
+    protected int sizeOf(K key, V value) {
+        return 1;
+    }
+}
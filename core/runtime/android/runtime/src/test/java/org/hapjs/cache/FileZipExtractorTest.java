@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.hapjs.common.utils.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileZipExtractorTest {
+    private static final String BROKEN_ENTRY = "broken/corrupt_entry.bin";
+
+    private File mWorkDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mWorkDir = Files.createTempDirectory("zip-extract").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.rmRF(mWorkDir);
+    }
+
+    @Test
+    public void extract() throws Exception {
+        Map<String, byte[]> contents = createContents();
+        File archive = writeArchive(contents);
+        File outDir = new File(mWorkDir, "out");
+
+        FileZipExtractor extractor = (FileZipExtractor) ZipExtractor.create(archive);
+        extractor.extract(outDir);
+
+        int largest = 0;
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            File file = new File(outDir, entry.getKey());
+            assertArrayEquals(entry.getKey(), entry.getValue(), Files.readAllBytes(file.toPath()));
+            largest = Math.max(largest, entry.getValue().length);
+        }
+        assertEquals(contents.size(), listFiles(outDir).size());
+        // 缓冲区只与工作线程数有关, 读入整个文件时至少需要最大的文件大小
+        assertTrue(extractor.getPeakBufferBytes() > 0);
+        assertTrue(extractor.getPeakBufferBytes()
+                <= FileZipExtractor.MAX_WORKER_COUNT * FileZipExtractor.BUFFER_SIZE);
+        assertTrue(extractor.getPeakEntryBytes() >= largest);
+    }
+
+    @Test
+    public void corruptEntry() throws Exception {
+        Map<String, byte[]> contents = createContents();
+        contents.put(BROKEN_ENTRY, new byte[256 * 1024]);
+        File archive = writeArchive(contents);
+        corrupt(archive, BROKEN_ENTRY);
+        File outDir = new File(mWorkDir, "out");
+
+        try {
+            ZipExtractor.create(archive).extract(outDir);
+            fail("corrupt entry should fail the extraction");
+        } catch (IOException e) {
+            // expected
+        }
+        // 失败后不应留下任何已解压或临时文件
+        assertEquals(new ArrayList<File>(), listFiles(outDir));
+    }
+
+    private static Map<String, byte[]> createContents() {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 32; i++) {
+            byte[] data = new byte[random.nextInt(200 * 1024) + 1];
+            random.nextBytes(data);
+            contents.put("dir" + (i % 4) + "/file" + i + ".js", data);
+        }
+        contents.put("manifest.json", "{\"package\":\"test\"}".getBytes(StandardCharsets.UTF_8));
+        return contents;
+    }
+
+    private File writeArchive(Map<String, byte[]> contents) throws IOException {
+        File archive = new File(mWorkDir, "test.rpk");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        return archive;
+    }
+
+    /**
+     * 把指定条目的压缩数据改写为非法的 deflate 块
+     */
+    private static void corrupt(File archive, String name) throws IOException {
+        byte[] data = Files.readAllBytes(archive.toPath());
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int offset = indexOf(data, nameBytes);
+        // 本地文件头之后紧跟压缩数据, ZipOutputStream 不写 extra 字段
+        int start = offset + nameBytes.length;
+        for (int i = start; i < start + 16; i++) {
+            data[i] = (byte) 0xFF;
+        }
+        Files.write(archive.toPath(), data);
+    }
+
+    private static int indexOf(byte[] data, byte[] target) {
+        outer:
+        for (int i = 0; i <= data.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (data[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new IllegalArgumentException("entry not found");
+    }
+
+    private static List<File> listFiles(File dir) {
+        List<File> result = new ArrayList<>();
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    result.addAll(listFiles(child));
+                } else {
+                    result.add(child);
+                }
+            }
+        }
+        return result;
+    }
+}
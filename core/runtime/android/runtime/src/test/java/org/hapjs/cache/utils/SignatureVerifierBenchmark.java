@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.cache.utils;
+
+import static org.hapjs.cache.utils.SignatureVerifierTest.DIGEST_ALGORITHMS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * 对比串行和并行计算分块摘要的耗时, 使用 5M 到 50M 的文件.
+ * 需要写入较大的临时文件, 不在单元测试中运行, 需要时去掉 {@link Ignore} 手动执行
+ */
+@Ignore("benchmark")
+public class SignatureVerifierBenchmark {
+    private static final int[] FILE_SIZES_MB = {5, 20, 50};
+    private static final int WARM_UP_ROUNDS = 2;
+    private static final int ROUNDS = 5;
+
+    private static File createFile(int sizeMb) throws IOException {
+        File file = File.createTempFile("digest-" + sizeMb + "m", ".rpk");
+        file.deleteOnExit();
+        // 最后一个分块不满 1M
+        SignatureVerifierTest.writeRandomFile(file, sizeMb * 1024L * 1024L - 4097);
+        return file;
+    }
+
+    private static long measure(RandomAccessFile file, boolean parallel) throws Exception {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            SignatureVerifier.computeFileDigests(DIGEST_ALGORITHMS, file, parallel);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            SignatureVerifier.computeFileDigests(DIGEST_ALGORITHMS, file, parallel);
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    @Test
+    public void parallelDigests() throws Exception {
+        for (int sizeMb : FILE_SIZES_MB) {
+            File file = createFile(sizeMb);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                SignatureVerifierTest.assertSameDigests(raf);
+
+                long sequentialNs = measure(raf, false);
+                long parallelNs = measure(raf, true);
+                System.out.println(
+                        sizeMb + "MB sequential: " + sequentialNs / 1000000 + "ms"
+                                + ", parallel: " + parallelNs / 1000000 + "ms");
+            } finally {
+                file.delete();
+            }
+        }
+    }
+}
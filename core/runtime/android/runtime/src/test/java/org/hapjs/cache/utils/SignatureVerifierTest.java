@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.cache.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 并行计算的分块摘要与串行计算的结果一致
+ */
+public class SignatureVerifierTest {
+    static final int[] DIGEST_ALGORITHMS = {
+            SignatureVerifier.CONTENT_DIGEST_CHUNKED_SHA256,
+            SignatureVerifier.CONTENT_DIGEST_CHUNKED_SHA512
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    static void writeRandomFile(File file, long size) throws IOException {
+        Random random = new Random(size);
+        byte[] buffer = new byte[64 * 1024];
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            long remaining = size;
+            while (remaining > 0) {
+                random.nextBytes(buffer);
+                int count = (int) Math.min(remaining, buffer.length);
+                out.write(buffer, 0, count);
+                remaining -= count;
+            }
+        }
+    }
+
+    static void assertSameDigests(RandomAccessFile file) throws Exception {
+        byte[][] sequential = SignatureVerifier.computeFileDigests(DIGEST_ALGORITHMS, file, false);
+        byte[][] parallel = SignatureVerifier.computeFileDigests(DIGEST_ALGORITHMS, file, true);
+        for (int i = 0; i < DIGEST_ALGORITHMS.length; i++) {
+            assertArrayEquals(sequential[i], parallel[i]);
+        }
+    }
+
+    private void assertSameDigests(long size) throws Exception {
+        File file = mFolder.newFile();
+        writeRandomFile(file, size);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            assertSameDigests(raf);
+        }
+    }
+
+    @Test
+    public void singleChunk() throws Exception {
+        assertSameDigests(4097);
+    }
+
+    @Test
+    public void multipleChunks() throws Exception {
+        // 最后一个分块不满 1M
+        assertSameDigests(3 * 1024L * 1024L - 4097);
+    }
+
+    @Test
+    public void exactChunks() throws Exception {
+        assertSameDigests(2 * 1024L * 1024L);
+    }
+
+    // 以下分块数不少于 PARALLEL_MIN_CHUNK_COUNT, 走并行计算
+    @Test
+    public void parallelExactChunks() throws Exception {
+        assertSameDigests(
+                (long) SignatureVerifier.PARALLEL_MIN_CHUNK_COUNT
+                        * SignatureVerifier.SMALL_CHUNK_SIZE_BYTES);
+    }
+
+    @Test
+    public void parallelPartialLastChunk() throws Exception {
+        assertSameDigests(
+                (long) (SignatureVerifier.PARALLEL_MIN_CHUNK_COUNT + 1)
+                        * SignatureVerifier.SMALL_CHUNK_SIZE_BYTES + 1);
+    }
+
+    @Test
+    public void parallelManyChunks() throws Exception {
+        // 分块数远多于线程数, 每个线程计算多个分块
+        assertSameDigests(17L * SignatureVerifier.SMALL_CHUNK_SIZE_BYTES - 4097);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.common.net;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 使用本地 http 服务模拟连接中断, 验证断点续传
+ */
+public class RangeDownloaderTest {
+    private static final int CONTENT_SIZE = 1024 * 1024 + 123;
+
+    private final byte[] mContent = new byte[CONTENT_SIZE];
+    private final List<String> mRanges = new CopyOnWriteArrayList<>();
+    private HttpServer mServer;
+    private static final String ETAG = "\"v1\"";
+    // 前几次请求只发送一半内容后断开
+    private volatile int mDropCount;
+    private volatile boolean mSendValidator = true;
+    private File mDest;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(1).nextBytes(mContent);
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/pkg.rpk", this::handle);
+        mServer.start();
+        mDest = File.createTempFile("range-download", ".rpk");
+        mDest.delete();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+        mDest.delete();
+        RangeDownloader.getPartFile(mDest).delete();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        mRanges.add(String.valueOf(range));
+        int start = 0;
+        if (range != null && (ifRange == null || ifRange.equals(ETAG))) {
+            start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+        }
+        int length = CONTENT_SIZE - start;
+        if (mSendValidator) {
+            exchange.getResponseHeaders().add("ETag", ETAG);
+        }
+        if (start > 0) {
+            exchange.getResponseHeaders().add("Content-Range",
+                    "bytes " + start + "-" + (CONTENT_SIZE - 1) + "/" + CONTENT_SIZE);
+            exchange.sendResponseHeaders(206, length);
+        } else {
+            exchange.sendResponseHeaders(200, length);
+        }
+        OutputStream out = exchange.getResponseBody();
+        if (mDropCount > 0) {
+            mDropCount--;
+            out.write(mContent, start, length / 2);
+            out.flush();
+            // 声明的长度没有写完, 关闭时会断开连接
+            exchange.close();
+            return;
+        }
+        out.write(mContent, start, length);
+        out.close();
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/pkg.rpk";
+    }
+
+    private RangeDownloader createDownloader() {
+        RangeDownloader downloader = new RangeDownloader(new OkHttpClient());
+        downloader.setRetryInterval(10);
+        return downloader;
+    }
+
+    @Test
+    public void resumeAfterConnectionDropped() throws IOException {
+        mDropCount = 1;
+        MemoryStore store = new MemoryStore();
+        createDownloader().download(url(), mDest, store);
+
+        assertArrayEquals(mContent, Files.readAllBytes(mDest.toPath()));
+        assertEquals(2, mRanges.size());
+        assertEquals("null", mRanges.get(0));
+        assertEquals("bytes=" + CONTENT_SIZE / 2 + "-", mRanges.get(1));
+        assertNull(store.mCheckpoint);
+        assertFalse(RangeDownloader.getPartFile(mDest).exists());
+    }
+
+    @Test
+    public void restartWhenContentChanged() throws IOException {
+        MemoryStore store = new MemoryStore();
+        // 上次下载留下的部分内容
+        Files.write(RangeDownloader.getPartFile(mDest).toPath(), new byte[100]);
+        String url = url();
+        store.save(new RangeDownloader.Checkpoint(url, "\"v0\"", CONTENT_SIZE));
+
+        createDownloader().download(url, mDest, store);
+
+        assertArrayEquals(mContent, Files.readAllBytes(mDest.toPath()));
+        assertEquals("bytes=100-", mRanges.get(0));
+    }
+
+    @Test
+    public void restartWithoutValidator() throws IOException {
+        mDropCount = 1;
+        mSendValidator = false;
+        MemoryStore store = new MemoryStore();
+        createDownloader().download(url(), mDest, store);
+
+        // 无法确认内容未变化, 中断后从头下载
+        assertArrayEquals(mContent, Files.readAllBytes(mDest.toPath()));
+        assertEquals(2, mRanges.size());
+        assertEquals("null", mRanges.get(0));
+        assertEquals("null", mRanges.get(1));
+    }
+
+    private static class MemoryStore implements RangeDownloader.CheckpointStore {
+        private RangeDownloader.Checkpoint mCheckpoint;
+
+        @Override
+        public RangeDownloader.Checkpoint load() {
+            return mCheckpoint;
+        }
+
+        @Override
+        public void save(RangeDownloader.Checkpoint checkpoint) {
+            mCheckpoint = checkpoint;
+        }
+
+        @Override
+        public void clear() {
+            mCheckpoint = null;
+        }
+    }
+}
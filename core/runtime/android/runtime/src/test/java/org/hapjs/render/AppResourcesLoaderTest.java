@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2022, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.hapjs.common.executors.Executor;
+import org.hapjs.common.executors.Executors;
+import org.hapjs.common.executors.Future;
+import org.junit.After;
+import org.junit.Test;
+
+public class AppResourcesLoaderTest {
+    private static final String PKG = "org.hapjs.test";
+    private static final String PATH = "page/index.js";
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @After
+    public void tearDown() {
+        AppResourcesLoader.clearPreloadedResources(PKG);
+    }
+
+    @Test
+    public void prefetchHit() {
+        int generation = AppResourcesLoader.getPrefetchGeneration(PKG);
+        AppResourcesLoader.prefetch(PKG, generation, PATH, () -> "prefetched");
+
+        assertEquals("prefetched", AppResourcesLoader.getPageResource(PKG, PATH, () -> "loaded"));
+    }
+
+    @Test
+    public void clearDropsInFlightPrefetch() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        int generation = AppResourcesLoader.getPrefetchGeneration(PKG);
+        AppResourcesLoader.prefetch(PKG, generation, PATH, () -> {
+            started.countDown();
+            release.await();
+            return "stale";
+        }, new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                Executors.io().execute(runnable);
+            }
+
+            // 预取任务执行完 finally 中的缓存写入后才通知
+            @Override
+            public <T> Future<T> submit(Callable<T> task) {
+                return Executors.io().submit(() -> {
+                    try {
+                        return task.call();
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        AppResourcesLoader.clearPreloadedResources(PKG);
+        release.countDown();
+        assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertEquals("fresh", AppResourcesLoader.getPageResource(PKG, PATH, () -> "fresh"));
+        // 清除之前的代数发起的预取直接忽略
+        AppResourcesLoader.prefetch(PKG, generation, "page/other.js", () -> "stale");
+        assertEquals("fresh",
+                AppResourcesLoader.getPageResource(PKG, "page/other.js", () -> "fresh"));
+    }
+
+    @Test
+    public void waitingReaderLoadsAfterClear() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int generation = AppResourcesLoader.getPrefetchGeneration(PKG);
+        AppResourcesLoader.prefetch(PKG, generation, PATH, () -> {
+            started.countDown();
+            release.await();
+            return "stale";
+        });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        AtomicReference<String> result = new AtomicReference<>();
+        Thread reader = new Thread(
+                () -> result.set(AppResourcesLoader.getPageResource(PKG, PATH, () -> "fresh")));
+        reader.start();
+        // 等待读取线程阻塞在预取任务上
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (reader.getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.yield();
+        }
+        AppResourcesLoader.clearPreloadedResources(PKG);
+        reader.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        release.countDown();
+
+        assertEquals("fresh", result.get());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.action;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hapjs.common.json.JSONArray;
+import org.hapjs.common.json.JSONObject;
+import org.hapjs.render.RenderAction;
+import org.hapjs.render.VDomChangeAction;
+import org.json.JSONException;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * 对比 {@link CallNativeDecoder} 与先构建 {@link JSONArray} 再解析的方式, 使用列表页首次渲染的数据.
+ * 耗时较长, 不在单元测试中运行, 需要时去掉 {@link Ignore} 手动执行
+ */
+@Ignore("benchmark")
+public class CallNativeDecoderBenchmark {
+    private static final int LIST_ITEM_COUNT = 500;
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int ROUNDS = 20;
+
+    /**
+     * 模拟列表页的 createBody: 每个 list-item 包含图片, 标题和描述, 带 class, 内联样式和事件
+     */
+    private static String buildListPagePayload() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("[{\"module\":\"dom\",\"method\":\"createBody\",\"args\":[{")
+                .append("\"ref\":\"-1\",\"type\":\"div\",\"attr\":{},\"prop\":{\"_styleObjectId\":1},")
+                .append("\"styleObject\":{\".item\":{\"flexDirection\":\"row\",\"height\":\"200px\"},")
+                .append("\".title\":{\"fontSize\":\"32px\",\"color\":\"#333333\"}},")
+                .append("\"children\":[{\"ref\":\"2\",\"type\":\"list\",")
+                .append("\"attr\":{\"class\":\"list\"},\"prop\":{\"_styleObjectId\":1},")
+                .append("\"event\":[\"scrollbottom\"],\"children\":[");
+        int ref = 3;
+        for (int i = 0; i < LIST_ITEM_COUNT; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"ref\":\"").append(ref++).append("\",\"type\":\"list-item\",")
+                    .append("\"attr\":{\"type\":\"item\",\"class\":\"item\"},")
+                    .append("\"prop\":{\"_styleObjectId\":1},")
+                    .append("\"inlineStyle\":{\"marginTop\":\"").append(i % 8).append("px\"},")
+                    .append("\"event\":[\"click\",\"longpress\"],\"children\":[")
+                    .append("{\"ref\":\"").append(ref++).append("\",\"type\":\"image\",")
+                    .append("\"attr\":{\"src\":\"https://example.com/img/").append(i)
+                    .append(".png\",\"alt\":\"blank\"},\"prop\":{\"_styleObjectId\":1}},")
+                    .append("{\"ref\":\"").append(ref++).append("\",\"type\":\"text\",")
+                    .append("\"attr\":{\"class\":\"title\",\"value\":\"标题 ").append(i)
+                    .append("\"},\"prop\":{\"_styleObjectId\":1}},")
+                    .append("{\"ref\":\"").append(ref++).append("\",\"type\":\"text\",")
+                    .append("\"attr\":{\"value\":\"描述 \\\"").append(i)
+                    .append("\\\" 的内容, 包含转义字符\\n\",\"lines\":2},")
+                    .append("\"prop\":{\"_styleObjectId\":1}}]}");
+        }
+        builder.append("]}]}]},{\"module\":\"dom\",\"method\":\"createFinish\",\"args\":[]}]");
+        return builder.toString();
+    }
+
+    private static List<RenderAction> decodeWithJSONArray(String payload) throws JSONException {
+        List<RenderAction> actions = new ArrayList<>();
+        RenderActionDocument document = new RenderActionDocumentMock(1);
+        JSONArray args = new JSONArray(payload);
+        for (int i = 0; i < args.length(); i++) {
+            JSONObject param = args.getJSONObject(i);
+            actions.add(
+                    RenderActionParser.objToChangeActions(
+                            1,
+                            param.getString("method"),
+                            param.getJSONArray("args"),
+                            document,
+                            "org.hapjs.benchmark"));
+        }
+        return actions;
+    }
+
+    private static List<RenderAction> decodeWithReader(String payload) throws JSONException {
+        List<RenderAction> actions = new ArrayList<>();
+        RenderActionDocument document = new RenderActionDocumentMock(1);
+        CallNativeDecoder.decode(1, payload, document, "org.hapjs.benchmark", actions::add);
+        return actions;
+    }
+
+    @Test
+    public void decodeListPage() throws JSONException {
+        String payload = buildListPagePayload();
+
+        List<RenderAction> expected = decodeWithJSONArray(payload);
+        List<RenderAction> actual = decodeWithReader(payload);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            CallNativeDecoderTest.assertSameAction(
+                    (VDomChangeAction) expected.get(i), (VDomChangeAction) actual.get(i));
+        }
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            decodeWithJSONArray(payload);
+            decodeWithReader(payload);
+        }
+        long jsonArrayNs = 0;
+        long readerNs = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            decodeWithJSONArray(payload);
+            jsonArrayNs += System.nanoTime() - start;
+            start = System.nanoTime();
+            decodeWithReader(payload);
+            readerNs += System.nanoTime() - start;
+        }
+        System.out.println("payload chars: " + payload.length()
+                + ", JSONArray: " + jsonArrayNs / ROUNDS / 1000 + "us"
+                + ", CallNativeDecoder: " + readerNs / ROUNDS / 1000 + "us");
+    }
+}
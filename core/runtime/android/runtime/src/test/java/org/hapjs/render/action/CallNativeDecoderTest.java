@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.action;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.hapjs.common.json.JSONArray;
+import org.hapjs.common.json.JSONObject;
+import org.hapjs.render.ComponentAction;
+import org.hapjs.render.RenderAction;
+import org.hapjs.render.VDomChangeAction;
+import org.hapjs.render.css.CSSStyleSheet;
+import org.hapjs.render.css.value.CSSValues;
+import org.json.JSONException;
+import org.junit.Test;
+
+/**
+ * {@link CallNativeDecoder} 的解析结果与先构建 {@link JSONArray} 再解析的结果一致
+ */
+public class CallNativeDecoderTest {
+    private static final String PKG = "org.hapjs.test";
+
+    private static final String CREATE_BODY =
+            "{\"module\":\"dom\",\"method\":\"createBody\",\"args\":[{"
+                    + "\"ref\":\"-1\",\"type\":\"div\",\"attr\":{},\"prop\":{\"_styleObjectId\":1},"
+                    + "\"styleObject\":{\".item\":{\"flexDirection\":\"row\",\"height\":\"200px\"}},"
+                    + "\"children\":[{\"ref\":\"2\",\"type\":\"text\","
+                    + "\"attr\":{\"class\":\"item\",\"value\":\"a\\\"b\"},"
+                    + "\"prop\":{\"_styleObjectId\":1},\"event\":[\"click\"]}]}]}";
+
+    private static List<RenderAction> decodeWithJSONArray(String payload) throws JSONException {
+        List<RenderAction> actions = new ArrayList<>();
+        RenderActionDocument document = new RenderActionDocumentMock(1);
+        JSONArray args = new JSONArray(payload);
+        for (int i = 0; i < args.length(); i++) {
+            JSONObject param = args.getJSONObject(i);
+            if (param.has("component")) {
+                actions.add(
+                        RenderActionParser.objToComponentAction(
+                                param.getString("component"),
+                                param.getString("ref"),
+                                param.getString("method"),
+                                param.getJSONArray("args")));
+            } else {
+                actions.add(
+                        RenderActionParser.objToChangeActions(
+                                1,
+                                param.getString("method"),
+                                param.getJSONArray("args"),
+                                document,
+                                PKG));
+            }
+        }
+        return actions;
+    }
+
+    private static List<RenderAction> decodeWithReader(String payload) throws JSONException {
+        List<RenderAction> actions = new ArrayList<>();
+        RenderActionDocument document = new RenderActionDocumentMock(1);
+        CallNativeDecoder.decode(1, payload, document, PKG, actions::add);
+        return actions;
+    }
+
+    private static String payload(String... calls) {
+        return "[" + String.join(",", calls) + "]";
+    }
+
+    private static void assertSameDecoding(String payload) throws JSONException {
+        List<RenderAction> expected = decodeWithJSONArray(payload);
+        List<RenderAction> actual = decodeWithReader(payload);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i) instanceof ComponentAction) {
+                assertSameAction((ComponentAction) expected.get(i), (ComponentAction) actual.get(i));
+            } else {
+                assertSameAction(
+                        (VDomChangeAction) expected.get(i), (VDomChangeAction) actual.get(i));
+            }
+        }
+    }
+
+    static void assertSameAction(VDomChangeAction expected, VDomChangeAction actual) {
+        assertEquals(expected.action, actual.action);
+        assertEquals(expected.vId, actual.vId);
+        assertEquals(expected.parentVId, actual.parentVId);
+        assertEquals(expected.index, actual.index);
+        assertEquals(expected.tagName, actual.tagName);
+        assertSameValues(expected.attributes, actual.attributes);
+        assertEquals(expected.events, actual.events);
+        assertEquals(expected.hooks, actual.hooks);
+        assertEquals(expected.styles.keySet(), actual.styles.keySet());
+        for (Map.Entry<String, CSSValues> entry : expected.styles.entrySet()) {
+            CSSValues values = actual.styles.get(entry.getKey());
+            assertEquals(
+                    String.valueOf(entry.getValue().get("normal")),
+                    String.valueOf(values.get("normal")));
+        }
+        assertEquals(expected.children.size(), actual.children.size());
+        for (int i = 0; i < expected.children.size(); i++) {
+            assertSameAction(expected.children.get(i), actual.children.get(i));
+        }
+    }
+
+    private static void assertSameAction(ComponentAction expected, ComponentAction actual) {
+        assertEquals(expected.component, actual.component);
+        assertEquals(expected.ref, actual.ref);
+        assertEquals(expected.method, actual.method);
+        assertSameValues(expected.args, actual.args);
+    }
+
+    /**
+     * org.json 的对象没有实现 equals, 按字符串比较
+     */
+    private static void assertSameValues(Map<String, Object> expected, Map<String, Object> actual) {
+        if (expected == null || actual == null) {
+            assertSame(expected, actual);
+            return;
+        }
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            assertEquals(String.valueOf(entry.getValue()), String.valueOf(actual.get(entry.getKey())));
+        }
+    }
+
+    @Test
+    public void createBody() throws JSONException {
+        assertSameDecoding(payload(CREATE_BODY));
+    }
+
+    @Test
+    public void addElement() throws JSONException {
+        // args 中的 element 在 index 之前, 节点字段的顺序与 createBody 不同
+        assertSameDecoding(
+                payload(
+                        CREATE_BODY,
+                        "{\"module\":\"dom\",\"method\":\"addElement\",\"args\":[-1,{"
+                                + "\"children\":[{\"type\":\"span\",\"ref\":\"4\",\"attr\":{}}],"
+                                + "\"prop\":{\"_styleObjectId\":1},\"type\":\"div\",\"ref\":\"3\","
+                                + "\"attr\":{\"class\":\"item\",\"show\":true,\"data\":{\"k\":[1,2]}},"
+                                + "\"inlineStyle\":{\"marginTop\":\"8px\"},"
+                                + "\"event\":[\"click\",\"longpress\"],\"hooks\":[\"appear\"]},1]}"));
+    }
+
+    @Test
+    public void updateStyle() throws JSONException {
+        assertSameDecoding(
+                payload(
+                        CREATE_BODY,
+                        "{\"module\":\"dom\",\"method\":\"updateStyle\",\"args\":[2,"
+                                + "{\"style\":{\"width\":\"100px\",\"opacity\":0.5}}]}"));
+    }
+
+    @Test
+    public void updateStyles() throws JSONException {
+        assertSameDecoding(
+                payload(
+                        CREATE_BODY,
+                        "{\"module\":\"dom\",\"method\":\"updateStyles\",\"args\":[2,"
+                                + "{\"style\":{\"color\":\"#ff0000\"},\"attr\":{\"class\":\"\"}}]}"));
+    }
+
+    @Test
+    public void updateAttrs() throws JSONException {
+        assertSameDecoding(
+                payload(
+                        CREATE_BODY,
+                        "{\"module\":\"dom\",\"method\":\"updateAttrs\",\"args\":[2,"
+                                + "{\"attr\":{\"value\":\"\\u6807\\u9898\",\"lines\":2,"
+                                + "\"disabled\":false,\"extra\":null}}]}"));
+    }
+
+    @Test
+    public void addAndRemoveEvent() throws JSONException {
+        assertSameDecoding(
+                payload(
+                        CREATE_BODY,
+                        "{\"module\":\"dom\",\"method\":\"addEvent\",\"args\":[2,\"touchstart\"]}",
+                        "{\"module\":\"dom\",\"method\":\"removeEvent\",\"args\":[2,\"click\"]}"));
+    }
+
+    @Test
+    public void componentAction() throws JSONException {
+        assertSameDecoding(
+                payload(
+                        "{\"method\":\"scrollTo\",\"component\":\"list\",\"ref\":\"2\","
+                                + "\"args\":[{\"index\":3,\"smooth\":true,\"offset\":{\"y\":1.5}}]}",
+                        "{\"component\":\"video\",\"ref\":\"5\",\"method\":\"pause\",\"args\":[]}"));
+    }
+
+    @Test
+    public void styleObjectSkippedWhenCached() throws JSONException {
+        RenderActionDocument document = new RenderActionDocumentMock(1);
+        List<RenderAction> actions = new ArrayList<>();
+        CallNativeDecoder.decode(1, payload(CREATE_BODY), document, PKG, actions::add);
+        CSSStyleSheet styleSheet = document.findStyleSheetById(1);
+
+        // 样式表已缓存, 不是对象的 styleObject 不会被解析
+        CallNativeDecoder.decode(
+                1,
+                payload(
+                        "{\"module\":\"dom\",\"method\":\"addElement\",\"args\":[-1,{"
+                                + "\"ref\":\"3\",\"type\":\"div\",\"styleObject\":\"cached\","
+                                + "\"prop\":{\"_styleObjectId\":1}},0]}"),
+                document,
+                PKG,
+                actions::add);
+        assertEquals(2, actions.size());
+        assertSame(styleSheet, document.findStyleSheetById(1));
+    }
+}
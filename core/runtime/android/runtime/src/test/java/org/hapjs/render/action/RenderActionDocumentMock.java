@@ -22,6 +22,18 @@ public class RenderActionDocumentMock extends RenderActionDocument {
         return node;
     }
 
+    @Override
+    synchronized RenderActionNode findOrCreateNode(int id, String tagName) {
+        RenderActionNode node = mNodes.get(id);
+        if (node == null) {
+            return createNode(id, tagName);
+        }
+        if (tagName != null && !tagName.isEmpty()) {
+            node.setTagName(tagName);
+        }
+        return node;
+    }
+
     @Override
     RenderActionNode findNodeById(int id) {
         return mNodes.get(id);
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.action;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.hapjs.render.ComponentAction;
+import org.hapjs.render.VDomChangeAction;
+import org.hapjs.render.css.value.CSSValues;
+import org.junit.Test;
+
+public class StyleActionCoalescerTest {
+
+    private static VDomChangeAction action(int type, int vId, String... styles) {
+        VDomChangeAction action = new VDomChangeAction();
+        action.action = type;
+        action.vId = vId;
+        for (String style : styles) {
+            action.styles.put(style, new Value(style + vId));
+        }
+        return action;
+    }
+
+    private static List<String> stylesOf(VDomChangeAction action) {
+        return new ArrayList<>(action.styles.keySet());
+    }
+
+    @Test
+    public void mergeUpdatesOfSameNode() {
+        StyleActionCoalescer coalescer = new StyleActionCoalescer();
+        VDomChangeAction first = action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "width", "color");
+        assertFalse(coalescer.coalesce(first));
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 2, "width")));
+
+        VDomChangeAction second = action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "width");
+        second.attributes.put("class", "a");
+        assertTrue(coalescer.coalesce(second));
+        // 后更新的样式排在后面
+        assertEquals(Arrays.asList("color", "width"), stylesOf(first));
+        assertEquals("a", first.attributes.get("class"));
+    }
+
+    @Test
+    public void stopAtTreeChange() {
+        StyleActionCoalescer coalescer = new StyleActionCoalescer();
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "width")));
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_ADD, 2)));
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "color")));
+        assertTrue(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "top")));
+    }
+
+    @Test
+    public void stopAtOtherUpdateOfSameNode() {
+        StyleActionCoalescer coalescer = new StyleActionCoalescer();
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "width")));
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 2, "width")));
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_ATTRS, 1)));
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "color")));
+        // 其他节点不受影响
+        assertTrue(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 2, "color")));
+    }
+
+    @Test
+    public void stopAtActionWithChildren() {
+        StyleActionCoalescer coalescer = new StyleActionCoalescer();
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "width")));
+        VDomChangeAction withChildren = action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "color");
+        withChildren.children.add(action(VDomChangeAction.ACTION_UPDATE_STYLE, 3, "color"));
+        assertFalse(coalescer.coalesce(withChildren));
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "top")));
+    }
+
+    @Test
+    public void stopAtNonVDomAction() {
+        StyleActionCoalescer coalescer = new StyleActionCoalescer();
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "width")));
+        assertFalse(coalescer.coalesce(new ComponentAction()));
+        assertFalse(coalescer.coalesce(action(VDomChangeAction.ACTION_UPDATE_STYLE, 1, "color")));
+    }
+
+    private static class Value implements CSSValues {
+        private final Object mValue;
+
+        Value(Object value) {
+            mValue = value;
+        }
+
+        @Override
+        public Object get(String state) {
+            return mValue;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CSSStyleSheetCacheTest {
+    private static final String CSS =
+            "{\"list\": [{"
+                    + "\"#id1\": {\"ca1\": \"id\"},"
+                    + "\".class1\": {\"ca1\": \"class\", \"ca2\": 10},"
+                    + "\".a .b\": {\"ca1\": \"descendant\"},"
+                    + "\".a > text\": {\"ca1\": \"child\"},"
+                    + "\"div\": {\"ca1\": \"tag\", \"ca1:active\": \"tag-active\"}"
+                    + "}]}";
+
+    private File mCacheFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mCacheFile = File.createTempFile("style", ".bin");
+        mCacheFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        mCacheFile.delete();
+    }
+
+    private static CSSStyleRule[] rulesOf(List<CSSStyleSheet> styleSheets) {
+        assertEquals(1, styleSheets.size());
+        CSSRule[] rules = styleSheets.get(0).getCSSRuleList().getCssRules();
+        CSSStyleRule[] result = new CSSStyleRule[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            result[i] = (CSSStyleRule) rules[i];
+        }
+        return result;
+    }
+
+    @Test
+    public void writeAndRead() throws JSONException {
+        CSSStyleRule[] parsed = rulesOf(CSSStyleSheetCache.parseStyleSheets(mCacheFile, CSS));
+        assertTrue(mCacheFile.exists());
+
+        List<CSSStyleSheet> cached =
+                CSSStyleSheetCache.read(mCacheFile, CSSStyleSheetCache.digest(CSS));
+        assertNotNull(cached);
+        CSSStyleRule[] read = rulesOf(cached);
+        assertEquals(parsed.length, read.length);
+        for (int i = 0; i < parsed.length; i++) {
+            assertEquals(parsed[i].getSelectorText(), read[i].getSelectorText());
+            assertEquals(parsed[i].getSelectors().length, read[i].getSelectors().length);
+            CSSStyleDeclaration expected = parsed[i].getDeclaration();
+            CSSStyleDeclaration actual = read[i].getDeclaration();
+            assertEquals(expected.getLength(), actual.getLength());
+            for (String key : expected) {
+                assertEquals(expected.getPropertyValue(key), actual.getPropertyValue(key));
+            }
+        }
+    }
+
+    @Test
+    public void rebuildStaleEntry() throws JSONException {
+        // "Aa" 和 "BB" 的 hashCode 相同, 两份 css 的长度和 hashCode 都一样
+        String css = "{\"list\": [{\".Aa\": {\"ca1\": \"old\"}}]}";
+        String changed = "{\"list\": [{\".BB\": {\"ca1\": \"old\"}}]}";
+        assertEquals(css.hashCode(), changed.hashCode());
+
+        CSSStyleSheetCache.parseStyleSheets(mCacheFile, css);
+        assertNull(CSSStyleSheetCache.read(mCacheFile, CSSStyleSheetCache.digest(changed)));
+
+        CSSStyleRule[] rules = rulesOf(CSSStyleSheetCache.parseStyleSheets(mCacheFile, changed));
+        assertEquals(".BB", rules[0].getSelectorText());
+        // 缓存已更新为新的内容
+        assertNotNull(CSSStyleSheetCache.read(mCacheFile, CSSStyleSheetCache.digest(changed)));
+        assertNull(CSSStyleSheetCache.read(mCacheFile, CSSStyleSheetCache.digest(css)));
+    }
+}
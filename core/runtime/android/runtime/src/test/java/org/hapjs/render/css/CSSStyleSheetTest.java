@@ -90,6 +90,47 @@ public class CSSStyleSheetTest {
         return dec;
     }
 
+    @Test
+    public void indexedRuleOrder() throws JSONException {
+        String cssRule =
+                "{\n"
+                        + "  '.class-test1, div': {\n"
+                        + "    'ca1': 'ca1-class-1',\n"
+                        + "    'ca2': 'ca2-class-1'\n"
+                        + "  },\n"
+                        + "  '.class-test2': {\n"
+                        + "    'ca1': 'ca1-class-2'\n"
+                        + "  },\n"
+                        + "  'text .class-test1': {\n"
+                        + "    'ca2': 'ca2-desc-class-1'\n"
+                        + "  }\n"
+                        + "}";
+
+        RenderActionDocumentMock document = new RenderActionDocumentMock(0);
+        document.registerStyleSheet(
+                1, CSSParser.parseCSSStyleSheet(new org.hapjs.common.json.JSONObject(cssRule)));
+
+        RenderActionNode node = document.createNode(1, "div");
+        node.setStyleObjectId(1);
+        node.setParent(document);
+
+        // 同一条规则同时命中 class 和 tag 时只计算一次
+        node.setCSSClass("class-test1");
+        MatchedCSSRuleList matched = node.calMatchedStyles();
+        assertEquals(matched.length(), 1);
+
+        // 分数相同时, 后定义的规则优先, 与 class 的书写顺序无关
+        node.setCSSClass("class-test2 class-test1");
+        CSSStyleDeclaration dec = computeCssStyleDeclaration(node);
+        assertEquals(dec.getPropertyValue("ca1"), "ca1-class-2");
+        assertEquals(dec.getPropertyValue("ca2"), "ca2-class-1");
+
+        // 祖先不满足时, 候选规则不会命中
+        node.setCSSClass("class-test1");
+        dec = computeCssStyleDeclaration(node);
+        assertEquals(dec.getPropertyValue("ca2"), "ca2-class-1");
+    }
+
     @Test
     public void descCSSTest() throws JSONException {
         String cssRule =
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.css;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * 与 {@link OrderedConcurrentHashMap} 对比构建, 重置和读取 10 ~ 200 条样式所需的时间.
+ * 耗时较长, 不在单元测试中运行, 需要时去掉 {@link Ignore} 手动执行
+ */
+@Ignore("benchmark")
+public class OrderedPropertyMapBenchmark {
+    private static final int[] SIZES = {10, 50, 100, 200};
+    private static final int WARM_UP_ROUNDS = 200;
+    private static final int ROUNDS = 2000;
+
+    private static final OrderedPropertyMap.ValueMapper<Object> TO_UNDEFINED =
+            new OrderedPropertyMap.ValueMapper<Object>() {
+                @Override
+                public Object map(Object value) {
+                    return CSSProperty.UNDEFINED;
+                }
+            };
+
+    private static String[] createKeys(int size) {
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "property" + i;
+        }
+        return keys;
+    }
+
+    /**
+     * 与 CSSStyleDeclaration 的用法一致: 逐条添加, 全部置为 UNDEFINED, 再次添加后按顺序读取
+     */
+    private static int runConcurrentMap(String[] keys, int rounds) {
+        int result = 0;
+        for (int r = 0; r < rounds; r++) {
+            OrderedConcurrentHashMap<String, Object> map = new OrderedConcurrentHashMap<>();
+            for (String key : keys) {
+                map.add(key, key);
+            }
+            for (String key : map) {
+                map.add(key, CSSProperty.UNDEFINED);
+            }
+            for (String key : keys) {
+                map.add(key, key);
+            }
+            for (String key : map) {
+                result += map.get(key) == key ? 1 : 0;
+            }
+        }
+        return result;
+    }
+
+    private static int runPropertyMap(String[] keys, int rounds) {
+        int result = 0;
+        for (int r = 0; r < rounds; r++) {
+            OrderedPropertyMap<String, Object> map = new OrderedPropertyMap<>();
+            for (String key : keys) {
+                map.add(key, key);
+            }
+            map.replaceAllValues(TO_UNDEFINED);
+            for (String key : keys) {
+                map.add(key, key);
+            }
+            for (String key : map) {
+                result += map.get(key) == key ? 1 : 0;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void buildAndReset() {
+        for (int size : SIZES) {
+            String[] keys = createKeys(size);
+            runConcurrentMap(keys, WARM_UP_ROUNDS);
+            runPropertyMap(keys, WARM_UP_ROUNDS);
+
+            long start = System.nanoTime();
+            int concurrentResult = runConcurrentMap(keys, ROUNDS);
+            long concurrentNs = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int propertyMapResult = runPropertyMap(keys, ROUNDS);
+            long propertyMapNs = System.nanoTime() - start;
+
+            assertEquals(concurrentResult, propertyMapResult);
+            System.out.println("properties: " + size
+                    + ", OrderedConcurrentHashMap: " + concurrentNs / ROUNDS + "ns/op"
+                    + ", OrderedPropertyMap: " + propertyMapNs / ROUNDS + "ns/op");
+        }
+    }
+}
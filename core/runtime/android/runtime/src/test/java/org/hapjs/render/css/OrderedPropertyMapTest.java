@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+
+public class OrderedPropertyMapTest {
+
+    private static List<String> keysOf(Iterable<String> map) {
+        List<String> keys = new ArrayList<>();
+        for (String key : map) {
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    @Test
+    public void keepInsertionOrder() {
+        OrderedPropertyMap<String, Object> map = new OrderedPropertyMap<>();
+        OrderedConcurrentHashMap<String, Object> expected = new OrderedConcurrentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            String key = "key" + (i % 37);
+            map.add(key, i);
+            expected.add(key, i);
+        }
+        for (int i = 0; i < 37; i += 3) {
+            map.remove("key" + i);
+            expected.remove("key" + i);
+        }
+        map.add("key0", "again");
+        expected.add("key0", "again");
+
+        assertEquals(keysOf(expected), keysOf(map));
+        for (String key : expected) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertNull(map.get("key3"));
+        assertFalse(map.containsKey("key3"));
+        assertTrue(map.containsKey("key0"));
+    }
+
+    @Test
+    public void modifyWhileIterating() {
+        OrderedPropertyMap<String, Object> map = new OrderedPropertyMap<>();
+        for (int i = 0; i < 8; i++) {
+            map.add("key" + i, i);
+        }
+        Iterator<String> iterator = map.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            if (key.endsWith("1") || key.endsWith("5")) {
+                iterator.remove();
+            } else {
+                map.add(key, "replaced");
+            }
+        }
+        assertEquals(6, map.size());
+        for (String key : map) {
+            assertEquals("replaced", map.get(key));
+        }
+
+        map.replaceAllValues(
+                new OrderedPropertyMap.ValueMapper<Object>() {
+                    @Override
+                    public Object map(Object value) {
+                        return CSSProperty.UNDEFINED;
+                    }
+                });
+        assertEquals(CSSProperty.UNDEFINED, map.get("key0"));
+        assertEquals(6, map.size());
+    }
+
+    @Test
+    public void concurrentReadWrite() throws Exception {
+        final OrderedPropertyMap<String, Object> map = new OrderedPropertyMap<>();
+        final Throwable[] error = new Throwable[1];
+        Thread writer =
+                new Thread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                for (int i = 0; i < 20000; i++) {
+                                    String key = "key" + (i % 300);
+                                    if (i % 7 == 0) {
+                                        map.remove(key);
+                                    } else {
+                                        map.add(key, i);
+                                    }
+                                }
+                            }
+                        });
+        Thread reader =
+                new Thread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    for (int i = 0; i < 2000; i++) {
+                                        for (String key : map) {
+                                            assertTrue(key.startsWith("key"));
+                                            map.get(key);
+                                        }
+                                    }
+                                } catch (Throwable t) {
+                                    error[0] = t;
+                                }
+                            }
+                        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        if (error[0] != null) {
+            throw new AssertionError(error[0]);
+        }
+        assertEquals(keysOf(map).size(), map.size());
+    }
+}
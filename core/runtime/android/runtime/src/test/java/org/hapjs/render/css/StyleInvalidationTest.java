@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.render.css;
+
+import static org.junit.Assert.assertEquals;
+
+import org.hapjs.render.action.RenderActionDocumentMock;
+import org.hapjs.render.action.RenderActionNode;
+import org.json.JSONException;
+import org.junit.Test;
+
+public class StyleInvalidationTest {
+
+    private static final String CSS_RULE =
+            "{\n"
+                    + "  '.a': {\n"
+                    + "    'ca1': 'a'\n"
+                    + "  },\n"
+                    + "  '.b .c': {\n"
+                    + "    'ca1': 'b-c'\n"
+                    + "  },\n"
+                    + "  '#x': {\n"
+                    + "    'ca1': 'x'\n"
+                    + "  }\n"
+                    + "}";
+
+    private static RenderActionNode createNode(RenderActionDocumentMock document)
+            throws JSONException {
+        document.registerStyleSheet(
+                1, CSSParser.parseCSSStyleSheet(new org.hapjs.common.json.JSONObject(CSS_RULE)));
+        RenderActionNode node = document.createNode(1, "div");
+        node.setStyleObjectId(1);
+        node.setParent(document);
+        return node;
+    }
+
+    @Test
+    public void classChange() throws JSONException {
+        RenderActionNode node = createNode(new RenderActionDocumentMock(0));
+
+        // 没有选择器使用 .d
+        node.setCSSClass("a d");
+        assertEquals(StyleInvalidation.NONE,
+                StyleInvalidation.compute(node, null, new String[] {"a"}));
+
+        // .c 只出现在最右侧
+        node.setCSSClass("c");
+        assertEquals(StyleInvalidation.SELF,
+                StyleInvalidation.compute(node, null, new String[] {"x"}));
+
+        // .b 只出现在祖先选择器中
+        node.setCSSClass("b");
+        assertEquals(StyleInvalidation.DESCENDANTS,
+                StyleInvalidation.compute(node, null, new String[] {"x"}));
+
+        node.setCSSClass("b c");
+        assertEquals(StyleInvalidation.ALL,
+                StyleInvalidation.compute(node, null, new String[] {"x"}));
+
+        // 删除的 class 同样需要计算
+        node.setCSSClass("");
+        assertEquals(StyleInvalidation.SELF,
+                StyleInvalidation.compute(node, null, new String[] {"c"}));
+    }
+
+    @Test
+    public void idChange() throws JSONException {
+        RenderActionNode node = createNode(new RenderActionDocumentMock(0));
+        node.setCSSClass("a");
+        String[] classes = node.getCSSClass();
+
+        node.setCSSId("x");
+        assertEquals(StyleInvalidation.SELF, StyleInvalidation.compute(node, "", classes));
+
+        node.setCSSId("y");
+        assertEquals(StyleInvalidation.SELF, StyleInvalidation.compute(node, "x", classes));
+
+        node.setCSSId("z");
+        assertEquals(StyleInvalidation.NONE, StyleInvalidation.compute(node, "y", classes));
+    }
+
+    @Test
+    public void unknownStyleSheet() {
+        RenderActionDocumentMock document = new RenderActionDocumentMock(0);
+        RenderActionNode node = document.createNode(1, "div");
+        node.setParent(document);
+        node.setCSSClass("d");
+        // 样式表还未确定时重新计算所有样式
+        assertEquals(StyleInvalidation.ALL,
+                StyleInvalidation.compute(node, null, new String[] {"a"}));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.widgets.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Color;
+import android.text.Layout;
+import android.view.View;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.facebook.fbui.textlayoutbuilder.TextLayoutBuilder;
+import org.hapjs.widgets.view.text.TextSpan;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class TextLayoutCacheTest {
+    private static final int WIDTH_SPEC =
+            View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.AT_MOST);
+
+    private TextLayoutCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = TextLayoutCache.getInstance();
+        mCache.clear();
+    }
+
+    private static TextLayoutBuilder createBuilder() {
+        return new TextLayoutBuilder()
+                .setTextSize(30)
+                .setTextColor(Color.BLACK)
+                .setMaxLines(3);
+    }
+
+    private static TextLayoutCache.Key createKey(String text, TextLayoutBuilder builder) {
+        return new TextLayoutCache.Key(text, new TextSpan(), builder, Color.BLACK)
+                .withWidth(WIDTH_SPEC);
+    }
+
+    @Test
+    public void builderOptionsInKey() {
+        String text = "line one line one line one line one line one line one line one";
+        TextLayoutBuilder builder = createBuilder().setTextSpacingExtra(12);
+        TextLayoutCache.Key key = createKey(text, builder);
+        assertNotEquals(createKey(text, createBuilder()), key);
+        assertEquals(createKey(text, createBuilder().setTextSpacingExtra(12)), key);
+
+        // 与组件自身的 builder 排版结果一致
+        Layout expected =
+                builder.setText(text)
+                        .setWidth(300, TextLayoutBuilder.MEASURE_MODE_AT_MOST)
+                        .setShouldCacheLayout(false)
+                        .build();
+        Layout actual = mCache.getOrBuild(key);
+        assertEquals(expected.getSpacingAdd(), actual.getSpacingAdd(), 0f);
+        assertEquals(expected.getLineCount(), actual.getLineCount());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        TextLayoutCache.Key sameKey = createKey(text, createBuilder().setTextSpacingExtra(12));
+        assertSame(actual, mCache.getOrBuild(sameKey));
+    }
+
+    @Test
+    public void trimMemory() {
+        for (int i = 0; i < 20; i++) {
+            mCache.getOrBuild(createKey("text " + i, createBuilder()));
+        }
+        assertEquals(20, mCache.size());
+
+        // 缓存远小于上限, 裁剪到一半时不会移除
+        mCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(20, mCache.size());
+
+        mCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(0, mCache.size());
+
+        mCache.getOrBuild(createKey("text", createBuilder()));
+        mCache.onLowMemory();
+        assertEquals(0, mCache.size());
+    }
+}
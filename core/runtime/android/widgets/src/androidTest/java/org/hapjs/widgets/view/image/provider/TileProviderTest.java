@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.widgets.view.image.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.HandlerThread;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hapjs.runtime.Runtime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class TileProviderTest {
+    private static final int SIZE = 512;
+
+    @Before
+    public void setUp() {
+        TileCache.getInstance().clear();
+    }
+
+    /**
+     * 左半边红色, 右半边蓝色
+     */
+    private static ByteArrayInputStream createImage() {
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setColor(Color.RED);
+        canvas.drawRect(0, 0, SIZE / 2, SIZE, paint);
+        paint.setColor(Color.BLUE);
+        canvas.drawRect(SIZE / 2, 0, SIZE, SIZE, paint);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        bitmap.recycle();
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static int countTempFiles() {
+        File[] files =
+                Runtime.getInstance().getContext().getCacheDir()
+                        .listFiles((dir, name) -> name.startsWith("tile"));
+        return files == null ? 0 : files.length;
+    }
+
+    @Test
+    public void decodeFromFileDescriptor() {
+        int tempFiles = countTempFiles();
+        TileProvider provider = new TileProvider();
+        provider.setInputStream(createImage());
+        assertEquals(SIZE, provider.getImageWidth());
+        assertEquals(SIZE, provider.getImageHeight());
+        // 临时文件打开后即删除
+        assertEquals(tempFiles, countTempFiles());
+
+        Tile.TileData left = provider.createTile(new Rect(0, 0, SIZE / 2, SIZE / 2), 1);
+        Tile.TileData right = provider.createTile(new Rect(SIZE / 2, 0, SIZE, SIZE / 2), 2);
+        assertNotNull(left);
+        assertNotNull(right);
+        assertEquals(Color.RED, left.getBitmap().getPixel(10, 10));
+        assertEquals(Color.BLUE, right.getBitmap().getPixel(10, 10));
+        left.recycle();
+        right.recycle();
+
+        provider.release();
+        assertNull(provider.createTile(new Rect(0, 0, SIZE / 2, SIZE / 2), 1));
+    }
+
+    @Test
+    public void cancelDropsDecodingTile() throws Exception {
+        CountDownLatch decoding = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        TileProvider provider =
+                new TileProvider() {
+                    @Override
+                    public Tile.TileData createTile(Rect region, int sampleSize) {
+                        decoding.countDown();
+                        try {
+                            cancelled.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return super.createTile(region, sampleSize);
+                    }
+                };
+        provider.setInputStream(createImage());
+
+        HandlerThread thread = new HandlerThread("tile-test");
+        thread.start();
+        AtomicInteger messages = new AtomicInteger();
+        Handler handler =
+                new Handler(thread.getLooper(), msg -> {
+                    messages.incrementAndGet();
+                    return true;
+                });
+        TileDecoder decoder = new TileDecoder(handler);
+        decoder.setTileProvider(provider);
+        Tile tile = Tile.obtain();
+        tile.updateTileParam(new Rect(0, 0, SIZE / 2, SIZE / 2), 1);
+        tile.updateDisplayParam(new RectF(0, 0, SIZE / 2, SIZE / 2));
+        decoder.put(tile);
+
+        Thread worker = new Thread(decoder::createOrRunDecoder);
+        worker.start();
+        assertTrue(decoding.await(5, TimeUnit.SECONDS));
+        decoder.cancel();
+        assertFalse(tile.isActive());
+        cancelled.countDown();
+        worker.join(5000);
+
+        // 等待 handler 处理完已发送的消息
+        CountDownLatch drained = new CountDownLatch(1);
+        handler.post(drained::countDown);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        assertEquals(0, messages.get());
+        assertFalse(decoder.isRunning());
+        thread.quit();
+    }
+
+    @Test
+    public void poolTrimMemory() {
+        TileCache cache = TileCache.getInstance();
+        Bitmap bitmap = Bitmap.createBitmap(256, 256, Bitmap.Config.ARGB_8888);
+        cache.put(bitmap);
+        cache.put(bitmap);
+        assertEquals(bitmap.getAllocationByteCount(), cache.getSizeInBytes());
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inSampleSize = 1;
+        options.outWidth = 256;
+        options.outHeight = 256;
+        assertSame(bitmap, cache.get(options));
+        assertEquals(0, cache.getSizeInBytes());
+
+        cache.put(bitmap);
+        cache.put(Bitmap.createBitmap(128, 128, Bitmap.Config.ARGB_8888));
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+        assertEquals(0, cache.getSizeInBytes());
+        assertTrue(bitmap.isRecycled());
+    }
+}
@@ -101,6 +101,12 @@ public class A extends Text {
         updateSpannable();
     }
 
+    @Override
+    protected boolean isLayoutCacheable() {
+        // 包含可点击的 span, 布局不能共享
+        return false;
+    }
+
     @Override
     public CharSequence applySpannable() {
         mTextSpan.setDirty(false);
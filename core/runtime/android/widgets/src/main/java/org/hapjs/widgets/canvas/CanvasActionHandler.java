@@ -5,6 +5,7 @@
 
 package org.hapjs.widgets.canvas;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -72,6 +73,16 @@ public class CanvasActionHandler {
         mActionDispatcher.dispatch(actionWorker);
     }
 
+    /**
+     * 处理二进制格式的绘制命令, 格式见 {@link CanvasRenderActionProcessor}
+     */
+    public void processAsyncActions(int pageId, int ref, ByteBuffer actionsCommand) {
+        final long id = makeId(pageId, ref);
+        mWaitChannel.doRun(id);
+        ActionWork actionWorker = new ActionWork(pageId, ref, actionsCommand, mActionProcessor);
+        mActionDispatcher.dispatch(actionWorker);
+    }
+
     public synchronized void addActionHandleCallback(OnActionHandleCallback callback) {
         mActionHandleCallbacks.add(callback);
     }
@@ -123,6 +134,7 @@ public class CanvasActionHandler {
         private int mCanvasId;
         private long mId;
         private String mCommand;
+        private ByteBuffer mBinaryCommand;
         private CanvasRenderActionProcessor mActionProcessor;
 
         ActionWork(
@@ -135,6 +147,16 @@ public class CanvasActionHandler {
             mActionProcessor = processor;
         }
 
+        ActionWork(
+                int pageId, int canvasId, ByteBuffer actionsCommand,
+                CanvasRenderActionProcessor processor) {
+            mPageId = pageId;
+            mCanvasId = canvasId;
+            mId = makeId(pageId, canvasId);
+            mBinaryCommand = actionsCommand;
+            mActionProcessor = processor;
+        }
+
         private long makeId(int pageId, int ref) {
             return (long) pageId << 32 | ref;
         }
@@ -146,7 +168,9 @@ public class CanvasActionHandler {
         @Override
         public void run() {
             ArrayList<Action> renderActions =
-                    mActionProcessor.process(mPageId, mCanvasId, mCommand);
+                    mBinaryCommand != null
+                            ? mActionProcessor.process(mPageId, mCanvasId, mBinaryCommand)
+                            : mActionProcessor.process(mPageId, mCanvasId, mCommand);
             if (renderActions != null && !renderActions.isEmpty()) {
                 ArrayList<CanvasRenderAction> actions = new ArrayList<>();
                 for (Action renderAction : renderActions) {
@@ -0,0 +1,568 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.widgets.canvas;
+
+import android.graphics.Bitmap;
+import android.text.TextUtils;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.hapjs.common.executors.Executors;
+import org.hapjs.widgets.canvas.canvas2d.CanvasContextRendering2D;
+
+/**
+ * 单个 canvas 的绘制命令列表.
+ *
+ * <p>命令追加为 O(1). 新增命令数超过上限时, 把已有命令绘制到 bitmap 中, 用一条绘制该 bitmap 的命令代替已有的绘制命令,
+ * 只保留重建当前状态所需的命令(属性, 合并后的变换矩阵, 未恢复的 save 和 clip, 当前路径), 避免动画场景下命令无限增长.
+ *
+ * <p>追加, 压缩在 canvas 命令处理线程中进行, 读取在 UI 线程中进行.
+ */
+public class CanvasDisplayList {
+    private static final String TAG = "CanvasDisplayList";
+
+    public static final int DEFAULT_COMMAND_LIMIT = 1000;
+
+    private static final String ACTION_SNAPSHOT = "snapshot";
+    private static final String ACTION_MATRIX = "matrix";
+
+    // 会在画布上产生像素的命令, 压缩后由 snapshot 代替
+    private static final Set<String> DRAW_ACTIONS =
+            new HashSet<>(
+                    Arrays.asList(
+                            ACTION_SNAPSHOT,
+                            "fill",
+                            "stroke",
+                            "fillRect",
+                            "strokeRect",
+                            "clearRect",
+                            "fillText",
+                            "strokeText",
+                            "drawImage",
+                            "putImageData"));
+    private static final Set<String> PATH_ACTIONS =
+            new HashSet<>(
+                    Arrays.asList(
+                            "moveTo",
+                            "lineTo",
+                            "arc",
+                            "arcTo",
+                            "bezierCurveTo",
+                            "quadraticCurveTo",
+                            "rect",
+                            "closePath"));
+    private static final Set<String> TRANSFORM_ACTIONS =
+            new HashSet<>(Arrays.asList("translate", "rotate", "scale", "transform"));
+
+    private final int mCommandLimit;
+    private ArrayList<CanvasRenderAction> mActions = new ArrayList<>();
+    // 最近一次压缩后的命令数, 新增命令超过上限时才再次压缩
+    private int mCompactedSize;
+
+    // 最近一次追加的命令, 用于丢弃重复提交的相同命令
+    private int mLastBatchSize;
+    private int mLastBatchHash;
+
+    private long mQueuedCount;
+    private long mReplayedCount;
+    private long mDuplicatedCount;
+    private int mSnapshotCount;
+
+    public CanvasDisplayList() {
+        this(DEFAULT_COMMAND_LIMIT);
+    }
+
+    public CanvasDisplayList(int commandLimit) {
+        mCommandLimit = commandLimit > 0 ? commandLimit : DEFAULT_COMMAND_LIMIT;
+    }
+
+    private static int hashOf(List<CanvasRenderAction> actions) {
+        int hash = 1;
+        for (CanvasRenderAction action : actions) {
+            hash = 31 * hash + action.hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * 追加命令, 与最近一次追加的命令完全相同时忽略
+     *
+     * @return 是否追加了命令
+     */
+    public boolean add(
+            @NonNull List<CanvasRenderAction> actions, CanvasContextRendering2D context) {
+        int batchHash = hashOf(actions);
+        synchronized (this) {
+            if (actions.size() == mLastBatchSize && batchHash == mLastBatchHash) {
+                mDuplicatedCount += actions.size();
+                return false;
+            }
+        }
+
+        ArrayList<CanvasRenderAction> appended = new ArrayList<>(actions.size());
+        boolean cleared = false;
+        for (CanvasRenderAction action : actions) {
+            if (action.canClear(context)) {
+                cleared = true;
+                appended.clear();
+                continue;
+            }
+            appended.add(action);
+        }
+
+        boolean needCompact;
+        ArrayList<CanvasRenderAction> clearedActions = null;
+        synchronized (this) {
+            if (cleared) {
+                clearedActions = mActions;
+                mActions = new ArrayList<>();
+                mCompactedSize = 0;
+            }
+            mActions.addAll(appended);
+            mQueuedCount += appended.size();
+            mLastBatchSize = actions.size();
+            mLastBatchHash = batchHash;
+            needCompact = mActions.size() - mCompactedSize > mCommandLimit;
+        }
+
+        if (clearedActions != null) {
+            recycleSnapshots(clearedActions);
+        }
+        if (needCompact) {
+            compact(context);
+        }
+        return true;
+    }
+
+    /**
+     * 把已有命令绘制到 bitmap 中, 只保留重建当前状态所需的命令
+     */
+    private void compact(CanvasContextRendering2D context) {
+        ArrayList<CanvasRenderAction> snapshotActions;
+        synchronized (this) {
+            snapshotActions = mActions;
+        }
+
+        List<CanvasRenderAction> stateActions =
+                collectStateActions(snapshotActions, context::getRealSize);
+        if (stateActions == null) {
+            Log.w(TAG, "compact fail,transform can not be folded");
+            synchronized (this) {
+                mCompactedSize = snapshotActions.size();
+            }
+            return;
+        }
+
+        Bitmap bitmap = context.snapshot(snapshotActions);
+        if (bitmap == null) {
+            Log.w(TAG, "compact fail,canvas is not ready,size:" + snapshotActions.size());
+            return;
+        }
+
+        ArrayList<CanvasRenderAction> compacted = new ArrayList<>(stateActions.size() + 1);
+        compacted.add(new SnapshotAction(bitmap, mSnapshotCount + 1));
+        compacted.addAll(stateActions);
+
+        synchronized (this) {
+            if (mActions != snapshotActions) {
+                // 压缩过程中命令被清除
+                bitmap.recycle();
+                return;
+            }
+            Log.d(TAG, "compact " + snapshotActions.size() + " actions to " + compacted.size());
+            mActions = compacted;
+            mCompactedSize = compacted.size();
+            mSnapshotCount++;
+            // 压缩后最近追加的命令已不在列表末尾
+            mLastBatchSize = 0;
+            mLastBatchHash = 0;
+        }
+        recycleSnapshots(snapshotActions);
+    }
+
+    /**
+     * 旧的 snapshot 已绘制到新的 snapshot 中. UI 线程可能正在绘制旧的命令列表, 在 UI 线程中回收
+     */
+    private static void recycleSnapshots(List<CanvasRenderAction> actions) {
+        List<SnapshotAction> snapshots = new ArrayList<>();
+        for (CanvasRenderAction action : actions) {
+            if (action instanceof SnapshotAction) {
+                snapshots.add((SnapshotAction) action);
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        Executors.ui().execute(() -> {
+            for (SnapshotAction snapshot : snapshots) {
+                snapshot.recycle();
+            }
+        });
+    }
+
+    /**
+     * 按绘制时的方式模拟状态栈, 得到命令执行完后每一层的属性, 变换矩阵, clip 和路径, 再按层输出重建这些状态的最少命令.
+     * 变换命令合并为一个矩阵, 成对的 save/restore 及其中的状态命令全部丢弃.
+     *
+     * @param converter 把 translate 的参数换算为像素, 与绘制时的换算方式一致
+     * @return 存在无法合并的变换命令时返回 null
+     */
+    static List<CanvasRenderAction> collectStateActions(
+            List<CanvasRenderAction> actions, SizeConverter converter) {
+        ArrayList<StateFrame> frames = new ArrayList<>();
+        StateFrame current = new StateFrame(null, null);
+        frames.add(current);
+        for (CanvasRenderAction action : actions) {
+            String name = action.getAction();
+            if (action instanceof MatrixAction) {
+                current.mMatrix = ((MatrixAction) action).getTransform();
+            } else if (DRAW_ACTIONS.contains(name)) {
+                // 绘制结果已在 snapshot 中
+                continue;
+            } else if (TextUtils.equals(name, "save")) {
+                current = new StateFrame(action, current);
+                frames.add(current);
+            } else if (TextUtils.equals(name, "restore")) {
+                // 与 CanvasContextRendering2D.restore 一致, 最底层的状态不会被弹出
+                if (frames.size() > 1) {
+                    frames.remove(frames.size() - 1);
+                    current = frames.get(frames.size() - 1);
+                }
+            } else if (TextUtils.equals(name, "clip")) {
+                current.mClips.add(new ClipRecord(current.mMatrix, current.mPath, action));
+            } else if (TextUtils.equals(name, "beginPath")) {
+                current.mPath = new PathRecord().append(action);
+            } else if (PATH_ACTIONS.contains(name)) {
+                current.mPath = current.mPath.append(action);
+            } else if (TRANSFORM_ACTIONS.contains(name)
+                    || TextUtils.equals(name, "setTransform")) {
+                Transform transform = Transform.of(name, action.getArgs(), converter);
+                if (transform == null) {
+                    return null;
+                }
+                current.mMatrix = TextUtils.equals(name, "setTransform")
+                        ? transform : current.mMatrix.concat(transform);
+            } else {
+                // 属性命令只保留最后一次, 并按最后一次设置的顺序输出
+                current.mProperties.remove(name);
+                current.mProperties.put(name, action);
+            }
+        }
+
+        List<CanvasRenderAction> result = new ArrayList<>();
+        // 绘制前变换矩阵会重置为单位矩阵, 路径为空
+        Transform emittedMatrix = Transform.IDENTITY;
+        List<CanvasRenderAction> emittedPath = new ArrayList<>();
+        StateFrame parent = null;
+        for (StateFrame frame : frames) {
+            if (parent != null) {
+                result.add(frame.mSave);
+            }
+            for (Map.Entry<String, CanvasRenderAction> entry : frame.mProperties.entrySet()) {
+                if (parent == null || parent.mProperties.get(entry.getKey()) != entry.getValue()) {
+                    result.add(entry.getValue());
+                }
+            }
+            for (ClipRecord clip : frame.mClips) {
+                emittedMatrix = emitMatrix(result, emittedMatrix, clip.mMatrix);
+                emittedPath = emitPath(result, emittedPath, clip.mPath.toList());
+                result.add(clip.mClip);
+            }
+            emittedPath = emitPath(result, emittedPath, frame.mPath.toList());
+            emittedMatrix = emitMatrix(result, emittedMatrix, frame.mMatrix);
+            parent = frame;
+        }
+        return result;
+    }
+
+    private static Transform emitMatrix(
+            List<CanvasRenderAction> result, Transform current, Transform target) {
+        if (!current.equals(target)) {
+            result.add(new MatrixAction(target));
+        }
+        return target;
+    }
+
+    private static List<CanvasRenderAction> emitPath(
+            List<CanvasRenderAction> result,
+            List<CanvasRenderAction> current,
+            List<CanvasRenderAction> target) {
+        boolean isPrefix = current.size() <= target.size();
+        for (int i = 0; isPrefix && i < current.size(); i++) {
+            isPrefix = current.get(i) == target.get(i);
+        }
+        if (isPrefix) {
+            result.addAll(target.subList(current.size(), target.size()));
+        } else {
+            if (target.isEmpty() || !TextUtils.equals(target.get(0).getAction(), "beginPath")) {
+                result.add(new BeginPathAction());
+            }
+            result.addAll(target);
+        }
+        return target;
+    }
+
+    /**
+     * 获取用于绘制的命令, 计入回放次数
+     */
+    public synchronized ArrayList<CanvasRenderAction> getRenderActions() {
+        mReplayedCount += mActions.size();
+        return new ArrayList<>(mActions);
+    }
+
+    public synchronized int size() {
+        return mActions.size();
+    }
+
+    public int getCommandLimit() {
+        return mCommandLimit;
+    }
+
+    public synchronized long getQueuedCount() {
+        return mQueuedCount;
+    }
+
+    public synchronized long getReplayedCount() {
+        return mReplayedCount;
+    }
+
+    public synchronized long getDuplicatedCount() {
+        return mDuplicatedCount;
+    }
+
+    public synchronized int getSnapshotCount() {
+        return mSnapshotCount;
+    }
+
+    private static class SnapshotAction extends CanvasRenderAction {
+        private Bitmap mBitmap;
+
+        SnapshotAction(Bitmap bitmap, int index) {
+            super(ACTION_SNAPSHOT, String.valueOf(index));
+            mBitmap = bitmap;
+        }
+
+        @Override
+        public synchronized void render(@NonNull CanvasContextRendering2D context) {
+            if (mBitmap != null) {
+                context.drawSnapshot(mBitmap);
+            }
+        }
+
+        synchronized void recycle() {
+            if (mBitmap != null) {
+                mBitmap.recycle();
+                mBitmap = null;
+            }
+        }
+    }
+
+    /**
+     * 压缩时合并的变换矩阵, 绘制时通过 setTransform 设置
+     */
+    static class MatrixAction extends CanvasRenderAction {
+        private final Transform mTransform;
+
+        MatrixAction(Transform transform) {
+            super(ACTION_MATRIX, transform.toArgs(), 0, Transform.ARGS_COUNT);
+            mTransform = transform;
+        }
+
+        Transform getTransform() {
+            return mTransform;
+        }
+
+        @Override
+        public void render(@NonNull CanvasContextRendering2D context) {
+            mTransform.apply(context);
+        }
+    }
+
+    /**
+     * 重建路径前清空路径
+     */
+    private static class BeginPathAction extends CanvasRenderAction {
+        BeginPathAction() {
+            super("beginPath", "");
+        }
+
+        @Override
+        public void render(@NonNull CanvasContextRendering2D context) {
+            context.beginPath();
+        }
+    }
+
+    interface SizeConverter {
+        float getRealSize(float size);
+    }
+
+    /**
+     * 仿射变换 [a c e; b d f], 平移量为像素
+     */
+    static final class Transform {
+        static final Transform IDENTITY = new Transform(1, 0, 0, 1, 0, 0);
+        static final int ARGS_COUNT = 6;
+
+        final float a;
+        final float b;
+        final float c;
+        final float d;
+        final float e;
+        final float f;
+
+        Transform(float a, float b, float c, float d, float e, float f) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+            this.e = e;
+            this.f = f;
+        }
+
+        /**
+         * 与 CanvasContextRendering2D 中对应方法的计算方式一致
+         *
+         * @return 参数不合法时返回 null
+         */
+        static Transform of(String name, float[] args, SizeConverter converter) {
+            if (args == null) {
+                return null;
+            }
+            switch (name) {
+                case "translate":
+                    return args.length == 2
+                            ? new Transform(1, 0, 0, 1,
+                            converter.getRealSize(args[0]), converter.getRealSize(args[1]))
+                            : null;
+                case "rotate":
+                    if (args.length != 1) {
+                        return null;
+                    }
+                    float cos = (float) Math.cos(args[0]);
+                    float sin = (float) Math.sin(args[0]);
+                    return new Transform(cos, sin, -sin, cos, 0, 0);
+                case "scale":
+                    return args.length == 2 ? new Transform(args[0], 0, 0, args[1], 0, 0) : null;
+                case "transform":
+                case "setTransform":
+                    return args.length == 6
+                            ? new Transform(args[0], args[1], args[2], args[3], args[4], args[5])
+                            : null;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * @return this * other, 即先执行 other 的变换
+         */
+        Transform concat(Transform other) {
+            return new Transform(
+                    a * other.a + c * other.b,
+                    b * other.a + d * other.b,
+                    a * other.c + c * other.d,
+                    b * other.c + d * other.d,
+                    a * other.e + c * other.f + e,
+                    b * other.e + d * other.f + f);
+        }
+
+        void apply(CanvasContextRendering2D context) {
+            context.setTransform(a, b, c, d, e, f);
+        }
+
+        float[] toArgs() {
+            return new float[] {a, b, c, d, e, f};
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Transform)) {
+                return false;
+            }
+            return Arrays.equals(toArgs(), ((Transform) o).toArgs());
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(toArgs());
+        }
+    }
+
+    /**
+     * 路径命令列表, 多个状态共享同一个列表, 只在列表已被其他状态追加过时才复制
+     */
+    private static class PathRecord {
+        private final ArrayList<CanvasRenderAction> mActions;
+        private final int mSize;
+
+        PathRecord() {
+            this(new ArrayList<>(), 0);
+        }
+
+        private PathRecord(ArrayList<CanvasRenderAction> actions, int size) {
+            mActions = actions;
+            mSize = size;
+        }
+
+        PathRecord append(CanvasRenderAction action) {
+            ArrayList<CanvasRenderAction> actions = mActions;
+            if (actions.size() != mSize) {
+                actions = new ArrayList<>(actions.subList(0, mSize));
+            }
+            actions.add(action);
+            return new PathRecord(actions, mSize + 1);
+        }
+
+        List<CanvasRenderAction> toList() {
+            return mActions.subList(0, mSize);
+        }
+    }
+
+    private static class ClipRecord {
+        final Transform mMatrix;
+        final PathRecord mPath;
+        final CanvasRenderAction mClip;
+
+        ClipRecord(Transform matrix, PathRecord path, CanvasRenderAction clip) {
+            mMatrix = matrix;
+            mPath = path;
+            mClip = clip;
+        }
+    }
+
+    /**
+     * 状态栈中的一层, 与 CanvasContextState 及 canvas 的 save 对应
+     */
+    private static class StateFrame {
+        final CanvasRenderAction mSave;
+        final LinkedHashMap<String, CanvasRenderAction> mProperties;
+        final List<ClipRecord> mClips = new ArrayList<>();
+        Transform mMatrix;
+        PathRecord mPath;
+
+        StateFrame(CanvasRenderAction save, StateFrame parent) {
+            mSave = save;
+            if (parent == null) {
+                mProperties = new LinkedHashMap<>();
+                mMatrix = Transform.IDENTITY;
+                mPath = new PathRecord();
+            } else {
+                mProperties = new LinkedHashMap<>(parent.mProperties);
+                mMatrix = parent.mMatrix;
+                mPath = parent.mPath;
+            }
+        }
+    }
+}
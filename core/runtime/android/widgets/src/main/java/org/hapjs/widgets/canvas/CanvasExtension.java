@@ -8,6 +8,8 @@ package org.hapjs.widgets.canvas;
 import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
+import com.eclipsesource.v8.utils.typedarrays.ArrayBuffer;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import org.hapjs.bridge.Callback;
 import org.hapjs.bridge.Extension;
@@ -24,6 +26,7 @@ import org.hapjs.component.Component;
 import org.hapjs.render.Page;
 import org.hapjs.render.PageManager;
 import org.hapjs.render.jsruntime.serialize.JavaSerializeObject;
+import org.hapjs.render.jsruntime.serialize.SerializeObject;
 import org.hapjs.runtime.HapEngine;
 import org.hapjs.widgets.canvas.image.CanvasImageHelper;
 import org.json.JSONObject;
@@ -166,21 +169,39 @@ public class CanvasExtension extends WidgetExtension implements Canvas.CanvasLif
 
     private void canvasNative2D(Request request) {
         try {
-            JSONObject jsonParams = request.getJSONParams();
-            int pageId = jsonParams.optInt("pageId", Component.INVALID_PAGE_ID);
+            SerializeObject params = request.getSerializeParams();
+            int pageId = params.optInt("pageId", Component.INVALID_PAGE_ID);
             if (pageId == Component.INVALID_PAGE_ID) {
                 Log.e(TAG, "canvasNative2D,pageId is invalid,termination!");
                 return;
             }
 
-            int ref = jsonParams.optInt("componentId");
-            String commands = jsonParams.optString("commands");
-            CanvasActionHandler.getInstance().processAsyncActions(pageId, ref, commands);
+            int ref = params.optInt("componentId");
+            Object commands = params.opt("commands");
+            if (commands instanceof ArrayBuffer) {
+                // 二进制命令
+                CanvasActionHandler.getInstance()
+                        .processAsyncActions(pageId, ref,
+                                copyCommands(((ArrayBuffer) commands).getByteBuffer()));
+            } else {
+                CanvasActionHandler.getInstance()
+                        .processAsyncActions(pageId, ref, params.optString("commands"));
+            }
         } catch (Exception e) {
             Log.e(TAG, e.toString());
         }
     }
 
+    /**
+     * ArrayBuffer 的内存只在本次 JS 调用期间有效, 命令在工作线程中解析, 需要先拷贝一份
+     */
+    private static ByteBuffer copyCommands(ByteBuffer commands) {
+        ByteBuffer copy = ByteBuffer.allocate(commands.remaining());
+        copy.put(commands.duplicate());
+        copy.flip();
+        return copy;
+    }
+
     private Response canvasNative2DSync(Request request) {
 
         try {
@@ -12,7 +12,6 @@ import androidx.annotation.NonNull;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import org.hapjs.bridge.ApplicationContext;
 import org.hapjs.common.utils.ThreadUtils;
 import org.hapjs.component.Component;
@@ -29,8 +28,6 @@ public class CanvasManager extends SimpleActivityStateListener
 
     private static final String TAG = "CanvasManager";
 
-    private static final int MAX_CACHED_COMMAND_LIMIT = 1000;
-
     private static final Object LOCK = new Object();
 
     private ArrayMap</*pageId*/ Integer, ArrayMap</*ref*/ Integer, Canvas>> mCanvasHolders =
@@ -39,9 +36,9 @@ public class CanvasManager extends SimpleActivityStateListener
             mContextArrayMap =
             new ArrayMap<>();
     private ConcurrentHashMap<
-            /*pageId*/ Integer,
-            ConcurrentHashMap</*ref*/ Integer, ConcurrentLinkedQueue<CanvasRenderAction>>>
-            mCanvasRenderingCommandQueue = new ConcurrentHashMap<>();
+            /*pageId*/ Integer, ConcurrentHashMap</*ref*/ Integer, CanvasDisplayList>>
+            mCanvasDisplayLists = new ConcurrentHashMap<>();
+    private volatile int mCommandLimit = CanvasDisplayList.DEFAULT_COMMAND_LIMIT;
 
     private String mPackageName;
 
@@ -73,7 +70,7 @@ public class CanvasManager extends SimpleActivityStateListener
                 canvasContext.destroy();
             }
         }
-        mCanvasRenderingCommandQueue.remove(page.getPageId());
+        mCanvasDisplayLists.remove(page.getPageId());
     }
 
     @Override
@@ -102,7 +99,7 @@ public class CanvasManager extends SimpleActivityStateListener
     }
 
     public void destroy() {
-        mCanvasRenderingCommandQueue.clear();
+        mCanvasDisplayLists.clear();
         mContextArrayMap.clear();
         mCanvasHolders.clear();
         if (mHasRegisterPageLifecycle) {
@@ -296,58 +293,36 @@ public class CanvasManager extends SimpleActivityStateListener
                 });
     }
 
+    /**
+     * 设置每个 canvas 缓存的绘制命令上限, 对之后创建的 canvas 生效
+     */
+    public void setCommandLimit(int commandLimit) {
+        mCommandLimit = commandLimit;
+    }
+
     public void addRenderActions(int pageId, int ref, ArrayList<CanvasRenderAction> actions) {
         if (actions == null || actions.isEmpty()) {
             return;
         }
-        ConcurrentHashMap<Integer, ConcurrentLinkedQueue<CanvasRenderAction>> allCachedInPage =
-                mCanvasRenderingCommandQueue.get(pageId);
-        if (allCachedInPage == null) {
-            allCachedInPage = new ConcurrentHashMap<>();
-            mCanvasRenderingCommandQueue.put(pageId, allCachedInPage);
-        }
-
-        ConcurrentLinkedQueue<CanvasRenderAction> renderActionsQueue = allCachedInPage.get(ref);
-        if (renderActionsQueue == null) {
-            renderActionsQueue = new ConcurrentLinkedQueue<>();
-            allCachedInPage.put(ref, renderActionsQueue);
-        }
-
-        if (renderActionsQueue.size() >= actions.size()) {
-            ArrayList<CanvasRenderAction> localActions = new ArrayList<>(renderActionsQueue);
-            int localSize = localActions.size();
-            int addSize = actions.size();
-            int start = localSize - addSize;
-            boolean same = true;
-            for (int i = 0; start < localSize && i < addSize; start++, i++) {
-                if (localActions.get(start).hashCode() != actions.get(i).hashCode()) {
-                    same = false;
-                    break;
-                }
-            }
-            if (same) {
-                return;
-            }
-        }
-
         CanvasContextRendering2D context = getOrCreateContext2D(pageId, ref);
         if (context == null) {
             Log.e(TAG, "CanvasRenderingContext2D is NULL!");
             return;
         }
 
-        for (CanvasRenderAction action : actions) {
-            // todo 限制action数量
-            //            while (renderActionsQueue.size() >= MAX_CACHED_COMMAND_LIMIT) {
-            //                renderActionsQueue.poll();
-            //            }
+        ConcurrentHashMap<Integer, CanvasDisplayList> allCachedInPage =
+                mCanvasDisplayLists.get(pageId);
+        if (allCachedInPage == null) {
+            allCachedInPage = new ConcurrentHashMap<>();
+            mCanvasDisplayLists.put(pageId, allCachedInPage);
+        }
 
-            if (action.canClear(context)) {
-                renderActionsQueue.clear();
-                continue;
-            }
-            renderActionsQueue.add(action);
+        CanvasDisplayList displayList = allCachedInPage.get(ref);
+        if (displayList == null) {
+            displayList = new CanvasDisplayList(mCommandLimit);
+            allCachedInPage.put(ref, displayList);
         }
+        displayList.add(actions, context);
     }
 
     private CanvasContextRendering2D getOrCreateContext2D(int pageId, int ref) {
@@ -360,18 +335,23 @@ public class CanvasManager extends SimpleActivityStateListener
     }
 
     public ArrayList<CanvasRenderAction> getRenderActions(int pageId, int ref) {
-        ConcurrentHashMap<Integer, ConcurrentLinkedQueue<CanvasRenderAction>> allCachedInPage =
-                mCanvasRenderingCommandQueue.get(pageId);
-        if (allCachedInPage == null) {
+        CanvasDisplayList displayList = getDisplayList(pageId, ref);
+        if (displayList == null) {
             return null;
         }
+        return displayList.getRenderActions();
+    }
 
-        ConcurrentLinkedQueue<CanvasRenderAction> queue = allCachedInPage.get(ref);
-        if (queue == null) {
+    /**
+     * 获取 canvas 的绘制命令列表, 可用于查看命令数量, 回放次数等统计信息
+     */
+    public CanvasDisplayList getDisplayList(int pageId, int ref) {
+        ConcurrentHashMap<Integer, CanvasDisplayList> allCachedInPage =
+                mCanvasDisplayLists.get(pageId);
+        if (allCachedInPage == null) {
             return null;
         }
-
-        return new ArrayList<>(queue);
+        return allCachedInPage.get(ref);
     }
 
     private static class Holder {
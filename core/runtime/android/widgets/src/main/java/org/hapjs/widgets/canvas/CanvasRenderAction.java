@@ -6,19 +6,45 @@
 package org.hapjs.widgets.canvas;
 
 import androidx.annotation.NonNull;
+import java.util.Arrays;
 import org.hapjs.widgets.canvas.canvas2d.CanvasContextRendering2D;
 
 public abstract class CanvasRenderAction extends Action {
 
     private String mParameter;
+    private float[] mArgs;
+    private int mArgsHash;
 
     public CanvasRenderAction(String action, String parameter) {
         super(action);
         mParameter = parameter;
     }
 
+    /**
+     * 参数均为数值的命令, 直接根据参数计算 hashCode, 无需拼接参数字符串
+     */
+    public CanvasRenderAction(String action, float[] args, int offset, int count) {
+        super(action);
+        int hash = action.hashCode();
+        for (int i = offset; i < offset + count; i++) {
+            hash = 31 * hash + Float.floatToIntBits(args[i]);
+        }
+        mArgs = Arrays.copyOfRange(args, offset, offset + count);
+        mArgsHash = hash;
+    }
+
+    /**
+     * @return 数值参数, 参数不全为数值的命令返回 null
+     */
+    public float[] getArgs() {
+        return mArgs;
+    }
+
     @Override
     public int hashCode() {
+        if (mArgs != null) {
+            return mArgsHash;
+        }
         return (getAction() + mParameter).hashCode();
     }
 
@@ -6,18 +6,40 @@
 package org.hapjs.widgets.canvas;
 
 import android.text.TextUtils;
+import android.util.Log;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Map;
 import org.hapjs.widgets.canvas.canvas2d.Parser;
 
+/**
+ * 把 canvas 命令解析为 {@link Action}, 支持文本命令和二进制命令.
+ *
+ * <p>二进制命令为小端序, 每条命令为 [opcode: u8][argc: u8][args: float32 * argc], opcode 与文本命令的方法标识相同.
+ * opcode 为 {@link #BINARY_OPCODE_TEXT} 时, 其后为 [length: u32][utf-8 文本命令], 用于传递带字符串参数的命令.
+ */
 public class CanvasRenderActionProcessor {
 
     private static final String TAG = "CanvasRenderActionProcessor";
 
+    public static final int BINARY_OPCODE_TEXT = 0;
+    private static final int MAX_BINARY_ARGS = 0xFF;
+    private static final int PARSER_TABLE_SIZE = 128;
+
     private Map<Character, Parser> mParsers;
+    // 二进制命令按 opcode 直接索引 parser
+    private final Parser[] mParserTable = new Parser[PARSER_TABLE_SIZE];
 
     public CanvasRenderActionProcessor() {
         mParsers = Parser.create();
+        for (Map.Entry<Character, Parser> entry : mParsers.entrySet()) {
+            char flag = entry.getKey();
+            if (flag < PARSER_TABLE_SIZE) {
+                mParserTable[flag] = entry.getValue();
+            }
+        }
     }
 
     public ArrayList<Action> process(int pageId, int refId, String renderCommand) {
@@ -31,7 +53,11 @@ public class CanvasRenderActionProcessor {
         }
 
         ArrayList<Action> actions = new ArrayList<>();
+        processText(pageId, refId, commands, actions);
+        return actions;
+    }
 
+    private void processText(int pageId, int refId, String[] commands, ArrayList<Action> actions) {
         for (String command : commands) {
             if (TextUtils.isEmpty(command) || command.length() < 2) {
                 continue;
@@ -57,6 +83,71 @@ public class CanvasRenderActionProcessor {
                 e.printStackTrace();
             }
         }
+    }
+
+    public ArrayList<Action> process(int pageId, int refId, ByteBuffer renderCommand) {
+        if (renderCommand == null || !renderCommand.hasRemaining()) {
+            return null;
+        }
+
+        ByteBuffer buffer = renderCommand.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ArrayList<Action> actions = new ArrayList<>();
+        // 所有命令共用一个参数数组, FloatParser 在 create 时已取出参数值
+        float[] args = new float[MAX_BINARY_ARGS];
+        while (buffer.remaining() >= 2) {
+            int opcode = buffer.get() & 0xFF;
+            int argc = buffer.get() & 0xFF;
+
+            if (opcode == BINARY_OPCODE_TEXT) {
+                if (buffer.remaining() < 4) {
+                    Log.e(TAG, "process binary command error,text length is missing");
+                    break;
+                }
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    Log.e(TAG, "process binary command error,invalid text length:" + length);
+                    break;
+                }
+                String text = readText(buffer, length);
+                processText(pageId, refId, text.split(";"), actions);
+                continue;
+            }
+
+            if (buffer.remaining() < argc * 4) {
+                Log.e(TAG, "process binary command error,args are truncated,opcode:" + opcode);
+                break;
+            }
+            for (int i = 0; i < argc; i++) {
+                args[i] = buffer.getFloat();
+            }
+
+            Parser parser = opcode < PARSER_TABLE_SIZE ? mParserTable[opcode] : null;
+            if (parser == null) {
+                continue;
+            }
+            try {
+                Action action = parser.parseBinary(pageId, refId, args, 0, argc);
+                if (action != null) {
+                    actions.add(action);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
         return actions;
     }
+
+    private static String readText(ByteBuffer buffer, int length) {
+        String text;
+        if (buffer.hasArray()) {
+            int start = buffer.arrayOffset() + buffer.position();
+            text = new String(buffer.array(), start, length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            text = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return text;
+    }
 }
@@ -31,6 +31,7 @@ import org.hapjs.runtime.Runtime;
 import org.hapjs.widgets.canvas.CanvasContext;
 import org.hapjs.widgets.canvas.CanvasManager;
 import org.hapjs.widgets.canvas.CanvasRenderAction;
+import org.hapjs.widgets.canvas.CanvasView;
 import org.hapjs.widgets.canvas.annotation.CanvasMethod;
 import org.hapjs.widgets.canvas.image.ImageData;
 import org.hapjs.widgets.view.CanvasViewContainer;
@@ -1042,6 +1043,53 @@ public class CanvasContextRendering2D extends CanvasContext {
         return image;
     }
 
+    /**
+     * 把 actions 按画布的实际大小绘制到 bitmap 中, 用于压缩绘制命令
+     *
+     * @return 画布大小未确定时返回 null
+     */
+    public Bitmap snapshot(ArrayList<CanvasRenderAction> actions) {
+        org.hapjs.widgets.canvas.Canvas canvas = getCanvas();
+        int width = getCanvasWidth();
+        int height = getCanvasHeight();
+        if (canvas == null || width <= 0 || height <= 0) {
+            return null;
+        }
+
+        Bitmap bitmap;
+        try {
+            bitmap = createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            Log.e(TAG, "snapshot fail,occur OOM exception!", e);
+            return null;
+        }
+        if (bitmap == null) {
+            return null;
+        }
+        CanvasContextRendering2D context =
+                new CanvasContextRendering2D(getPageId(), getCanvasElementId(), getDesignWidth());
+        CanvasView canvasView = canvas.getCanvasView();
+        context.render(
+                canvasView instanceof CanvasView2D ? (CanvasView2D) canvasView : null,
+                new Canvas(bitmap),
+                actions);
+        context.destroy();
+        return bitmap;
+    }
+
+    /**
+     * 在画布原点绘制 {@link #snapshot} 生成的 bitmap, 不受当前变换和样式影响
+     */
+    public void drawSnapshot(Bitmap bitmap) {
+        if (mCurrentCanvas == null || bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        int saveCount = mCurrentCanvas.save();
+        mCurrentCanvas.setMatrix(mIdentifyMatrix);
+        mCurrentCanvas.drawBitmap(bitmap, 0, 0, null);
+        mCurrentCanvas.restoreToCount(saveCount);
+    }
+
     @CanvasMethod
     public void lineTo(float x, float y) {
         x = getRealSize(x);
@@ -42,8 +42,13 @@ import org.hapjs.widgets.canvas.image.ImageData;
 public abstract class Parser {
     private static final String TAG = "Parser";
 
+    // 二进制命令没有参数类型
+    public static final char NO_TYPE = '\0';
+
     private static final boolean DEBUG = BuildConfig.DEBUG;
 
+    private static final Pattern BRACKET_PATTERN = Pattern.compile("(\\s*\\w*\\s*\\(.*?\\))");
+
     private String mName;
 
     private Parser(String name) {
@@ -233,16 +238,11 @@ public abstract class Parser {
                 });
         parsers.put(
                 'C',
-                new NoTypeParser("globalAlpha", 1) {
+                new FloatParser("globalAlpha", 1) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float alpha = FloatUtil.parse(params[0]);
-                        if (FloatUtil.isUndefined(alpha)) {
-                            Log.e(TAG, "parse globalAlpha error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float alpha = args[offset];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.setGlobalAlpha(alpha);
@@ -320,16 +320,11 @@ public abstract class Parser {
                 });
         parsers.put(
                 'F',
-                new NoTypeParser("lineDashOffset", 1) {
+                new FloatParser("lineDashOffset", 1) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float lineDashOffset = FloatUtil.parse(params[0]);
-                        if (FloatUtil.isUndefined(lineDashOffset)) {
-                            Log.e(TAG, "parse lineDashOffset error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float lineDashOffset = args[offset];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.setLineDashOffset(lineDashOffset);
@@ -363,16 +358,11 @@ public abstract class Parser {
                 });
         parsers.put(
                 'H',
-                new NoTypeParser("lineWidth", 1) {
+                new FloatParser("lineWidth", 1) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float lineWidth = FloatUtil.parse(params[0]);
-                        if (FloatUtil.isUndefined(lineWidth)) {
-                            Log.e(TAG, "parse lineWidth error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float lineWidth = args[offset];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.setLineWidth(lineWidth);
@@ -382,16 +372,11 @@ public abstract class Parser {
                 });
         parsers.put(
                 'I',
-                new NoTypeParser("miterLimit", 1) {
+                new FloatParser("miterLimit", 1) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float miterLimit = FloatUtil.parse(params[0]);
-                        if (FloatUtil.isUndefined(miterLimit)) {
-                            Log.e(TAG, "parse miterLimit error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float miterLimit = args[offset];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.setMiterLimit(miterLimit);
@@ -410,16 +395,11 @@ public abstract class Parser {
                 });
         parsers.put(
                 'J',
-                new NoTypeParser("shadowBlur", 1) {
+                new FloatParser("shadowBlur", 1) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float blur = FloatUtil.parse(params[0]);
-                        if (FloatUtil.isUndefined(blur)) {
-                            Log.e(TAG, "parse shadowBlur error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float blur = args[offset];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
 
                             @Override
                             public boolean supportHardware(
@@ -457,16 +437,11 @@ public abstract class Parser {
                 });
         parsers.put(
                 'L',
-                new NoTypeParser("shadowOffsetX", 1) {
+                new FloatParser("shadowOffsetX", 1) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float offsetX = FloatUtil.parse(params[0]);
-                        if (FloatUtil.isUndefined(offsetX)) {
-                            Log.e(TAG, "parse shadowOffsetX error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float offsetX = args[offset];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public boolean supportHardware(
                                     @NonNull CanvasContextRendering2D context) {
@@ -482,16 +457,11 @@ public abstract class Parser {
                 });
         parsers.put(
                 'M',
-                new NoTypeParser("shadowOffsetY", 1) {
+                new FloatParser("shadowOffsetY", 1) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float offsetY = FloatUtil.parse(params[0]);
-                        if (FloatUtil.isUndefined(offsetY)) {
-                            Log.e(TAG, "parse shadowOffsetY error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float offsetY = args[offset];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public boolean supportHardware(
                                     @NonNull CanvasContextRendering2D context) {
@@ -690,27 +660,25 @@ public abstract class Parser {
         // 方法
         parsers.put(
                 'Q',
-                new NoTypeParser("arc", 6) {
+                new FloatParser("arc", 6) {
                     @Override
-                    public Action parse(int pageId, int canvasId, String[] params, int num,
-                                        String origin) {
-                        float x = FloatUtil.parse(params[0]);
-                        float y = FloatUtil.parse(params[1]);
-                        float radius = FloatUtil.parse(params[2]);
-                        float startAngle = FloatUtil.parse(params[3]);
-                        float endAngle = FloatUtil.parse(params[4]);
-                        int v = IntegerUtil.parse(params[5]);
-                        boolean anticlockwise = v != 0;
-
-                        if (FloatUtil.isUndefined(x)
-                                || FloatUtil.isUndefined(y)
-                                || FloatUtil.isUndefined(radius)
-                                || FloatUtil.isUndefined(startAngle)
-                                || FloatUtil.isUndefined(endAngle)) {
-                            Log.e(TAG, "parse [arc],parameter is error:" + origin);
-                            return null;
+                    protected float parseArg(String[] params, int index) {
+                        if (index == 5) {
+                            // anticlockwise
+                            return IntegerUtil.parse(params[index]) != 0 ? 1 : 0;
                         }
-                        return new CanvasRenderAction(getName(), origin) {
+                        return super.parseArg(params, index);
+                    }
+
+                    @Override
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x = args[offset];
+                        float y = args[offset + 1];
+                        float radius = args[offset + 2];
+                        float startAngle = args[offset + 3];
+                        float endAngle = args[offset + 4];
+                        boolean anticlockwise = args[offset + 5] != 0;
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.arc(x, y, radius, startAngle, endAngle, anticlockwise);
@@ -720,24 +688,15 @@ public abstract class Parser {
                 });
         parsers.put(
                 'R',
-                new NoTypeParser("arcTo", 5) {
+                new FloatParser("arcTo", 5) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float x1 = FloatUtil.parse(params[0]);
-                        float y1 = FloatUtil.parse(params[1]);
-                        float x2 = FloatUtil.parse(params[2]);
-                        float y2 = FloatUtil.parse(params[3]);
-                        float radius = FloatUtil.parse(params[4]);
-                        if (FloatUtil.isUndefined(x1)
-                                || FloatUtil.isUndefined(y1)
-                                || FloatUtil.isUndefined(x2)
-                                || FloatUtil.isUndefined(y2)
-                                || FloatUtil.isUndefined(radius)) {
-                            Log.e(TAG, "parse arcTo error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x1 = args[offset];
+                        float y1 = args[offset + 1];
+                        float x2 = args[offset + 2];
+                        float y2 = args[offset + 3];
+                        float radius = args[offset + 4];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.arcTo(x1, y1, x2, y2, radius);
@@ -747,7 +706,7 @@ public abstract class Parser {
                 });
         parsers.put(
                 'S',
-                new Parser("beginPath") {
+                new NoArgParser("beginPath") {
                     @Override
                     public CanvasRenderAction parse(int pageId, int canvasId, char type,
                                                     String parameter) {
@@ -765,28 +724,16 @@ public abstract class Parser {
                 });
         parsers.put(
                 'T',
-                new NoTypeParser("bezierCurveTo", 6) {
+                new FloatParser("bezierCurveTo", 6) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float cpx1 = FloatUtil.parse(params[0]);
-                        float cpy1 = FloatUtil.parse(params[1]);
-                        float cpx2 = FloatUtil.parse(params[2]);
-                        float cpy2 = FloatUtil.parse(params[3]);
-                        float x = FloatUtil.parse(params[4]);
-                        float y = FloatUtil.parse(params[5]);
-
-                        if (FloatUtil.isUndefined(cpx1)
-                                || FloatUtil.isUndefined(cpy1)
-                                || FloatUtil.isUndefined(cpx2)
-                                || FloatUtil.isUndefined(cpy2)
-                                || FloatUtil.isUndefined(x)
-                                || FloatUtil.isUndefined(y)) {
-                            Log.e(TAG, "parse bezierCurveTo error,parameter is invalid," + origin);
-                            return null;
-                        }
-
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float cpx1 = args[offset];
+                        float cpy1 = args[offset + 1];
+                        float cpx2 = args[offset + 2];
+                        float cpy2 = args[offset + 3];
+                        float x = args[offset + 4];
+                        float y = args[offset + 5];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.bezierCurveTo(cpx1, cpy1, cpx2, cpy2, x, y);
@@ -796,24 +743,14 @@ public abstract class Parser {
                 });
         parsers.put(
                 'U',
-                new NoTypeParser("clearRect", 4) {
+                new FloatParser("clearRect", 4) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float x = FloatUtil.parse(params[0]);
-                        float y = FloatUtil.parse(params[1]);
-                        float width = FloatUtil.parse(params[2]);
-                        float height = FloatUtil.parse(params[3]);
-
-                        if (FloatUtil.isUndefined(x)
-                                || FloatUtil.isUndefined(y)
-                                || FloatUtil.isUndefined(width)
-                                || FloatUtil.isUndefined(height)) {
-                            Log.e(TAG, "parse clearRect,invalid param:" + origin);
-                            return null;
-                        }
-
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x = args[offset];
+                        float y = args[offset + 1];
+                        float width = args[offset + 2];
+                        float height = args[offset + 3];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
 
                             @Override
                             public boolean canClear(@NonNull CanvasContextRendering2D context) {
@@ -856,7 +793,7 @@ public abstract class Parser {
                 });
         parsers.put(
                 'V',
-                new Parser("clip") {
+                new NoArgParser("clip") {
                     @Override
                     public CanvasRenderAction parse(int pageId, int canvasId, char type,
                                                     String parameter) {
@@ -874,7 +811,7 @@ public abstract class Parser {
                 });
         parsers.put(
                 'W',
-                new Parser("closePath") {
+                new NoArgParser("closePath") {
                     @Override
                     public CanvasRenderAction parse(int pageId, int canvasId, char type,
                                                     String parameter) {
@@ -961,7 +898,7 @@ public abstract class Parser {
                 });
         parsers.put(
                 'Y',
-                new Parser("fill") {
+                new NoArgParser("fill") {
                     @Override
                     public CanvasRenderAction parse(int pageId, int canvasId, char type,
                                                     String parameter) {
@@ -978,24 +915,14 @@ public abstract class Parser {
                 });
         parsers.put(
                 'Z',
-                new NoTypeParser("fillRect", 4) {
+                new FloatParser("fillRect", 4) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float x = FloatUtil.parse(params[0]);
-                        float y = FloatUtil.parse(params[1]);
-                        float width = FloatUtil.parse(params[2]);
-                        float height = FloatUtil.parse(params[3]);
-
-                        if (FloatUtil.isUndefined(x)
-                                || FloatUtil.isUndefined(y)
-                                || FloatUtil.isUndefined(width)
-                                || FloatUtil.isUndefined(height)) {
-                            Log.e(TAG, "parse fillRect error,invalid param:" + origin);
-                            return null;
-                        }
-
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x = args[offset];
+                        float y = args[offset + 1];
+                        float width = args[offset + 2];
+                        float height = args[offset + 3];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.fillRect(x, y, width, height);
@@ -1063,17 +990,12 @@ public abstract class Parser {
                 });
         parsers.put(
                 'b',
-                new NoTypeParser("lineTo", 2) {
+                new FloatParser("lineTo", 2) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float x = FloatUtil.parse(params[0]);
-                        float y = FloatUtil.parse(params[1]);
-                        if (FloatUtil.isUndefined(x) || FloatUtil.isUndefined(y)) {
-                            Log.e(TAG, "parse lineTo error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x = args[offset];
+                        float y = args[offset + 1];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.lineTo(x, y);
@@ -1083,18 +1005,12 @@ public abstract class Parser {
                 });
         parsers.put(
                 'c',
-                new NoTypeParser("moveTo", 2) {
+                new FloatParser("moveTo", 2) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float x = FloatUtil.parse(params[0]);
-                        float y = FloatUtil.parse(params[1]);
-
-                        if (FloatUtil.isUndefined(x) || FloatUtil.isUndefined(y)) {
-                            Log.e(TAG, "parse moveTo error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x = args[offset];
+                        float y = args[offset + 1];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.moveTo(x, y);
@@ -1159,23 +1075,14 @@ public abstract class Parser {
 
         parsers.put(
                 'e',
-                new NoTypeParser("quadraticCurveTo", 4) {
+                new FloatParser("quadraticCurveTo", 4) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float cpx = FloatUtil.parse(params[0]);
-                        float cpy = FloatUtil.parse(params[1]);
-                        float x = FloatUtil.parse(params[2]);
-                        float y = FloatUtil.parse(params[3]);
-
-                        if (FloatUtil.isUndefined(cpx)
-                                || FloatUtil.isUndefined(cpy)
-                                || FloatUtil.isUndefined(x)
-                                || FloatUtil.isUndefined(y)) {
-                            Log.e(TAG, "parse lineTo error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float cpx = args[offset];
+                        float cpy = args[offset + 1];
+                        float x = args[offset + 2];
+                        float y = args[offset + 3];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.quadraticCurveTo(cpx, cpy, x, y);
@@ -1185,23 +1092,14 @@ public abstract class Parser {
                 });
         parsers.put(
                 'f',
-                new NoTypeParser("rect", 4) {
+                new FloatParser("rect", 4) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float x = FloatUtil.parse(params[0]);
-                        float y = FloatUtil.parse(params[1]);
-                        float width = FloatUtil.parse(params[2]);
-                        float height = FloatUtil.parse(params[3]);
-
-                        if (FloatUtil.isUndefined(x)
-                                || FloatUtil.isUndefined(y)
-                                || FloatUtil.isUndefined(width)
-                                || FloatUtil.isUndefined(height)) {
-                            Log.e(TAG, "parse rect error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x = args[offset];
+                        float y = args[offset + 1];
+                        float width = args[offset + 2];
+                        float height = args[offset + 3];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.rect(x, y, width, height);
@@ -1211,7 +1109,7 @@ public abstract class Parser {
                 });
         parsers.put(
                 'g',
-                new Parser("restore") {
+                new NoArgParser("restore") {
                     @Override
                     public CanvasRenderAction parse(int pageId, int canvasId, char type,
                                                     String parameter) {
@@ -1228,16 +1126,11 @@ public abstract class Parser {
                 });
         parsers.put(
                 'h',
-                new NoTypeParser("rotate", 1) {
+                new FloatParser("rotate", 1) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float angle = FloatUtil.parse(params[0]);
-                        if (FloatUtil.isUndefined(angle)) {
-                            Log.e(TAG, "parse rotate error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float angle = args[offset];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.rotate(angle);
@@ -1247,7 +1140,7 @@ public abstract class Parser {
                 });
         parsers.put(
                 'i',
-                new Parser("save") {
+                new NoArgParser("save") {
                     @Override
                     public CanvasRenderAction parse(int pageId, int canvasId, char type,
                                                     String parameter) {
@@ -1264,17 +1157,12 @@ public abstract class Parser {
                 });
         parsers.put(
                 'j',
-                new NoTypeParser("scale", 2) {
+                new FloatParser("scale", 2) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float x = FloatUtil.parse(params[0]);
-                        float y = FloatUtil.parse(params[1]);
-                        if (FloatUtil.isUndefined(x) || FloatUtil.isUndefined(y)) {
-                            Log.e(TAG, "parse scale error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x = args[offset];
+                        float y = args[offset + 1];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.scale(x, y);
@@ -1335,26 +1223,16 @@ public abstract class Parser {
                 });
         parsers.put(
                 'l',
-                new NoTypeParser("setTransform", 6) {
+                new FloatParser("setTransform", 6) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float a = FloatUtil.parse(params[0]);
-                        float b = FloatUtil.parse(params[1]);
-                        float c = FloatUtil.parse(params[2]);
-                        float d = FloatUtil.parse(params[3]);
-                        float e = FloatUtil.parse(params[4]);
-                        float f = FloatUtil.parse(params[5]);
-                        if (FloatUtil.isUndefined(a)
-                                || FloatUtil.isUndefined(b)
-                                || FloatUtil.isUndefined(c)
-                                || FloatUtil.isUndefined(d)
-                                || FloatUtil.isUndefined(e)
-                                || FloatUtil.isUndefined(f)) {
-                            Log.e(TAG, "parse setTransform error,paramter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float a = args[offset];
+                        float b = args[offset + 1];
+                        float c = args[offset + 2];
+                        float d = args[offset + 3];
+                        float e = args[offset + 4];
+                        float f = args[offset + 5];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.setTransform(a, b, c, d, e, f);
@@ -1364,7 +1242,7 @@ public abstract class Parser {
                 });
         parsers.put(
                 'm',
-                new Parser("stroke") {
+                new NoArgParser("stroke") {
                     @Override
                     public CanvasRenderAction parse(int pageId, int canvasId, char type,
                                                     String parameter) {
@@ -1381,24 +1259,14 @@ public abstract class Parser {
                 });
         parsers.put(
                 'n',
-                new NoTypeParser("strokeRect", 4) {
+                new FloatParser("strokeRect", 4) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float x = FloatUtil.parse(params[0]);
-                        float y = FloatUtil.parse(params[1]);
-                        float width = FloatUtil.parse(params[2]);
-                        float height = FloatUtil.parse(params[3]);
-
-                        if (FloatUtil.isUndefined(x)
-                                || FloatUtil.isUndefined(y)
-                                || FloatUtil.isUndefined(width)
-                                || FloatUtil.isUndefined(height)) {
-                            Log.e(TAG, "parse strokeRect error,invalid param:" + origin);
-                            return null;
-                        }
-
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x = args[offset];
+                        float y = args[offset + 1];
+                        float width = args[offset + 2];
+                        float height = args[offset + 3];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.strokeRect(x, y, width, height);
@@ -1467,26 +1335,16 @@ public abstract class Parser {
                 });
         parsers.put(
                 'p',
-                new NoTypeParser("transform", 6) {
+                new FloatParser("transform", 6) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float a = FloatUtil.parse(params[0]);
-                        float b = FloatUtil.parse(params[1]);
-                        float c = FloatUtil.parse(params[2]);
-                        float d = FloatUtil.parse(params[3]);
-                        float e = FloatUtil.parse(params[4]);
-                        float f = FloatUtil.parse(params[5]);
-                        if (FloatUtil.isUndefined(a)
-                                || FloatUtil.isUndefined(b)
-                                || FloatUtil.isUndefined(c)
-                                || FloatUtil.isUndefined(d)
-                                || FloatUtil.isUndefined(e)
-                                || FloatUtil.isUndefined(f)) {
-                            Log.e(TAG, "parse setTransform error,paramter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float a = args[offset];
+                        float b = args[offset + 1];
+                        float c = args[offset + 2];
+                        float d = args[offset + 3];
+                        float e = args[offset + 4];
+                        float f = args[offset + 5];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.transform(a, b, c, d, e, f);
@@ -1496,17 +1354,12 @@ public abstract class Parser {
                 });
         parsers.put(
                 'q',
-                new NoTypeParser("translate", 2) {
+                new FloatParser("translate", 2) {
                     @Override
-                    public CanvasRenderAction parse(
-                            int pageId, int canvasId, String[] params, int num, String origin) {
-                        float x = FloatUtil.parse(params[0]);
-                        float y = FloatUtil.parse(params[1]);
-                        if (FloatUtil.isUndefined(x) || FloatUtil.isUndefined(y)) {
-                            Log.e(TAG, "parse translate error,parameter is invalid," + origin);
-                            return null;
-                        }
-                        return new CanvasRenderAction(getName(), origin) {
+                    protected CanvasRenderAction create(float[] args, int offset) {
+                        float x = args[offset];
+                        float y = args[offset + 1];
+                        return new CanvasRenderAction(getName(), args, offset, getParamNumber()) {
                             @Override
                             public void render(@NonNull CanvasContextRendering2D context) {
                                 context.translate(x, y);
@@ -1608,10 +1461,7 @@ public abstract class Parser {
     private static String[] extractCommand(String command) {
         if (command.indexOf('(') != -1 && command.indexOf(')') != -1) {
             // 包含了括号，例如rgba(255,255,255,255),使用非贪婪模式匹配
-            String regex = "(\\s*\\w*\\s*\\(.*?\\))";
-
-            Pattern compile = Pattern.compile(regex);
-            Matcher matcher = compile.matcher(command);
+            Matcher matcher = BRACKET_PATTERN.matcher(command);
             int preIndex = 0;
             List<String> args = new ArrayList<>();
             while (matcher.find()) {
@@ -1641,6 +1491,16 @@ public abstract class Parser {
 
     public abstract Action parse(int pageId, int canvasId, char type, String parameter);
 
+    /**
+     * 解析二进制命令, 参数为 args 中从 offset 开始的 count 个数值
+     *
+     * @return 不支持二进制命令时返回 null
+     */
+    public Action parseBinary(int pageId, int canvasId, float[] args, int offset, int count) {
+        Log.w(TAG, getName() + " does not support binary command");
+        return null;
+    }
+
     public abstract static class NoTypeParser extends Parser {
 
         private int mParamNumber;
@@ -1668,7 +1528,82 @@ public abstract class Parser {
             return parse(pageId, canvasId, params, mParamNumber, parameter);
         }
 
+        public int getParamNumber() {
+            return mParamNumber;
+        }
+
         public abstract Action parse(int pageId, int canvasId, String[] params, int num,
                                      String origin);
     }
+
+    /**
+     * 没有参数的命令, 如 beginPath, save
+     */
+    public abstract static class NoArgParser extends Parser {
+
+        private NoArgParser(String name) {
+            super(name);
+        }
+
+        @Override
+        public Action parseBinary(int pageId, int canvasId, float[] args, int offset, int count) {
+            return parse(pageId, canvasId, NO_TYPE, "");
+        }
+    }
+
+    /**
+     * 参数均为数值的命令, 文本命令和二进制命令解析出数值后都由 {@link #create} 创建 action
+     */
+    public abstract static class FloatParser extends NoTypeParser {
+
+        private FloatParser(String name, int paramNum) {
+            super(name, paramNum);
+        }
+
+        @Override
+        public Action parse(int pageId, int canvasId, String[] params, int num, String origin) {
+            float[] args = new float[num];
+            for (int i = 0; i < num; i++) {
+                args[i] = parseArg(params, i);
+            }
+            if (!checkArgs(args, 0, num)) {
+                Log.e(TAG, "parse " + getName() + " error,parameter is invalid," + origin);
+                return null;
+            }
+            return create(args, 0);
+        }
+
+        @Override
+        public Action parseBinary(int pageId, int canvasId, float[] args, int offset, int count) {
+            if (count != getParamNumber()) {
+                Log.e(TAG, "parse " + getName() + " error,paramter num is not "
+                        + getParamNumber());
+                return null;
+            }
+            if (!checkArgs(args, offset, count)) {
+                Log.e(TAG, "parse " + getName() + " error,binary parameter is invalid");
+                return null;
+            }
+            return create(args, offset);
+        }
+
+        private boolean checkArgs(float[] args, int offset, int count) {
+            for (int i = offset; i < offset + count; i++) {
+                if (FloatUtil.isUndefined(args[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected float parseArg(String[] params, int index) {
+            return FloatUtil.parse(params[index]);
+        }
+
+        /**
+         * @param args   参数, 只在本方法内有效, 二进制命令会复用该数组
+         * @param offset 第一个参数在 args 中的位置
+         */
+        protected abstract CanvasRenderAction create(float[] args, int offset);
+    }
 }
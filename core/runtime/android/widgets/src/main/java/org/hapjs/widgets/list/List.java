@@ -38,6 +38,7 @@ import org.hapjs.component.utils.YogaUtil;
 import org.hapjs.component.view.ScrollView;
 import org.hapjs.runtime.HapEngine;
 import org.hapjs.widgets.RecyclerDataItemFactory;
+import org.hapjs.widgets.text.Text;
 import org.hapjs.widgets.view.list.FlexGridLayoutManager;
 import org.hapjs.widgets.view.list.FlexLayoutManager;
 import org.hapjs.widgets.view.list.FlexStaggeredGridLayoutManager;
@@ -861,6 +862,21 @@ public class List extends AbstractScrollable<RecyclerView> implements Recycler,
             holder.bind(item);
             Component component = holder.getRecycleComponent();
             lazySetAppearanceWatch(component);
+            precomputeTextLayout(component);
+        }
+
+        /**
+         * 列表项即将进入可见区域, 在后台线程预先排版其中的文本
+         */
+        private void precomputeTextLayout(Component component) {
+            if (component instanceof Text) {
+                ((Text) component).precomputeLayout();
+            } else if (component instanceof Container) {
+                java.util.List<Component> children = ((Container) component).getChildren();
+                for (int i = 0; i < children.size(); i++) {
+                    precomputeTextLayout(children.get(i));
+                }
+            }
         }
 
         @Override
@@ -143,7 +143,8 @@ public class Text extends AbstractText<TextLayoutView> implements SwipeObserver
         mSetTextCallback =
                 frameTimeNanos -> {
                     if (mHost != null) {
-                        mHost.setText(applySpannable());
+                        CharSequence text = applySpannable();
+                        mHost.setText(text, isLayoutCacheable() ? createLayoutKey(text) : null);
                     }
                     mSetTextCallback = null;
                 };
@@ -247,6 +248,29 @@ public class Text extends AbstractText<TextLayoutView> implements SwipeObserver
         return mLayoutBuilder;
     }
 
+    /**
+     * 没有子节点和缩进时, 布局只由文本和样式决定, 可以使用共享的 {@link TextLayoutCache}
+     */
+    protected boolean isLayoutCacheable() {
+        return mChildren.isEmpty() && TextUtils.isEmpty(mTextIndent) && !TextUtils.isEmpty(mText);
+    }
+
+    private TextLayoutCache.Key createLayoutKey(CharSequence text) {
+        int textColor = ColorUtil.getColor(mColorStr == null ? DEFAULT_COLOR : mColorStr);
+        return new TextLayoutCache.Key(text, mTextSpan, mLayoutBuilder, textColor);
+    }
+
+    /**
+     * 列表项即将进入可见区域时调用, 文本还未更新到 view 时在后台线程预先排版
+     */
+    public void precomputeLayout() {
+        if (mHost == null || mSetTextCallback == null || !isLayoutCacheable()) {
+            return;
+        }
+        // 可以缓存时 applySpannable 的结果只有文本自身的样式
+        mHost.precomputeLayout(createLayoutKey(mTextSpan.createSpanned(mText)));
+    }
+
     @Override
     public void addChild(Component child, int index) {
         if (child == null) {
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.widgets.text;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import com.facebook.fbui.textlayoutbuilder.TextLayoutBuilder;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hapjs.common.executors.Executors;
+import org.hapjs.runtime.Runtime;
+import org.hapjs.widgets.view.text.TextLayoutView;
+import org.hapjs.widgets.view.text.TextSpan;
+
+/**
+ * 进程内共享的文本布局缓存.
+ *
+ * <p>列表复用时相同的文本, 字体和宽度会被反复排版, 这里按文本内容, 样式和宽度缓存 {@link Layout}, 总大小按字符数限制.
+ * 列表项即将进入可见区域时可以通过 {@link #precompute(Key)} 在后台线程预先排版.
+ * 内存不足时按等级裁剪或清空缓存.
+ */
+public final class TextLayoutCache implements ComponentCallbacks2 {
+    private static final String TAG = "TextLayoutCache";
+
+    // 缓存的文本总字符数
+    private static final int MAX_CACHE_CHARS = 64 * 1024;
+
+    private final LruCache<Key, Layout> mLayouts =
+            new LruCache<Key, Layout>(MAX_CACHE_CHARS) {
+                @Override
+                protected int sizeOf(Key key, Layout layout) {
+                    return key.mPlainText.length() + 1;
+                }
+            };
+    private final Set<Key> mPrecomputing =
+            Collections.newSetFromMap(new ConcurrentHashMap<Key, Boolean>());
+
+    private final AtomicInteger mHitCount = new AtomicInteger();
+    private final AtomicInteger mMissCount = new AtomicInteger();
+    private final AtomicInteger mPrecomputeCount = new AtomicInteger();
+
+    private TextLayoutCache() {
+        Context context = Runtime.getInstance().getContext();
+        if (context != null) {
+            context.registerComponentCallbacks(this);
+        }
+    }
+
+    public static TextLayoutCache getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 获取缓存的布局, 不存在时在当前线程排版并加入缓存
+     */
+    public Layout getOrBuild(Key key) {
+        Layout layout = mLayouts.get(key);
+        if (layout != null) {
+            mHitCount.incrementAndGet();
+            return layout;
+        }
+        mMissCount.incrementAndGet();
+        layout = key.build();
+        if (layout != null) {
+            mLayouts.put(key, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * 在后台线程排版并加入缓存, 已缓存或正在排版时忽略
+     */
+    public void precompute(final Key key) {
+        if (mLayouts.get(key) != null || !mPrecomputing.add(key)) {
+            return;
+        }
+        Executors.computation().execute(() -> {
+            try {
+                if (mLayouts.get(key) == null) {
+                    Layout layout = key.build();
+                    if (layout != null) {
+                        mLayouts.put(key, layout);
+                        mPrecomputeCount.incrementAndGet();
+                    }
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "precompute text layout failed", e);
+            } finally {
+                mPrecomputing.remove(key);
+            }
+        });
+    }
+
+    public void clear() {
+        mLayouts.evictAll();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            mLayouts.trimToSize(MAX_CACHE_CHARS / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    int size() {
+        return mLayouts.size();
+    }
+
+    public int getHitCount() {
+        return mHitCount.get();
+    }
+
+    public int getMissCount() {
+        return mMissCount.get();
+    }
+
+    public int getPrecomputeCount() {
+        return mPrecomputeCount.get();
+    }
+
+    public float getHitRate() {
+        int hit = mHitCount.get();
+        int total = hit + mMissCount.get();
+        return total == 0 ? 0f : (float) hit / total;
+    }
+
+    private static class Holder {
+        private static final TextLayoutCache INSTANCE = new TextLayoutCache();
+    }
+
+    /**
+     * 文本布局的 key, 包含排版所需的全部参数, 创建后不再变化
+     */
+    public static final class Key {
+        private final CharSequence mText;
+        private final String mPlainText;
+        // TextSpan 中的样式
+        private final String mSpanColor;
+        private final int mSpanFontSize;
+        private final int mLineHeight;
+        private final int mTextDecoration;
+        private final Typeface mTypeface;
+        private final int mFontWeight;
+        private final int mFontStyle;
+        // TextLayoutBuilder 中的参数, 排版时设置到新的 builder 上.
+        // Text 及其子类修改 builder 的其它参数时, 需要同时加入 key
+        private final float mTextSize;
+        private final int mTextColor;
+        private final Layout.Alignment mAlignment;
+        private final int mMaxLines;
+        private final TextUtils.TruncateAt mEllipsize;
+        private final float mLetterSpacing;
+        private final Typeface mBuilderTypeface;
+        private final float mSpacingExtra;
+        private final float mSpacingMultiplier;
+        private final boolean mIncludeFontPadding;
+        private final boolean mSingleLine;
+        private final int mBreakStrategy;
+        private final int mHyphenationFrequency;
+        private final int mWidthMeasureSpec;
+        private final int mHashCode;
+
+        Key(CharSequence text, TextSpan textSpan, TextLayoutBuilder builder, int textColor) {
+            this(text, textSpan, builder, textColor, View.MeasureSpec.UNSPECIFIED);
+        }
+
+        private Key(
+                CharSequence text,
+                TextSpan textSpan,
+                TextLayoutBuilder builder,
+                int textColor,
+                int widthMeasureSpec) {
+            mText = text;
+            mPlainText = text.toString();
+            mSpanColor = textSpan.getColor();
+            mSpanFontSize = textSpan.getFontSize();
+            mLineHeight = textSpan.getLineHeight();
+            mTextDecoration = textSpan.getTextDecoration();
+            TypefaceBuilder typefaceBuilder = textSpan.getTypefaceBuilder();
+            mTypeface = typefaceBuilder == null ? null : typefaceBuilder.getTypeface();
+            mFontWeight = typefaceBuilder == null ? -1 : typefaceBuilder.getWeight();
+            mFontStyle = typefaceBuilder == null ? -1 : typefaceBuilder.getStyle();
+            mTextSize = builder.getTextSize();
+            mTextColor = textColor;
+            mAlignment = builder.getAlignment();
+            mMaxLines = builder.getMaxLines();
+            mEllipsize = builder.getEllipsize();
+            mLetterSpacing = textSpan.getLetterSpacing();
+            mBuilderTypeface = builder.getTypeface();
+            mSpacingExtra = builder.getTextSpacingExtra();
+            mSpacingMultiplier = builder.getTextSpacingMultiplier();
+            mIncludeFontPadding = builder.getIncludeFontPadding();
+            mSingleLine = builder.getSingleLine();
+            mBreakStrategy = builder.getBreakStrategy();
+            mHyphenationFrequency = builder.getHyphenationFrequency();
+            mWidthMeasureSpec = widthMeasureSpec;
+            mHashCode = computeHashCode();
+        }
+
+        private Key(Key other, int widthMeasureSpec) {
+            mText = other.mText;
+            mPlainText = other.mPlainText;
+            mSpanColor = other.mSpanColor;
+            mSpanFontSize = other.mSpanFontSize;
+            mLineHeight = other.mLineHeight;
+            mTextDecoration = other.mTextDecoration;
+            mTypeface = other.mTypeface;
+            mFontWeight = other.mFontWeight;
+            mFontStyle = other.mFontStyle;
+            mTextSize = other.mTextSize;
+            mTextColor = other.mTextColor;
+            mAlignment = other.mAlignment;
+            mMaxLines = other.mMaxLines;
+            mEllipsize = other.mEllipsize;
+            mLetterSpacing = other.mLetterSpacing;
+            mBuilderTypeface = other.mBuilderTypeface;
+            mSpacingExtra = other.mSpacingExtra;
+            mSpacingMultiplier = other.mSpacingMultiplier;
+            mIncludeFontPadding = other.mIncludeFontPadding;
+            mSingleLine = other.mSingleLine;
+            mBreakStrategy = other.mBreakStrategy;
+            mHyphenationFrequency = other.mHyphenationFrequency;
+            mWidthMeasureSpec = widthMeasureSpec;
+            mHashCode = computeHashCode();
+        }
+
+        /**
+         * 相同文本和样式在指定宽度下的 key
+         */
+        public Key withWidth(int widthMeasureSpec) {
+            return widthMeasureSpec == mWidthMeasureSpec ? this : new Key(this, widthMeasureSpec);
+        }
+
+        Layout build() {
+            return new TextLayoutBuilder()
+                    .setText(mText)
+                    .setTextSize(Math.round(mTextSize))
+                    .setTextColor(mTextColor)
+                    .setAlignment(mAlignment)
+                    .setMaxLines(mMaxLines)
+                    .setEllipsize(mEllipsize)
+                    .setLetterSpacing(mLetterSpacing)
+                    .setTypeface(mBuilderTypeface)
+                    .setTextSpacingExtra(mSpacingExtra)
+                    .setTextSpacingMultiplier(mSpacingMultiplier)
+                    .setIncludeFontPadding(mIncludeFontPadding)
+                    .setSingleLine(mSingleLine)
+                    .setBreakStrategy(mBreakStrategy)
+                    .setHyphenationFrequency(mHyphenationFrequency)
+                    .setWidth(
+                            View.MeasureSpec.getSize(mWidthMeasureSpec),
+                            TextLayoutView.convertToLayoutBuilderMode(
+                                    View.MeasureSpec.getMode(mWidthMeasureSpec)))
+                    .setShouldCacheLayout(false)
+                    .build();
+        }
+
+        private int computeHashCode() {
+            int result = mPlainText.hashCode();
+            result = 31 * result + Objects.hashCode(mSpanColor);
+            result = 31 * result + mSpanFontSize;
+            result = 31 * result + mLineHeight;
+            result = 31 * result + mTextDecoration;
+            result = 31 * result + Objects.hashCode(mTypeface);
+            result = 31 * result + mFontWeight;
+            result = 31 * result + mFontStyle;
+            result = 31 * result + Float.floatToIntBits(mTextSize);
+            result = 31 * result + mTextColor;
+            result = 31 * result + Objects.hashCode(mAlignment);
+            result = 31 * result + mMaxLines;
+            result = 31 * result + Objects.hashCode(mEllipsize);
+            result = 31 * result + Float.floatToIntBits(mLetterSpacing);
+            result = 31 * result + Objects.hashCode(mBuilderTypeface);
+            result = 31 * result + Float.floatToIntBits(mSpacingExtra);
+            result = 31 * result + Float.floatToIntBits(mSpacingMultiplier);
+            result = 31 * result + (mIncludeFontPadding ? 1 : 0);
+            result = 31 * result + (mSingleLine ? 1 : 0);
+            result = 31 * result + mBreakStrategy;
+            result = 31 * result + mHyphenationFrequency;
+            result = 31 * result + mWidthMeasureSpec;
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mHashCode == key.mHashCode
+                    && mWidthMeasureSpec == key.mWidthMeasureSpec
+                    && mSpanFontSize == key.mSpanFontSize
+                    && mLineHeight == key.mLineHeight
+                    && mTextDecoration == key.mTextDecoration
+                    && mFontWeight == key.mFontWeight
+                    && mFontStyle == key.mFontStyle
+                    && Float.compare(mTextSize, key.mTextSize) == 0
+                    && mTextColor == key.mTextColor
+                    && mMaxLines == key.mMaxLines
+                    && Float.compare(mLetterSpacing, key.mLetterSpacing) == 0
+                    && Float.compare(mSpacingExtra, key.mSpacingExtra) == 0
+                    && Float.compare(mSpacingMultiplier, key.mSpacingMultiplier) == 0
+                    && mIncludeFontPadding == key.mIncludeFontPadding
+                    && mSingleLine == key.mSingleLine
+                    && mBreakStrategy == key.mBreakStrategy
+                    && mHyphenationFrequency == key.mHyphenationFrequency
+                    && Objects.equals(mBuilderTypeface, key.mBuilderTypeface)
+                    && mAlignment == key.mAlignment
+                    && mEllipsize == key.mEllipsize
+                    && Objects.equals(mTypeface, key.mTypeface)
+                    && Objects.equals(mSpanColor, key.mSpanColor)
+                    && mPlainText.equals(key.mPlainText);
+        }
+    }
+}
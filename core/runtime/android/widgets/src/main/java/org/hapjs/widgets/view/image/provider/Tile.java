@@ -35,6 +35,8 @@ public class Tile {
     private int mState;
     private int mSampleSize;
     private int mRefreshId = -1;
+    // 解码优先级, 越小越先解码
+    private int mPriority;
 
     public static Tile obtain() {
         Tile instance = sPool.acquire();
@@ -79,6 +81,21 @@ public class Tile {
         mRefreshId = refreshId;
     }
 
+    public int getPriority() {
+        return mPriority;
+    }
+
+    public void setPriority(int priority) {
+        mPriority = priority;
+    }
+
+    /**
+     * 取消显示, 正在解码的分块解码完成后直接回收
+     */
+    public void cancel() {
+        setActive(false);
+    }
+
     public boolean decode(TileProvider provider) {
         if (provider != null) {
             mTileData = provider.createTile(mTileRect, mSampleSize);
@@ -168,6 +185,10 @@ public class Tile {
             mBitmap = bitmap;
         }
 
+        Bitmap getBitmap() {
+            return mBitmap;
+        }
+
         public void recycle() {
             if (BitmapUtils.isValidate(mBitmap)) {
                 TileCache.getInstance().put(mBitmap);
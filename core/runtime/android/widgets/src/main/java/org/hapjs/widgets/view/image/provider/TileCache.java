@@ -5,21 +5,53 @@
 
 package org.hapjs.widgets.view.image.provider;
 
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LongSparseArray;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.HashSet;
+import java.util.ArrayDeque;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.LinkedHashSet;
 import org.hapjs.common.utils.BitmapUtils;
+import org.hapjs.runtime.Runtime;
 
+/**
+ * 分块解码复用的 bitmap 池.
+ *
+ * <p>按宽, 高和 config 分组, 查找可复用的 bitmap 为 O(1). 池中 bitmap 的总字节数有上限, 超出时按放入的先后淘汰,
+ * 内存不足时根据 {@link ComponentCallbacks2#onTrimMemory(int)} 的级别缩减或清空. 池中的 bitmap 通过软引用持有,
+ * 堆内存紧张时可以被回收.
+ */
 public class TileCache {
 
-    private static final int CACHE_COUNT = 12;
+    private static final String TAG = "TileCache";
+
+    private static final long MAX_POOL_BYTES = 48L * 1024 * 1024;
     private static TileCache sInstance;
-    private Set<SoftReference<Bitmap>> mReuseBits = new HashSet<>();
+
+    private final long mMaxBytes;
+    private final LongSparseArray<ArrayDeque<PoolEntry>> mPools = new LongSparseArray<>();
+    // 所有 bitmap, 按放入的先后排列, 用于淘汰
+    private final LinkedHashSet<PoolEntry> mOrder = new LinkedHashSet<>();
+    private final ReferenceQueue<Bitmap> mCollected = new ReferenceQueue<>();
+    private long mCurrentBytes;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictCount;
+    private int mCollectedCount;
 
     private TileCache() {
+        mMaxBytes = Math.min(java.lang.Runtime.getRuntime().maxMemory() / 8, MAX_POOL_BYTES);
+        Context context = Runtime.getInstance().getContext();
+        if (context != null) {
+            context.registerComponentCallbacks(new MemoryCallbacks());
+        }
     }
 
     public static synchronized TileCache getInstance() {
@@ -42,49 +74,103 @@ public class TileCache {
         return 1;
     }
 
+    private static long makeKey(int width, int height, Bitmap.Config config) {
+        int configKey = config == null ? 0xff : config.ordinal();
+        return ((long) width << 32) | ((long) (height & 0xffffff) << 8) | configKey;
+    }
+
     public synchronized void put(Bitmap bitmap) {
         if (bitmap == null || bitmap.isRecycled()) {
             return;
         }
-        trim(bitmap);
-
-        if (mReuseBits.size() >= CACHE_COUNT) {
+        removeCollected();
+        int size = bitmap.getAllocationByteCount();
+        if (size > mMaxBytes) {
             bitmap.recycle();
-        } else {
-            mReuseBits.add(new SoftReference<>(bitmap));
+            return;
         }
+
+        long key = makeKey(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<PoolEntry> pool = mPools.get(key);
+        if (pool == null) {
+            pool = new ArrayDeque<>();
+            mPools.put(key, pool);
+        }
+        for (PoolEntry entry : pool) {
+            if (entry.get() == bitmap) {
+                return;
+            }
+        }
+        PoolEntry entry = new PoolEntry(bitmap, key, size, mCollected);
+        pool.push(entry);
+        mOrder.add(entry);
+        mCurrentBytes += size;
+        trimToSize(mMaxBytes);
     }
 
     public synchronized Bitmap get(BitmapFactory.Options options) {
-        SoftReference<Bitmap> mostClosely = null;
-        Iterator<SoftReference<Bitmap>> iterator = mReuseBits.iterator();
-        while (iterator.hasNext()) {
-            SoftReference<Bitmap> temp = iterator.next();
-            Bitmap bit = temp.get();
-            if (BitmapUtils.isValidate(bit)) {
-                if (canUseForInBitmap(bit, options)) {
-                    mostClosely = temp;
+        removeCollected();
+        int convertSampleSize = convertToPowerOf2(options.inSampleSize);
+        int width = options.outWidth / convertSampleSize;
+        int height = options.outHeight / convertSampleSize;
+        Bitmap.Config config = options.inPreferredConfig;
+        ArrayDeque<PoolEntry> pool = mPools.get(makeKey(width, height, config));
+        if (pool != null) {
+            int byteCount = width * height * getBytesPerPixel(config);
+            PoolEntry entry;
+            while ((entry = pool.poll()) != null) {
+                if (mOrder.remove(entry)) {
+                    mCurrentBytes -= entry.mSize;
+                }
+                Bitmap bitmap = entry.get();
+                if (!BitmapUtils.isValidate(bitmap)) {
+                    continue;
+                }
+                if (byteCount == bitmap.getAllocationByteCount()) {
+                    mHitCount++;
+                    return bitmap;
                 }
-            } else {
-                iterator.remove();
+                bitmap.recycle();
             }
         }
-        Bitmap target = mostClosely != null ? mostClosely.get() : null;
-        if (BitmapUtils.isValidate(target)) {
-            mReuseBits.remove(mostClosely);
-            return target;
-        }
+        mMissCount++;
         return null;
     }
 
-    private void trim(Bitmap insert) {
-        Iterator<SoftReference<Bitmap>> iterator = mReuseBits.iterator();
-        while (iterator.hasNext()) {
-            Bitmap bit = iterator.next().get();
-            if (bit == null || bit.isRecycled()) {
-                iterator.remove();
-            } else if (bit.getAllocationByteCount() < insert.getAllocationByteCount()) {
-                iterator.remove();
+    /**
+     * 按放入的先后淘汰, 直到总字节数不超过 maxBytes
+     */
+    private void trimToSize(long maxBytes) {
+        Iterator<PoolEntry> iterator = mOrder.iterator();
+        while (mCurrentBytes > maxBytes && iterator.hasNext()) {
+            PoolEntry entry = iterator.next();
+            iterator.remove();
+            ArrayDeque<PoolEntry> pool = mPools.get(entry.mKey);
+            if (pool != null) {
+                pool.remove(entry);
+            }
+            mCurrentBytes -= entry.mSize;
+            mEvictCount++;
+            Bitmap bitmap = entry.get();
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    /**
+     * 移除已被 GC 回收的 bitmap
+     */
+    private void removeCollected() {
+        PoolEntry entry;
+        while ((entry = (PoolEntry) mCollected.poll()) != null) {
+            if (mOrder.remove(entry)) {
+                mCurrentBytes -= entry.mSize;
+                mCollectedCount++;
+            }
+            ArrayDeque<PoolEntry> pool = mPools.get(entry.mKey);
+            if (pool != null) {
+                pool.remove(entry);
             }
         }
     }
@@ -101,23 +187,69 @@ public class TileCache {
     }
 
     public synchronized void clear() {
-        Iterator<SoftReference<Bitmap>> iterator = mReuseBits.iterator();
-        while (iterator.hasNext()) {
-            Bitmap bit = iterator.next().get();
-            if (bit != null && !bit.isRecycled()) {
-                bit.recycle();
+        for (PoolEntry entry : mOrder) {
+            Bitmap bitmap = entry.get();
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bitmap.recycle();
             }
         }
-        mReuseBits.clear();
+        mOrder.clear();
+        mPools.clear();
+        mCurrentBytes = 0;
     }
 
-    private boolean canUseForInBitmap(Bitmap bitmap, BitmapFactory.Options options) {
-        int convertSampleSize = convertToPowerOf2(options.inSampleSize);
-        int width = options.outWidth / convertSampleSize;
-        int height = options.outHeight / convertSampleSize;
-        int byteCount = width * height * getBytesPerPixel(bitmap.getConfig());
-        return bitmap.getWidth() == width
-                && bitmap.getHeight() == height
-                && byteCount == bitmap.getAllocationByteCount();
+    public synchronized void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(mMaxBytes / 2);
+        }
+    }
+
+    public synchronized long getSizeInBytes() {
+        removeCollected();
+        return mCurrentBytes;
+    }
+
+    public synchronized float getHitRate() {
+        int total = mHitCount + mMissCount;
+        return total == 0 ? 0f : (float) mHitCount / total;
+    }
+
+    public synchronized String getStatistics() {
+        return "hit: " + mHitCount
+                + ", miss: " + mMissCount
+                + ", evict: " + mEvictCount
+                + ", collected: " + mCollectedCount
+                + ", size: " + mCurrentBytes + "/" + mMaxBytes;
+    }
+
+    private static class PoolEntry extends SoftReference<Bitmap> {
+        final long mKey;
+        final int mSize;
+
+        PoolEntry(Bitmap bitmap, long key, int size, ReferenceQueue<Bitmap> queue) {
+            super(bitmap, queue);
+            mKey = key;
+            mSize = size;
+        }
+    }
+
+    private class MemoryCallbacks implements ComponentCallbacks2 {
+        @Override
+        public void onTrimMemory(int level) {
+            Log.d(TAG, "onTrimMemory level: " + level + ", " + getStatistics());
+            TileCache.this.onTrimMemory(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            clear();
+        }
     }
 }
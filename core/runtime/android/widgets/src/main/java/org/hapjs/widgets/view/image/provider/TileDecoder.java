@@ -6,35 +6,61 @@
 package org.hapjs.widgets.view.image.provider;
 
 import android.os.Handler;
+import android.util.Log;
 import android.util.SparseArray;
 import java.lang.ref.WeakReference;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hapjs.common.executors.Executors;
+
+/**
+ * 分块解码器.
+ *
+ * <p>待解码的分块按优先级排列, 距离可见区域中心越近越先解码. 除调用 {@link #createOrRunDecoder()} 的线程外, 按
+ * {@link TileProvider#MAX_DECODER_COUNT} 在 io 线程中启动额外的解码线程. 离开可见区域的分块在解码前被丢弃,
+ * 正在解码的分块通过 {@link #cancelInvisibleTiles(int)} 标记, 解码完成后直接回收. {@link #cancel()} 时通知正在进行的解码停止,
+ * 已完成的结果不再发送.
+ */
 public class TileDecoder {
 
     public static final int MSG_DECODE_SUCCESS = 1;
     public static final int MSG_DECODE_FAIL = 2;
     private static final String TAG = "TileDecoder";
+    private static final int INITIAL_QUEUE_CAPACITY = 16;
     private final Object mLock = new Object();
-    private TileDecodeRunnable mDecodeRunnable;
+    private DecodeSession mSession;
     private WeakReference<Handler> mDecodeHandlerRef;
     private WeakReference<TileProvider> mDecodeProviderRef;
-    private BlockingQueue<Tile> mDecodeQueue = new LinkedBlockingQueue<>();
+    private PriorityBlockingQueue<Tile> mDecodeQueue =
+            new PriorityBlockingQueue<>(
+                    INITIAL_QUEUE_CAPACITY,
+                    (t1, t2) -> Integer.compare(t1.getPriority(), t2.getPriority()));
     private volatile SparseArray<Tile> mCurrentDecodingTiles = new SparseArray<>();
 
+    // 解码耗时统计
+    private final AtomicInteger mDecodeCount = new AtomicInteger();
+    private final AtomicLong mTotalDecodeNs = new AtomicLong();
+    private final AtomicLong mMaxDecodeNs = new AtomicLong();
+
     public TileDecoder(Handler handler) {
         mDecodeHandlerRef = new WeakReference<>(handler);
     }
 
     public void createOrRunDecoder() {
-        if (mDecodeRunnable == null) {
-            mDecodeRunnable = new TileDecodeRunnable();
+        DecodeSession session;
+        synchronized (mLock) {
+            if (mSession != null && mSession.isRunning()) {
+                return;
+            }
+            session = new DecodeSession(TileProvider.MAX_DECODER_COUNT);
+            mSession = session;
         }
-        if (!mDecodeRunnable.isRunning()) {
-            mDecodeRunnable.run();
+        for (int i = 1; i < TileProvider.MAX_DECODER_COUNT; i++) {
+            Executors.io().execute(session::runWorker);
         }
+        session.runWorker();
     }
 
     public boolean put(Tile tile) {
@@ -42,18 +68,26 @@ public class TileDecoder {
     }
 
     public void cancel() {
-        if (mDecodeRunnable != null) {
-            mDecodeRunnable.cancel();
-        }
-        mDecodeRunnable = null;
-        mDecodeQueue.clear();
         synchronized (mLock) {
+            if (mSession != null) {
+                mSession.cancel();
+            }
+            mSession = null;
+            for (int i = 0; i < mCurrentDecodingTiles.size(); i++) {
+                mCurrentDecodingTiles.valueAt(i).cancel();
+            }
             mCurrentDecodingTiles.clear();
         }
+        mDecodeQueue.clear();
+        TileProvider provider = getProvider();
+        if (provider != null) {
+            provider.cancelDecoding();
+        }
     }
 
     public boolean isRunning() {
-        return mDecodeRunnable != null && mDecodeRunnable.isRunning();
+        DecodeSession session = mSession;
+        return session != null && session.isRunning();
     }
 
     public void clear() {
@@ -72,6 +106,33 @@ public class TileDecoder {
         }
     }
 
+    /**
+     * 标记不在本次刷新范围内的正在解码的分块, 解码完成后不再显示
+     */
+    public void cancelInvisibleTiles(int refreshId) {
+        synchronized (mLock) {
+            for (int i = 0; i < mCurrentDecodingTiles.size(); i++) {
+                Tile tile = mCurrentDecodingTiles.valueAt(i);
+                if (tile.getRefreshId() != refreshId) {
+                    tile.cancel();
+                }
+            }
+        }
+    }
+
+    public int getDecodeCount() {
+        return mDecodeCount.get();
+    }
+
+    public long getAverageDecodeTimeNs() {
+        int count = mDecodeCount.get();
+        return count == 0 ? 0 : mTotalDecodeNs.get() / count;
+    }
+
+    public long getMaxDecodeTimeNs() {
+        return mMaxDecodeNs.get();
+    }
+
     public void setTileProvider(TileProvider provider) {
         mDecodeProviderRef = new WeakReference<>(provider);
     }
@@ -84,40 +145,55 @@ public class TileDecoder {
         return mDecodeHandlerRef != null ? mDecodeHandlerRef.get() : null;
     }
 
-    private class TileDecodeRunnable implements Runnable {
+    private void recordDecodeTime(long costNs) {
+        mDecodeCount.incrementAndGet();
+        mTotalDecodeNs.addAndGet(costNs);
+        long max;
+        do {
+            max = mMaxDecodeNs.get();
+        } while (costNs > max && !mMaxDecodeNs.compareAndSet(max, costNs));
+    }
+
+    /**
+     * 一次解码过程, 多个解码线程共享同一个队列, 最后一个线程退出时释放数据源
+     */
+    private class DecodeSession {
 
-        private static final int STATE_IDLE = -1;
-        private static final int STATE_RUNNING = 0;
         private static final int TIME_OUT = 10;
-        private volatile int mState = STATE_IDLE;
+        private volatile boolean mCancelled;
+        private final AtomicInteger mWorkerCount;
 
-        public synchronized void cancel() {
-            if (mState == STATE_IDLE) {
-                return;
-            }
-            mState = STATE_IDLE;
+        DecodeSession(int workerCount) {
+            mWorkerCount = new AtomicInteger(workerCount);
+        }
+
+        void cancel() {
+            mCancelled = true;
         }
 
-        public boolean isRunning() {
-            return mState == STATE_RUNNING;
+        boolean isRunning() {
+            return !mCancelled && mWorkerCount.get() > 0;
         }
 
-        @Override
-        public void run() {
-            mState = STATE_RUNNING;
-            runInternal();
-            mState = STATE_IDLE;
+        void runWorker() {
+            try {
+                runInternal();
+            } finally {
+                if (mWorkerCount.decrementAndGet() == 0) {
+                    onSessionFinished();
+                }
+            }
         }
 
         private void runInternal() {
-            while (mState == STATE_RUNNING) {
+            while (!mCancelled) {
                 try {
                     Tile tile = mDecodeQueue.poll(TIME_OUT, TimeUnit.MILLISECONDS);
                     if (tile != null) {
                         if (!tile.isActive()) {
                             continue;
                         }
-                        if (mState == STATE_IDLE) {
+                        if (mCancelled) {
                             mDecodeQueue.clear();
                             return;
                         }
@@ -125,7 +201,19 @@ public class TileDecoder {
                         synchronized (mLock) {
                             mCurrentDecodingTiles.put(tileKey, tile);
                         }
+                        long start = System.nanoTime();
                         boolean result = tile.decode(getProvider());
+                        recordDecodeTime(System.nanoTime() - start);
+                        if (mCancelled) {
+                            // 已取消, 结果不再显示
+                            synchronized (mLock) {
+                                if (mCurrentDecodingTiles.get(tileKey) == tile) {
+                                    mCurrentDecodingTiles.remove(tileKey);
+                                }
+                            }
+                            tile.recycle();
+                            continue;
+                        }
                         Handler handler = getHandler();
                         if (handler != null) {
                             handler
@@ -138,11 +226,17 @@ public class TileDecoder {
                     e.printStackTrace();
                 }
             }
+        }
+
+        private void onSessionFinished() {
+            Log.d(TAG, "decode finished, tiles: " + getDecodeCount()
+                    + ", avg: " + getAverageDecodeTimeNs() / 1000000 + "ms"
+                    + ", max: " + getMaxDecodeTimeNs() / 1000000 + "ms"
+                    + ", pool: " + TileCache.getInstance().getStatistics());
             TileProvider provider = getProvider();
             if (provider != null) {
                 provider.release();
             }
-            return;
         }
     }
 }
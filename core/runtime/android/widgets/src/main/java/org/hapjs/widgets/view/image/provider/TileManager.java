@@ -164,12 +164,14 @@ public class TileManager {
                 displayY,
                 TILE_SIZE * sampleSize / scaleX,
                 TILE_SIZE * sampleSize / scaleY,
-                sampleSize);
+                sampleSize,
+                (left + right) / 2,
+                (top + bottom) / 2);
     }
 
     private void refreshTiles(
             float displayX, float displayY, float displaySizeX, float displaySizeY,
-            int sampleSize) {
+            int sampleSize, int centerX, int centerY) {
         increaseRefreshId();
         float loopX = displayX;
         float loopY = displayY;
@@ -192,6 +194,11 @@ public class TileManager {
                         tile = Tile.obtain();
                         tile.updateTileParam(mTempTileRect, sampleSize);
                         tile.updateDisplayParam(mTempDisplayRect);
+                        // 距离可见区域中心越近越先解码
+                        tile.setPriority(
+                                (Math.abs(mTempTileRect.centerX() - centerX)
+                                        + Math.abs(mTempTileRect.centerY() - centerY))
+                                        / sampleSize);
                         mTempDecodeTiles.add(tile);
                     }
                 }
@@ -220,6 +227,7 @@ public class TileManager {
             invalidate();
         }
 
+        mDecodeManager.cancelInvisibleTiles(mRefreshId);
         for (Tile tile : mTempDecodeTiles) {
             mDecodeManager.put(tile);
         }
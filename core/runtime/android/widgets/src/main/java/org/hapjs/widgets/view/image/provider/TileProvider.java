@@ -5,27 +5,57 @@
 
 package org.hapjs.widgets.view.image.provider;
 
+import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BitmapRegionDecoder;
 import android.graphics.Rect;
 import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 import org.hapjs.common.utils.BitmapUtils;
+import org.hapjs.common.utils.FileUtils;
+import org.hapjs.runtime.Runtime;
 
+/**
+ * 分块解码的数据源.
+ *
+ * <p>{@link BitmapRegionDecoder} 的解码是串行的, 这里基于同一份数据创建多个 decoder, 供多个解码线程同时使用.
+ * 数据流先写入缓存目录的临时文件, decoder 通过文件描述符创建, 编码数据不在 java 堆中保留.
+ */
 public class TileProvider {
+    private static final String TAG = "TileProvider";
+
+    static final int MAX_DECODER_COUNT =
+            Math.max(1, Math.min(2, java.lang.Runtime.getRuntime().availableProcessors() / 2));
+
     private final Object mLock = new Object();
-    private BitmapRegionDecoder mRegionDecoder;
+    private final List<BitmapRegionDecoder> mDecoders = new ArrayList<>();
+    private final ArrayDeque<BitmapRegionDecoder> mIdleDecoders = new ArrayDeque<>();
+    // 正在解码的参数, 取消时通知 decoder 停止
+    private final Set<BitmapFactory.Options> mDecodingOptions =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<ParcelFileDescriptor> mClosingSources = new ArrayList<>();
+    private ParcelFileDescriptor mSource;
+    private int mCreatingCount;
     private int mImageWidth;
     private int mImageHeight;
-    private Rect mTempRect = new Rect();
 
     public Tile.TileData createTile(Rect region, int sampleSize) {
         if (region == null) {
             return null;
         }
-        mTempRect.set(0, 0, mImageWidth, mImageHeight);
-        if (!mTempRect.intersect(region)) {
+        Rect rect = new Rect(0, 0, mImageWidth, mImageHeight);
+        if (!rect.intersect(region)) {
             return null;
         }
 
@@ -36,53 +66,206 @@ public class TileProvider {
             options.inPreferredConfig = Bitmap.Config.ARGB_8888;
         }
         options.inSampleSize = sampleSize;
-        options.outWidth = mTempRect.width();
-        options.outHeight = mTempRect.height();
+        options.outWidth = rect.width();
+        options.outHeight = rect.height();
         options.inBitmap = TileCache.getInstance().get(options);
-        Bitmap bitmap = null;
+
+        BitmapRegionDecoder decoder = acquireDecoder();
+        if (decoder == null) {
+            TileCache.getInstance().put(options.inBitmap);
+            return null;
+        }
+        Bitmap bitmap;
         synchronized (mLock) {
-            if (BitmapUtils.isValidate(mRegionDecoder)) {
-                bitmap = BitmapUtils.safeDecodeRegion(mRegionDecoder, mTempRect, options);
-            }
+            mDecodingOptions.add(options);
         }
-
-        if (bitmap == null) {
+        try {
+            bitmap = BitmapUtils.safeDecodeRegion(decoder, rect, options);
+            if (bitmap == null
+                    && !options.mCancel
+                    && BitmapUtils.isValidate(options.inBitmap)) {
+                options.inBitmap.recycle();
+                options.inBitmap = null;
+                bitmap = BitmapUtils.safeDecodeRegion(decoder, rect, options);
+            }
+        } finally {
             synchronized (mLock) {
-                if (BitmapUtils.isValidate(options.inBitmap)) {
-                    options.inBitmap.recycle();
-                    options.inBitmap = null;
-                    bitmap = BitmapUtils.safeDecodeRegion(mRegionDecoder, mTempRect, options);
-                }
+                mDecodingOptions.remove(options);
             }
+            releaseDecoder(decoder);
         }
 
         if (BitmapUtils.isValidate(bitmap)) {
             Tile.TileData tileData = Tile.TileData.obtain();
             tileData.setBitmap(bitmap);
-            tileData.setValidateHeight(mTempRect.height() / sampleSize);
-            tileData.setValidateWidth(mTempRect.width() / sampleSize);
+            tileData.setValidateHeight(rect.height() / sampleSize);
+            tileData.setValidateWidth(rect.width() / sampleSize);
             return tileData;
         } else {
             return null;
         }
     }
 
+    /**
+     * 获取空闲的 decoder, 没有空闲的且数量未达上限时创建新的, 否则等待其它线程归还
+     */
+    private BitmapRegionDecoder acquireDecoder() {
+        ParcelFileDescriptor source;
+        synchronized (mLock) {
+            while (true) {
+                if (mDecoders.isEmpty() && mCreatingCount == 0) {
+                    // 未设置数据或已释放
+                    return null;
+                }
+                BitmapRegionDecoder decoder = mIdleDecoders.poll();
+                if (decoder != null) {
+                    return decoder;
+                }
+                if (mSource != null && mDecoders.size() + mCreatingCount < MAX_DECODER_COUNT) {
+                    source = mSource;
+                    mCreatingCount++;
+                    break;
+                }
+                try {
+                    mLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+
+        BitmapRegionDecoder decoder =
+                BitmapUtils.safeCreateBitmapRegionDecoder(source.getFileDescriptor());
+        synchronized (mLock) {
+            mCreatingCount--;
+            if (decoder == null && source == mSource) {
+                // 不能再创建时等待已有的 decoder
+                mSource = null;
+                mClosingSources.add(source);
+            }
+            if (mCreatingCount == 0) {
+                closeSources();
+            }
+            if (decoder == null) {
+                mLock.notifyAll();
+                return mDecoders.isEmpty() ? null : acquireDecoder();
+            }
+            if (source != mSource) {
+                // 创建过程中数据已被替换或释放
+                decoder.recycle();
+                mLock.notifyAll();
+                return null;
+            }
+            mDecoders.add(decoder);
+            return decoder;
+        }
+    }
+
+    private void releaseDecoder(BitmapRegionDecoder decoder) {
+        synchronized (mLock) {
+            if (mDecoders.contains(decoder)) {
+                mIdleDecoders.push(decoder);
+            } else {
+                decoder.recycle();
+            }
+            mLock.notifyAll();
+        }
+    }
+
     public void setInputStream(InputStream stream) {
-        mRegionDecoder = BitmapUtils.safeCreateBitmapRegionDecoder(stream);
-        if (BitmapUtils.isValidate(mRegionDecoder)) {
-            mImageWidth = mRegionDecoder.getWidth();
-            mImageHeight = mRegionDecoder.getHeight();
+        ParcelFileDescriptor source = openSource(stream);
+        BitmapRegionDecoder decoder = null;
+        if (source != null) {
+            decoder = BitmapUtils.safeCreateBitmapRegionDecoder(source.getFileDescriptor());
+            if (decoder == null) {
+                FileUtils.closeQuietly(source);
+                source = null;
+            }
+        }
+        synchronized (mLock) {
+            recycleDecoders();
+            if (BitmapUtils.isValidate(decoder)) {
+                mSource = source;
+                mDecoders.add(decoder);
+                mIdleDecoders.push(decoder);
+                mImageWidth = decoder.getWidth();
+                mImageHeight = decoder.getHeight();
+            }
+        }
+    }
+
+    /**
+     * 将数据写入临时文件后打开, 文件打开后即删除, 关闭描述符时释放
+     */
+    private static ParcelFileDescriptor openSource(InputStream stream) {
+        Context context = Runtime.getInstance().getContext();
+        if (stream == null || context == null) {
+            return null;
+        }
+        File file = null;
+        try {
+            file = File.createTempFile("tile", null, context.getCacheDir());
+            if (!FileUtils.saveToFile(stream, file)) {
+                return null;
+            }
+            return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+        } catch (IOException e) {
+            Log.e(TAG, "open tile data failed", e);
+            return null;
+        } finally {
+            if (file != null && !file.delete()) {
+                Log.w(TAG, "delete tile data failed: " + file);
+            }
+        }
+    }
+
+    /**
+     * 通知正在进行的解码停止. Android N 及以上不支持中途停止, 解码结果在完成后丢弃
+     */
+    public void cancelDecoding() {
+        synchronized (mLock) {
+            for (BitmapFactory.Options options : mDecodingOptions) {
+                options.requestCancelDecode();
+            }
+            mLock.notifyAll();
         }
     }
 
     public void release() {
         TileCache.getInstance().clear();
         synchronized (mLock) {
-            if (BitmapUtils.isValidate(mRegionDecoder)) {
-                mRegionDecoder.recycle();
+            recycleDecoders();
+        }
+    }
+
+    /**
+     * 回收空闲的 decoder, 正在使用的在归还时回收
+     */
+    private void recycleDecoders() {
+        for (BitmapRegionDecoder decoder : mIdleDecoders) {
+            if (BitmapUtils.isValidate(decoder)) {
+                decoder.recycle();
             }
-            mRegionDecoder = null;
         }
+        mIdleDecoders.clear();
+        mDecoders.clear();
+        if (mSource != null) {
+            mClosingSources.add(mSource);
+            mSource = null;
+        }
+        // 正在通过描述符创建 decoder 时延迟关闭, 避免描述符被复用
+        if (mCreatingCount == 0) {
+            closeSources();
+        }
+        mLock.notifyAll();
+    }
+
+    private void closeSources() {
+        for (ParcelFileDescriptor source : mClosingSources) {
+            FileUtils.closeQuietly(source);
+        }
+        mClosingSources.clear();
     }
 
     public int getImageWidth() {
@@ -29,6 +29,7 @@ import org.hapjs.component.view.gesture.IGesture;
 import org.hapjs.component.view.helper.StateHelper;
 import org.hapjs.component.view.keyevent.KeyEventDelegate;
 import org.hapjs.widgets.text.Text;
+import org.hapjs.widgets.text.TextLayoutCache;
 
 public class TextLayoutView extends View implements ComponentHost, GestureHost {
 
@@ -41,17 +42,26 @@ public class TextLayoutView extends View implements ComponentHost, GestureHost {
     private Layout mLayout;
     private CharSequence mText;
     private CharSequence mLastText;
+    private TextLayoutCache.Key mLayoutKey;
 
     public TextLayoutView(Context context) {
         super(context);
     }
 
     public void setText(CharSequence text) {
+        setText(text, null);
+    }
+
+    /**
+     * @param layoutKey 文本在 {@link TextLayoutCache} 中的 key, 为 null 时不使用共享缓存
+     */
+    public void setText(CharSequence text, TextLayoutCache.Key layoutKey) {
         if (TextUtils.isEmpty(mText) && TextUtils.isEmpty(text)) {
             return;
         }
 
         mText = text;
+        mLayoutKey = layoutKey;
 
         if (mLayout == null) {
             requestLayout();
@@ -133,6 +143,16 @@ public class TextLayoutView extends View implements ComponentHost, GestureHost {
         canvas.restore();
     }
 
+    /**
+     * 按上次测量的宽度在后台线程预先排版, 未测量过时宽度未知, 不处理
+     */
+    public void precomputeLayout(TextLayoutCache.Key layoutKey) {
+        if (layoutKey == null || mLayout == null) {
+            return;
+        }
+        TextLayoutCache.getInstance().precompute(layoutKey.withWidth(mLastLayoutMeasureSpec));
+    }
+
     private boolean isSizeEquals(Layout first, Layout second) {
         if (first == second) {
             return true;
@@ -233,6 +253,9 @@ public class TextLayoutView extends View implements ComponentHost, GestureHost {
         if (TextUtils.isEmpty(mText)) {
             return null;
         }
+        if (mLayoutKey != null) {
+            return TextLayoutCache.getInstance().getOrBuild(mLayoutKey.withWidth(widthMeasureSpec));
+        }
         TextLayoutBuilder layoutBuilder = mComponent.getLayoutBuilder();
         int widthMode = View.MeasureSpec.getMode(widthMeasureSpec);
         int widthSize = View.MeasureSpec.getSize(widthMeasureSpec);
@@ -243,7 +266,7 @@ public class TextLayoutView extends View implements ComponentHost, GestureHost {
         return layoutBuilder.build();
     }
 
-    private int convertToLayoutBuilderMode(int widthMode) {
+    public static int convertToLayoutBuilderMode(int widthMode) {
         switch (widthMode) {
             case View.MeasureSpec.UNSPECIFIED:
                 return TextLayoutBuilder.MEASURE_MODE_UNSPECIFIED;
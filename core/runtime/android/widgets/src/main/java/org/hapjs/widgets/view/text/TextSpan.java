@@ -56,6 +56,10 @@ public class TextSpan {
         mIsDirty = isDirty;
     }
 
+    public String getColor() {
+        return mColor;
+    }
+
     public void setColor(String color) {
         if (!mIsDirty) {
             mIsDirty = !(color.equals(mColor));
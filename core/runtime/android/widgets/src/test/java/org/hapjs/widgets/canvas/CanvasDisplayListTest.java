@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.widgets.canvas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import org.hapjs.widgets.canvas.canvas2d.CanvasContextRendering2D;
+import org.junit.Test;
+
+public class CanvasDisplayListTest {
+    private static final float DELTA = 1e-3f;
+    // translate 的参数换算为像素时放大两倍
+    private static final CanvasDisplayList.SizeConverter CONVERTER = size -> size * 2;
+
+    @Test
+    public void foldTransforms() {
+        List<CanvasRenderAction> actions = new ArrayList<>();
+        actions.add(action("translate", 10, 0));
+        actions.add(action("scale", 2, 3));
+        actions.add(action("translate", 5, 1));
+        actions.add(action("fillRect", 0, 0, 10, 10));
+
+        List<CanvasRenderAction> result = collect(actions);
+
+        assertEquals(1, result.size());
+        assertMatrix(result.get(0), 2, 0, 0, 3, 40, 6);
+    }
+
+    @Test
+    public void setTransformResetsMatrix() {
+        List<CanvasRenderAction> actions = new ArrayList<>();
+        actions.add(action("rotate", (float) Math.PI / 2));
+        actions.add(action("setTransform", 1, 0, 0, 1, 3, 4));
+        actions.add(action("rotate", (float) Math.PI / 2));
+        actions.add(action("translate", 1, 0));
+
+        List<CanvasRenderAction> result = collect(actions);
+
+        assertEquals(1, result.size());
+        assertMatrix(result.get(0), 0, 1, -1, 0, 3, 6);
+    }
+
+    @Test
+    public void dropBalancedSaveRestore() {
+        List<CanvasRenderAction> actions = new ArrayList<>();
+        CanvasRenderAction lineWidth = property("lineWidth", "2");
+        actions.add(lineWidth);
+        actions.add(action("save"));
+        actions.add(property("fillStyle", "#ff0000"));
+        actions.add(action("translate", 100, 100));
+        actions.add(action("beginPath"));
+        actions.add(action("rect", 0, 0, 10, 10));
+        actions.add(action("clip"));
+        actions.add(action("fill"));
+        actions.add(action("restore"));
+        // 多余的 restore 不会弹出最底层的状态
+        actions.add(action("restore"));
+
+        List<CanvasRenderAction> result = collect(actions);
+
+        assertEquals(1, result.size());
+        assertSame(lineWidth, result.get(0));
+    }
+
+    @Test
+    public void keepUnbalancedSaveAndClip() {
+        List<CanvasRenderAction> actions = new ArrayList<>();
+        CanvasRenderAction fillStyle = property("fillStyle", "#ff0000");
+        CanvasRenderAction save = action("save");
+        CanvasRenderAction beginPath = action("beginPath");
+        CanvasRenderAction rect = action("rect", 0, 0, 10, 10);
+        CanvasRenderAction clip = action("clip");
+        CanvasRenderAction lineTo = action("lineTo", 5, 5);
+        actions.add(fillStyle);
+        actions.add(save);
+        actions.add(action("translate", 1, 1));
+        actions.add(beginPath);
+        actions.add(rect);
+        actions.add(clip);
+        actions.add(action("translate", 1, 1));
+        actions.add(lineTo);
+        actions.add(action("stroke"));
+
+        List<CanvasRenderAction> result = collect(actions);
+
+        assertEquals(8, result.size());
+        assertSame(fillStyle, result.get(0));
+        assertSame(save, result.get(1));
+        assertMatrix(result.get(2), 1, 0, 0, 1, 2, 2);
+        assertSame(beginPath, result.get(3));
+        assertSame(rect, result.get(4));
+        assertSame(clip, result.get(5));
+        assertSame(lineTo, result.get(6));
+        assertMatrix(result.get(7), 1, 0, 0, 1, 4, 4);
+    }
+
+    @Test
+    public void restorePath() {
+        List<CanvasRenderAction> actions = new ArrayList<>();
+        CanvasRenderAction beginPath = action("beginPath");
+        CanvasRenderAction moveTo = action("moveTo", 1, 1);
+        actions.add(beginPath);
+        actions.add(moveTo);
+        actions.add(action("save"));
+        actions.add(action("lineTo", 2, 2));
+        actions.add(action("restore"));
+
+        List<CanvasRenderAction> result = collect(actions);
+
+        assertEquals(2, result.size());
+        assertSame(beginPath, result.get(0));
+        assertSame(moveTo, result.get(1));
+    }
+
+    @Test
+    public void keepLatestProperty() {
+        List<CanvasRenderAction> actions = new ArrayList<>();
+        CanvasRenderAction font = property("font", "12px");
+        CanvasRenderAction fillStyle = property("fillStyle", "#00ff00");
+        actions.add(property("fillStyle", "#ff0000"));
+        actions.add(font);
+        actions.add(fillStyle);
+
+        List<CanvasRenderAction> result = collect(actions);
+
+        assertEquals(2, result.size());
+        assertSame(font, result.get(0));
+        assertSame(fillStyle, result.get(1));
+    }
+
+    @Test
+    public void invalidTransform() {
+        List<CanvasRenderAction> actions = new ArrayList<>();
+        actions.add(property("translate", "1,2"));
+        assertNull(CanvasDisplayList.collectStateActions(actions, CONVERTER));
+    }
+
+    @Test
+    public void longAnimation() {
+        List<CanvasRenderAction> compacted = new ArrayList<>();
+        int frames = 20000;
+        int commandLimit = 100;
+        List<CanvasRenderAction> pending = new ArrayList<>(compacted);
+        for (int i = 0; i < frames; i++) {
+            pending.add(action("clearRect", 0, 0, 100, 100));
+            pending.add(action("save"));
+            pending.add(property("fillStyle", "#" + i));
+            pending.add(action("translate", i, 0));
+            pending.add(action("rotate", 0.1f));
+            pending.add(action("beginPath"));
+            pending.add(action("arc", 0, 0, 10, 0, 6.28f, 0));
+            pending.add(action("fill"));
+            pending.add(action("restore"));
+            // 每帧累积的变换
+            pending.add(action("translate", 1, 2));
+            pending.add(property("lineWidth", String.valueOf(i % 3)));
+            if (pending.size() > commandLimit) {
+                compacted = collect(pending);
+                assertTrue("size: " + compacted.size(), compacted.size() <= 2);
+                pending = new ArrayList<>(compacted);
+            }
+        }
+        compacted = collect(pending);
+
+        assertEquals(2, compacted.size());
+        assertEquals("lineWidth", compacted.get(0).getAction());
+        assertMatrix(compacted.get(1), 1, 0, 0, 1, frames * 2, frames * 4);
+    }
+
+    private static List<CanvasRenderAction> collect(List<CanvasRenderAction> actions) {
+        return CanvasDisplayList.collectStateActions(actions, CONVERTER);
+    }
+
+    private static void assertMatrix(
+            CanvasRenderAction action, float a, float b, float c, float d, float e, float f) {
+        assertTrue(action instanceof CanvasDisplayList.MatrixAction);
+        CanvasDisplayList.Transform transform =
+                ((CanvasDisplayList.MatrixAction) action).getTransform();
+        assertEquals(a, transform.a, DELTA);
+        assertEquals(b, transform.b, DELTA);
+        assertEquals(c, transform.c, DELTA);
+        assertEquals(d, transform.d, DELTA);
+        assertEquals(e, transform.e, DELTA);
+        assertEquals(f, transform.f, DELTA);
+    }
+
+    private static CanvasRenderAction action(String name, float... args) {
+        return new CanvasRenderAction(name, args, 0, args.length) {
+            @Override
+            public void render(@NonNull CanvasContextRendering2D context) {
+            }
+        };
+    }
+
+    private static CanvasRenderAction property(String name, String parameter) {
+        return new CanvasRenderAction(name, parameter) {
+            @Override
+            public void render(@NonNull CanvasContextRendering2D context) {
+            }
+        };
+    }
+}
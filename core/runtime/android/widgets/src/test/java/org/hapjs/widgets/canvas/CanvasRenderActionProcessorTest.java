@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.widgets.canvas;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class CanvasRenderActionProcessorTest {
+    private static final int PAGE_ID = 1;
+    private static final int CANVAS_ID = 2;
+
+    private final CanvasRenderActionProcessor mProcessor = new CanvasRenderActionProcessor();
+
+    @Test
+    public void binaryMatchesText() {
+        String text = "in;Sn;cn1,2;bn3.5,-4;Zn10,20,30,40;gn";
+        ByteBuffer binary = new CommandWriter()
+                .command('i')
+                .command('S')
+                .command('c', 1, 2)
+                .command('b', 3.5f, -4)
+                .command('Z', 10, 20, 30, 40)
+                .command('g')
+                .build(false);
+
+        List<Action> expected = mProcessor.process(PAGE_ID, CANVAS_ID, text);
+        List<Action> actual = mProcessor.process(PAGE_ID, CANVAS_ID, binary);
+
+        assertActionsEqual(expected, actual);
+        assertEquals(6, actual.size());
+        assertEquals("fillRect", actual.get(4).getAction());
+    }
+
+    @Test
+    public void directBufferWithTextSegment() {
+        ByteBuffer binary = new CommandWriter()
+                .command('c', 1, 1)
+                .text("Zn1,2,3,4;bn5,6")
+                .command('S')
+                .build(true);
+
+        List<Action> actions = mProcessor.process(PAGE_ID, CANVAS_ID, binary);
+
+        assertEquals(names("moveTo", "fillRect", "lineTo", "beginPath"), names(actions));
+        assertEquals(mProcessor.process(PAGE_ID, CANVAS_ID, "Zn1,2,3,4").get(0).hashCode(),
+                actions.get(1).hashCode());
+    }
+
+    @Test
+    public void wrongArgCountIsSkipped() {
+        ByteBuffer binary = new CommandWriter()
+                .command('b', 1, 2, 3)
+                .command('c', 1, 2)
+                .build(false);
+
+        List<Action> actions = mProcessor.process(PAGE_ID, CANVAS_ID, binary);
+
+        assertEquals(names("moveTo"), names(actions));
+    }
+
+    @Test
+    public void truncatedCommandStopsDecoding() {
+        ByteBuffer binary = new CommandWriter()
+                .command('S')
+                .command('Z', 1, 2, 3, 4)
+                .build(false);
+        // 截掉最后一个参数
+        binary.limit(binary.limit() - 4);
+
+        List<Action> actions = mProcessor.process(PAGE_ID, CANVAS_ID, binary);
+
+        assertEquals(names("beginPath"), names(actions));
+    }
+
+    @Test
+    public void invalidTextLength() {
+        ByteBuffer binary = ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN);
+        binary.put((byte) CanvasRenderActionProcessor.BINARY_OPCODE_TEXT).put((byte) 0);
+        binary.putInt(100);
+        binary.flip();
+
+        assertEquals(0, mProcessor.process(PAGE_ID, CANVAS_ID, binary).size());
+    }
+
+    private static void assertActionsEqual(List<Action> expected, List<Action> actual) {
+        assertEquals(names(expected), names(actual));
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i) instanceof CanvasRenderAction) {
+                assertEquals(expected.get(i).hashCode(), actual.get(i).hashCode());
+            }
+        }
+    }
+
+    private static List<String> names(String... names) {
+        List<String> result = new ArrayList<>();
+        for (String name : names) {
+            result.add(name);
+        }
+        return result;
+    }
+
+    private static List<String> names(List<Action> actions) {
+        List<String> result = new ArrayList<>();
+        for (Action action : actions) {
+            result.add(action.getAction());
+        }
+        return result;
+    }
+
+    private static class CommandWriter {
+        private final ByteBuffer mBuffer =
+                ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        CommandWriter command(char opcode, float... args) {
+            mBuffer.put((byte) opcode).put((byte) args.length);
+            for (float arg : args) {
+                mBuffer.putFloat(arg);
+            }
+            return this;
+        }
+
+        CommandWriter text(String commands) {
+            byte[] bytes = commands.getBytes(StandardCharsets.UTF_8);
+            mBuffer.put((byte) CanvasRenderActionProcessor.BINARY_OPCODE_TEXT).put((byte) 0);
+            mBuffer.putInt(bytes.length);
+            mBuffer.put(bytes);
+            return this;
+        }
+
+        ByteBuffer build(boolean direct) {
+            mBuffer.flip();
+            ByteBuffer result =
+                    direct ? ByteBuffer.allocateDirect(mBuffer.remaining())
+                            : ByteBuffer.allocate(mBuffer.remaining());
+            result.put(mBuffer);
+            result.flip();
+            return result;
+        }
+    }
+}
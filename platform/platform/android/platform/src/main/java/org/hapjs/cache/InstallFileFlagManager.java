@@ -6,14 +6,23 @@
 package org.hapjs.cache;
 
 import android.content.Context;
+import android.text.TextUtils;
 import android.util.Log;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.hapjs.common.net.RangeDownloader;
 import org.hapjs.common.utils.FileUtils;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 public class InstallFileFlagManager {
     private static final String TAG = "InstallFileFlagManager";
 
+    private static final String KEY_URL = "url";
+    private static final String KEY_VALIDATOR = "validator";
+    private static final String KEY_TOTAL_LENGTH = "totalLength";
+
     public static boolean isPackageInstalling(Context context, String pkg) {
         return getInstallingFlag(context, pkg).exists();
     }
@@ -61,4 +70,63 @@ public class InstallFileFlagManager {
         }
         return false;
     }
+
+    /**
+     * 下载中断时的断点信息, 不随安装标记清除, 下次启动后仍可续传
+     */
+    public static RangeDownloader.CheckpointStore getDownloadCheckpointStore(
+            Context context, String pkg, String subpackage) {
+        String name = TextUtils.isEmpty(subpackage) ? pkg : pkg + "-" + subpackage;
+        File file = new File(getCheckpointDir(context), name + ".checkpoint");
+        return new FileCheckpointStore(file);
+    }
+
+    private static File getCheckpointDir(Context context) {
+        return new File(context.getCacheDir(), "downloadCheckpoints");
+    }
+
+    private static class FileCheckpointStore implements RangeDownloader.CheckpointStore {
+        private final File mFile;
+
+        FileCheckpointStore(File file) {
+            mFile = file;
+        }
+
+        @Override
+        public RangeDownloader.Checkpoint load() {
+            if (!mFile.exists()) {
+                return null;
+            }
+            try {
+                JSONObject json = new JSONObject(FileUtils.readFileAsString(mFile));
+                return new RangeDownloader.Checkpoint(
+                        json.getString(KEY_URL),
+                        json.optString(KEY_VALIDATOR, null),
+                        json.optLong(KEY_TOTAL_LENGTH, -1));
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "failed to load checkpoint " + mFile, e);
+                return null;
+            }
+        }
+
+        @Override
+        public void save(RangeDownloader.Checkpoint checkpoint) {
+            try {
+                JSONObject json = new JSONObject();
+                json.put(KEY_URL, checkpoint.getUrl());
+                json.put(KEY_VALIDATOR, checkpoint.getValidator());
+                json.put(KEY_TOTAL_LENGTH, checkpoint.getTotalLength());
+                FileUtils.mkdirs(mFile.getParentFile());
+                FileUtils.saveToFile(
+                        json.toString().getBytes(StandardCharsets.UTF_8), mFile);
+            } catch (JSONException e) {
+                Log.w(TAG, "failed to save checkpoint " + mFile, e);
+            }
+        }
+
+        @Override
+        public void clear() {
+            mFile.delete();
+        }
+    }
 }
@@ -81,6 +81,7 @@ public class DistributionService extends Service {
     private final TaskDispatcher mTaskDispatcher;
     private DistributionManager mDistributionManager;
     private DistributionProvider mDistributionProvider;
+    private PackageDownloader mPackageDownloader;
 
     public DistributionService() {
         mTaskDispatcher = TaskDispatcher.getInstance();
@@ -159,6 +160,7 @@ public class DistributionService extends Service {
     public void onCreate() {
         Log.d(TAG, "Service start");
         mDistributionManager = DistributionManager.getInstance();
+        mPackageDownloader = new PackageDownloader(this);
         super.onCreate();
     }
 
@@ -628,15 +630,23 @@ public class DistributionService extends Service {
                 PackageInstaller installer = task.createInstaller(localArchive);
                 install(task, installer, subpackageName);
             } else if (!task.isApplyUpdateOnly()) {
-                // try to install by stream
                 PackageInstaller installer = null;
-                stream = fetchStream(task.getDistributionMeta(), subpackageName);
-                if (stream != null) {
-                    installer = task.createInstaller(stream);
-                } else {
-                    // fallback to install by file
+                if (task.getType() != Type.FOREGROUND
+                        && mPackageDownloader.isSupported(
+                        mDistributionProvider, task.getDistributionMeta(), subpackageName)) {
+                    // 非前台任务不需要边下边装, 优先使用可断点续传的下载
                     File archive = fetchFile(task.getDistributionMeta(), subpackageName);
                     installer = task.createInstaller(archive);
+                } else {
+                    // try to install by stream
+                    stream = fetchStream(task.getDistributionMeta(), subpackageName);
+                    if (stream != null) {
+                        installer = task.createInstaller(stream);
+                    } else {
+                        // fallback to install by file
+                        File archive = fetchFile(task.getDistributionMeta(), subpackageName);
+                        installer = task.createInstaller(archive);
+                    }
                 }
                 install(task, installer, subpackageName);
             } else {
@@ -687,6 +697,10 @@ public class DistributionService extends Service {
             throws CacheException {
         File packageFile =
                 Cache.getArchiveFile(this, distributionMeta.getPackage(), subpackageName);
+        if (mPackageDownloader.download(
+                mDistributionProvider, distributionMeta, subpackageName, packageFile)) {
+            return packageFile;
+        }
         int result =
                 mDistributionProvider.fetch(
                         distributionMeta, subpackageName, packageFile.getAbsolutePath());
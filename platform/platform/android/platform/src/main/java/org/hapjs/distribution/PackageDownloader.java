@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.distribution;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.telephony.TelephonyManager;
+import android.text.TextUtils;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import org.hapjs.cache.InstallFileFlagManager;
+import org.hapjs.common.net.HttpConfig;
+import org.hapjs.common.net.RangeDownloader;
+
+/**
+ * 可断点续传的 rpk 下载.
+ *
+ * <p>只处理 {@link ResumableDistributionProvider} 提供的 http(s) 地址, 断点信息保存在 {@link InstallFileFlagManager} 中. 多个分包任务可以同时下载, 同时下载的数量按当前网络类型限制.
+ */
+public class PackageDownloader {
+    private static final String TAG = "PackageDownloader";
+
+    private static final int MAX_CONCURRENT_WIFI = 4;
+    private static final int MAX_CONCURRENT_4G = 3;
+    private static final int MAX_CONCURRENT_3G = 2;
+    private static final int MAX_CONCURRENT_SLOW = 1;
+    // 等待期间网络类型可能变化, 定期重新检查
+    private static final long WAIT_TIMEOUT_MS = 1000;
+
+    private final Context mContext;
+    private final Object mLock = new Object();
+    private RangeDownloader mDownloader;
+    private int mRunningCount;
+
+    public PackageDownloader(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    public boolean isSupported(
+            DistributionProvider provider, AppDistributionMeta distributionMeta,
+            String subpackageName) {
+        return getDownloadUrl(provider, distributionMeta, subpackageName) != null;
+    }
+
+    private static String getDownloadUrl(
+            DistributionProvider provider, AppDistributionMeta distributionMeta,
+            String subpackageName) {
+        if (!(provider instanceof ResumableDistributionProvider)) {
+            return null;
+        }
+        String url =
+                ((ResumableDistributionProvider) provider)
+                        .getResumableDownloadUrl(distributionMeta, subpackageName);
+        if (TextUtils.isEmpty(url)
+                || !(url.startsWith("http://") || url.startsWith("https://"))) {
+            return null;
+        }
+        return url;
+    }
+
+    /**
+     * 下载到 destFile
+     *
+     * @return provider 不支持续传或下载失败时返回 false
+     */
+    public boolean download(
+            DistributionProvider provider, AppDistributionMeta distributionMeta,
+            String subpackageName, File destFile) {
+        String url = getDownloadUrl(provider, distributionMeta, subpackageName);
+        if (url == null) {
+            return false;
+        }
+        RangeDownloader.CheckpointStore store =
+                InstallFileFlagManager.getDownloadCheckpointStore(
+                        mContext, distributionMeta.getPackage(), subpackageName);
+        try {
+            acquire();
+        } catch (InterruptedIOException e) {
+            Log.w(TAG, "download interrupted. pkg=" + distributionMeta.getPackage());
+            return false;
+        }
+        try {
+            getDownloader().download(url, destFile, store);
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "failed to download. pkg=" + distributionMeta.getPackage()
+                    + ", subpackage=" + subpackageName, e);
+            return false;
+        } finally {
+            release();
+        }
+    }
+
+    private RangeDownloader getDownloader() {
+        synchronized (mLock) {
+            if (mDownloader == null) {
+                mDownloader = new RangeDownloader(HttpConfig.get().getOkHttpClient());
+            }
+            return mDownloader;
+        }
+    }
+
+    private void acquire() throws InterruptedIOException {
+        synchronized (mLock) {
+            while (mRunningCount >= getConcurrencyLimit()) {
+                try {
+                    mLock.wait(WAIT_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            mRunningCount++;
+        }
+    }
+
+    private void release() {
+        synchronized (mLock) {
+            mRunningCount--;
+            mLock.notifyAll();
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    private int getConcurrencyLimit() {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo =
+                connectivityManager == null ? null : connectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return MAX_CONCURRENT_SLOW;
+        }
+        switch (networkInfo.getType()) {
+            case ConnectivityManager.TYPE_WIFI:
+            case ConnectivityManager.TYPE_ETHERNET:
+                return MAX_CONCURRENT_WIFI;
+            case ConnectivityManager.TYPE_MOBILE:
+                return getMobileConcurrencyLimit(networkInfo.getSubtype());
+            default:
+                return MAX_CONCURRENT_SLOW;
+        }
+    }
+
+    private static int getMobileConcurrencyLimit(int networkType) {
+        switch (networkType) {
+            case TelephonyManager.NETWORK_TYPE_LTE:
+            case TelephonyManager.NETWORK_TYPE_NR:
+                return MAX_CONCURRENT_4G;
+            case TelephonyManager.NETWORK_TYPE_UMTS:
+            case TelephonyManager.NETWORK_TYPE_EVDO_0:
+            case TelephonyManager.NETWORK_TYPE_EVDO_A:
+            case TelephonyManager.NETWORK_TYPE_EVDO_B:
+            case TelephonyManager.NETWORK_TYPE_HSDPA:
+            case TelephonyManager.NETWORK_TYPE_HSUPA:
+            case TelephonyManager.NETWORK_TYPE_HSPA:
+            case TelephonyManager.NETWORK_TYPE_HSPAP:
+            case TelephonyManager.NETWORK_TYPE_EHRPD:
+            case TelephonyManager.NETWORK_TYPE_TD_SCDMA:
+                return MAX_CONCURRENT_3G;
+            default:
+                return MAX_CONCURRENT_SLOW;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2021, the hapjs-platform Project Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hapjs.distribution;
+
+/**
+ * 支持断点续传下载的 {@link DistributionProvider}.
+ *
+ * <p>只有实现此接口的 provider 才会由 {@link PackageDownloader} 按 http range 请求下载, 其它 provider 通过
+ * {@link DistributionProvider#fetch} 获取 rpk.
+ */
+public interface ResumableDistributionProvider extends DistributionProvider {
+
+    /**
+     * @param distributionMeta distributionMeta
+     * @param subpackageName   subpackageName
+     * @return 可以断点续传的 http(s) 下载地址, 不支持时返回 null
+     */
+    String getResumableDownloadUrl(AppDistributionMeta distributionMeta, String subpackageName);
+}
@@ -7,14 +7,28 @@ package org.hapjs.distribution.task;
 
 import android.os.Handler;
 import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import org.hapjs.common.executors.Executor;
 import org.hapjs.common.executors.Executors;
 import org.hapjs.distribution.task.Task.Type;
 import org.hapjs.logging.RuntimeLogManager;
 
+/**
+ * 安装任务调度.
+ *
+ * <p>每种 {@link Type} 一个就绪队列, 后分发的任务先执行, 各类型运行中的数量用计数器维护, 调度一个任务为 O(1).
+ * 任务在独立的线程池中执行, 不与页面的 io 任务竞争. 前台任务不受低优先级任务占用的名额限制, 运行中的低优先级任务降低线程优先级;
+ * 同一个包的任务在前台启动时被重新分发为 {@link Type#FOREGROUND}, 已在运行的任务随之恢复线程优先级.
+ */
 public class TaskDispatcher {
     private static final String TAG = "TaskDispatcher";
 
@@ -25,8 +39,15 @@ public class TaskDispatcher {
 
     private static final int MSG_DISPATCH_TASKS = 0;
     private static final int MSG_ON_TASK_FINISH = 1;
-    private final List<Task> mReadyTasks = new LinkedList<>();
-    private final List<Task> mRunningTasks = new LinkedList<>();
+
+    private final Executor mExecutor = Executors.backgroundExecutor();
+    private final Map<Type, ArrayDeque<Entry>> mReadyQueues = new EnumMap<>(Type.class);
+    // 就绪任务当前有效的队列项, 重新分发后旧的队列项失效, 出队时跳过
+    private final Map<Task, Entry> mReadyTasks = new HashMap<>();
+    private final Map<Task, TaskWrapper> mRunningTasks = new HashMap<>();
+    private final int[] mRunningCounts = new int[Type.values().length];
+    private int mLowPriorityRunningCount;
+    private final Statistics mStatistics = new Statistics();
     private Handler mHandler =
             new Handler() {
                 @Override
@@ -36,7 +57,7 @@ public class TaskDispatcher {
                             dispatchTasksInner((List) msg.obj);
                             break;
                         case MSG_ON_TASK_FINISH:
-                            onTaskFinished((Task) msg.obj);
+                            onTaskFinished((TaskWrapper) msg.obj);
                             break;
                         default:
                             break;
@@ -45,6 +66,9 @@ public class TaskDispatcher {
             };
 
     private TaskDispatcher() {
+        for (Type type : Type.values()) {
+            mReadyQueues.put(type, new ArrayDeque<>());
+        }
     }
 
     public static TaskDispatcher getInstance() {
@@ -61,69 +85,122 @@ public class TaskDispatcher {
         mHandler.obtainMessage(MSG_DISPATCH_TASKS, tasks).sendToTarget();
     }
 
+    /**
+     * 排队时间和吞吐量统计
+     */
+    public String getStatistics() {
+        return mStatistics.toString();
+    }
+
     private void dispatchTasksInner(List<Task> tasks) {
         Log.d(TAG, "dispatch task=" + tasks);
-        List<Task> tmpTasks = new LinkedList<>();
-        for (Task task : tasks) {
-            if (!task.isDone() && !mRunningTasks.contains(task)) {
-                tmpTasks.add(task);
+        long now = SystemClock.elapsedRealtime();
+        // 倒序加到队首, 保持同一批任务的先后顺序
+        for (ListIterator<Task> i = tasks.listIterator(tasks.size()); i.hasPrevious(); ) {
+            Task task = i.previous();
+            if (task.isDone()) {
+                continue;
+            }
+            TaskWrapper running = mRunningTasks.get(task);
+            if (running != null) {
+                updateRunningType(running);
+                continue;
             }
+            Entry old = mReadyTasks.get(task);
+            Entry entry = new Entry(task, task.getType(), old == null ? now : old.mEnqueueTime);
+            mReadyTasks.put(task, entry);
+            mReadyQueues.get(entry.mType).addFirst(entry);
         }
-        mReadyTasks.removeAll(tasks);
-        mReadyTasks.addAll(0, tmpTasks);
         schedule();
     }
 
-    private void onTaskFinished(Task task) {
-        if (!mRunningTasks.remove(task)) {
+    private void onTaskFinished(TaskWrapper wrapper) {
+        if (mRunningTasks.remove(wrapper.mTask) == null) {
             Log.w(TAG, "remove task failed");
+        } else {
+            decreaseRunningCount(wrapper.mRunningType);
+            mStatistics.onFinished(wrapper.mRunningType);
         }
         schedule();
     }
 
     private void schedule() {
-        if (mRunningTasks.size() >= MAXIMUM_RUNNING_SIZE) {
-            return;
-        }
         if (mReadyTasks.isEmpty()) {
             return;
         }
 
         for (Type type : Type.values()) {
             // no other type can run when FOREGROUND task is running
-            if (type != Type.FOREGROUND && runningTaskCount(Type.FOREGROUND) > 0) {
+            if (type != Type.FOREGROUND && mRunningCounts[Type.FOREGROUND.ordinal()] > 0) {
                 return;
             }
-            for (Iterator<Task> i = mReadyTasks.iterator(); i.hasNext(); ) {
-                Task task = i.next();
-
-                if (task.isDone()) {
-                    i.remove();
+            ArrayDeque<Entry> queue = mReadyQueues.get(type);
+            while (canRun(type)) {
+                Entry entry = queue.pollFirst();
+                if (entry == null) {
+                    break;
+                }
+                if (mReadyTasks.get(entry.mTask) != entry) {
+                    // 已被重新分发
                     continue;
                 }
-
-                if (task.getType() == type && runningTaskCount(type) < maxTaskCount(type)) {
-                    i.remove();
-                    mRunningTasks.add(task);
-                    Log.d(TAG, "execute " + task);
-                    Executors.io().execute(new TaskWrapper(task));
-
-                    if (mRunningTasks.size() >= MAXIMUM_RUNNING_SIZE) {
-                        return;
-                    }
+                mReadyTasks.remove(entry.mTask);
+                if (entry.mTask.isDone()) {
+                    continue;
                 }
+                execute(entry, type);
             }
         }
     }
 
-    private int runningTaskCount(Type type) {
-        int result = 0;
-        for (Task task : mRunningTasks) {
-            if (task.getType() == type) {
-                result++;
-            }
+    private boolean canRun(Type type) {
+        if (mRunningCounts[type.ordinal()] >= maxTaskCount(type)) {
+            return false;
+        }
+        // 低优先级任务占用的名额不限制前台任务
+        if (type == Type.FOREGROUND) {
+            return true;
+        }
+        return mRunningCounts[Type.FOREGROUND.ordinal()] + mLowPriorityRunningCount
+                < MAXIMUM_RUNNING_SIZE;
+    }
+
+    private void execute(Entry entry, Type type) {
+        TaskWrapper wrapper = new TaskWrapper(entry.mTask, type);
+        mRunningTasks.put(entry.mTask, wrapper);
+        increaseRunningCount(type);
+        mStatistics.onStarted(type, SystemClock.elapsedRealtime() - entry.mEnqueueTime);
+        Log.d(TAG, "execute " + entry.mTask);
+        mExecutor.execute(wrapper);
+    }
+
+    /**
+     * 运行中的任务类型被修改后重新分发, 按新的类型计数并调整线程优先级
+     */
+    private void updateRunningType(TaskWrapper wrapper) {
+        Type type = wrapper.mTask.getType();
+        if (type == wrapper.mRunningType) {
+            return;
+        }
+        Log.d(TAG, "change running task type from " + wrapper.mRunningType + ", " + wrapper.mTask);
+        decreaseRunningCount(wrapper.mRunningType);
+        increaseRunningCount(type);
+        wrapper.mRunningType = type;
+        wrapper.updateThreadPriority();
+    }
+
+    private void increaseRunningCount(Type type) {
+        mRunningCounts[type.ordinal()]++;
+        if (type != Type.FOREGROUND) {
+            mLowPriorityRunningCount++;
+        }
+    }
+
+    private void decreaseRunningCount(Type type) {
+        mRunningCounts[type.ordinal()]--;
+        if (type != Type.FOREGROUND) {
+            mLowPriorityRunningCount--;
         }
-        return result;
     }
 
     private int maxTaskCount(Type type) {
@@ -143,21 +220,106 @@ public class TaskDispatcher {
         private static final TaskDispatcher sInstance = new TaskDispatcher();
     }
 
+    private static class Entry {
+        private final Task mTask;
+        private final Type mType;
+        private final long mEnqueueTime;
+
+        Entry(Task task, Type type, long enqueueTime) {
+            mTask = task;
+            mType = type;
+            mEnqueueTime = enqueueTime;
+        }
+    }
+
+    private static class Statistics {
+        private final int[] mStartedCounts = new int[Type.values().length];
+        private final int[] mFinishedCounts = new int[Type.values().length];
+        private final long[] mTotalWaitTimes = new long[Type.values().length];
+        private final long[] mMaxWaitTimes = new long[Type.values().length];
+        private long mFirstStartTime;
+
+        synchronized void onStarted(Type type, long waitTime) {
+            int index = type.ordinal();
+            if (mFirstStartTime == 0) {
+                mFirstStartTime = SystemClock.elapsedRealtime();
+            }
+            mStartedCounts[index]++;
+            mTotalWaitTimes[index] += waitTime;
+            mMaxWaitTimes[index] = Math.max(mMaxWaitTimes[index], waitTime);
+            if (type == Type.FOREGROUND) {
+                Log.d(TAG, "foreground task waited " + waitTime + "ms");
+            }
+        }
+
+        synchronized void onFinished(Type type) {
+            mFinishedCounts[type.ordinal()]++;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder sb = new StringBuilder();
+            int finished = 0;
+            for (Type type : Type.values()) {
+                int index = type.ordinal();
+                int started = mStartedCounts[index];
+                finished += mFinishedCounts[index];
+                sb.append(type)
+                        .append(": started=").append(started)
+                        .append(", finished=").append(mFinishedCounts[index])
+                        .append(", avgWait=")
+                        .append(started == 0 ? 0 : mTotalWaitTimes[index] / started)
+                        .append("ms, maxWait=").append(mMaxWaitTimes[index])
+                        .append("ms; ");
+            }
+            long elapsed = mFirstStartTime == 0
+                    ? 0 : SystemClock.elapsedRealtime() - mFirstStartTime;
+            sb.append("throughput=")
+                    .append(elapsed == 0 ? 0 : finished * 60000L / elapsed)
+                    .append("/min");
+            return sb.toString();
+        }
+    }
+
     private class TaskWrapper implements Runnable {
-        private Task mTask;
+        private final Task mTask;
+        // 只在调度线程中修改
+        private volatile Type mRunningType;
+        private volatile int mTid;
 
-        TaskWrapper(Task task) {
+        TaskWrapper(Task task, Type type) {
             mTask = task;
+            mRunningType = type;
+        }
+
+        void updateThreadPriority() {
+            int tid = mTid;
+            if (tid != 0) {
+                try {
+                    Process.setThreadPriority(tid, getThreadPriority());
+                } catch (IllegalArgumentException | SecurityException e) {
+                    Log.w(TAG, "set thread priority failed", e);
+                }
+            }
+        }
+
+        private int getThreadPriority() {
+            return mRunningType == Type.FOREGROUND
+                    ? Process.THREAD_PRIORITY_DEFAULT : Process.THREAD_PRIORITY_BACKGROUND;
         }
 
         @Override
         public void run() {
             RuntimeLogManager.getDefault()
                     .logAsyncThreadTaskStart(mTask.getPackage(), "taskDispatcher");
+            mTid = Process.myTid();
+            Process.setThreadPriority(getThreadPriority());
             try {
                 mTask.getFuture().run();
             } finally {
-                mHandler.obtainMessage(MSG_ON_TASK_FINISH, mTask).sendToTarget();
+                mTid = 0;
+                Process.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+                mHandler.obtainMessage(MSG_ON_TASK_FINISH, this).sendToTarget();
             }
             RuntimeLogManager.getDefault()
                     .logAsyncThreadTaskEnd(mTask.getPackage(), "taskDispatcher");